@@ -32,6 +32,8 @@ import org.thingsboard.server.common.msg.rule.engine.DeviceNameOrTypeUpdateMsg;
 import org.thingsboard.server.common.msg.timeout.DeviceActorServerSideRpcTimeoutMsg;
 import org.thingsboard.server.service.transport.msg.TransportToDeviceActorMsgWrapper;
 
+import java.util.List;
+
 @Slf4j
 public class DeviceActor extends ContextAwareActor {
 
@@ -97,4 +99,27 @@ public class DeviceActor extends ContextAwareActor {
         return true;
     }
 
+    /*
+     * Processes the messages one by one, but writes the device sessions to the cache once per batch
+     * instead of once per session event.
+     * */
+    @Override
+    public boolean processBatch(List<TbActorMsg> msgs) {
+        processor.deferSessionsDump();
+        try {
+            for (TbActorMsg msg : msgs) {
+                try {
+                    process(msg);
+                } catch (Exception e) {
+                    if (onProcessFailure(msg, e).isStop()) {
+                        ctx.stop(ctx.getSelf());
+                    }
+                }
+            }
+        } finally {
+            processor.flushSessionsDump();
+        }
+        return true;
+    }
+
 }
@@ -138,6 +138,8 @@ public class DeviceActorMessageProcessor extends AbstractContextAwareMsgProcesso
     private TbMsgMetaData defaultMetaData;
     private EdgeId edgeId;
     private ScheduledFuture<?> awaitRpcResponseFuture;
+    private boolean sessionsDumpDeferred;
+    private boolean sessionsDumpPending;
 
     DeviceActorMessageProcessor(ActorSystemContext systemContext, TenantId tenantId, DeviceId deviceId) {
         super(systemContext);
@@ -975,10 +977,30 @@ public class DeviceActorMessageProcessor extends AbstractContextAwareMsgProcesso
         log.debug("[{}] Restored sessions: {}, RPC subscriptions: {}, attribute subscriptions: {}", deviceId, sessions.size(), rpcSubscriptions.size(), attributeSubscriptions.size());
     }
 
+    /*
+     * While the dump is deferred, the session changes are only marked as pending
+     * and written to the cache once by flushSessionsDump.
+     * */
+    void deferSessionsDump() {
+        sessionsDumpDeferred = true;
+    }
+
+    void flushSessionsDump() {
+        sessionsDumpDeferred = false;
+        if (sessionsDumpPending) {
+            sessionsDumpPending = false;
+            dumpSessions();
+        }
+    }
+
     private void dumpSessions() {
         if (systemContext.isLocalCacheType()) {
             return;
         }
+        if (sessionsDumpDeferred) {
+            sessionsDumpPending = true;
+            return;
+        }
         log.debug("[{}] Dumping sessions: {}, RPC subscriptions: {}, attribute subscriptions: {} to cache", deviceId, sessions.size(), rpcSubscriptions.size(), attributeSubscriptions.size());
         List<SessionSubscriptionInfoProto> sessionsList = new ArrayList<>(sessions.size());
         sessions.forEach((uuid, sessionMD) -> {
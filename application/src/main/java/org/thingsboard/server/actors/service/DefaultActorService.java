@@ -34,6 +34,7 @@ import org.thingsboard.server.actors.app.AppInitMsg;
 import org.thingsboard.server.actors.stats.StatsActor;
 import org.thingsboard.server.common.msg.queue.PartitionChangeMsg;
 import org.thingsboard.server.common.msg.queue.ServiceType;
+import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.queue.discovery.TbApplicationEventListener;
 import org.thingsboard.server.queue.discovery.event.PartitionChangeEvent;
 import org.thingsboard.server.queue.util.AfterStartUp;
@@ -50,16 +51,29 @@ public class DefaultActorService extends TbApplicationEventListener<PartitionCha
     public static final String DEVICE_DISPATCHER_NAME = "device-dispatcher";
     public static final String RULE_DISPATCHER_NAME = "rule-dispatcher";
 
+    private static final String VIRTUAL_DISPATCHER_TYPE = "virtual";
+
     @Autowired
     private ActorSystemContext actorContext;
 
+    @Autowired
+    private StatsFactory statsFactory;
+
     private TbActorSystem system;
 
     private TbActorRef appActor;
 
+    private VirtualThreadPinningMonitor pinningMonitor;
+
     @Value("${actors.system.throughput:5}")
     private int actorThroughput;
 
+    @Value("${actors.system.batch_mailbox.enabled:false}")
+    private boolean batchMailbox;
+
+    @Value("${actors.system.batch_mailbox.max_throughput:100}")
+    private int maxActorThroughput;
+
     @Value("${actors.system.max_actor_init_attempts:10}")
     private int maxActorInitAttempts;
 
@@ -78,17 +92,44 @@ public class DefaultActorService extends TbApplicationEventListener<PartitionCha
     @Value("${actors.system.rule_dispatcher_pool_size:8}")
     private int ruleDispatcherSize;
 
+    @Value("${actors.system.app_dispatcher_max_concurrency:64}")
+    private int appDispatcherMaxConcurrency;
+
+    @Value("${actors.system.tenant_dispatcher_max_concurrency:128}")
+    private int tenantDispatcherMaxConcurrency;
+
+    @Value("${actors.system.device_dispatcher_max_concurrency:1024}")
+    private int deviceDispatcherMaxConcurrency;
+
+    @Value("${actors.system.rule_dispatcher_max_concurrency:1024}")
+    private int ruleDispatcherMaxConcurrency;
+
+    @Value("${actors.system.app_dispatcher_type:platform}")
+    private String appDispatcherType;
+
+    @Value("${actors.system.tenant_dispatcher_type:platform}")
+    private String tenantDispatcherType;
+
+    @Value("${actors.system.device_dispatcher_type:platform}")
+    private String deviceDispatcherType;
+
+    @Value("${actors.system.rule_dispatcher_type:platform}")
+    private String ruleDispatcherType;
+
+    @Value("${actors.system.virtual_thread_pinned_threshold_ms:20}")
+    private long virtualThreadPinnedThresholdMs;
+
     @PostConstruct
     public void initActorSystem() {
         log.info("Initializing actor system.");
         actorContext.setActorService(this);
-        TbActorSystemSettings settings = new TbActorSystemSettings(actorThroughput, schedulerPoolSize, maxActorInitAttempts);
-        system = new DefaultTbActorSystem(settings);
+        TbActorSystemSettings settings = new TbActorSystemSettings(actorThroughput, schedulerPoolSize, maxActorInitAttempts, batchMailbox, maxActorThroughput);
+        system = new DefaultTbActorSystem(settings, statsFactory);
 
-        system.createDispatcher(APP_DISPATCHER_NAME, initDispatcherExecutor(APP_DISPATCHER_NAME, appDispatcherSize));
-        system.createDispatcher(TENANT_DISPATCHER_NAME, initDispatcherExecutor(TENANT_DISPATCHER_NAME, tenantDispatcherSize));
-        system.createDispatcher(DEVICE_DISPATCHER_NAME, initDispatcherExecutor(DEVICE_DISPATCHER_NAME, deviceDispatcherSize));
-        system.createDispatcher(RULE_DISPATCHER_NAME, initDispatcherExecutor(RULE_DISPATCHER_NAME, ruleDispatcherSize));
+        system.createDispatcher(APP_DISPATCHER_NAME, initDispatcherExecutor(APP_DISPATCHER_NAME, appDispatcherSize, appDispatcherMaxConcurrency, appDispatcherType));
+        system.createDispatcher(TENANT_DISPATCHER_NAME, initDispatcherExecutor(TENANT_DISPATCHER_NAME, tenantDispatcherSize, tenantDispatcherMaxConcurrency, tenantDispatcherType));
+        system.createDispatcher(DEVICE_DISPATCHER_NAME, initDispatcherExecutor(DEVICE_DISPATCHER_NAME, deviceDispatcherSize, deviceDispatcherMaxConcurrency, deviceDispatcherType));
+        system.createDispatcher(RULE_DISPATCHER_NAME, initDispatcherExecutor(RULE_DISPATCHER_NAME, ruleDispatcherSize, ruleDispatcherMaxConcurrency, ruleDispatcherType));
 
         actorContext.setActorSystem(system);
 
@@ -101,11 +142,22 @@ public class DefaultActorService extends TbApplicationEventListener<PartitionCha
         log.info("Actor system initialized.");
     }
 
-    private ExecutorService initDispatcherExecutor(String dispatcherName, int poolSize) {
+    private ExecutorService initDispatcherExecutor(String dispatcherName, int poolSize, int maxConcurrency, String dispatcherType) {
         if (poolSize == 0) {
             int cores = Runtime.getRuntime().availableProcessors();
             poolSize = Math.max(1, cores / 2);
         }
+        if (VIRTUAL_DISPATCHER_TYPE.equalsIgnoreCase(dispatcherType)) {
+            if (ThingsBoardExecutors.isVirtualThreadSupported()) {
+                log.info("[{}] Using virtual threads dispatcher with max concurrency {}", dispatcherName, maxConcurrency);
+                if (pinningMonitor == null) {
+                    pinningMonitor = new VirtualThreadPinningMonitor(statsFactory, virtualThreadPinnedThresholdMs);
+                    pinningMonitor.start();
+                }
+                return ThingsBoardExecutors.newVirtualThreadPool(maxConcurrency, dispatcherName);
+            }
+            log.warn("[{}] Virtual threads are not supported by the current runtime, using platform threads dispatcher with pool size {}", dispatcherName, poolSize);
+        }
         if (poolSize == 1) {
             return Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName(dispatcherName));
         } else {
@@ -137,6 +189,9 @@ public class DefaultActorService extends TbApplicationEventListener<PartitionCha
             system.stop();
             log.info("Actor system stopped.");
         }
+        if (pinningMonitor != null) {
+            pinningMonitor.stop();
+        }
     }
 
 }
@@ -0,0 +1,110 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.service;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Reports virtual threads of the actor dispatchers that were pinned to their carrier thread,
+ * e.g. blocked inside a synchronized block or a native call. Pinned threads reduce the effective
+ * parallelism of the virtual threads dispatcher down to the number of carrier threads.
+ */
+@Slf4j
+class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String PINNED_COUNTER = "actors.virtualThreadPinned";
+    private static final String VIRTUAL_THREAD_NAME_SEPARATOR = "-virtual-";
+    private static final int MAX_STACK_TRACE_FRAMES = 16;
+
+    private final StatsFactory statsFactory;
+    private final long thresholdMs;
+    private final ConcurrentMap<String, DefaultCounter> pinnedCounters = new ConcurrentHashMap<>();
+    private RecordingStream recordingStream;
+
+    VirtualThreadPinningMonitor(StatsFactory statsFactory, long thresholdMs) {
+        this.statsFactory = statsFactory;
+        this.thresholdMs = thresholdMs;
+    }
+
+    void start() {
+        try {
+            recordingStream = new RecordingStream();
+            recordingStream.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+            recordingStream.onEvent(PINNED_EVENT, this::onPinned);
+            recordingStream.startAsync();
+            log.info("Started monitoring of the virtual threads pinned for more than {} ms", thresholdMs);
+        } catch (Exception e) {
+            log.warn("Failed to start monitoring of the pinned virtual threads", e);
+            recordingStream = null;
+        }
+    }
+
+    void stop() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        RecordedThread thread = event.getThread();
+        String threadName = thread != null ? thread.getJavaName() : null;
+        if (threadName == null) {
+            return;
+        }
+        int separatorIdx = threadName.indexOf(VIRTUAL_THREAD_NAME_SEPARATOR);
+        if (separatorIdx < 0) {
+            // not a dispatcher thread
+            return;
+        }
+        String dispatcherName = threadName.substring(0, separatorIdx);
+        pinnedCounters.computeIfAbsent(dispatcherName, name -> statsFactory.createDefaultCounter(PINNED_COUNTER, "dispatcher", name)).increment();
+        if (log.isWarnEnabled()) {
+            log.warn("[{}] Virtual thread {} was pinned to its carrier thread for {} ms at:{}",
+                    dispatcherName, threadName, event.getDuration().toMillis(), formatStackTrace(event.getStackTrace()));
+        }
+    }
+
+    private static String formatStackTrace(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return " <unknown>";
+        }
+        StringBuilder sb = new StringBuilder();
+        int frames = 0;
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (frames++ == MAX_STACK_TRACE_FRAMES) {
+                sb.append(System.lineSeparator()).append("\t...");
+                break;
+            }
+            sb.append(System.lineSeparator()).append("\tat ")
+                    .append(frame.getMethod().getType().getName()).append('.').append(frame.getMethod().getName())
+                    .append(':').append(frame.getLineNumber());
+        }
+        return sb.toString();
+    }
+
+}
@@ -557,6 +557,18 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
         return false;
     }
 
+    @Override
+    public boolean isSendInProgress(WebSocketSessionRef sessionRef) {
+        String internalId = externalSessionMap.get(sessionRef.getSessionId());
+        if (internalId != null) {
+            SessionMetaData sessionMd = getSessionMd(internalId);
+            if (sessionMd != null) {
+                return sessionMd.isSending.get() || sessionMd.outboundMsgQueueSize.get() > 0;
+            }
+        }
+        return false;
+    }
+
     private boolean checkLimits(WebSocketSession session, WebSocketSessionRef sessionRef) throws IOException {
         var tenantProfileConfiguration = getTenantProfileConfiguration(sessionRef);
         if (tenantProfileConfiguration == null) {
@@ -19,6 +19,7 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningScheduledExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.thingsboard.common.util.DonAsynchron;
@@ -26,6 +27,7 @@ import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.msg.queue.ServiceType;
 import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.queue.discovery.PartitionService;
 import org.thingsboard.server.queue.discovery.TbApplicationEventListener;
 import org.thingsboard.server.queue.discovery.event.PartitionChangeEvent;
@@ -41,6 +43,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 public abstract class AbstractPartitionBasedService<T extends EntityId> extends TbApplicationEventListener<PartitionChangeEvent> {
@@ -51,7 +54,11 @@ public abstract class AbstractPartitionBasedService<T extends EntityId> extends
 
     @Autowired
     protected PartitionService partitionService;
+    @Autowired
+    protected StatsFactory statsFactory;
     protected ListeningScheduledExecutorService scheduledExecutor;
+    private Timer partitionHandoffTimer;
+    private Timer failedPartitionHandoffTimer;
 
     abstract protected String getServiceName();
 
@@ -68,6 +75,10 @@ public abstract class AbstractPartitionBasedService<T extends EntityId> extends
     protected void init() {
         // Should be always single threaded due to absence of locks.
         scheduledExecutor = MoreExecutors.listeningDecorator(Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName(getSchedulerExecutorName())));
+        if (statsFactory != null) {
+            partitionHandoffTimer = statsFactory.createTimer("partitionHandoff.latency", "service", getServiceName(), "status", "success");
+            failedPartitionHandoffTimer = statsFactory.createTimer("partitionHandoff.latency", "service", getServiceName(), "status", "failure");
+        }
     }
 
     protected ServiceType getServiceType() {
@@ -124,6 +135,9 @@ public abstract class AbstractPartitionBasedService<T extends EntityId> extends
             log.info("[{}] REMOVED PARTITIONS: {}", getServiceName(), removedPartitions);
 
             boolean partitionListChanged = false;
+            if (!removedPartitions.isEmpty()) {
+                onPartitionsRemoval(removedPartitions);
+            }
             // We no longer manage current partition of entities;
             for (var partition : removedPartitions) {
                 Set<T> entities = partitionedEntities.remove(partition);
@@ -142,10 +156,16 @@ public abstract class AbstractPartitionBasedService<T extends EntityId> extends
             addedPartitions.forEach(tpi -> partitionedEntities.computeIfAbsent(tpi, key -> ConcurrentHashMap.newKeySet()));
 
             if (!addedPartitions.isEmpty()) {
+                long handoffStartTs = System.nanoTime();
                 var fetchTasks = onAddedPartitions(addedPartitions);
                 if (fetchTasks != null && !fetchTasks.isEmpty()) {
                     partitionedFetchTasks.putAll(fetchTasks);
                 }
+                for (TopicPartitionInfo tpi : addedPartitions) {
+                    List<ListenableFuture<?>> tpiFetchTasks = fetchTasks != null ? fetchTasks.getOrDefault(tpi, List.of()) : List.of();
+                    Futures.whenAllComplete(tpiFetchTasks)
+                            .run(() -> onPartitionHandoffCompleted(tpi, handoffStartTs, tpiFetchTasks), MoreExecutors.directExecutor());
+                }
                 partitionListChanged = true;
             }
 
@@ -179,6 +199,36 @@ public abstract class AbstractPartitionBasedService<T extends EntityId> extends
     protected void onRepartitionEvent() {
     }
 
+    /**
+     * Called before the state of the removed partitions is dropped, so it can be handed off (e.g. flushed to the DB)
+     * for the new owner of the partitions.
+     */
+    protected void onPartitionsRemoval(Set<TopicPartitionInfo> removedPartitions) {
+    }
+
+    private void onPartitionHandoffCompleted(TopicPartitionInfo tpi, long handoffStartTs, List<ListenableFuture<?>> fetchTasks) {
+        long durationNanos = System.nanoTime() - handoffStartTs;
+        boolean success = fetchTasks.stream().allMatch(AbstractPartitionBasedService::isSucceeded);
+        Timer timer = success ? partitionHandoffTimer : failedPartitionHandoffTimer;
+        if (timer != null) {
+            timer.record(durationNanos, TimeUnit.NANOSECONDS);
+        }
+        if (success) {
+            log.info("[{}][{}] Partition state is initialized in {} ms", getServiceName(), tpi.getFullTopicName(), TimeUnit.NANOSECONDS.toMillis(durationNanos));
+        } else {
+            log.warn("[{}][{}] Partition state initialization failed in {} ms", getServiceName(), tpi.getFullTopicName(), TimeUnit.NANOSECONDS.toMillis(durationNanos));
+        }
+    }
+
+    private static boolean isSucceeded(ListenableFuture<?> future) {
+        try {
+            Futures.getDone(future);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
     private Set<TopicPartitionInfo> getLatestPartitions() {
         log.debug("getLatestPartitionsFromQueue, queue size {}", subscribeQueue.size());
         Set<TopicPartitionInfo> partitions = null;
@@ -52,6 +52,7 @@ import org.thingsboard.server.common.data.page.PageData;
 import org.thingsboard.server.common.data.page.PageLink;
 import org.thingsboard.server.common.data.plugin.ComponentLifecycleEvent;
 import org.thingsboard.server.common.data.queue.Queue;
+import org.thingsboard.server.common.data.security.DeviceCredentials;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.ToDeviceActorNotificationMsg;
 import org.thingsboard.server.common.msg.edge.EdgeEventUpdateMsg;
@@ -375,6 +376,11 @@ public class DefaultTbClusterService implements TbClusterService {
         broadcastEntityStateChangeEvent(tenantId, deviceId, ComponentLifecycleEvent.DELETED);
     }
 
+    @Override
+    public void onDeviceCredentialsUpdated(TenantId tenantId, DeviceCredentials deviceCredentials, TbQueueCallback callback) {
+        broadcastEntityChangeToTransport(tenantId, deviceCredentials.getDeviceId(), deviceCredentials, callback);
+    }
+
     @Override
     public void onDeviceAssignedToTenant(TenantId oldTenantId, Device device) {
         onDeviceDeleted(oldTenantId, device, null);
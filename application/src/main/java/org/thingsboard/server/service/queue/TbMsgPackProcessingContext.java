@@ -74,6 +74,17 @@ public class TbMsgPackProcessingContext {
         return success;
     }
 
+    /**
+     * Waits for the processing of the pack without treating the expiration of the waiting time as the pack timeout.
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        return processingTimeoutLatch.await(timeout, unit);
+    }
+
+    public boolean isCompleted() {
+        return processingTimeoutLatch.getCount() == 0;
+    }
+
     public void onSuccess(UUID id) {
         TbProtoQueueMsg<TransportProtos.ToRuleEngineMsg> msg;
         boolean empty = false;
@@ -16,6 +16,7 @@
 package org.thingsboard.server.service.queue;
 
 import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.msg.queue.RuleEngineException;
@@ -32,6 +33,7 @@ import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 public class TbRuleEngineConsumerStats {
@@ -44,7 +46,10 @@ public class TbRuleEngineConsumerStats {
     public static final String FAILED_MSGS = "failedMsgs";
     public static final String SUCCESSFUL_ITERATIONS = "successfulIterations";
     public static final String FAILED_ITERATIONS = "failedIterations";
+    public static final String IN_FLIGHT_PACKS = "inFlightPacks";
+    public static final String WATERMARK_LAG_MSGS = "watermarkLagMsgs";
     public static final String TENANT_ID_TAG = "tenantId";
+    private static final String STATS_NAME_TAG = "statsName";
 
     private final StatsFactory statsFactory;
 
@@ -59,6 +64,17 @@ public class TbRuleEngineConsumerStats {
     private final StatsCounter successIterationsCounter;
     private final StatsCounter failedIterationsCounter;
 
+    /**
+     * Number of packs that are polled, but not committed yet, in pipelined mode
+     */
+    @Getter
+    private final AtomicInteger inFlightPacks = new AtomicInteger();
+    /**
+     * Number of messages that are polled, but not committed yet, in pipelined mode
+     */
+    @Getter
+    private final AtomicInteger watermarkLagMsgs = new AtomicInteger();
+
     private final List<StatsCounter> counters = new ArrayList<>();
     private final ConcurrentMap<UUID, TbTenantRuleEngineStats> tenantStats = new ConcurrentHashMap<>();
     private final ConcurrentMap<TenantId, Timer> tenantMsgProcessTimers = new ConcurrentHashMap<>();
@@ -92,6 +108,9 @@ public class TbRuleEngineConsumerStats {
         counters.add(tmpFailedMsgCounter);
         counters.add(successIterationsCounter);
         counters.add(failedIterationsCounter);
+
+        statsFactory.createGauge(statsKey, inFlightPacks, STATS_NAME_TAG, IN_FLIGHT_PACKS, TENANT_ID_TAG, tenant);
+        statsFactory.createGauge(statsKey, watermarkLagMsgs, STATS_NAME_TAG, WATERMARK_LAG_MSGS, TENANT_ID_TAG, tenant);
     }
 
     public Timer getTimer(TenantId tenantId, String status) {
@@ -206,6 +206,7 @@ public class MainQueueConsumerManager<M extends TbQueueMsg, C extends QueueConfi
             try {
                 List<M> msgs = consumer.poll(config.getPollInterval());
                 if (msgs.isEmpty()) {
+                    onEmptyPoll(consumer, config);
                     continue;
                 }
                 processMsgs(msgs, consumer, config);
@@ -220,6 +221,7 @@ public class MainQueueConsumerManager<M extends TbQueueMsg, C extends QueueConfi
                 }
             }
         }
+        onConsumerStopped(consumer);
         if (consumer.isStopped()) {
             consumer.unsubscribe();
         }
@@ -229,6 +231,18 @@ public class MainQueueConsumerManager<M extends TbQueueMsg, C extends QueueConfi
         msgPackProcessor.process(msgs, consumer, config);
     }
 
+    /**
+     * Invoked from the consumer thread when the poll returned no messages.
+     */
+    protected void onEmptyPoll(TbQueueConsumer<M> consumer, C config) throws Exception {
+    }
+
+    /**
+     * Invoked from the consumer thread when its loop is finished.
+     */
+    protected void onConsumerStopped(TbQueueConsumer<M> consumer) {
+    }
+
     public void stop() {
         log.debug("[{}] Stopping consumers", queueKey);
         consumerWrapper.getConsumers().forEach(TbQueueConsumerTask::initiateStop);
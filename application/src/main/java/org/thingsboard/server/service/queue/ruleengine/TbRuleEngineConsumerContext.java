@@ -49,6 +49,8 @@ public class TbRuleEngineConsumerContext {
     private int topicDeletionDelayInSec;
     @Value("${queue.rule-engine.management-thread-pool-size:12}")
     private int mgmtThreadPoolSize;
+    @Value("${queue.rule-engine.max-in-flight-packs:1}")
+    private int maxInFlightPacks;
 
     private final ActorSystemContext actorContext;
     private final StatsFactory statsFactory;
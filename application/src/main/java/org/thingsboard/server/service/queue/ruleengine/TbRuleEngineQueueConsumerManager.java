@@ -22,6 +22,7 @@ import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.EntityIdFactory;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.queue.Queue;
+import org.thingsboard.server.common.data.queue.SubmitStrategyType;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.gen.MsgProtos;
 import org.thingsboard.server.common.msg.queue.QueueToRuleEngineMsg;
@@ -31,6 +32,7 @@ import org.thingsboard.server.common.msg.queue.ServiceType;
 import org.thingsboard.server.common.msg.queue.TbMsgCallback;
 import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
 import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineMsg;
+import org.thingsboard.server.queue.TbQueueCommitPosition;
 import org.thingsboard.server.queue.TbQueueConsumer;
 import org.thingsboard.server.queue.common.TbProtoQueueMsg;
 import org.thingsboard.server.queue.discovery.QueueKey;
@@ -43,12 +45,16 @@ import org.thingsboard.server.service.queue.processing.TbRuleEngineProcessingRes
 import org.thingsboard.server.service.queue.processing.TbRuleEngineProcessingStrategy;
 import org.thingsboard.server.service.queue.processing.TbRuleEngineSubmitStrategy;
 
+import java.util.ArrayDeque;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -62,6 +68,7 @@ public class TbRuleEngineQueueConsumerManager extends MainQueueConsumerManager<T
 
     private final TbRuleEngineConsumerContext ctx;
     private final TbRuleEngineConsumerStats stats;
+    private final ConcurrentMap<TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>>, Deque<InFlightPack>> inFlightPacks = new ConcurrentHashMap<>();
 
     @Builder(builderMethodName = "create") // not to conflict with super.builder()
     public TbRuleEngineQueueConsumerManager(TbRuleEngineConsumerContext ctx,
@@ -122,28 +129,21 @@ public class TbRuleEngineQueueConsumerManager extends MainQueueConsumerManager<T
         TbRuleEngineSubmitStrategy submitStrategy = getSubmitStrategy(queue);
         TbRuleEngineProcessingStrategy ackStrategy = getProcessingStrategy(queue);
         submitStrategy.init(msgs);
+        if (isPipelined(queue)) {
+            TbQueueCommitPosition position = consumer.getCommitPosition();
+            if (position != null) {
+                processPipelined(new InFlightPack(msgs.size(), position, submitStrategy, ackStrategy), consumer, queue);
+                return;
+            }
+        }
+        awaitInFlightPacks(consumer, queue, 0);
         while (!stopped && !consumer.isStopped()) {
             TbMsgPackProcessingContext packCtx = new TbMsgPackProcessingContext(queue.getName(), submitStrategy, ackStrategy.isSkipTimeoutMsgs());
             submitStrategy.submitAttempt((id, msg) -> submitMessage(packCtx, id, msg));
 
             final boolean timeout = !packCtx.await(queue.getPackProcessingTimeout(), TimeUnit.MILLISECONDS);
 
-            TbRuleEngineProcessingResult result = new TbRuleEngineProcessingResult(queue.getName(), timeout, packCtx);
-            if (timeout) {
-                printFirstOrAll(packCtx, packCtx.getPendingMap(), "Timeout");
-            }
-            if (!packCtx.getFailedMap().isEmpty()) {
-                printFirstOrAll(packCtx, packCtx.getFailedMap(), "Failed");
-            }
-            packCtx.printProfilerStats();
-
-            TbRuleEngineProcessingDecision decision = ackStrategy.analyze(result);
-            if (ctx.isStatsEnabled()) {
-                stats.log(result, decision.isCommit());
-            }
-
-            packCtx.cleanup();
-
+            TbRuleEngineProcessingDecision decision = analyze(queue, packCtx, ackStrategy, timeout);
             if (decision.isCommit()) {
                 submitStrategy.stop();
                 consumer.commit();
@@ -154,6 +154,102 @@ public class TbRuleEngineQueueConsumerManager extends MainQueueConsumerManager<T
         }
     }
 
+    /*
+     * Only the burst strategy gives no ordering guarantees between the messages,
+     * so the next packs may be submitted before the previous ones are completed.
+     * */
+    private boolean isPipelined(Queue queue) {
+        return ctx.getMaxInFlightPacks() > 1 && queue.getSubmitStrategy().getType() == SubmitStrategyType.BURST;
+    }
+
+    private TbRuleEngineProcessingDecision analyze(Queue queue, TbMsgPackProcessingContext packCtx, TbRuleEngineProcessingStrategy ackStrategy, boolean timeout) {
+        TbRuleEngineProcessingResult result = new TbRuleEngineProcessingResult(queue.getName(), timeout, packCtx);
+        if (timeout) {
+            printFirstOrAll(packCtx, packCtx.getPendingMap(), "Timeout");
+        }
+        if (!packCtx.getFailedMap().isEmpty()) {
+            printFirstOrAll(packCtx, packCtx.getFailedMap(), "Failed");
+        }
+        packCtx.printProfilerStats();
+
+        TbRuleEngineProcessingDecision decision = ackStrategy.analyze(result);
+        if (ctx.isStatsEnabled()) {
+            stats.log(result, decision.isCommit());
+        }
+
+        packCtx.cleanup();
+        return decision;
+    }
+
+    private void processPipelined(InFlightPack pack,
+                                  TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>> consumer,
+                                  Queue queue) throws Exception {
+        Deque<InFlightPack> packs = inFlightPacks.computeIfAbsent(consumer, c -> new ArrayDeque<>());
+        pack.submit(queue);
+        packs.addLast(pack);
+        stats.getInFlightPacks().incrementAndGet();
+        stats.getWatermarkLagMsgs().addAndGet(pack.size);
+        awaitInFlightPacks(consumer, queue, ctx.getMaxInFlightPacks() - 1);
+    }
+
+    /*
+     * Analyzes the completed and timed out packs, commits the position of the last pack
+     * of the contiguous completed prefix (the watermark) and waits until no more than
+     * the maxInFlight packs are left uncommitted.
+     * */
+    private void awaitInFlightPacks(TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>> consumer,
+                                    Queue queue, int maxInFlight) throws Exception {
+        Deque<InFlightPack> packs = inFlightPacks.get(consumer);
+        if (packs == null || packs.isEmpty()) {
+            return;
+        }
+        while (true) {
+            for (InFlightPack pack : packs) {
+                pack.check(queue);
+            }
+            TbQueueCommitPosition watermark = null;
+            while (!packs.isEmpty() && packs.peekFirst().completed) {
+                InFlightPack pack = packs.pollFirst();
+                watermark = watermark == null ? pack.position : watermark.merge(pack.position);
+                stats.getInFlightPacks().decrementAndGet();
+                stats.getWatermarkLagMsgs().addAndGet(-pack.size);
+            }
+            if (watermark != null) {
+                consumer.commit(watermark);
+            }
+            if (packs.size() <= maxInFlight || stopped || consumer.isStopped()) {
+                return;
+            }
+            long nextDeadline = packs.stream().filter(pack -> !pack.completed).mapToLong(pack -> pack.deadline).min().orElse(0L);
+            long waitTime = Math.max(nextDeadline - System.currentTimeMillis(), 0L);
+            packs.peekFirst().packCtx.awaitCompletion(waitTime, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    protected void onEmptyPoll(TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>> consumer, Queue queue) throws Exception {
+        awaitInFlightPacks(consumer, queue, Integer.MAX_VALUE);
+    }
+
+    @Override
+    protected void onConsumerStopped(TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>> consumer) {
+        Deque<InFlightPack> packs = inFlightPacks.remove(consumer);
+        if (packs == null) {
+            return;
+        }
+        for (InFlightPack pack : packs) {
+            if (pack.packCtx != null) {
+                pack.packCtx.cleanup();
+            }
+            pack.submitStrategy.stop();
+            stats.getInFlightPacks().decrementAndGet();
+            stats.getWatermarkLagMsgs().addAndGet(-pack.size);
+        }
+        if (!packs.isEmpty()) {
+            log.info("[{}] Stopped consumer with {} uncommitted packs, they will be redelivered", queueKey, packs.size());
+        }
+    }
+
     private TbRuleEngineSubmitStrategy getSubmitStrategy(Queue queue) {
         return ctx.getSubmitStrategyFactory().newInstance(queue.getName(), queue.getSubmitStrategy());
     }
@@ -216,6 +312,48 @@ public class TbRuleEngineQueueConsumerManager extends MainQueueConsumerManager<T
         stats.reset();
     }
 
+    private class InFlightPack {
+
+        private final int size;
+        private final TbQueueCommitPosition position;
+        private final TbRuleEngineSubmitStrategy submitStrategy;
+        private final TbRuleEngineProcessingStrategy ackStrategy;
+
+        private TbMsgPackProcessingContext packCtx;
+        private long deadline;
+        private boolean completed;
+
+        InFlightPack(int size, TbQueueCommitPosition position, TbRuleEngineSubmitStrategy submitStrategy, TbRuleEngineProcessingStrategy ackStrategy) {
+            this.size = size;
+            this.position = position;
+            this.submitStrategy = submitStrategy;
+            this.ackStrategy = ackStrategy;
+        }
+
+        void submit(Queue queue) {
+            TbMsgPackProcessingContext packCtx = new TbMsgPackProcessingContext(queue.getName(), submitStrategy, ackStrategy.isSkipTimeoutMsgs());
+            this.packCtx = packCtx;
+            this.deadline = System.currentTimeMillis() + queue.getPackProcessingTimeout();
+            submitStrategy.submitAttempt((id, msg) -> submitMessage(packCtx, id, msg));
+        }
+
+        void check(Queue queue) throws InterruptedException {
+            if (completed || (!packCtx.isCompleted() && System.currentTimeMillis() < deadline)) {
+                return;
+            }
+            boolean timeout = !packCtx.await(0, TimeUnit.MILLISECONDS);
+            TbRuleEngineProcessingDecision decision = analyze(queue, packCtx, ackStrategy, timeout);
+            if (decision.isCommit()) {
+                submitStrategy.stop();
+                completed = true;
+            } else {
+                submitStrategy.update(decision.getReprocessMap());
+                submit(queue);
+            }
+        }
+
+    }
+
     private void drainQueue(List<TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>>> consumers) {
         long finishTs = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ctx.getTopicDeletionDelayInSec());
         try {
@@ -51,6 +51,7 @@ import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.id.UUIDBased;
 import org.thingsboard.server.common.data.kv.AttributeKvEntry;
+import org.thingsboard.server.common.data.kv.BaseAttributeKvEntry;
 import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
 import org.thingsboard.server.common.data.kv.BooleanDataEntry;
 import org.thingsboard.server.common.data.kv.KvEntry;
@@ -73,6 +74,7 @@ import org.thingsboard.server.common.msg.notification.NotificationRuleProcessor;
 import org.thingsboard.server.common.msg.queue.ServiceType;
 import org.thingsboard.server.common.msg.queue.TbCallback;
 import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.common.stats.DefaultCounter;
 import org.thingsboard.server.common.stats.TbApiUsageReportClient;
 import org.thingsboard.server.dao.attributes.AttributesService;
 import org.thingsboard.server.dao.device.DeviceService;
@@ -102,6 +104,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 import static org.thingsboard.server.common.data.DataConstants.SCOPE;
@@ -191,10 +194,28 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     @Getter
     private int telemetryTtl;
 
+    @Value("${state.persistBatchWindowMs:0}")
+    @Getter
+    private long persistBatchWindowMs;
+
+    @Value("${state.partitionHandoff.packWaitTimeoutMs:3000}")
+    @Getter
+    private long handoffPackWaitTimeoutMs;
+
     private ListeningExecutorService deviceStateExecutor;
     private ListeningExecutorService deviceStateCallbackExecutor;
+    private DeviceStateWriteBehindBuffer persistBuffer;
 
     final ConcurrentMap<DeviceId, DeviceStateData> deviceStates = new ConcurrentHashMap<>();
+    // devices of the added partitions whose states are being fetched by packs
+    final ConcurrentMap<DeviceId, ListenableFuture<?>> devicePackFutures = new ConcurrentHashMap<>();
+    // the last event of a device that is deferred until the pack of the device is fetched
+    final ConcurrentMap<DeviceId, ListenableFuture<?>> deferredDeviceEvents = new ConcurrentHashMap<>();
+    // devices of the owned partitions whose states failed to be fetched by packs
+    final Set<DeviceId> unfetchedDevices = ConcurrentHashMap.newKeySet();
+    private DefaultCounter packFetchedStatesCounter;
+    private DefaultCounter singleFetchedStatesCounter;
+    final DeviceInactivityIndex inactivityIndex = new DeviceInactivityIndex(TimeUnit.SECONDS.toMillis(1));
 
     @PostConstruct
     public void init() {
@@ -205,10 +226,19 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                 Math.max(4, Runtime.getRuntime().availableProcessors()), "device-state-callback"));
         scheduledExecutor.scheduleWithFixedDelay(this::checkStates, new Random().nextInt(defaultStateCheckIntervalInSec), defaultStateCheckIntervalInSec, TimeUnit.SECONDS);
         scheduledExecutor.scheduleWithFixedDelay(this::reportActivityStats, defaultActivityStatsIntervalInSec, defaultActivityStatsIntervalInSec, TimeUnit.SECONDS);
+        if (statsFactory != null) {
+            packFetchedStatesCounter = statsFactory.createDefaultCounter("deviceState.packFetchedStates");
+            singleFetchedStatesCounter = statsFactory.createDefaultCounter("deviceState.singleFetchedStates");
+        }
+        if (persistBatchWindowMs > 0) {
+            persistBuffer = new DeviceStateWriteBehindBuffer(statsFactory, this::persist);
+            scheduledExecutor.scheduleWithFixedDelay(this::flushPersistBuffer, persistBatchWindowMs, persistBatchWindowMs, TimeUnit.MILLISECONDS);
+        }
     }
 
     @PreDestroy
     public void stop() {
+        flushPersistBuffer();
         super.stop();
         if (deviceStateExecutor != null) {
             deviceStateExecutor.shutdownNow();
@@ -230,6 +260,15 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
 
     @Override
     public void onDeviceConnect(TenantId tenantId, DeviceId deviceId, long lastConnectTime) {
+        onDeviceConnect(tenantId, deviceId, lastConnectTime, TbCallback.EMPTY);
+    }
+
+    @Override
+    public void onDeviceConnect(TenantId tenantId, DeviceId deviceId, long lastConnectTime, TbCallback callback) {
+        processDeviceEvent(deviceId, () -> processDeviceConnect(tenantId, deviceId, lastConnectTime), callback);
+    }
+
+    private void processDeviceConnect(TenantId tenantId, DeviceId deviceId, long lastConnectTime) {
         if (cleanDeviceStateIfBelongsToExternalPartition(tenantId, deviceId)) {
             return;
         }
@@ -254,6 +293,15 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
 
     @Override
     public void onDeviceActivity(TenantId tenantId, DeviceId deviceId, long lastReportedActivity) {
+        onDeviceActivity(tenantId, deviceId, lastReportedActivity, TbCallback.EMPTY);
+    }
+
+    @Override
+    public void onDeviceActivity(TenantId tenantId, DeviceId deviceId, long lastReportedActivity, TbCallback callback) {
+        processDeviceEvent(deviceId, () -> processDeviceActivity(tenantId, deviceId, lastReportedActivity), callback);
+    }
+
+    private void processDeviceActivity(TenantId tenantId, DeviceId deviceId, long lastReportedActivity) {
         if (cleanDeviceStateIfBelongsToExternalPartition(tenantId, deviceId)) {
             return;
         }
@@ -278,6 +326,7 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                 }
                 onDeviceActivityStatusChange(deviceId, true, stateData);
             }
+            scheduleInactivityCheck(deviceId, stateData);
         } else {
             log.debug("updateActivityState - fetched state IS NULL for device {}, lastReportedActivity {}", deviceId, lastReportedActivity);
             cleanupEntity(deviceId);
@@ -286,6 +335,15 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
 
     @Override
     public void onDeviceDisconnect(TenantId tenantId, DeviceId deviceId, long lastDisconnectTime) {
+        onDeviceDisconnect(tenantId, deviceId, lastDisconnectTime, TbCallback.EMPTY);
+    }
+
+    @Override
+    public void onDeviceDisconnect(TenantId tenantId, DeviceId deviceId, long lastDisconnectTime, TbCallback callback) {
+        processDeviceEvent(deviceId, () -> processDeviceDisconnect(tenantId, deviceId, lastDisconnectTime), callback);
+    }
+
+    private void processDeviceDisconnect(TenantId tenantId, DeviceId deviceId, long lastDisconnectTime) {
         if (cleanDeviceStateIfBelongsToExternalPartition(tenantId, deviceId)) {
             return;
         }
@@ -309,6 +367,10 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
 
     @Override
     public void onDeviceInactivityTimeoutUpdate(TenantId tenantId, DeviceId deviceId, long inactivityTimeout) {
+        processDeviceEvent(deviceId, () -> processDeviceInactivityTimeoutUpdate(tenantId, deviceId, inactivityTimeout), TbCallback.EMPTY);
+    }
+
+    private void processDeviceInactivityTimeoutUpdate(TenantId tenantId, DeviceId deviceId, long inactivityTimeout) {
         if (cleanDeviceStateIfBelongsToExternalPartition(tenantId, deviceId)) {
             return;
         }
@@ -318,11 +380,21 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         log.trace("[{}] on Device Activity Timeout Update device id {} inactivityTimeout {}", tenantId.getId(), deviceId.getId(), inactivityTimeout);
         DeviceStateData stateData = getOrFetchDeviceStateData(deviceId);
         stateData.getState().setInactivityTimeout(inactivityTimeout);
+        scheduleInactivityCheck(deviceId, stateData);
         checkAndUpdateState(deviceId, stateData);
     }
 
     @Override
     public void onDeviceInactivity(TenantId tenantId, DeviceId deviceId, long lastInactivityTime) {
+        onDeviceInactivity(tenantId, deviceId, lastInactivityTime, TbCallback.EMPTY);
+    }
+
+    @Override
+    public void onDeviceInactivity(TenantId tenantId, DeviceId deviceId, long lastInactivityTime, TbCallback callback) {
+        processDeviceEvent(deviceId, () -> processDeviceInactivity(tenantId, deviceId, lastInactivityTime), callback);
+    }
+
+    private void processDeviceInactivity(TenantId tenantId, DeviceId deviceId, long lastInactivityTime) {
         if (cleanDeviceStateIfBelongsToExternalPartition(tenantId, deviceId)) {
             return;
         }
@@ -381,13 +453,7 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                             }
                         }, deviceStateCallbackExecutor);
                     } else if (proto.getUpdated()) {
-                        DeviceStateData stateData = getOrFetchDeviceStateData(device.getId());
-                        TbMsgMetaData md = new TbMsgMetaData();
-                        md.putValue("deviceName", device.getName());
-                        md.putValue("deviceLabel", device.getLabel());
-                        md.putValue("deviceType", device.getType());
-                        stateData.setMetaData(md);
-                        callback.onSuccess();
+                        processDeviceEvent(deviceId, () -> processDeviceUpdated(device, callback), TbCallback.EMPTY);
                     }
                 } else {
                     //Device was probably deleted while message was in queue;
@@ -400,6 +466,21 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         }
     }
 
+    private void processDeviceUpdated(Device device, TbCallback callback) {
+        try {
+            DeviceStateData stateData = getOrFetchDeviceStateData(device.getId());
+            TbMsgMetaData md = new TbMsgMetaData();
+            md.putValue("deviceName", device.getName());
+            md.putValue("deviceLabel", device.getLabel());
+            md.putValue("deviceType", device.getType());
+            stateData.setMetaData(md);
+            callback.onSuccess();
+        } catch (Exception e) {
+            log.trace("[{}] Failed to process device update", device.getId(), e);
+            callback.onFailure(e);
+        }
+    }
+
     @Override
     protected Map<TopicPartitionInfo, List<ListenableFuture<?>>> onAddedPartitions(Set<TopicPartitionInfo> addedPartitions) {
         var result = new HashMap<TopicPartitionInfo, List<ListenableFuture<?>>>();
@@ -434,6 +515,9 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                         } else {
                             states = fetchDeviceStateDataUsingEntityDataQuery(partition);
                         }
+                        if (packFetchedStatesCounter != null) {
+                            packFetchedStatesCounter.add(states.size());
+                        }
                         if (devicePackFutureHolder.future == null || !devicePackFutureHolder.future.isCancelled()) {
                             for (var state : states) {
                                 if (!addDeviceUsingState(entry.getKey(), state)) {
@@ -446,15 +530,45 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                     } catch (Throwable t) {
                         log.error("Unexpected exception while device pack fetching", t);
                         throw t;
+                    } finally {
+                        if (devicePackFutureHolder.future == null || !devicePackFutureHolder.future.isCancelled()) {
+                            addUnfetchedDevices(entry.getKey(), partition);
+                        }
                     }
                 });
                 devicePackFutureHolder.future = devicePackFuture;
+                partition.forEach(idInfo -> devicePackFutures.put(idInfo.getDeviceId(), devicePackFuture));
+                devicePackFuture.addListener(() -> partition.forEach(idInfo -> devicePackFutures.remove(idInfo.getDeviceId(), devicePackFuture)),
+                        MoreExecutors.directExecutor());
                 result.computeIfAbsent(entry.getKey(), tmp -> new ArrayList<>()).add(devicePackFuture);
             }
         }
         return result;
     }
 
+    /*
+     * The devices of the pack whose states were not fetched (e.g. because of a DB failure) still belong to the partition,
+     * so they are added to it and their states are fetched one by one by the next state check.
+     * */
+    private void addUnfetchedDevices(TopicPartitionInfo tpi, List<DeviceIdInfo> pack) {
+        Set<DeviceId> deviceIds = partitionedEntities.get(tpi);
+        if (deviceIds == null) {
+            return;
+        }
+        int unfetched = 0;
+        for (DeviceIdInfo idInfo : pack) {
+            DeviceId deviceId = idInfo.getDeviceId();
+            if (!deviceStates.containsKey(deviceId)) {
+                deviceIds.add(deviceId);
+                unfetchedDevices.add(deviceId);
+                unfetched++;
+            }
+        }
+        if (unfetched > 0) {
+            log.warn("[{}] Failed to fetch the states of {} devices, will retry on the next state check", tpi.getFullTopicName(), unfetched);
+        }
+    }
+
     private static class DevicePackFutureHolder {
         private volatile ListenableFuture<?> future;
     }
@@ -479,7 +593,9 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         Set<DeviceId> deviceIds = partitionedEntities.get(tpi);
         if (deviceIds != null) {
             deviceIds.add(state.getDeviceId());
-            deviceStates.putIfAbsent(state.getDeviceId(), state);
+            if (deviceStates.putIfAbsent(state.getDeviceId(), state) == null) {
+                scheduleInactivityCheck(state.getDeviceId(), state);
+            }
             return true;
         } else {
             log.debug("[{}] Device belongs to external partition {}", state.getDeviceId(), tpi.getFullTopicName());
@@ -489,35 +605,74 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
 
     void checkStates() {
         try {
+            fetchUnfetchedDeviceStates();
             final long ts = getCurrentTimeMillis();
-            partitionedEntities.forEach((tpi, deviceIds) -> {
-                log.debug("Calculating state updates. tpi {} for {} devices", tpi.getFullTopicName(), deviceIds.size());
-                Set<DeviceId> idsFromRemovedTenant = new HashSet<>();
-                for (DeviceId deviceId : deviceIds) {
-                    DeviceStateData stateData;
-                    try {
-                        stateData = getOrFetchDeviceStateData(deviceId);
-                    } catch (Exception e) {
-                        log.error("[{}] Failed to get or fetch device state data", deviceId, e);
-                        continue;
+            List<DeviceId> dueDeviceIds = inactivityIndex.pollDue(ts);
+            log.debug("Calculating state updates for {} due devices, {} devices are scheduled", dueDeviceIds.size(), inactivityIndex.size());
+            Set<DeviceId> idsFromRemovedTenant = new HashSet<>();
+            for (DeviceId deviceId : dueDeviceIds) {
+                DeviceStateData stateData = deviceStates.get(deviceId);
+                if (stateData == null) {
+                    continue;
+                }
+                try {
+                    updateInactivityStateIfExpired(ts, deviceId, stateData);
+                    if (deviceStates.get(deviceId) == stateData) {
+                        scheduleInactivityCheck(deviceId, stateData);
                     }
-                    try {
-                        updateInactivityStateIfExpired(ts, deviceId, stateData);
-                    } catch (Exception e) {
-                        if (e instanceof TenantNotFoundException) {
-                            idsFromRemovedTenant.add(deviceId);
-                        } else {
-                            log.warn("[{}] Failed to update inactivity state [{}]", deviceId, e.getMessage());
-                        }
+                } catch (Exception e) {
+                    if (e instanceof TenantNotFoundException) {
+                        idsFromRemovedTenant.add(deviceId);
+                    } else {
+                        log.warn("[{}] Failed to update inactivity state [{}]", deviceId, e.getMessage());
+                        scheduleInactivityCheck(deviceId, stateData);
                     }
                 }
-                deviceIds.removeAll(idsFromRemovedTenant);
-            });
+            }
+            if (!idsFromRemovedTenant.isEmpty()) {
+                partitionedEntities.values().forEach(deviceIds -> deviceIds.removeAll(idsFromRemovedTenant));
+            }
         } catch (Throwable t) {
             log.warn("Failed to check devices states", t);
         }
     }
 
+    /*
+     * The devices whose pack failed to be fetched are not in the inactivity index, so their states are fetched
+     * one by one here, and then they are checked and scheduled like the devices fetched by packs.
+     * */
+    private void fetchUnfetchedDeviceStates() {
+        for (DeviceId deviceId : unfetchedDevices) {
+            try {
+                DeviceStateData stateData = getOrFetchDeviceStateData(deviceId);
+                checkAndUpdateState(deviceId, stateData);
+                unfetchedDevices.remove(deviceId);
+            } catch (Exception e) {
+                log.warn("[{}] Failed to fetch device state [{}]", deviceId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Puts the device into the inactivity index with a deadline of {@code lastActivityTime + inactivityTimeout}
+     * (but not earlier than the creation time plus timeout), or removes it from the index
+     * if the inactivity was already reported and only a new activity may change the state.
+     */
+    void scheduleInactivityCheck(DeviceId deviceId, DeviceStateData stateData) {
+        DeviceState state = stateData.getState();
+        if (state == null) {
+            return;
+        }
+        boolean inactivityReported = !state.isActive() && state.getLastInactivityAlarmTime() != 0L
+                && state.getLastInactivityAlarmTime() > state.getLastActivityTime();
+        if (inactivityReported) {
+            inactivityIndex.remove(deviceId);
+        } else {
+            long deadline = Math.max(state.getLastActivityTime(), stateData.getDeviceCreationTime()) + state.getInactivityTimeout();
+            inactivityIndex.schedule(deviceId, deadline);
+        }
+    }
+
     void reportActivityStats() {
         try {
             Map<TenantId, Pair<AtomicInteger, AtomicInteger>> stats = new HashMap<>();
@@ -570,6 +725,7 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         state.setLastInactivityAlarmTime(ts);
         save(deviceId, INACTIVITY_ALARM_TIME, ts);
         onDeviceActivityStatusChange(deviceId, false, stateData);
+        inactivityIndex.remove(deviceId);
     }
 
     boolean isActive(long ts, DeviceState state) {
@@ -578,7 +734,76 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
 
     @Nonnull
     DeviceStateData getOrFetchDeviceStateData(DeviceId deviceId) {
-        return deviceStates.computeIfAbsent(deviceId, this::fetchDeviceStateDataUsingSeparateRequests);
+        DeviceStateData stateData = deviceStates.get(deviceId);
+        if (stateData != null) {
+            return stateData;
+        }
+        return deviceStates.computeIfAbsent(deviceId, id -> {
+            DeviceStateData fetchedStateData = fetchDeviceStateDataUsingSeparateRequests(id);
+            if (singleFetchedStatesCounter != null) {
+                singleFetchedStatesCounter.increment();
+            }
+            scheduleInactivityCheck(id, fetchedStateData);
+            return fetchedStateData;
+        });
+    }
+
+    /*
+     * The event is processed in the calling thread, unless it is deferred. If the inline processing fails,
+     * the exception is thrown to the caller and the callback is not notified.
+     * */
+    private void processDeviceEvent(DeviceId deviceId, Runnable event, TbCallback callback) {
+        if (!deferUntilDevicePackFetched(deviceId, event, callback)) {
+            event.run();
+            callback.onSuccess();
+        }
+    }
+
+    /*
+     * While the states of an added partition are being fetched by packs, the events of a device from a pack
+     * that is still in progress are chained on that pack (but not longer than the pack wait timeout) instead of
+     * blocking the calling thread or fetching the state of the device by a separate request, which would load
+     * the DB with lots of single-device queries right after the rebalance. Deferred events of a device are
+     * processed in the order of arrival, the check and the enqueue are done in a single compute, so an event
+     * is never processed inline while an earlier event of the device is still deferred.
+     * The callback is notified once the deferred event is processed.
+     * */
+    boolean deferUntilDevicePackFetched(DeviceId deviceId, Runnable event, TbCallback callback) {
+        if (handoffPackWaitTimeoutMs <= 0) {
+            return false;
+        }
+        ListenableFuture<?> devicePackFuture = devicePackFutures.get(deviceId);
+        boolean packInProgress = devicePackFuture != null && !devicePackFuture.isDone() && !deviceStates.containsKey(deviceId);
+        AtomicReference<ListenableFuture<?>> deferredEvent = new AtomicReference<>();
+        deferredDeviceEvents.compute(deviceId, (id, previousEvent) -> {
+            ListenableFuture<?> trigger;
+            if (previousEvent != null) {
+                trigger = previousEvent;
+            } else if (packInProgress) {
+                trigger = Futures.withTimeout(Futures.nonCancellationPropagating(devicePackFuture),
+                        handoffPackWaitTimeoutMs, TimeUnit.MILLISECONDS, scheduledExecutor);
+            } else {
+                return null;
+            }
+            ListenableFuture<?> future = Futures.whenAllComplete(trigger).run(() -> {
+                try {
+                    event.run();
+                } catch (Exception e) {
+                    log.warn("[{}] Failed to process deferred device event", deviceId, e);
+                    callback.onFailure(e);
+                    return;
+                }
+                callback.onSuccess();
+            }, deviceStateCallbackExecutor);
+            deferredEvent.set(future);
+            return future;
+        });
+        ListenableFuture<?> future = deferredEvent.get();
+        if (future == null) {
+            return false;
+        }
+        future.addListener(() -> deferredDeviceEvents.remove(deviceId, future), MoreExecutors.directExecutor());
+        return true;
     }
 
     DeviceStateData fetchDeviceStateDataUsingSeparateRequests(final DeviceId deviceId) {
@@ -628,6 +853,12 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         }
     }
 
+    @Override
+    protected void onPartitionsRemoval(Set<TopicPartitionInfo> removedPartitions) {
+        // persisting the buffered updates right away, so the new owner of the partitions fetches the latest state
+        flushPersistBuffer();
+    }
+
     @Override
     protected void cleanupEntityOnPartitionRemoval(DeviceId deviceId) {
         cleanupEntity(deviceId);
@@ -635,6 +866,8 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
 
     private void cleanupEntity(DeviceId deviceId) {
         deviceStates.remove(deviceId);
+        inactivityIndex.remove(deviceId);
+        unfetchedDevices.remove(deviceId);
     }
 
 
@@ -862,7 +1095,9 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     }
 
     private void save(DeviceId deviceId, String key, long value) {
-        if (persistToTelemetry) {
+        if (persistBuffer != null) {
+            persistBuffer.add(deviceId, new LongDataEntry(key, value), getCurrentTimeMillis());
+        } else if (persistToTelemetry) {
             tsSubService.saveAndNotifyInternal(
                     TenantId.SYS_TENANT_ID, deviceId,
                     Collections.singletonList(new BasicTsKvEntry(getCurrentTimeMillis(), new LongDataEntry(key, value))),
@@ -873,7 +1108,9 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     }
 
     private void save(DeviceId deviceId, String key, boolean value) {
-        if (persistToTelemetry) {
+        if (persistBuffer != null) {
+            persistBuffer.add(deviceId, new BooleanDataEntry(key, value), getCurrentTimeMillis());
+        } else if (persistToTelemetry) {
             tsSubService.saveAndNotifyInternal(
                     TenantId.SYS_TENANT_ID, deviceId,
                     Collections.singletonList(new BasicTsKvEntry(getCurrentTimeMillis(), new BooleanDataEntry(key, value))),
@@ -883,6 +1120,32 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         }
     }
 
+    void flushPersistBuffer() {
+        if (persistBuffer != null) {
+            try {
+                persistBuffer.flush();
+            } catch (Throwable t) {
+                log.warn("Failed to flush device states", t);
+            }
+        }
+    }
+
+    private void persist(DeviceId deviceId, List<DeviceStateWriteBehindBuffer.Entry> entries) {
+        String keys = entries.stream().map(entry -> entry.kv().getKey()).collect(Collectors.joining(","));
+        List<Object> values = entries.stream().map(entry -> entry.kv().getValue()).collect(Collectors.toList());
+        if (persistToTelemetry) {
+            List<TsKvEntry> tsKvEntries = entries.stream()
+                    .map(entry -> (TsKvEntry) new BasicTsKvEntry(entry.ts(), entry.kv()))
+                    .collect(Collectors.toList());
+            tsSubService.saveAndNotifyInternal(TenantId.SYS_TENANT_ID, deviceId, tsKvEntries, telemetryTtl, new TelemetrySaveCallback<>(deviceId, keys, values));
+        } else {
+            List<AttributeKvEntry> attributes = entries.stream()
+                    .map(entry -> (AttributeKvEntry) new BaseAttributeKvEntry(entry.kv(), entry.ts()))
+                    .collect(Collectors.toList());
+            tsSubService.saveAndNotify(TenantId.SYS_TENANT_ID, deviceId, AttributeScope.SERVER_SCOPE, attributes, new TelemetrySaveCallback<>(deviceId, keys, values));
+        }
+    }
+
     long getCurrentTimeMillis() {
         return System.currentTimeMillis();
     }
@@ -0,0 +1,130 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.state;
+
+import org.thingsboard.server.common.data.id.DeviceId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Single level timing wheel that groups devices by the tick of their inactivity deadline
+ * ({@code lastActivityTime + inactivityTimeout}). The state check only visits the buckets that are due,
+ * so its cost depends on the number of expiring devices instead of the number of devices in the partitions.
+ * <p>
+ * Every device lives in at most one bucket. Rescheduling within the same tick is a single map lookup.
+ */
+class DeviceInactivityIndex {
+
+    private final long tickMs;
+    private final ConcurrentSkipListMap<Long, Set<DeviceId>> buckets = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<DeviceId, Long> deviceTicks = new ConcurrentHashMap<>();
+
+    DeviceInactivityIndex(long tickMs) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive!");
+        }
+        this.tickMs = tickMs;
+    }
+
+    void schedule(DeviceId deviceId, long deadline) {
+        long tick = toTick(deadline);
+        Long currentTick = deviceTicks.get(deviceId);
+        if (currentTick != null && currentTick == tick) {
+            return;
+        }
+        deviceTicks.compute(deviceId, (id, oldTick) -> {
+            if (oldTick == null || oldTick != tick) {
+                if (oldTick != null) {
+                    removeFromBucket(oldTick, id);
+                }
+                addToBucket(tick, id);
+            }
+            return tick;
+        });
+    }
+
+    void remove(DeviceId deviceId) {
+        deviceTicks.computeIfPresent(deviceId, (id, tick) -> {
+            removeFromBucket(tick, id);
+            return null;
+        });
+    }
+
+    /**
+     * Detaches all buckets with deadlines up to the tick of the given timestamp and returns their devices.
+     * Returned devices are no longer indexed: the caller is expected to check them and schedule them again if needed.
+     */
+    synchronized List<DeviceId> pollDue(long ts) {
+        List<DeviceId> result = new ArrayList<>();
+        ConcurrentNavigableMap<Long, Set<DeviceId>> due = buckets.headMap(toTick(ts), true);
+        for (Map.Entry<Long, Set<DeviceId>> entry : due.entrySet()) {
+            Long tick = entry.getKey();
+            if (!buckets.remove(tick, entry.getValue())) {
+                continue;
+            }
+            for (DeviceId deviceId : entry.getValue()) {
+                if (deviceTicks.remove(deviceId, tick)) {
+                    result.add(deviceId);
+                }
+            }
+        }
+        return result;
+    }
+
+    boolean contains(DeviceId deviceId) {
+        return deviceTicks.containsKey(deviceId);
+    }
+
+    int size() {
+        return deviceTicks.size();
+    }
+
+    void clear() {
+        deviceTicks.clear();
+        buckets.clear();
+    }
+
+    private void addToBucket(long tick, DeviceId deviceId) {
+        while (true) {
+            Set<DeviceId> bucket = buckets.computeIfAbsent(tick, t -> ConcurrentHashMap.newKeySet());
+            bucket.add(deviceId);
+            // the bucket may have been detached by the state check in the meantime
+            if (buckets.get(tick) == bucket) {
+                return;
+            }
+            bucket.remove(deviceId);
+        }
+    }
+
+    private void removeFromBucket(long tick, DeviceId deviceId) {
+        Set<DeviceId> bucket = buckets.get(tick);
+        if (bucket != null) {
+            bucket.remove(deviceId);
+        }
+    }
+
+    private long toTick(long ts) {
+        return Math.floorDiv(ts, tickMs);
+    }
+
+}
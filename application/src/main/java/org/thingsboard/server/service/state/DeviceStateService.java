@@ -29,20 +29,32 @@ public interface DeviceStateService extends ApplicationListener<PartitionChangeE
 
     void onDeviceConnect(TenantId tenantId, DeviceId deviceId, long lastConnectTime);
 
+    /**
+     * Same as {@link #onDeviceConnect(TenantId, DeviceId, long)}, but the callback is notified once the event is processed,
+     * which may happen asynchronously if the event is deferred until the state of the device is fetched.
+     */
+    void onDeviceConnect(TenantId tenantId, DeviceId deviceId, long lastConnectTime, TbCallback callback);
+
     default void onDeviceConnect(TenantId tenantId, DeviceId deviceId) {
         onDeviceConnect(tenantId, deviceId, System.currentTimeMillis());
     }
 
     void onDeviceActivity(TenantId tenantId, DeviceId deviceId, long lastReportedActivityTime);
 
+    void onDeviceActivity(TenantId tenantId, DeviceId deviceId, long lastReportedActivityTime, TbCallback callback);
+
     void onDeviceDisconnect(TenantId tenantId, DeviceId deviceId, long lastDisconnectTime);
 
+    void onDeviceDisconnect(TenantId tenantId, DeviceId deviceId, long lastDisconnectTime, TbCallback callback);
+
     default void onDeviceDisconnect(TenantId tenantId, DeviceId deviceId) {
         onDeviceDisconnect(tenantId, deviceId, System.currentTimeMillis());
     }
 
     void onDeviceInactivity(TenantId tenantId, DeviceId deviceId, long lastInactivityTime);
 
+    void onDeviceInactivity(TenantId tenantId, DeviceId deviceId, long lastInactivityTime, TbCallback callback);
+
     void onDeviceInactivityTimeoutUpdate(TenantId tenantId, DeviceId deviceId, long inactivityTimeout);
 
     void onQueueMsg(TransportProtos.DeviceStateServiceMsgProto proto, TbCallback bytes);
@@ -0,0 +1,104 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.state;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.kv.KvEntry;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Write-behind buffer for the persistent device state keys.
+ * Updates of the same device are coalesced (the latest value wins per key) until the next flush,
+ * when every device with pending updates is persisted by a single multi-key write.
+ * Flushes are serialized, so a newer value of the key is never written before an older one.
+ */
+@Slf4j
+class DeviceStateWriteBehindBuffer {
+
+    private final ConcurrentMap<DeviceId, Map<String, Entry>> pending = new ConcurrentHashMap<>();
+    private final BiConsumer<DeviceId, List<Entry>> persister;
+
+    private final Timer flushTimer;
+    private final DistributionSummary flushDevicesSummary;
+    private final DefaultCounter persistedCounter;
+    private final DefaultCounter coalescedCounter;
+
+    DeviceStateWriteBehindBuffer(StatsFactory statsFactory, BiConsumer<DeviceId, List<Entry>> persister) {
+        this.persister = persister;
+        this.flushTimer = statsFactory.createTimer("deviceState.persistFlushLatency");
+        this.flushDevicesSummary = statsFactory.createDistributionSummary("deviceState.persistFlushDevices");
+        this.persistedCounter = statsFactory.createDefaultCounter("deviceState.persistedEntries");
+        this.coalescedCounter = statsFactory.createDefaultCounter("deviceState.coalescedEntries");
+    }
+
+    void add(DeviceId deviceId, KvEntry kv, long ts) {
+        pending.compute(deviceId, (id, entries) -> {
+            if (entries == null) {
+                entries = new LinkedHashMap<>();
+            } else if (entries.remove(kv.getKey()) != null) {
+                coalescedCounter.increment();
+            }
+            entries.put(kv.getKey(), new Entry(kv, ts));
+            return entries;
+        });
+    }
+
+    synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        long startTs = System.nanoTime();
+        int devices = 0;
+        int entries = 0;
+        for (DeviceId deviceId : pending.keySet()) {
+            Map<String, Entry> deviceEntries = pending.remove(deviceId);
+            if (deviceEntries == null) {
+                continue;
+            }
+            devices++;
+            entries += deviceEntries.size();
+            try {
+                persister.accept(deviceId, new ArrayList<>(deviceEntries.values()));
+            } catch (Exception e) {
+                log.warn("[{}] Failed to persist device state {}", deviceId, deviceEntries.keySet(), e);
+            }
+        }
+        flushTimer.record(System.nanoTime() - startTs, TimeUnit.NANOSECONDS);
+        flushDevicesSummary.record(devices);
+        persistedCounter.add(entries);
+        log.debug("Flushed {} device state entries of {} devices", entries, devices);
+    }
+
+    int getPendingDevicesCount() {
+        return pending.size();
+    }
+
+    record Entry(KvEntry kv, long ts) {}
+
+}
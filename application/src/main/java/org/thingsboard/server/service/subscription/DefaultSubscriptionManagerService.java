@@ -79,6 +79,7 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
     private final DeviceStateService deviceStateService;
     private final TbClusterService clusterService;
     private final SubscriptionSchedulerComponent scheduler;
+    private final DynamicQueryChangeTracker changeTracker;
 
     private final Lock subsLock = new ReentrantLock();
     private final ConcurrentMap<EntityId, TbEntityRemoteSubsInfo> entitySubscriptions = new ConcurrentHashMap<>();
@@ -161,6 +162,7 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
     @Override
     public void onTimeSeriesUpdate(TenantId tenantId, EntityId entityId, List<TsKvEntry> ts, TbCallback callback) {
         onTimeSeriesUpdate(entityId, ts);
+        changeTracker.onValuesChange(tenantId);
         if (entityId.getEntityType() == EntityType.DEVICE) {
             updateDeviceInactivityTimeout(tenantId, entityId, ts);
         }
@@ -171,6 +173,7 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
     public void onTimeSeriesDelete(TenantId tenantId, EntityId entityId, List<String> keys, TbCallback callback) {
         onTimeSeriesUpdate(entityId,
                 keys.stream().map(key -> new BasicTsKvEntry(0, new StringDataEntry(key, ""))).collect(Collectors.toList()));
+        changeTracker.onValuesChange(tenantId);
         if (entityId.getEntityType() == EntityType.DEVICE) {
             deleteDeviceInactivityTimeout(tenantId, entityId, keys);
         }
@@ -214,6 +217,7 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
     public void onAttributesUpdate(TenantId tenantId, EntityId entityId, String scope, List<AttributeKvEntry> attributes, boolean notifyDevice, TbCallback callback) {
         getEntityUpdatesInfo(entityId).attributesUpdateTs = System.currentTimeMillis();
         processAttributesUpdate(entityId, scope, attributes);
+        changeTracker.onValuesChange(tenantId);
         if (entityId.getEntityType() == EntityType.DEVICE) {
             if (TbAttributeSubscriptionScope.SERVER_SCOPE.name().equalsIgnoreCase(scope)) {
                 updateDeviceInactivityTimeout(tenantId, entityId, attributes);
@@ -230,6 +234,7 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
     public void onAttributesDelete(TenantId tenantId, EntityId entityId, String scope, List<String> keys, boolean notifyDevice, TbCallback callback) {
         processAttributesUpdate(entityId, scope,
                 keys.stream().map(key -> new BaseAttributeKvEntry(0, new StringDataEntry(key, ""))).collect(Collectors.toList()));
+        changeTracker.onValuesChange(tenantId);
         if (entityId.getEntityType() == EntityType.DEVICE) {
             if (TbAttributeSubscriptionScope.SERVER_SCOPE.name().equalsIgnoreCase(scope)
                     || TbAttributeSubscriptionScope.ANY_SCOPE.name().equalsIgnoreCase(scope)) {
@@ -39,8 +39,10 @@ import org.thingsboard.server.common.data.kv.TsKvEntry;
 import org.thingsboard.server.common.data.page.PageData;
 import org.thingsboard.server.common.data.query.AlarmDataQuery;
 import org.thingsboard.server.common.data.query.ComparisonTsValue;
+import org.thingsboard.server.common.data.query.EntityCountQuery;
 import org.thingsboard.server.common.data.query.EntityData;
 import org.thingsboard.server.common.data.query.EntityDataQuery;
+import org.thingsboard.server.common.data.query.EntityDataSortOrder;
 import org.thingsboard.server.common.data.query.EntityKey;
 import org.thingsboard.server.common.data.query.EntityKeyType;
 import org.thingsboard.server.common.data.query.TsValue;
@@ -119,6 +121,9 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
     @Autowired
     private TbServiceInfoProvider serviceInfoProvider;
 
+    @Autowired
+    private DynamicQueryChangeTracker changeTracker;
+
     @Autowired
     @Getter
     private DbCallbackExecutorService dbCallbackExecutor;
@@ -131,6 +136,10 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
     private long dynamicPageLinkRefreshInterval;
     @Value("${server.ws.dynamic_page_link.refresh_pool_size:1}")
     private int dynamicPageLinkRefreshPoolSize;
+    @Value("${server.ws.dynamic_page_link.shared_queries_enabled:false}")
+    private boolean sharedQueriesEnabled;
+    @Value("${server.ws.dynamic_page_link.change_driven_refresh.max_refresh_interval:600}")
+    private long changeDrivenMaxRefreshInterval;
     @Value("${server.ws.max_entities_per_data_subscription:1000}")
     private int maxEntitiesPerDataSubscription;
     @Value("${server.ws.max_entities_per_alarm_subscription:1000}")
@@ -144,6 +153,7 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
     private boolean tsInSqlDB;
     private String serviceId;
     private SubscriptionServiceStatistics stats = new SubscriptionServiceStatistics();
+    private SharedEntityDataQueries sharedQueries;
 
     @PostConstruct
     public void initExecutor() {
@@ -156,6 +166,11 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
         } else {
             scheduler = Executors.newScheduledThreadPool(dynamicPageLinkRefreshPoolSize, tbThreadFactory);
         }
+        if (sharedQueriesEnabled) {
+            long resultTtlMs = TimeUnit.SECONDS.toMillis(dynamicPageLinkRefreshInterval);
+            sharedQueries = new SharedEntityDataQueries(entityService, stats, resultTtlMs);
+            scheduler.scheduleWithFixedDelay(sharedQueries::cleanUp, resultTtlMs, resultTtlMs, TimeUnit.MILLISECONDS);
+        }
     }
 
     @PreDestroy
@@ -453,8 +468,18 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
     private void refreshDynamicQuery(TbAbstractSubCtx<?> finalCtx) {
         try {
             if (validate(finalCtx)) {
+                if (!isRefreshRequired(finalCtx)) {
+                    log.trace("[{}][{}] Skipping query refresh, no relevant changes found", finalCtx.getSessionId(), finalCtx.getCmdId());
+                    stats.getDynamicQuerySkipCnt().incrementAndGet();
+                    return;
+                }
                 long start = System.currentTimeMillis();
-                finalCtx.update();
+                if (sharedQueries != null && finalCtx instanceof TbEntityDataSubCtx entityDataCtx && sharedQueries.isShareable(entityDataCtx)) {
+                    entityDataCtx.update(sharedQueries.findEntityDataByQuery(entityDataCtx.getTenantId(),
+                            entityDataCtx.getCustomerId(), entityDataCtx.buildEntityDataQuery()));
+                } else {
+                    finalCtx.update();
+                }
                 long end = System.currentTimeMillis();
                 log.trace("[{}][{}] Executing query: {}", finalCtx.getSessionId(), finalCtx.getCmdId(), finalCtx.getQuery());
                 stats.getDynamicQueryInvocationCnt().incrementAndGet();
@@ -464,7 +489,44 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
             }
         } catch (Exception e) {
             log.warn("[{}][{}] Failed to refresh query", finalCtx.getSessionId(), finalCtx.getCmdId(), e);
+            finalCtx.setRefreshVersion(-1);
+        }
+    }
+
+    /*
+     * In the change-driven mode the entity queries are refreshed only if the entities, relations or
+     * (for the queries that filter or sort by them) the attribute and time series values of the tenant were changed
+     * since the last refresh, on this or (once broadcast) on the other nodes of the cluster.
+     * The query is still refreshed at least once per max refresh interval in case a change was not observed.
+     * */
+    private boolean isRefreshRequired(TbAbstractSubCtx<?> ctx) {
+        if (!changeTracker.isEnabled() || !(ctx instanceof TbEntityDataSubCtx || ctx instanceof TbEntityCountSubCtx)) {
+            return true;
+        }
+        long version = changeTracker.getVersion(ctx.getTenantId(), isDependentOnValues(ctx));
+        long ts = System.currentTimeMillis();
+        if (version != ctx.getRefreshVersion() || ts - ctx.getRefreshTs() >= TimeUnit.SECONDS.toMillis(changeDrivenMaxRefreshInterval)) {
+            ctx.setRefreshVersion(version);
+            ctx.setRefreshTs(ts);
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isDependentOnValues(TbAbstractSubCtx<?> ctx) {
+        if (!ctx.getDynamicValues().isEmpty()) {
+            return true;
+        }
+        EntityCountQuery query = ctx.getQuery();
+        if (query.getKeyFilters() != null && query.getKeyFilters().stream()
+                .anyMatch(filter -> filter.getKey() != null && filter.getKey().getType() != EntityKeyType.ENTITY_FIELD)) {
+            return true;
+        }
+        if (query instanceof EntityDataQuery entityDataQuery) {
+            EntityDataSortOrder sortOrder = entityDataQuery.getPageLink().getSortOrder();
+            return sortOrder != null && sortOrder.getKey() != null && sortOrder.getKey().getType() != EntityKeyType.ENTITY_FIELD;
         }
+        return false;
     }
 
     private void refreshAlarmQuery(TbAlarmDataSubCtx finalCtx) {
@@ -483,13 +545,18 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
         long regularQueryInvocationTimeValue = stats.getRegularQueryTimeSpent().getAndSet(0);
         int dynamicQueryInvocationCntValue = stats.getDynamicQueryInvocationCnt().getAndSet(0);
         long dynamicQueryInvocationTimeValue = stats.getDynamicQueryTimeSpent().getAndSet(0);
+        int dynamicQuerySkipCntValue = stats.getDynamicQuerySkipCnt().getAndSet(0);
+        int sharedQueryHitCntValue = stats.getSharedQueryHitCnt().getAndSet(0);
+        int sharedQueryMissCntValue = stats.getSharedQueryMissCnt().getAndSet(0);
         long dynamicQueryCnt = subscriptionsBySessionId.values().stream().mapToLong(m -> m.values().stream().filter(TbAbstractSubCtx::isDynamic).count()).sum();
         if (regularQueryInvocationCntValue > 0 || dynamicQueryInvocationCntValue > 0 || dynamicQueryCnt > 0 || alarmQueryInvocationCntValue > 0) {
             log.info("Stats: regularQueryInvocationCnt = [{}], regularQueryInvocationTime = [{}], " +
-                            "dynamicQueryCnt = [{}] dynamicQueryInvocationCnt = [{}], dynamicQueryInvocationTime = [{}], " +
+                            "dynamicQueryCnt = [{}] dynamicQueryInvocationCnt = [{}], dynamicQueryInvocationTime = [{}], dynamicQuerySkipCnt = [{}], " +
+                            "sharedQueryHitCnt = [{}], sharedQueryMissCnt = [{}], " +
                             "alarmQueryInvocationCnt = [{}], alarmQueryInvocationTime = [{}]",
                     regularQueryInvocationCntValue, regularQueryInvocationTimeValue,
-                    dynamicQueryCnt, dynamicQueryInvocationCntValue, dynamicQueryInvocationTimeValue,
+                    dynamicQueryCnt, dynamicQueryInvocationCntValue, dynamicQueryInvocationTimeValue, dynamicQuerySkipCntValue,
+                    sharedQueryHitCntValue, sharedQueryMissCntValue,
                     alarmQueryInvocationCntValue, alarmQueryInvocationTimeValue);
         }
     }
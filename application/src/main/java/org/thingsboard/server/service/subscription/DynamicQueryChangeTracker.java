@@ -0,0 +1,188 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.subscription;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.thingsboard.server.cluster.TbClusterService;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.dao.eventsourcing.DeleteEntityEvent;
+import org.thingsboard.server.dao.eventsourcing.RelationActionEvent;
+import org.thingsboard.server.dao.eventsourcing.SaveEntityEvent;
+import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.gen.transport.TransportProtos.DynamicQueryChangesMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.TenantDynamicQueryChangesProto;
+import org.thingsboard.server.queue.discovery.TbServiceInfoProvider;
+import org.thingsboard.server.queue.util.TbCoreComponent;
+
+import javax.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Tracks the changes that may affect the result of the dynamic entity queries of the tenant.
+ * Entity and relation changes affect all the queries, while attribute and time series updates
+ * affect only the queries that filter or sort the entities by the attribute or time series values.
+ * The local changes are periodically broadcast to the other core nodes of the cluster,
+ * so the queries of the other nodes are refreshed after the broadcast interval.
+ */
+@Slf4j
+@TbCoreComponent
+@Service
+public class DynamicQueryChangeTracker {
+
+    @Value("${server.ws.dynamic_page_link.change_driven_refresh.enabled:false}")
+    private boolean enabled;
+    @Value("${server.ws.dynamic_page_link.change_driven_refresh.broadcast_interval_ms:1000}")
+    private long broadcastInterval;
+
+    @Autowired
+    private TbClusterService clusterService;
+    @Autowired
+    private TbServiceInfoProvider serviceInfoProvider;
+    @Autowired
+    private SubscriptionSchedulerComponent scheduler;
+
+    private final ConcurrentMap<TenantId, TenantChanges> tenantChanges = new ConcurrentHashMap<>();
+    private final Set<TenantId> pendingEntitiesChanges = ConcurrentHashMap.newKeySet();
+    private final Set<TenantId> pendingValuesChanges = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(this::broadcastChanges, broadcastInterval, broadcastInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleEvent(SaveEntityEvent<?> event) {
+        onEntitiesChange(event.getTenantId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleEvent(DeleteEntityEvent<?> event) {
+        onEntitiesChange(event.getTenantId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleEvent(RelationActionEvent event) {
+        onEntitiesChange(event.getTenantId());
+    }
+
+    public void onEntitiesChange(TenantId tenantId) {
+        if (enabled && tenantId != null) {
+            getTenantChanges(tenantId).entities.incrementAndGet();
+            pendingEntitiesChanges.add(tenantId);
+        }
+    }
+
+    public void onValuesChange(TenantId tenantId) {
+        if (enabled && tenantId != null) {
+            getTenantChanges(tenantId).values.incrementAndGet();
+            pendingValuesChanges.add(tenantId);
+        }
+    }
+
+    /**
+     * Applies the changes broadcast by the other core nodes. The changes are not broadcast again.
+     */
+    public void onChangesMsg(DynamicQueryChangesMsg msg) {
+        if (!enabled || serviceInfoProvider.getServiceId().equals(msg.getServiceId())) {
+            return;
+        }
+        for (TenantDynamicQueryChangesProto proto : msg.getTenantChangesList()) {
+            TenantChanges changes = getTenantChanges(TenantId.fromUUID(new UUID(proto.getTenantIdMSB(), proto.getTenantIdLSB())));
+            if (proto.getEntities()) {
+                changes.entities.incrementAndGet();
+            }
+            if (proto.getValues()) {
+                changes.values.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Returns the version of the data the query depends on. The version is changed every time
+     * the corresponding entities, relations or (if the query depends on them) entity values are changed.
+     */
+    public long getVersion(TenantId tenantId, boolean dependsOnValues) {
+        TenantChanges changes = getTenantChanges(tenantId);
+        return dependsOnValues ? changes.entities.get() + changes.values.get() : changes.entities.get();
+    }
+
+    /*
+     * The changes of a tenant made since the previous broadcast are sent in a single message,
+     * so the number of the notifications does not depend on the rate of the changes.
+     * */
+    void broadcastChanges() {
+        try {
+            Map<TenantId, TenantDynamicQueryChangesProto.Builder> changes = new HashMap<>();
+            drain(pendingEntitiesChanges, tenantId -> getTenantChangesProto(changes, tenantId).setEntities(true));
+            drain(pendingValuesChanges, tenantId -> getTenantChangesProto(changes, tenantId).setValues(true));
+            if (changes.isEmpty()) {
+                return;
+            }
+            DynamicQueryChangesMsg.Builder msg = DynamicQueryChangesMsg.newBuilder()
+                    .setServiceId(serviceInfoProvider.getServiceId());
+            changes.values().forEach(msg::addTenantChanges);
+            log.trace("Broadcasting dynamic query changes of {} tenants", changes.size());
+            clusterService.broadcastToCore(TransportProtos.ToCoreNotificationMsg.newBuilder()
+                    .setDynamicQueryChangesMsg(msg)
+                    .build());
+        } catch (Exception e) {
+            log.warn("Failed to broadcast dynamic query changes", e);
+        }
+    }
+
+    private static void drain(Set<TenantId> pending, Consumer<TenantId> consumer) {
+        Iterator<TenantId> iterator = pending.iterator();
+        while (iterator.hasNext()) {
+            consumer.accept(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    private static TenantDynamicQueryChangesProto.Builder getTenantChangesProto(Map<TenantId, TenantDynamicQueryChangesProto.Builder> changes, TenantId tenantId) {
+        return changes.computeIfAbsent(tenantId, id -> TenantDynamicQueryChangesProto.newBuilder()
+                .setTenantIdMSB(id.getId().getMostSignificantBits())
+                .setTenantIdLSB(id.getId().getLeastSignificantBits()));
+    }
+
+    private TenantChanges getTenantChanges(TenantId tenantId) {
+        return tenantChanges.computeIfAbsent(tenantId, id -> new TenantChanges());
+    }
+
+    private static class TenantChanges {
+        private final AtomicLong entities = new AtomicLong();
+        private final AtomicLong values = new AtomicLong();
+    }
+
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.subscription;
+
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityDataQuery;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.TsValue;
+import org.thingsboard.server.dao.entity.EntityService;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Executes identical dynamic entity data queries once per refresh interval and shares the result
+ * between all the subscriptions of the same tenant and customer. Each subscription gets its own copy
+ * of the result, because the subscriptions update their entity data with the incoming telemetry.
+ */
+@Slf4j
+class SharedEntityDataQueries {
+
+    private final EntityService entityService;
+    private final SubscriptionServiceStatistics stats;
+    private final long resultTtlMs;
+    private final ConcurrentMap<QueryKey, SharedResult> results = new ConcurrentHashMap<>();
+
+    SharedEntityDataQueries(EntityService entityService, SubscriptionServiceStatistics stats, long resultTtlMs) {
+        this.entityService = entityService;
+        this.stats = stats;
+        this.resultTtlMs = resultTtlMs;
+    }
+
+    /**
+     * Queries with the dynamic values (e.g. the filter value taken from the user attribute) are not shared,
+     * since the resolved values are not part of the serialized query.
+     */
+    boolean isShareable(TbEntityDataSubCtx ctx) {
+        return ctx.dynamicValues.isEmpty();
+    }
+
+    PageData<EntityData> findEntityDataByQuery(TenantId tenantId, CustomerId customerId, EntityDataQuery query) {
+        QueryKey key = new QueryKey(tenantId, customerId, JacksonUtil.toString(query));
+        long ts = System.currentTimeMillis();
+        SharedResult result = results.get(key);
+        if (result == null || result.isExpired(ts)) {
+            SharedResult newResult = new SharedResult(ts, new CompletableFuture<>());
+            result = results.compute(key, (k, existing) -> existing == null || existing.isExpired(ts) ? newResult : existing);
+            if (result == newResult) {
+                stats.getSharedQueryMissCnt().incrementAndGet();
+                try {
+                    newResult.future.complete(entityService.findEntityDataByQuery(tenantId, customerId, query));
+                } catch (RuntimeException e) {
+                    results.remove(key, newResult);
+                    newResult.future.completeExceptionally(e);
+                    throw e;
+                }
+                return copy(newResult.future.join());
+            }
+        }
+        stats.getSharedQueryHitCnt().incrementAndGet();
+        try {
+            return copy(result.future.join());
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    void cleanUp() {
+        long ts = System.currentTimeMillis();
+        results.values().removeIf(result -> result.isExpired(ts));
+    }
+
+    private static PageData<EntityData> copy(PageData<EntityData> data) {
+        List<EntityData> entities = new ArrayList<>(data.getData().size());
+        for (EntityData entityData : data.getData()) {
+            entities.add(new EntityData(entityData.getEntityId(), copyLatest(entityData.getLatest()),
+                    copyTimeseries(entityData.getTimeseries()),
+                    entityData.getAggLatest() != null ? new HashMap<>(entityData.getAggLatest()) : null));
+        }
+        return new PageData<>(entities, data.getTotalPages(), data.getTotalElements(), data.hasNext());
+    }
+
+    private static Map<EntityKeyType, Map<String, TsValue>> copyLatest(Map<EntityKeyType, Map<String, TsValue>> latest) {
+        if (latest == null) {
+            return null;
+        }
+        Map<EntityKeyType, Map<String, TsValue>> copy = new HashMap<>();
+        latest.forEach((keyType, values) -> copy.put(keyType, values != null ? new HashMap<>(values) : null));
+        return copy;
+    }
+
+    private static Map<String, TsValue[]> copyTimeseries(Map<String, TsValue[]> timeseries) {
+        if (timeseries == null) {
+            return null;
+        }
+        Map<String, TsValue[]> copy = new HashMap<>();
+        timeseries.forEach((key, values) -> copy.put(key, values != null ? values.clone() : null));
+        return copy;
+    }
+
+    private record QueryKey(TenantId tenantId, CustomerId customerId, String query) {}
+
+    private class SharedResult {
+
+        private final long ts;
+        private final CompletableFuture<PageData<EntityData>> future;
+
+        SharedResult(long ts, CompletableFuture<PageData<EntityData>> future) {
+            this.ts = ts;
+            this.future = future;
+        }
+
+        boolean isExpired(long now) {
+            return now - ts >= resultTtlMs;
+        }
+
+    }
+
+}
@@ -28,4 +28,7 @@ public class SubscriptionServiceStatistics {
     private AtomicLong alarmQueryTimeSpent = new AtomicLong();
     private AtomicLong regularQueryTimeSpent = new AtomicLong();
     private AtomicLong dynamicQueryTimeSpent = new AtomicLong();
+    private AtomicInteger dynamicQuerySkipCnt = new AtomicInteger();
+    private AtomicInteger sharedQueryHitCnt = new AtomicInteger();
+    private AtomicInteger sharedQueryMissCnt = new AtomicInteger();
 }
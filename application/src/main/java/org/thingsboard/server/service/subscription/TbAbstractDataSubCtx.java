@@ -80,7 +80,10 @@ public abstract class TbAbstractDataSubCtx<T extends AbstractDataQuery<? extends
 
     @Override
     protected synchronized void update() {
-        PageData<EntityData> newData = findEntityData();
+        update(findEntityData());
+    }
+
+    protected synchronized void update(PageData<EntityData> newData) {
         Map<EntityId, EntityData> oldDataMap;
         if (data != null && !data.getData().isEmpty()) {
             oldDataMap = data.getData().stream().collect(Collectors.toMap(EntityData::getEntityId, Function.identity(), (a, b) -> a));
@@ -79,6 +79,8 @@ public abstract class TbAbstractSubCtx<T extends EntityCountQuery> {
     @Setter
     protected volatile ScheduledFuture<?> refreshTask;
     protected volatile boolean stopped;
+    protected volatile long refreshVersion = -1;
+    protected volatile long refreshTs;
     @Getter
     protected long createdTime;
 
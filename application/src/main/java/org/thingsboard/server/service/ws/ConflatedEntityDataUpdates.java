@@ -0,0 +1,159 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.ws;
+
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.TsValue;
+import org.thingsboard.server.service.subscription.SubscriptionErrorCode;
+import org.thingsboard.server.service.ws.telemetry.cmd.v2.EntityDataUpdate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Accumulates the incremental entity data updates of the websocket session until the next flush.
+ * The updates of the same subscription are merged into a single update: only the newest latest value
+ * is kept per entity and key (the stale values are already filtered out by the subscription context),
+ * while the time series values are concatenated, so no data points are lost.
+ */
+class ConflatedEntityDataUpdates {
+
+    private final Map<Integer, PendingUpdate> pendingUpdates = new LinkedHashMap<>();
+
+    static boolean isConflatable(EntityDataUpdate update) {
+        return update.getData() == null && update.getUpdate() != null
+                && update.getErrorCode() == SubscriptionErrorCode.NO_ERROR.getCode();
+    }
+
+    /**
+     * @return true if the update was merged with the pending update of the same subscription
+     * */
+    synchronized boolean add(EntityDataUpdate update, long ts) {
+        PendingUpdate pending = pendingUpdates.get(update.getCmdId());
+        boolean merged = pending != null;
+        if (!merged) {
+            pending = new PendingUpdate(update.getAllowedEntities(), ts);
+            pendingUpdates.put(update.getCmdId(), pending);
+        }
+        for (EntityData entityData : update.getUpdate()) {
+            pending.entities.merge(entityData.getEntityId(), entityData, ConflatedEntityDataUpdates::merge);
+        }
+        return merged;
+    }
+
+    synchronized EntityDataUpdate remove(int cmdId) {
+        PendingUpdate pending = pendingUpdates.remove(cmdId);
+        return pending != null ? pending.toUpdate(cmdId) : null;
+    }
+
+    /**
+     * Sends the pending update of the subscription, if any, and then the full data update. Both are sent while holding
+     * the lock, so the pending updates drained by a concurrent {@link #drainTo(Consumer)} are never sent after the full update.
+     * */
+    synchronized void sendWithPending(int cmdId, Consumer<EntityDataUpdate> sender, Runnable fullUpdateSender) {
+        EntityDataUpdate pendingUpdate = remove(cmdId);
+        if (pendingUpdate != null) {
+            sender.accept(pendingUpdate);
+        }
+        fullUpdateSender.run();
+    }
+
+    synchronized boolean isEmpty() {
+        return pendingUpdates.isEmpty();
+    }
+
+    synchronized long getOldestTs() {
+        return pendingUpdates.values().stream().mapToLong(pending -> pending.ts).min().orElse(Long.MAX_VALUE);
+    }
+
+    synchronized List<EntityDataUpdate> drain() {
+        List<EntityDataUpdate> updates = new ArrayList<>(pendingUpdates.size());
+        pendingUpdates.forEach((cmdId, pending) -> updates.add(pending.toUpdate(cmdId)));
+        pendingUpdates.clear();
+        return updates;
+    }
+
+    /**
+     * Drains the pending updates and sends them while holding the lock.
+     * */
+    synchronized void drainTo(Consumer<EntityDataUpdate> sender) {
+        drain().forEach(sender);
+    }
+
+    static EntityData merge(EntityData existing, EntityData update) {
+        return new EntityData(existing.getEntityId(),
+                mergeLatest(existing.getLatest(), update.getLatest()),
+                mergeTimeseries(existing.getTimeseries(), update.getTimeseries()),
+                mergeMaps(existing.getAggLatest(), update.getAggLatest()));
+    }
+
+    private static Map<EntityKeyType, Map<String, TsValue>> mergeLatest(Map<EntityKeyType, Map<String, TsValue>> existing,
+                                                                        Map<EntityKeyType, Map<String, TsValue>> update) {
+        if (existing == null || update == null) {
+            return existing != null ? existing : update;
+        }
+        Map<EntityKeyType, Map<String, TsValue>> result = new HashMap<>(existing);
+        update.forEach((keyType, values) -> result.merge(keyType, values, ConflatedEntityDataUpdates::mergeMaps));
+        return result;
+    }
+
+    private static Map<String, TsValue[]> mergeTimeseries(Map<String, TsValue[]> existing, Map<String, TsValue[]> update) {
+        if (existing == null || update == null) {
+            return existing != null ? existing : update;
+        }
+        Map<String, TsValue[]> result = new HashMap<>(existing);
+        update.forEach((key, values) -> result.merge(key, values, (oldValues, newValues) -> {
+            TsValue[] merged = Arrays.copyOf(oldValues, oldValues.length + newValues.length);
+            System.arraycopy(newValues, 0, merged, oldValues.length, newValues.length);
+            return merged;
+        }));
+        return result;
+    }
+
+    private static <K, V> Map<K, V> mergeMaps(Map<K, V> existing, Map<K, V> update) {
+        if (existing == null || update == null) {
+            return existing != null ? existing : update;
+        }
+        Map<K, V> result = new HashMap<>(existing);
+        result.putAll(update);
+        return result;
+    }
+
+    private static class PendingUpdate {
+
+        private final long allowedEntities;
+        private final long ts;
+        private final Map<EntityId, EntityData> entities = new LinkedHashMap<>();
+
+        PendingUpdate(long allowedEntities, long ts) {
+            this.allowedEntities = allowedEntities;
+            this.ts = ts;
+        }
+
+        EntityDataUpdate toUpdate(int cmdId) {
+            return new EntityDataUpdate(cmdId, null, new ArrayList<>(entities.values()), allowedEntities);
+        }
+
+    }
+
+}
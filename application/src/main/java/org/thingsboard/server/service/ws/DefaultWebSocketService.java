@@ -139,6 +139,12 @@ public class DefaultWebSocketService implements WebSocketService {
 
     @Value("${server.ws.ping_timeout:30000}")
     private long pingTimeout;
+    @Value("${server.ws.conflation.enabled:false}")
+    private boolean conflationEnabled;
+    @Value("${server.ws.conflation.flush_interval_ms:100}")
+    private long conflationFlushInterval;
+    @Value("${server.ws.conflation.max_delay_ms:1000}")
+    private long conflationMaxDelay;
 
     private final ConcurrentMap<TenantId, Set<String>> tenantSubscriptionsMap = new ConcurrentHashMap<>();
     private final ConcurrentMap<CustomerId, Set<String>> customerSubscriptionsMap = new ConcurrentHashMap<>();
@@ -148,6 +154,7 @@ public class DefaultWebSocketService implements WebSocketService {
 
     private ExecutorService executor;
     private ScheduledExecutorService pingExecutor;
+    private ScheduledExecutorService conflationExecutor;
     private String serviceId;
 
     private Map<WsCmdType, WsCmdHandler<? extends WsCmd>> cmdsHandlers;
@@ -159,6 +166,10 @@ public class DefaultWebSocketService implements WebSocketService {
 
         pingExecutor = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("telemetry-web-socket-ping"));
         pingExecutor.scheduleWithFixedDelay(this::sendPing, pingTimeout / NUMBER_OF_PING_ATTEMPTS, pingTimeout / NUMBER_OF_PING_ATTEMPTS, TimeUnit.MILLISECONDS);
+        if (conflationEnabled) {
+            conflationExecutor = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("telemetry-web-socket-conflation"));
+            conflationExecutor.scheduleWithFixedDelay(this::flushConflatedUpdates, conflationFlushInterval, conflationFlushInterval, TimeUnit.MILLISECONDS);
+        }
 
         cmdsHandlers = new EnumMap<>(WsCmdType.class);
         cmdsHandlers.put(WsCmdType.ATTRIBUTES, newCmdHandler(this::handleWsAttributesSubscriptionCmd));
@@ -185,6 +196,10 @@ public class DefaultWebSocketService implements WebSocketService {
             pingExecutor.shutdownNow();
         }
 
+        if (conflationExecutor != null) {
+            conflationExecutor.shutdownNow();
+        }
+
         if (executor != null) {
             executor.shutdownNow();
         }
@@ -203,6 +218,13 @@ public class DefaultWebSocketService implements WebSocketService {
                         event.getError().orElse(new RuntimeException("No error specified")));
                 break;
             case CLOSED:
+                if (conflationEnabled) {
+                    WsSessionMetaData md = wsSessionsMap.get(sessionId);
+                    if (md != null) {
+                        log.debug("[{}] Session closed. Sent frames: [{}], conflated frames: [{}]", sessionId,
+                                md.getSentFramesCount().get(), md.getConflatedFramesCount().get());
+                    }
+                }
                 cleanupSessionById(sessionId);
                 processSessionClose(sessionRef);
                 break;
@@ -252,6 +274,10 @@ public class DefaultWebSocketService implements WebSocketService {
 
     private void handleWsDataUnsubscribeCmd(WebSocketSessionRef sessionRef, UnsubscribeCmd cmd) {
         entityDataSubService.cancelSubscription(sessionRef.getSessionId(), cmd);
+        WsSessionMetaData md = wsSessionsMap.get(sessionRef.getSessionId());
+        if (md != null) {
+            md.getConflatedUpdates().remove(cmd.getCmdId());
+        }
     }
 
     private void handleWsAlarmCountCmd(WebSocketSessionRef sessionRef, AlarmCountCmd cmd) {
@@ -268,6 +294,23 @@ public class DefaultWebSocketService implements WebSocketService {
 
     @Override
     public void sendUpdate(String sessionId, CmdUpdate update) {
+        if (conflationEnabled && update instanceof EntityDataUpdate entityDataUpdate) {
+            WsSessionMetaData md = wsSessionsMap.get(sessionId);
+            if (md == null) {
+                return;
+            }
+            if (ConflatedEntityDataUpdates.isConflatable(entityDataUpdate)) {
+                if (md.getConflatedUpdates().add(entityDataUpdate, System.currentTimeMillis())) {
+                    md.getConflatedFramesCount().incrementAndGet();
+                }
+                return;
+            }
+            // the pending updates must not be sent after the full data update of the same subscription
+            md.getConflatedUpdates().sendWithPending(update.getCmdId(),
+                    pendingUpdate -> sendUpdate(md, pendingUpdate.getCmdId(), pendingUpdate),
+                    () -> sendUpdate(md, update.getCmdId(), update));
+            return;
+        }
         doSendUpdate(sessionId, update.getCmdId(), update);
     }
 
@@ -280,10 +323,37 @@ public class DefaultWebSocketService implements WebSocketService {
     private <T> void doSendUpdate(String sessionId, int cmdId, T update) {
         WsSessionMetaData md = wsSessionsMap.get(sessionId);
         if (md != null) {
-            sendUpdate(md.getSessionRef(), cmdId, update);
+            sendUpdate(md, cmdId, update);
         }
     }
 
+    private void sendUpdate(WsSessionMetaData md, int cmdId, Object update) {
+        md.getSentFramesCount().incrementAndGet();
+        sendUpdate(md.getSessionRef(), cmdId, update);
+    }
+
+    /*
+     * Sends the merged incremental updates of each subscription as a single frame. The updates keep being
+     * merged while the previous frames of the session are still being sent, but not longer than the max delay.
+     * */
+    private void flushConflatedUpdates() {
+        long ts = System.currentTimeMillis();
+        wsSessionsMap.values().forEach(md -> {
+            try {
+                ConflatedEntityDataUpdates conflatedUpdates = md.getConflatedUpdates();
+                if (conflatedUpdates.isEmpty()) {
+                    return;
+                }
+                if (msgEndpoint.isSendInProgress(md.getSessionRef()) && ts - conflatedUpdates.getOldestTs() < conflationMaxDelay) {
+                    return;
+                }
+                conflatedUpdates.drainTo(update -> sendUpdate(md, update.getCmdId(), update));
+            } catch (Exception e) {
+                log.warn("[{}] Failed to flush conflated updates", md.getSessionRef().getSessionId(), e);
+            }
+        });
+    }
+
     @Override
     public void close(String sessionId, CloseStatus status) {
         WsSessionMetaData md = wsSessionsMap.get(sessionId);
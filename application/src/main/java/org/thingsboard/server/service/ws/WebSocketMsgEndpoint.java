@@ -31,4 +31,6 @@ public interface WebSocketMsgEndpoint {
     void close(WebSocketSessionRef sessionRef, CloseStatus withReason) throws IOException;
 
     boolean isOpen(String sessionId);
+
+    boolean isSendInProgress(WebSocketSessionRef sessionRef);
 }
@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.service.ws;
 
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created by ashvayka on 27.03.18.
@@ -22,6 +23,9 @@ package org.thingsboard.server.service.ws;
 public class WsSessionMetaData {
     private WebSocketSessionRef sessionRef;
     private long lastActivityTime;
+    private final ConflatedEntityDataUpdates conflatedUpdates = new ConflatedEntityDataUpdates();
+    private final AtomicLong conflatedFramesCount = new AtomicLong();
+    private final AtomicLong sentFramesCount = new AtomicLong();
 
     public WsSessionMetaData(WebSocketSessionRef sessionRef) {
         super();
@@ -45,6 +49,18 @@ public class WsSessionMetaData {
         this.lastActivityTime = lastActivityTime;
     }
 
+    public ConflatedEntityDataUpdates getConflatedUpdates() {
+        return conflatedUpdates;
+    }
+
+    public AtomicLong getConflatedFramesCount() {
+        return conflatedFramesCount;
+    }
+
+    public AtomicLong getSentFramesCount() {
+        return sentFramesCount;
+    }
+
     @Override
     public String toString() {
         return "WsSessionMetaData [sessionRef=" + sessionRef + ", lastActivityTime=" + lastActivityTime + "]";
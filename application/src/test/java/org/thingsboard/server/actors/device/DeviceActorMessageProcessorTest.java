@@ -22,13 +22,23 @@ import org.thingsboard.server.actors.ActorSystemContext;
 import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.dao.device.DeviceService;
+import org.thingsboard.server.gen.transport.TransportProtos.SessionType;
+import org.thingsboard.server.service.session.DeviceSessionCacheService;
+import org.thingsboard.server.service.transport.TbCoreToTransportService;
+
+import java.util.UUID;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.then;
 import static org.mockito.BDDMockito.willReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 
 public class DeviceActorMessageProcessorTest {
 
@@ -55,4 +65,24 @@ public class DeviceActorMessageProcessorTest {
         assertThat(processor.sessions.getMaxEntries(), is(MAX_CONCURRENT_SESSIONS_PER_DEVICE));
         assertThat(processor.sessions.getRemovalConsumer(), notNullValue());
     }
+
+    @Test
+    public void givenDeferredSessionsDump_whenSessionsExpire_thenSessionsDumpedOnceOnFlush() {
+        DeviceSessionCacheService deviceSessionCacheService = mock(DeviceSessionCacheService.class);
+        willReturn(deviceSessionCacheService).given(systemContext).getDeviceSessionCacheService();
+        willReturn(mock(TbCoreToTransportService.class)).given(systemContext).getTbCoreToTransportService();
+
+        processor.deferSessionsDump();
+        for (int i = 0; i < 3; i++) {
+            processor.sessions.put(UUID.randomUUID(), new SessionInfoMetaData(new SessionInfo(SessionType.ASYNC, "node"), 0L));
+            processor.checkSessionsTimeout();
+        }
+        then(deviceSessionCacheService).should(never()).put(any(), any());
+
+        processor.flushSessionsDump();
+        then(deviceSessionCacheService).should(times(1)).put(eq(deviceId), any());
+
+        processor.flushSessionsDump();
+        then(deviceSessionCacheService).should(times(1)).put(eq(deviceId), any());
+    }
 }
\ No newline at end of file
@@ -81,6 +81,7 @@ public class HashPartitionServiceTest {
     private TopicService topicService;
 
     private String hashFunctionName = "murmur3_128";
+    private String assignmentStrategy = "modulo";
 
     @BeforeEach
     public void setup() throws Exception {
@@ -394,6 +395,104 @@ public class HashPartitionServiceTest {
         });
     }
 
+    @Test
+    public void testDispersionOnResolveByPartitionIdx_rendezvousAssignment() {
+        assignmentStrategy = "rendezvous";
+        partitionService = createPartitionService();
+        List<ServiceInfo> services = createRuleEngines(5);
+        Map<String, Integer> map = new HashMap<>();
+        services.forEach(s -> map.put(s.getServiceId(), 0));
+
+        long start = System.currentTimeMillis();
+        List<TenantId> tenants = Stream.generate(UUID::randomUUID).map(TenantId::new).limit(1000).collect(Collectors.toList());
+        for (TenantId tenantId : tenants) {
+            QueueKey queueKey = new QueueKey(ServiceType.TB_RULE_ENGINE, tenantId);
+            for (int partition = 0; partition < 10; partition++) {
+                String serviceId = partitionService.resolveByPartitionIdx(services, queueKey, partition, Collections.emptyMap()).getServiceId();
+                map.put(serviceId, map.get(serviceId) + 1);
+            }
+        }
+
+        checkDispersion(start, map, tenants.size() * 10, 10.0);
+    }
+
+    @Test
+    public void testSystemAndCoreQueuesAreBalanced_rendezvousAssignment() {
+        assignmentStrategy = "rendezvous";
+        partitionService = createPartitionService();
+        List<ServiceInfo> services = createRuleEngines(3);
+
+        Map<String, Integer> systemQueueMap = new HashMap<>();
+        Map<String, Integer> coreQueueMap = new HashMap<>();
+        for (int partition = 0; partition < 10; partition++) {
+            systemQueueMap.merge(partitionService.resolveByPartitionIdx(services, new QueueKey(ServiceType.TB_RULE_ENGINE, TenantId.SYS_TENANT_ID),
+                    partition, Collections.emptyMap()).getServiceId(), 1, Integer::sum);
+            coreQueueMap.merge(partitionService.resolveByPartitionIdx(services, new QueueKey(ServiceType.TB_CORE),
+                    partition, Collections.emptyMap()).getServiceId(), 1, Integer::sum);
+        }
+
+        assertThat(systemQueueMap).hasSize(3);
+        assertThat(systemQueueMap.values()).allMatch(count -> count == 3 || count == 4);
+        assertThat(coreQueueMap).hasSize(3);
+        assertThat(coreQueueMap.values()).allMatch(count -> count == 3 || count == 4);
+    }
+
+    @Test
+    public void testPartitionsChurnOnScaleOutAndScaleIn() {
+        int serverCount = 5;
+        List<ServiceInfo> services = createRuleEngines(serverCount + 1);
+        List<ServiceInfo> initial = services.subList(0, serverCount);
+        List<ServiceInfo> scaledOut = services;
+        List<ServiceInfo> scaledIn = services.subList(1, serverCount);
+
+        double moduloScaleOutChurn = measurePartitionsChurn(initial, scaledOut);
+        double moduloScaleInChurn = measurePartitionsChurn(initial, scaledIn);
+
+        assignmentStrategy = "rendezvous";
+        partitionService = createPartitionService();
+        double rendezvousScaleOutChurn = measurePartitionsChurn(initial, scaledOut);
+        double rendezvousScaleInChurn = measurePartitionsChurn(initial, scaledIn);
+        log.info("Partitions churn on scale out {} -> {}: modulo {}, rendezvous {}", serverCount, serverCount + 1, moduloScaleOutChurn, rendezvousScaleOutChurn);
+        log.info("Partitions churn on scale in {} -> {}: modulo {}, rendezvous {}", serverCount, serverCount - 1, moduloScaleInChurn, rendezvousScaleInChurn);
+
+        // ideally, only the partitions of the added server (1/6) or of the removed server (1/5) are moved
+        assertThat(rendezvousScaleOutChurn).isLessThan(1.0 / (serverCount + 1) * 1.2);
+        assertThat(rendezvousScaleInChurn).isLessThan(1.0 / serverCount * 1.2);
+        assertThat(moduloScaleOutChurn).isGreaterThan(0.5);
+        assertThat(moduloScaleInChurn).isGreaterThan(0.5);
+    }
+
+    private double measurePartitionsChurn(List<ServiceInfo> oldServices, List<ServiceInfo> newServices) {
+        int partitions = 10;
+        int moved = 0;
+        int total = 0;
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            TenantId tenantId = new TenantId(new UUID(random.nextLong(), random.nextLong()));
+            QueueKey queueKey = new QueueKey(ServiceType.TB_RULE_ENGINE, tenantId);
+            for (int partition = 0; partition < partitions; partition++) {
+                ServiceInfo oldServer = partitionService.resolveByPartitionIdx(oldServices, queueKey, partition, Collections.emptyMap());
+                ServiceInfo newServer = partitionService.resolveByPartitionIdx(newServices, queueKey, partition, Collections.emptyMap());
+                if (!oldServer.equals(newServer)) {
+                    moved++;
+                }
+                total++;
+            }
+        }
+        return (double) moved / total;
+    }
+
+    private List<ServiceInfo> createRuleEngines(int count) {
+        List<ServiceInfo> ruleEngines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ruleEngines.add(ServiceInfo.newBuilder()
+                    .setServiceId("tb-rule-engine-" + i)
+                    .addAllServiceTypes(List.of(ServiceType.TB_RULE_ENGINE.name()))
+                    .build());
+        }
+        return ruleEngines;
+    }
+
     private void verifyPartitionChangeEvent(Predicate<PartitionChangeEvent> predicate) {
         verify(applicationEventPublisher).publishEvent(argThat(event -> event instanceof PartitionChangeEvent && predicate.test((PartitionChangeEvent) event)));
     }
@@ -429,6 +528,7 @@ public class HashPartitionServiceTest {
         ReflectionTestUtils.setField(partitionService, "vcTopic", "tb.vc");
         ReflectionTestUtils.setField(partitionService, "vcPartitions", 10);
         ReflectionTestUtils.setField(partitionService, "hashFunctionName", hashFunctionName);
+        ReflectionTestUtils.setField(partitionService, "assignmentStrategy", assignmentStrategy);
         partitionService.init();
         partitionService.partitionsInit();
         return partitionService;
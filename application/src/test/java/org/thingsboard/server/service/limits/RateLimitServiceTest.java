@@ -22,6 +22,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.thingsboard.server.cache.limits.DefaultRateLimitService;
+import org.thingsboard.server.cache.limits.LocalRateLimitsFactory;
 import org.thingsboard.server.cache.limits.RateLimitService;
 import org.thingsboard.server.common.data.TenantProfile;
 import org.thingsboard.server.common.data.id.CustomerId;
@@ -51,7 +52,7 @@ public class RateLimitServiceTest {
     @BeforeEach
     public void beforeEach() {
         tenantProfileCache = Mockito.mock(DefaultTbTenantProfileCache.class);
-        rateLimitService = new DefaultRateLimitService(tenantProfileCache, mock(NotificationRuleProcessor.class), 60, 100);
+        rateLimitService = new DefaultRateLimitService(tenantProfileCache, mock(NotificationRuleProcessor.class), new LocalRateLimitsFactory(), 60, 100);
         tenantId = new TenantId(UUID.randomUUID());
     }
 
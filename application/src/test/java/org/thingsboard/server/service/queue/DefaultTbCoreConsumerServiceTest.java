@@ -37,7 +37,9 @@ import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.then;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
@@ -171,11 +173,16 @@ public class DefaultTbCoreConsumerServiceTest {
 
         doCallRealMethod().when(defaultTbCoreConsumerServiceMock).forwardToStateService(connectMsg, tbCallbackMock);
 
+        willAnswer(invocation -> {
+            invocation.<TbCallback>getArgument(3).onSuccess();
+            return null;
+        }).given(stateServiceMock).onDeviceConnect(eq(tenantId), eq(deviceId), eq(time), any());
+
         // WHEN
         defaultTbCoreConsumerServiceMock.forwardToStateService(connectMsg, tbCallbackMock);
 
         // THEN
-        then(stateServiceMock).should().onDeviceConnect(tenantId, deviceId, time);
+        then(stateServiceMock).should().onDeviceConnect(eq(tenantId), eq(deviceId), eq(time), any());
         then(tbCallbackMock).should().onSuccess();
         then(tbCallbackMock).should(never()).onFailure(any());
     }
@@ -194,7 +201,7 @@ public class DefaultTbCoreConsumerServiceTest {
         doCallRealMethod().when(defaultTbCoreConsumerServiceMock).forwardToStateService(connectMsg, tbCallbackMock);
 
         var runtimeException = new RuntimeException("Something bad happened!");
-        doThrow(runtimeException).when(stateServiceMock).onDeviceConnect(tenantId, deviceId, time);
+        doThrow(runtimeException).when(stateServiceMock).onDeviceConnect(eq(tenantId), eq(deviceId), eq(time), any());
 
         // WHEN
         defaultTbCoreConsumerServiceMock.forwardToStateService(connectMsg, tbCallbackMock);
@@ -204,6 +211,32 @@ public class DefaultTbCoreConsumerServiceTest {
         then(tbCallbackMock).should().onFailure(runtimeException);
     }
 
+    @Test
+    public void givenEventIsDeferred_whenForwardingConnectMsgToStateService_thenCallbackIsNotifiedOnlyAfterEventIsProcessed() {
+        // GIVEN
+        var connectMsg = TransportProtos.DeviceConnectProto.newBuilder()
+                .setTenantIdMSB(tenantId.getId().getMostSignificantBits())
+                .setTenantIdLSB(tenantId.getId().getLeastSignificantBits())
+                .setDeviceIdMSB(deviceId.getId().getMostSignificantBits())
+                .setDeviceIdLSB(deviceId.getId().getLeastSignificantBits())
+                .setLastConnectTime(time)
+                .build();
+
+        doCallRealMethod().when(defaultTbCoreConsumerServiceMock).forwardToStateService(connectMsg, tbCallbackMock);
+
+        // WHEN
+        defaultTbCoreConsumerServiceMock.forwardToStateService(connectMsg, tbCallbackMock);
+
+        // THEN
+        var callbackCaptor = ArgumentCaptor.forClass(TbCallback.class);
+        then(stateServiceMock).should().onDeviceConnect(eq(tenantId), eq(deviceId), eq(time), callbackCaptor.capture());
+        then(tbCallbackMock).shouldHaveNoInteractions();
+
+        callbackCaptor.getValue().onSuccess();
+        then(tbCallbackMock).should().onSuccess();
+        then(tbCallbackMock).should(never()).onFailure(any());
+    }
+
     @Test
     public void givenStatsEnabled_whenForwardingConnectMsgToStateService_thenStatsAreRecorded() {
         // GIVEN
@@ -263,11 +296,16 @@ public class DefaultTbCoreConsumerServiceTest {
 
         doCallRealMethod().when(defaultTbCoreConsumerServiceMock).forwardToStateService(activityMsg, tbCallbackMock);
 
+        willAnswer(invocation -> {
+            invocation.<TbCallback>getArgument(3).onSuccess();
+            return null;
+        }).given(stateServiceMock).onDeviceActivity(eq(tenantId), eq(deviceId), eq(time), any());
+
         // WHEN
         defaultTbCoreConsumerServiceMock.forwardToStateService(activityMsg, tbCallbackMock);
 
         // THEN
-        then(stateServiceMock).should().onDeviceActivity(tenantId, deviceId, time);
+        then(stateServiceMock).should().onDeviceActivity(eq(tenantId), eq(deviceId), eq(time), any());
         then(tbCallbackMock).should().onSuccess();
         then(tbCallbackMock).should(never()).onFailure(any());
     }
@@ -286,7 +324,7 @@ public class DefaultTbCoreConsumerServiceTest {
         doCallRealMethod().when(defaultTbCoreConsumerServiceMock).forwardToStateService(activityMsg, tbCallbackMock);
 
         var runtimeException = new RuntimeException("Something bad happened!");
-        doThrow(runtimeException).when(stateServiceMock).onDeviceActivity(tenantId, deviceId, time);
+        doThrow(runtimeException).when(stateServiceMock).onDeviceActivity(eq(tenantId), eq(deviceId), eq(time), any());
 
         // WHEN
         defaultTbCoreConsumerServiceMock.forwardToStateService(activityMsg, tbCallbackMock);
@@ -361,11 +399,16 @@ public class DefaultTbCoreConsumerServiceTest {
 
         doCallRealMethod().when(defaultTbCoreConsumerServiceMock).forwardToStateService(disconnectMsg, tbCallbackMock);
 
+        willAnswer(invocation -> {
+            invocation.<TbCallback>getArgument(3).onSuccess();
+            return null;
+        }).given(stateServiceMock).onDeviceDisconnect(eq(tenantId), eq(deviceId), eq(time), any());
+
         // WHEN
         defaultTbCoreConsumerServiceMock.forwardToStateService(disconnectMsg, tbCallbackMock);
 
         // THEN
-        then(stateServiceMock).should().onDeviceDisconnect(tenantId, deviceId, time);
+        then(stateServiceMock).should().onDeviceDisconnect(eq(tenantId), eq(deviceId), eq(time), any());
         then(tbCallbackMock).should().onSuccess();
         then(tbCallbackMock).should(never()).onFailure(any());
     }
@@ -384,7 +427,7 @@ public class DefaultTbCoreConsumerServiceTest {
         doCallRealMethod().when(defaultTbCoreConsumerServiceMock).forwardToStateService(disconnectMsg, tbCallbackMock);
 
         var runtimeException = new RuntimeException("Something bad happened!");
-        doThrow(runtimeException).when(stateServiceMock).onDeviceDisconnect(tenantId, deviceId, time);
+        doThrow(runtimeException).when(stateServiceMock).onDeviceDisconnect(eq(tenantId), eq(deviceId), eq(time), any());
 
         // WHEN
         defaultTbCoreConsumerServiceMock.forwardToStateService(disconnectMsg, tbCallbackMock);
@@ -453,11 +496,16 @@ public class DefaultTbCoreConsumerServiceTest {
 
         doCallRealMethod().when(defaultTbCoreConsumerServiceMock).forwardToStateService(inactivityMsg, tbCallbackMock);
 
+        willAnswer(invocation -> {
+            invocation.<TbCallback>getArgument(3).onSuccess();
+            return null;
+        }).given(stateServiceMock).onDeviceInactivity(eq(tenantId), eq(deviceId), eq(time), any());
+
         // WHEN
         defaultTbCoreConsumerServiceMock.forwardToStateService(inactivityMsg, tbCallbackMock);
 
         // THEN
-        then(stateServiceMock).should().onDeviceInactivity(tenantId, deviceId, time);
+        then(stateServiceMock).should().onDeviceInactivity(eq(tenantId), eq(deviceId), eq(time), any());
         then(tbCallbackMock).should().onSuccess();
         then(tbCallbackMock).should(never()).onFailure(any());
     }
@@ -476,7 +524,7 @@ public class DefaultTbCoreConsumerServiceTest {
         doCallRealMethod().when(defaultTbCoreConsumerServiceMock).forwardToStateService(inactivityMsg, tbCallbackMock);
 
         var runtimeException = new RuntimeException("Something bad happened!");
-        doThrow(runtimeException).when(stateServiceMock).onDeviceInactivity(tenantId, deviceId, time);
+        doThrow(runtimeException).when(stateServiceMock).onDeviceInactivity(eq(tenantId), eq(deviceId), eq(time), any());
 
         // WHEN
         defaultTbCoreConsumerServiceMock.forwardToStateService(inactivityMsg, tbCallbackMock);
@@ -44,11 +44,14 @@ import org.thingsboard.server.common.data.queue.SubmitStrategyType;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
 import org.thingsboard.server.common.msg.queue.QueueToRuleEngineMsg;
+import org.thingsboard.server.common.msg.queue.RuleEngineException;
 import org.thingsboard.server.common.msg.queue.ServiceType;
 import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
 import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineMsg;
 import org.thingsboard.server.queue.TbQueueAdmin;
+import org.thingsboard.server.queue.TbQueueCommitPosition;
+import org.thingsboard.server.queue.TbQueueConsumer;
 import org.thingsboard.server.queue.TbQueueProducer;
 import org.thingsboard.server.queue.common.AbstractTbQueueConsumerTemplate;
 import org.thingsboard.server.queue.common.TbProtoQueueMsg;
@@ -66,11 +69,14 @@ import org.thingsboard.server.service.stats.RuleEngineStatisticsService;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -621,6 +627,110 @@ public class TbRuleEngineQueueConsumerManagerTest {
         });
     }
 
+    @Test
+    public void givenPipelinedPacks_whenLaterPackCompletesFirst_thenCommitsOnlyUpToWatermark() throws Exception {
+        // the limit includes the next polled pack, so 4 are needed to keep 3 packs in flight
+        List<TbMsg> submittedMsgs = initPipelinedProcessing(4);
+        TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>> consumer = mockPipelinedConsumer(
+                new TestCommitPosition(Map.of(1, 10L)), new TestCommitPosition(Map.of(2, 20L)), new TestCommitPosition(Map.of(1, 30L)));
+
+        consumerManager.processMsgs(List.of(newQueueMsg()), consumer, queue);
+        consumerManager.processMsgs(List.of(newQueueMsg()), consumer, queue);
+        consumerManager.processMsgs(List.of(newQueueMsg()), consumer, queue);
+        assertThat(submittedMsgs).hasSize(3);
+
+        submittedMsgs.get(1).getCallback().onSuccess();
+        consumerManager.onEmptyPoll(consumer, queue);
+        verify(consumer, never()).commit(any(TbQueueCommitPosition.class));
+
+        submittedMsgs.get(0).getCallback().onSuccess();
+        consumerManager.onEmptyPoll(consumer, queue);
+        verify(consumer).commit(new TestCommitPosition(Map.of(1, 10L, 2, 20L)));
+
+        submittedMsgs.get(2).getCallback().onSuccess();
+        consumerManager.onEmptyPoll(consumer, queue);
+        verify(consumer).commit(new TestCommitPosition(Map.of(1, 30L)));
+        verify(consumer, never()).commit();
+    }
+
+    @Test
+    public void givenPipelinedPackWithFailedMsg_whenRetryStrategy_thenPackIsRetriedBeforeCommit() throws Exception {
+        queue.getProcessingStrategy().setType(ProcessingStrategyType.RETRY_FAILED_AND_TIMED_OUT);
+        queue.getProcessingStrategy().setRetries(3);
+        queue.getProcessingStrategy().setPauseBetweenRetries(0);
+        queue.getProcessingStrategy().setMaxPauseBetweenRetries(0);
+        List<TbMsg> submittedMsgs = initPipelinedProcessing(2);
+        TestCommitPosition position = new TestCommitPosition(Map.of(1, 10L));
+        TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>> consumer = mockPipelinedConsumer(position);
+
+        consumerManager.processMsgs(List.of(newQueueMsg()), consumer, queue);
+        submittedMsgs.get(0).getCallback().onFailure(new RuleEngineException("test"));
+        consumerManager.onEmptyPoll(consumer, queue);
+
+        assertThat(submittedMsgs).hasSize(2);
+        assertThat(submittedMsgs.get(1).getId()).isEqualTo(submittedMsgs.get(0).getId());
+        verify(consumer, never()).commit(any(TbQueueCommitPosition.class));
+
+        submittedMsgs.get(1).getCallback().onSuccess();
+        consumerManager.onEmptyPoll(consumer, queue);
+        verify(consumer).commit(position);
+    }
+
+    @Test
+    public void givenMaxInFlightPacksReached_whenPackTimesOut_thenItIsSkippedAndCommitted() throws Exception {
+        queue.setPackProcessingTimeout(200);
+        List<TbMsg> submittedMsgs = initPipelinedProcessing(2);
+        TestCommitPosition firstPosition = new TestCommitPosition(Map.of(1, 10L));
+        TestCommitPosition secondPosition = new TestCommitPosition(Map.of(2, 20L));
+        TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>> consumer = mockPipelinedConsumer(firstPosition, secondPosition);
+
+        consumerManager.processMsgs(List.of(newQueueMsg()), consumer, queue);
+        // only the first pack is expected to time out, however late the waiting thread wakes up
+        queue.setPackProcessingTimeout(TimeUnit.MINUTES.toMillis(1));
+        long startTs = System.currentTimeMillis();
+        // the second pack exceeds the limit of in-flight packs, so the call waits for the first pack to time out
+        consumerManager.processMsgs(List.of(newQueueMsg()), consumer, queue);
+
+        assertThat(System.currentTimeMillis() - startTs).isGreaterThanOrEqualTo(150);
+        assertThat(submittedMsgs).hasSize(2);
+        verify(consumer).commit(firstPosition);
+
+        submittedMsgs.get(1).getCallback().onSuccess();
+        consumerManager.onEmptyPoll(consumer, queue);
+        verify(consumer).commit(secondPosition);
+    }
+
+    private List<TbMsg> initPipelinedProcessing(int maxInFlightPacks) {
+        generateQueueMsgs = false;
+        ruleEngineConsumerContext.setMaxInFlightPacks(maxInFlightPacks);
+        List<TbMsg> submittedMsgs = new CopyOnWriteArrayList<>();
+        doAnswer(inv -> {
+            QueueToRuleEngineMsg msg = inv.getArgument(0);
+            submittedMsgs.add(msg.getMsg());
+            return null;
+        }).when(actorContext).tell(any());
+        consumerManager.init(queue);
+        return submittedMsgs;
+    }
+
+    @SuppressWarnings("unchecked")
+    private TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>> mockPipelinedConsumer(TestCommitPosition position, TestCommitPosition... nextPositions) {
+        TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>> consumer = mock(TbQueueConsumer.class);
+        when(consumer.getCommitPosition()).thenReturn(position, nextPositions);
+        return consumer;
+    }
+
+    private TbProtoQueueMsg<ToRuleEngineMsg> newQueueMsg() {
+        TbMsg tbMsg = TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, new DeviceId(UUID.randomUUID()), new TbMsgMetaData(), "{}");
+        UUID tenantId = UUID.randomUUID();
+        return new TbProtoQueueMsg<>(UUID.randomUUID(), ToRuleEngineMsg.newBuilder()
+                .setTenantIdMSB(tenantId.getMostSignificantBits())
+                .setTenantIdLSB(tenantId.getLeastSignificantBits())
+                .addRelationTypes("Success")
+                .setTbMsg(TbMsg.toByteString(tbMsg))
+                .build());
+    }
+
     private void verifySubscribedAndLaunched(TestConsumer consumer, Set<TopicPartitionInfo> expectedPartitions) {
         await().atMost(2, TimeUnit.SECONDS)
                 .until(() -> consumer.subscribed && consumer.getPartitions().equals(expectedPartitions) && consumer.pollingStarted);
@@ -701,6 +811,17 @@ public class TbRuleEngineQueueConsumerManagerTest {
     }
 
 
+    private record TestCommitPosition(Map<Integer, Long> offsets) implements TbQueueCommitPosition {
+
+        @Override
+        public TbQueueCommitPosition merge(TbQueueCommitPosition next) {
+            Map<Integer, Long> merged = new HashMap<>(offsets);
+            ((TestCommitPosition) next).offsets().forEach((partition, offset) -> merged.merge(partition, offset, Math::max));
+            return new TestCommitPosition(merged);
+        }
+
+    }
+
     class TestConsumer extends AbstractTbQueueConsumerTemplate<TbMsg, TbProtoQueueMsg<ToRuleEngineMsg>> {
 
         @Getter
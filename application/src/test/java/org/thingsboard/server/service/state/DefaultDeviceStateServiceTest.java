@@ -15,6 +15,9 @@
  */
 package org.thingsboard.server.service.state;
 
+import com.google.common.util.concurrent.ListeningScheduledExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -41,6 +44,7 @@ import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
 import org.thingsboard.server.common.msg.notification.NotificationRuleProcessor;
 import org.thingsboard.server.common.msg.queue.ServiceType;
+import org.thingsboard.server.common.msg.queue.TbCallback;
 import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
 import org.thingsboard.server.dao.attributes.AttributesService;
 import org.thingsboard.server.dao.device.DeviceService;
@@ -70,9 +74,13 @@ import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
+import static org.mockito.BDDMockito.willDoNothing;
 import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.spy;
@@ -488,6 +496,161 @@ public class DefaultDeviceStateServiceTest {
         verify(service).fetchDeviceStateDataUsingSeparateRequests(deviceId);
     }
 
+    @Test
+    public void givenDevicePackIsBeingFetched_whenOnDeviceActivity_thenEventIsDeferredUntilPackIsFetched() {
+        ListeningScheduledExecutorService scheduler = MoreExecutors.listeningDecorator(Executors.newSingleThreadScheduledExecutor());
+        try {
+            initDeferredEventsExecutors(scheduler, 5000L);
+            doReturn(false).when(service).cleanDeviceStateIfBelongsToExternalPartition(tenantId, deviceId);
+            willDoNothing().given(service).updateActivityState(eq(deviceId), any(), anyLong());
+            SettableFuture<Object> devicePackFuture = SettableFuture.create();
+            service.devicePackFutures.put(deviceId, devicePackFuture);
+            long lastReportedActivity = System.currentTimeMillis();
+
+            service.onDeviceActivity(tenantId, deviceId, lastReportedActivity);
+            service.onDeviceActivity(tenantId, deviceId, lastReportedActivity + 1);
+
+            then(service).should(never()).getOrFetchDeviceStateData(deviceId);
+            assertThat(service.deferredDeviceEvents).containsKey(deviceId);
+
+            DeviceStateData deviceStateData = DeviceStateData.builder()
+                    .tenantId(tenantId)
+                    .deviceId(deviceId)
+                    .state(DeviceState.builder().build())
+                    .metaData(new TbMsgMetaData())
+                    .build();
+            service.deviceStates.put(deviceId, deviceStateData);
+            devicePackFuture.set(null);
+
+            var inOrder = inOrder(service);
+            inOrder.verify(service).updateActivityState(deviceId, deviceStateData, lastReportedActivity);
+            inOrder.verify(service).updateActivityState(deviceId, deviceStateData, lastReportedActivity + 1);
+            verify(service, never()).fetchDeviceStateDataUsingSeparateRequests(deviceId);
+            assertThat(service.deferredDeviceEvents).isEmpty();
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void givenDevicePackIsNotFetchedInTime_whenOnDeviceActivity_thenFetchDeviceStateData() {
+        ListeningScheduledExecutorService scheduler = MoreExecutors.listeningDecorator(Executors.newSingleThreadScheduledExecutor());
+        try {
+            initDeferredEventsExecutors(scheduler, 10L);
+            doReturn(false).when(service).cleanDeviceStateIfBelongsToExternalPartition(tenantId, deviceId);
+            willDoNothing().given(service).updateActivityState(eq(deviceId), any(), anyLong());
+            SettableFuture<Object> devicePackFuture = SettableFuture.create();
+            service.devicePackFutures.put(deviceId, devicePackFuture);
+            DeviceStateData deviceStateData = DeviceStateData.builder()
+                    .tenantId(tenantId)
+                    .deviceId(deviceId)
+                    .state(DeviceState.builder().build())
+                    .metaData(new TbMsgMetaData())
+                    .build();
+            willReturn(deviceStateData).given(service).fetchDeviceStateDataUsingSeparateRequests(deviceId);
+            long lastReportedActivity = System.currentTimeMillis();
+
+            service.onDeviceActivity(tenantId, deviceId, lastReportedActivity);
+
+            await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> {
+                verify(service).fetchDeviceStateDataUsingSeparateRequests(deviceId);
+                verify(service).updateActivityState(deviceId, deviceStateData, lastReportedActivity);
+            });
+            assertThat(devicePackFuture.isCancelled()).isFalse();
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void givenDevicePackIsFetched_whenOnDeviceActivity_thenEventIsNotDeferred() {
+        ReflectionTestUtils.setField(service, "handoffPackWaitTimeoutMs", 5000L);
+        SettableFuture<Object> devicePackFuture = SettableFuture.create();
+        devicePackFuture.set(null);
+        service.devicePackFutures.put(deviceId, devicePackFuture);
+
+        assertThat(service.deferUntilDevicePackFetched(deviceId, () -> {}, TbCallback.EMPTY)).isFalse();
+    }
+
+    @Test
+    public void givenDeferredEvent_whenDevicePackIsFetchedAndNewEventsArrive_thenEventsAreProcessedInOrderAndCallbacksAreNotifiedAfterProcessing() {
+        ListeningScheduledExecutorService scheduler = MoreExecutors.listeningDecorator(Executors.newSingleThreadScheduledExecutor());
+        try {
+            initDeferredEventsExecutors(scheduler, 5000L);
+            doReturn(false).when(service).cleanDeviceStateIfBelongsToExternalPartition(tenantId, deviceId);
+            willDoNothing().given(service).updateActivityState(eq(deviceId), any(), anyLong());
+            SettableFuture<Object> devicePackFuture = SettableFuture.create();
+            service.devicePackFutures.put(deviceId, devicePackFuture);
+            long lastReportedActivity = System.currentTimeMillis();
+            TbCallback deferredCallback = mock(TbCallback.class);
+            TbCallback chainedCallback = mock(TbCallback.class);
+            TbCallback inlineCallback = mock(TbCallback.class);
+
+            service.onDeviceActivity(tenantId, deviceId, lastReportedActivity, deferredCallback);
+
+            // the state is already fetched, but the earlier event of the device is still deferred
+            DeviceStateData deviceStateData = DeviceStateData.builder()
+                    .tenantId(tenantId)
+                    .deviceId(deviceId)
+                    .state(DeviceState.builder().build())
+                    .metaData(new TbMsgMetaData())
+                    .build();
+            service.deviceStates.put(deviceId, deviceStateData);
+            service.onDeviceActivity(tenantId, deviceId, lastReportedActivity + 1, chainedCallback);
+
+            then(service).should(never()).updateActivityState(eq(deviceId), any(), anyLong());
+            then(deferredCallback).shouldHaveNoInteractions();
+            then(chainedCallback).shouldHaveNoInteractions();
+
+            devicePackFuture.set(null);
+
+            var inOrder = inOrder(service, deferredCallback, chainedCallback);
+            inOrder.verify(service).updateActivityState(deviceId, deviceStateData, lastReportedActivity);
+            inOrder.verify(deferredCallback).onSuccess();
+            inOrder.verify(service).updateActivityState(deviceId, deviceStateData, lastReportedActivity + 1);
+            inOrder.verify(chainedCallback).onSuccess();
+            assertThat(service.deferredDeviceEvents).isEmpty();
+
+            service.onDeviceActivity(tenantId, deviceId, lastReportedActivity + 2, inlineCallback);
+
+            verify(service).updateActivityState(deviceId, deviceStateData, lastReportedActivity + 2);
+            then(inlineCallback).should().onSuccess();
+            verify(service, never()).fetchDeviceStateDataUsingSeparateRequests(deviceId);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void givenDeferredEventFails_whenDevicePackIsFetched_thenCallbackIsNotifiedAboutFailure() {
+        ListeningScheduledExecutorService scheduler = MoreExecutors.listeningDecorator(Executors.newSingleThreadScheduledExecutor());
+        try {
+            initDeferredEventsExecutors(scheduler, 5000L);
+            SettableFuture<Object> devicePackFuture = SettableFuture.create();
+            service.devicePackFutures.put(deviceId, devicePackFuture);
+            RuntimeException failure = new RuntimeException("Something bad happened!");
+            TbCallback callback = mock(TbCallback.class);
+
+            assertThat(service.deferUntilDevicePackFetched(deviceId, () -> {
+                throw failure;
+            }, callback)).isTrue();
+            then(callback).shouldHaveNoInteractions();
+
+            devicePackFuture.set(null);
+
+            then(callback).should().onFailure(failure);
+            then(callback).should(never()).onSuccess();
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void initDeferredEventsExecutors(ListeningScheduledExecutorService scheduler, long packWaitTimeoutMs) {
+        ReflectionTestUtils.setField(service, "handoffPackWaitTimeoutMs", packWaitTimeoutMs);
+        ReflectionTestUtils.setField(service, "scheduledExecutor", scheduler);
+        ReflectionTestUtils.setField(service, "deviceStateCallbackExecutor", MoreExecutors.newDirectExecutorService());
+    }
+
     @Test
     public void givenPersistToTelemetryAndDefaultInactivityTimeoutFetched_whenTransformingToDeviceStateData_thenTryGetInactivityFromAttribute() {
         var defaultInactivityTimeoutInSec = 60L;
@@ -710,6 +873,68 @@ public class DefaultDeviceStateServiceTest {
         verify(telemetrySubscriptionService, never()).saveAttrAndNotify(any(), eq(deviceId), any(AttributeScope.class), eq(ACTIVITY_STATE), any(), any());
     }
 
+    @Test
+    public void givenActiveDeviceNotExpired_whenCheckStates_thenDeviceStateNotProcessed() {
+        long currentTime = System.currentTimeMillis();
+        DeviceState deviceState = DeviceState.builder()
+                .active(true)
+                .lastActivityTime(currentTime)
+                .inactivityTimeout(TimeUnit.HOURS.toMillis(1))
+                .build();
+        DeviceStateData deviceStateData = DeviceStateData.builder()
+                .tenantId(tenantId)
+                .deviceId(deviceId)
+                .state(deviceState)
+                .metaData(new TbMsgMetaData())
+                .build();
+        service.deviceStates.put(deviceId, deviceStateData);
+        service.scheduleInactivityCheck(deviceId, deviceStateData);
+
+        service.checkStates();
+
+        then(service).should(never()).updateInactivityStateIfExpired(anyLong(), eq(deviceId), any());
+        assertThat(service.inactivityIndex.contains(deviceId)).isTrue();
+    }
+
+    @Test
+    public void givenDevicePackFetchFailed_whenCheckStates_thenDeviceStateIsFetchedAndScheduled() {
+        service.setDefaultInactivityTimeoutMs(1000);
+        service.init();
+        when(partitionService.resolve(ServiceType.TB_CORE, tenantId, deviceId)).thenReturn(tpi);
+        when(entityQueryRepository.findEntityDataByQueryInternal(any())).thenThrow(new RuntimeException("DB is unavailable"));
+        when(deviceService.findDeviceIdInfos(any()))
+                .thenReturn(new PageData<>(List.of(new DeviceIdInfo(tenantId.getId(), null, deviceId.getId())), 0, 1, false));
+        service.onApplicationEvent(new PartitionChangeEvent(this, ServiceType.TB_CORE, Map.of(
+                new QueueKey(ServiceType.TB_CORE), Collections.singleton(tpi)
+        )));
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> service.unfetchedDevices.contains(deviceId));
+        assertThat(service.getPartitionedEntities(tpi)).contains(deviceId);
+        assertThat(service.deviceStates).doesNotContainKey(deviceId);
+
+        willThrow(new RuntimeException("DB is still unavailable")).given(service).fetchDeviceStateDataUsingSeparateRequests(deviceId);
+        service.checkStates();
+        assertThat(service.unfetchedDevices).contains(deviceId);
+
+        DeviceStateData deviceStateData = DeviceStateData.builder()
+                .tenantId(tenantId)
+                .deviceId(deviceId)
+                .state(DeviceState.builder()
+                        .active(true)
+                        .lastActivityTime(System.currentTimeMillis())
+                        .inactivityTimeout(TimeUnit.HOURS.toMillis(1))
+                        .build())
+                .metaData(new TbMsgMetaData())
+                .build();
+        willReturn(deviceStateData).given(service).fetchDeviceStateDataUsingSeparateRequests(deviceId);
+        service.checkStates();
+
+        assertThat(service.deviceStates).containsEntry(deviceId, deviceStateData);
+        assertThat(service.inactivityIndex.contains(deviceId)).isTrue();
+        assertThat(service.unfetchedDevices).isEmpty();
+        service.stop();
+    }
+
     private void activityVerify(boolean isActive) {
         verify(telemetrySubscriptionService).saveAttrAndNotify(any(), eq(deviceId), any(AttributeScope.class), eq(ACTIVITY_STATE), eq(isActive), any());
     }
@@ -0,0 +1,69 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.state;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DeviceInactivityIndexTest {
+
+    private final DeviceInactivityIndex index = new DeviceInactivityIndex(1000);
+
+    @Test
+    public void givenScheduledDevices_whenPollDue_thenOnlyExpiredBucketsReturned() {
+        DeviceId expired = new DeviceId(UUID.randomUUID());
+        DeviceId sameTick = new DeviceId(UUID.randomUUID());
+        DeviceId notExpired = new DeviceId(UUID.randomUUID());
+
+        index.schedule(expired, 1000);
+        index.schedule(sameTick, 5999);
+        index.schedule(notExpired, 6000);
+
+        assertThat(index.pollDue(5500)).containsExactlyInAnyOrder(expired, sameTick);
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.contains(notExpired)).isTrue();
+        assertThat(index.pollDue(5999)).isEmpty();
+        assertThat(index.pollDue(6000)).containsExactly(notExpired);
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    public void givenRescheduledDevice_whenPollDue_thenOldDeadlineIgnored() {
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+
+        index.schedule(deviceId, 1000);
+        index.schedule(deviceId, 10000);
+
+        assertThat(index.pollDue(5000)).isEmpty();
+        assertThat(index.pollDue(10000)).containsExactly(deviceId);
+    }
+
+    @Test
+    public void givenRemovedDevice_whenPollDue_thenDeviceNotReturned() {
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+
+        index.schedule(deviceId, 1000);
+        index.remove(deviceId);
+
+        assertThat(index.contains(deviceId)).isFalse();
+        assertThat(index.pollDue(5000)).isEmpty();
+    }
+
+}
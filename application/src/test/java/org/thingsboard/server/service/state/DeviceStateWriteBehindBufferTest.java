@@ -0,0 +1,73 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.state;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.kv.BooleanDataEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class DeviceStateWriteBehindBufferTest {
+
+    private final Map<DeviceId, List<DeviceStateWriteBehindBuffer.Entry>> persisted = new HashMap<>();
+    private final DeviceStateWriteBehindBuffer buffer = new DeviceStateWriteBehindBuffer(mock(StatsFactory.class, Answers.RETURNS_MOCKS), persisted::put);
+
+    @Test
+    public void givenSeveralUpdatesOfSameKey_whenFlush_thenLatestValuePersistedOnce() {
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+
+        buffer.add(deviceId, new BooleanDataEntry(DefaultDeviceStateService.ACTIVITY_STATE, true), 1);
+        buffer.add(deviceId, new LongDataEntry(DefaultDeviceStateService.LAST_ACTIVITY_TIME, 1L), 1);
+        buffer.add(deviceId, new LongDataEntry(DefaultDeviceStateService.LAST_ACTIVITY_TIME, 2L), 2);
+        buffer.flush();
+
+        assertThat(persisted).containsOnlyKeys(deviceId);
+        List<DeviceStateWriteBehindBuffer.Entry> entries = persisted.get(deviceId);
+        assertThat(entries).hasSize(2);
+        assertThat(entries.get(0).kv().getKey()).isEqualTo(DefaultDeviceStateService.ACTIVITY_STATE);
+        assertThat(entries.get(1).kv().getValue()).isEqualTo(2L);
+        assertThat(entries.get(1).ts()).isEqualTo(2L);
+        assertThat(buffer.getPendingDevicesCount()).isZero();
+    }
+
+    @Test
+    public void givenUpdatesOfSeveralDevices_whenFlush_thenEachDevicePersistedOnce() {
+        DeviceId first = new DeviceId(UUID.randomUUID());
+        DeviceId second = new DeviceId(UUID.randomUUID());
+
+        buffer.add(first, new BooleanDataEntry(DefaultDeviceStateService.ACTIVITY_STATE, true), 1);
+        buffer.add(second, new BooleanDataEntry(DefaultDeviceStateService.ACTIVITY_STATE, false), 1);
+        assertThat(buffer.getPendingDevicesCount()).isEqualTo(2);
+        buffer.flush();
+
+        assertThat(persisted).containsOnlyKeys(first, second);
+
+        persisted.clear();
+        buffer.flush();
+        assertThat(persisted).isEmpty();
+    }
+
+}
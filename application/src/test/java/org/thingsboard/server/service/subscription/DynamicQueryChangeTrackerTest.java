@@ -0,0 +1,168 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.subscription;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.cluster.TbClusterService;
+import org.thingsboard.server.common.data.audit.ActionType;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.relation.EntityRelation;
+import org.thingsboard.server.dao.eventsourcing.DeleteEntityEvent;
+import org.thingsboard.server.dao.eventsourcing.RelationActionEvent;
+import org.thingsboard.server.dao.eventsourcing.SaveEntityEvent;
+import org.thingsboard.server.gen.transport.TransportProtos.DynamicQueryChangesMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.TenantDynamicQueryChangesProto;
+import org.thingsboard.server.gen.transport.TransportProtos.ToCoreNotificationMsg;
+import org.thingsboard.server.queue.discovery.TbServiceInfoProvider;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+
+class DynamicQueryChangeTrackerTest {
+
+    final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    final TenantId otherTenantId = TenantId.fromUUID(UUID.randomUUID());
+
+    DynamicQueryChangeTracker changeTracker;
+    TbClusterService clusterService;
+
+    @BeforeEach
+    void setUp() {
+        clusterService = mock(TbClusterService.class);
+        TbServiceInfoProvider serviceInfoProvider = mock(TbServiceInfoProvider.class);
+        given(serviceInfoProvider.getServiceId()).willReturn("tb-core-0");
+        changeTracker = new DynamicQueryChangeTracker();
+        ReflectionTestUtils.setField(changeTracker, "enabled", true);
+        ReflectionTestUtils.setField(changeTracker, "clusterService", clusterService);
+        ReflectionTestUtils.setField(changeTracker, "serviceInfoProvider", serviceInfoProvider);
+    }
+
+    @Test
+    void givenEntityOrRelationChange_whenGetVersion_thenVersionIsChangedForAllQueriesOfTheTenant() {
+        long entitiesVersion = changeTracker.getVersion(tenantId, false);
+        long valuesVersion = changeTracker.getVersion(tenantId, true);
+        long otherTenantVersion = changeTracker.getVersion(otherTenantId, true);
+
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        changeTracker.handleEvent(SaveEntityEvent.builder().tenantId(tenantId).entityId(deviceId).build());
+        assertThat(changeTracker.getVersion(tenantId, false)).isNotEqualTo(entitiesVersion);
+        assertThat(changeTracker.getVersion(tenantId, true)).isNotEqualTo(valuesVersion);
+
+        entitiesVersion = changeTracker.getVersion(tenantId, false);
+        changeTracker.handleEvent(DeleteEntityEvent.builder().tenantId(tenantId).entityId(deviceId).build());
+        assertThat(changeTracker.getVersion(tenantId, false)).isNotEqualTo(entitiesVersion);
+
+        entitiesVersion = changeTracker.getVersion(tenantId, false);
+        changeTracker.handleEvent(new RelationActionEvent(tenantId, new EntityRelation(), ActionType.RELATION_ADD_OR_UPDATE));
+        assertThat(changeTracker.getVersion(tenantId, false)).isNotEqualTo(entitiesVersion);
+
+        assertThat(changeTracker.getVersion(otherTenantId, true)).isEqualTo(otherTenantVersion);
+    }
+
+    @Test
+    void givenValuesChange_whenGetVersion_thenVersionIsChangedOnlyForQueriesDependentOnValues() {
+        long entitiesVersion = changeTracker.getVersion(tenantId, false);
+        long valuesVersion = changeTracker.getVersion(tenantId, true);
+
+        changeTracker.onValuesChange(tenantId);
+
+        assertThat(changeTracker.getVersion(tenantId, false)).isEqualTo(entitiesVersion);
+        assertThat(changeTracker.getVersion(tenantId, true)).isNotEqualTo(valuesVersion);
+    }
+
+    @Test
+    void givenTrackerDisabled_whenChange_thenVersionIsNotChanged() {
+        ReflectionTestUtils.setField(changeTracker, "enabled", false);
+        long version = changeTracker.getVersion(tenantId, true);
+
+        changeTracker.onEntitiesChange(tenantId);
+        changeTracker.onValuesChange(tenantId);
+
+        assertThat(changeTracker.getVersion(tenantId, true)).isEqualTo(version);
+    }
+
+    @Test
+    void givenLocalChanges_whenBroadcast_thenChangesOfEachTenantAreSentOnce() {
+        changeTracker.onEntitiesChange(tenantId);
+        changeTracker.onValuesChange(tenantId);
+        changeTracker.onValuesChange(tenantId);
+        changeTracker.onValuesChange(otherTenantId);
+
+        changeTracker.broadcastChanges();
+        changeTracker.broadcastChanges();
+
+        ArgumentCaptor<ToCoreNotificationMsg> msgCaptor = ArgumentCaptor.forClass(ToCoreNotificationMsg.class);
+        then(clusterService).should(times(1)).broadcastToCore(msgCaptor.capture());
+        DynamicQueryChangesMsg msg = msgCaptor.getValue().getDynamicQueryChangesMsg();
+        assertThat(msg.getServiceId()).isEqualTo("tb-core-0");
+        assertThat(msg.getTenantChangesList()).hasSize(2);
+        assertThat(msg.getTenantChangesList()).anySatisfy(changes -> {
+            assertThat(changes.getTenantIdMSB()).isEqualTo(tenantId.getId().getMostSignificantBits());
+            assertThat(changes.getTenantIdLSB()).isEqualTo(tenantId.getId().getLeastSignificantBits());
+            assertThat(changes.getEntities()).isTrue();
+            assertThat(changes.getValues()).isTrue();
+        });
+        assertThat(msg.getTenantChangesList()).anySatisfy(changes -> {
+            assertThat(changes.getTenantIdMSB()).isEqualTo(otherTenantId.getId().getMostSignificantBits());
+            assertThat(changes.getEntities()).isFalse();
+            assertThat(changes.getValues()).isTrue();
+        });
+    }
+
+    @Test
+    void givenChangesOfOtherNode_whenReceived_thenVersionIsChangedAndChangesAreNotBroadcastAgain() {
+        long entitiesVersion = changeTracker.getVersion(tenantId, false);
+        long valuesVersion = changeTracker.getVersion(tenantId, true);
+
+        changeTracker.onChangesMsg(DynamicQueryChangesMsg.newBuilder()
+                .setServiceId("tb-core-1")
+                .addTenantChanges(TenantDynamicQueryChangesProto.newBuilder()
+                        .setTenantIdMSB(tenantId.getId().getMostSignificantBits())
+                        .setTenantIdLSB(tenantId.getId().getLeastSignificantBits())
+                        .setValues(true))
+                .build());
+
+        assertThat(changeTracker.getVersion(tenantId, false)).isEqualTo(entitiesVersion);
+        assertThat(changeTracker.getVersion(tenantId, true)).isNotEqualTo(valuesVersion);
+        changeTracker.broadcastChanges();
+        then(clusterService).shouldHaveNoInteractions();
+    }
+
+    @Test
+    void givenOwnChanges_whenReceived_thenVersionIsNotChanged() {
+        long version = changeTracker.getVersion(tenantId, false);
+
+        changeTracker.onChangesMsg(DynamicQueryChangesMsg.newBuilder()
+                .setServiceId("tb-core-0")
+                .addTenantChanges(TenantDynamicQueryChangesProto.newBuilder()
+                        .setTenantIdMSB(tenantId.getId().getMostSignificantBits())
+                        .setTenantIdLSB(tenantId.getId().getLeastSignificantBits())
+                        .setEntities(true))
+                .build());
+
+        assertThat(changeTracker.getVersion(tenantId, false)).isEqualTo(version);
+    }
+
+}
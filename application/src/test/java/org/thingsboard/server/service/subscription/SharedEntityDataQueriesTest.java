@@ -0,0 +1,142 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.subscription;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityDataPageLink;
+import org.thingsboard.server.common.data.query.EntityDataQuery;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.SingleEntityFilter;
+import org.thingsboard.server.common.data.query.TsValue;
+import org.thingsboard.server.dao.entity.EntityService;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.times;
+
+@ExtendWith(MockitoExtension.class)
+class SharedEntityDataQueriesTest {
+
+    final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    final CustomerId customerId = new CustomerId(UUID.randomUUID());
+    final DeviceId deviceId = new DeviceId(UUID.randomUUID());
+
+    @Mock
+    EntityService entityService;
+
+    SubscriptionServiceStatistics stats;
+    SharedEntityDataQueries sharedQueries;
+
+    @BeforeEach
+    void setUp() {
+        stats = new SubscriptionServiceStatistics();
+        sharedQueries = new SharedEntityDataQueries(entityService, stats, 60000);
+    }
+
+    @Test
+    void givenSameQuery_whenFind_thenQueryIsExecutedOnceAndResultIsCopied() {
+        given(entityService.findEntityDataByQuery(any(), any(), any())).willReturn(createPageData());
+
+        PageData<EntityData> first = sharedQueries.findEntityDataByQuery(tenantId, customerId, createQuery(10));
+        PageData<EntityData> second = sharedQueries.findEntityDataByQuery(tenantId, customerId, createQuery(10));
+
+        then(entityService).should(times(1)).findEntityDataByQuery(any(), any(), any());
+        assertThat(stats.getSharedQueryMissCnt().get()).isEqualTo(1);
+        assertThat(stats.getSharedQueryHitCnt().get()).isEqualTo(1);
+        assertThat(second.getData()).hasSize(1);
+        assertThat(second.getData().get(0)).isNotSameAs(first.getData().get(0));
+
+        first.getData().get(0).getLatest().get(EntityKeyType.TIME_SERIES).put("humidity", new TsValue(1L, "50"));
+        first.getData().get(0).getTimeseries().get("temperature")[0] = new TsValue(2L, "30");
+        PageData<EntityData> third = sharedQueries.findEntityDataByQuery(tenantId, customerId, createQuery(10));
+        assertThat(third.getData().get(0).getLatest().get(EntityKeyType.TIME_SERIES)).containsOnlyKeys("temperature");
+        assertThat(third.getData().get(0).getTimeseries().get("temperature")[0].getValue()).isEqualTo("25");
+    }
+
+    @Test
+    void givenDifferentQueryOrCustomer_whenFind_thenQueryIsExecutedForEach() {
+        given(entityService.findEntityDataByQuery(any(), any(), any())).willReturn(createPageData());
+
+        sharedQueries.findEntityDataByQuery(tenantId, customerId, createQuery(10));
+        sharedQueries.findEntityDataByQuery(tenantId, customerId, createQuery(20));
+        sharedQueries.findEntityDataByQuery(tenantId, new CustomerId(UUID.randomUUID()), createQuery(10));
+
+        then(entityService).should(times(3)).findEntityDataByQuery(any(), any(), any());
+        assertThat(stats.getSharedQueryMissCnt().get()).isEqualTo(3);
+        assertThat(stats.getSharedQueryHitCnt().get()).isZero();
+    }
+
+    @Test
+    void givenExpiredResult_whenFind_thenQueryIsExecutedAgain() {
+        sharedQueries = new SharedEntityDataQueries(entityService, stats, 0);
+        given(entityService.findEntityDataByQuery(any(), any(), any())).willReturn(createPageData());
+
+        sharedQueries.findEntityDataByQuery(tenantId, customerId, createQuery(10));
+        sharedQueries.findEntityDataByQuery(tenantId, customerId, createQuery(10));
+
+        then(entityService).should(times(2)).findEntityDataByQuery(any(), any(), any());
+    }
+
+    @Test
+    void givenFailedQuery_whenFind_thenResultIsNotCached() {
+        given(entityService.findEntityDataByQuery(any(), any(), any()))
+                .willThrow(new RuntimeException("DB is down"))
+                .willReturn(createPageData());
+
+        assertThatThrownBy(() -> sharedQueries.findEntityDataByQuery(tenantId, customerId, createQuery(10)))
+                .hasMessage("DB is down");
+        assertThat(sharedQueries.findEntityDataByQuery(tenantId, customerId, createQuery(10)).getData()).hasSize(1);
+
+        then(entityService).should(times(2)).findEntityDataByQuery(any(), any(), any());
+    }
+
+    private EntityDataQuery createQuery(int pageSize) {
+        SingleEntityFilter filter = new SingleEntityFilter();
+        filter.setSingleEntity(deviceId);
+        EntityDataPageLink pageLink = new EntityDataPageLink(pageSize, 0, null, null);
+        pageLink.setDynamic(true);
+        return new EntityDataQuery(filter, pageLink, Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+    }
+
+    private PageData<EntityData> createPageData() {
+        Map<String, TsValue> latestTs = new HashMap<>();
+        latestTs.put("temperature", new TsValue(1L, "25"));
+        Map<EntityKeyType, Map<String, TsValue>> latest = new HashMap<>();
+        latest.put(EntityKeyType.TIME_SERIES, latestTs);
+        Map<String, TsValue[]> timeseries = new HashMap<>();
+        timeseries.put("temperature", new TsValue[]{new TsValue(1L, "25")});
+        return new PageData<>(List.of(new EntityData(deviceId, latest, timeseries)), 1, 1, false);
+    }
+
+}
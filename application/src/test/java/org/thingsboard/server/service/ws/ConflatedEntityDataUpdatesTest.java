@@ -0,0 +1,141 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.ws;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.TsValue;
+import org.thingsboard.server.service.subscription.SubscriptionErrorCode;
+import org.thingsboard.server.service.ws.telemetry.cmd.v2.EntityDataUpdate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class ConflatedEntityDataUpdatesTest {
+
+    final DeviceId deviceA = new DeviceId(UUID.randomUUID());
+    final DeviceId deviceB = new DeviceId(UUID.randomUUID());
+
+    ConflatedEntityDataUpdates conflatedUpdates = new ConflatedEntityDataUpdates();
+
+    @Test
+    void givenIncrementalUpdates_whenDrain_thenNewestLatestValuePerEntityAndKeyIsKept() {
+        assertThat(conflatedUpdates.add(latestUpdate(1, deviceA, "temperature", 1L, "20"), 0)).isFalse();
+        assertThat(conflatedUpdates.add(latestUpdate(1, deviceA, "temperature", 2L, "21"), 0)).isTrue();
+        assertThat(conflatedUpdates.add(latestUpdate(1, deviceA, "humidity", 2L, "50"), 0)).isTrue();
+        assertThat(conflatedUpdates.add(latestUpdate(1, deviceB, "temperature", 3L, "30"), 0)).isTrue();
+
+        List<EntityDataUpdate> updates = conflatedUpdates.drain();
+
+        assertThat(updates).hasSize(1);
+        assertThat(updates.get(0).getCmdId()).isEqualTo(1);
+        assertThat(updates.get(0).getData()).isNull();
+        List<EntityData> entities = updates.get(0).getUpdate();
+        assertThat(entities).extracting(EntityData::getEntityId).containsExactly(deviceA, deviceB);
+        Map<String, TsValue> deviceALatest = entities.get(0).getLatest().get(EntityKeyType.TIME_SERIES);
+        assertThat(deviceALatest).containsOnlyKeys("temperature", "humidity");
+        assertThat(deviceALatest.get("temperature").getValue()).isEqualTo("21");
+        assertThat(conflatedUpdates.isEmpty()).isTrue();
+    }
+
+    @Test
+    void givenTimeseriesUpdates_whenDrain_thenAllValuesAreKept() {
+        conflatedUpdates.add(tsUpdate(1, deviceA, "temperature", 1L, "20"), 0);
+        conflatedUpdates.add(tsUpdate(1, deviceA, "temperature", 2L, "21"), 0);
+        conflatedUpdates.add(tsUpdate(2, deviceA, "temperature", 3L, "22"), 0);
+
+        List<EntityDataUpdate> updates = conflatedUpdates.drain();
+
+        assertThat(updates).extracting(EntityDataUpdate::getCmdId).containsExactly(1, 2);
+        assertThat(updates.get(0).getUpdate().get(0).getTimeseries().get("temperature"))
+                .extracting(TsValue::getValue).containsExactly("20", "21");
+        assertThat(updates.get(1).getUpdate().get(0).getTimeseries().get("temperature"))
+                .extracting(TsValue::getValue).containsExactly("22");
+    }
+
+    @Test
+    void givenPendingUpdate_whenRemove_thenOnlyThisSubscriptionIsRemoved() {
+        conflatedUpdates.add(latestUpdate(1, deviceA, "temperature", 1L, "20"), 10);
+        conflatedUpdates.add(latestUpdate(2, deviceA, "temperature", 1L, "20"), 20);
+        assertThat(conflatedUpdates.getOldestTs()).isEqualTo(10);
+
+        assertThat(conflatedUpdates.remove(1).getUpdate()).hasSize(1);
+        assertThat(conflatedUpdates.remove(1)).isNull();
+        assertThat(conflatedUpdates.getOldestTs()).isEqualTo(20);
+        assertThat(conflatedUpdates.drain()).extracting(EntityDataUpdate::getCmdId).containsExactly(2);
+    }
+
+    @Test
+    void givenPendingUpdatesAreBeingSentByFlush_whenFullUpdateIsSent_thenFullUpdateIsSentAfterDrainedUpdates() throws Exception {
+        conflatedUpdates.add(latestUpdate(1, deviceA, "temperature", 1L, "20"), 0);
+        List<String> sent = new CopyOnWriteArrayList<>();
+        CountDownLatch drainStarted = new CountDownLatch(1);
+        CountDownLatch drainReleased = new CountDownLatch(1);
+
+        Thread flushThread = new Thread(() -> conflatedUpdates.drainTo(update -> {
+            drainStarted.countDown();
+            awaitUninterruptibly(drainReleased);
+            sent.add("incremental");
+        }));
+        flushThread.start();
+        assertThat(drainStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Thread fullUpdateThread = new Thread(() -> conflatedUpdates.sendWithPending(1, update -> sent.add("pending"), () -> sent.add("full")));
+        fullUpdateThread.start();
+        await().atMost(5, TimeUnit.SECONDS).until(() -> fullUpdateThread.getState() == Thread.State.BLOCKED);
+        drainReleased.countDown();
+        flushThread.join(5000);
+        fullUpdateThread.join(5000);
+
+        assertThat(sent).containsExactly("incremental", "full");
+    }
+
+    @Test
+    void givenFullDataOrErrorUpdate_whenCheckConflatable_thenFalse() {
+        assertThat(ConflatedEntityDataUpdates.isConflatable(latestUpdate(1, deviceA, "temperature", 1L, "20"))).isTrue();
+        assertThat(ConflatedEntityDataUpdates.isConflatable(new EntityDataUpdate(1, new PageData<>(), null, 100))).isFalse();
+        assertThat(ConflatedEntityDataUpdates.isConflatable(new EntityDataUpdate(1, SubscriptionErrorCode.INTERNAL_ERROR.getCode(), "Failed"))).isFalse();
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private EntityDataUpdate latestUpdate(int cmdId, DeviceId deviceId, String key, long ts, String value) {
+        EntityData entityData = new EntityData(deviceId, Map.of(EntityKeyType.TIME_SERIES, Map.of(key, new TsValue(ts, value))), null);
+        return new EntityDataUpdate(cmdId, null, List.of(entityData), 100);
+    }
+
+    private EntityDataUpdate tsUpdate(int cmdId, DeviceId deviceId, String key, long ts, String value) {
+        EntityData entityData = new EntityData(deviceId, null, Map.of(key, new TsValue[]{new TsValue(ts, value)}));
+        return new EntityDataUpdate(cmdId, null, List.of(entityData), 100);
+    }
+
+}
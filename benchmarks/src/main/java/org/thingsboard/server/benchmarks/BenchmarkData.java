@@ -0,0 +1,65 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Deterministic payloads shared by the benchmarks, so the results of different runs are comparable.
+ */
+final class BenchmarkData {
+
+    private static final long SEED = 42L;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Flat telemetry object with the given number of keys, mixing long, double, boolean and string values.
+     */
+    static String telemetryJson(int keys) {
+        Random random = new Random(SEED);
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < keys; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("\"key").append(i).append("\":");
+            switch (i % 4) {
+                case 0 -> sb.append(random.nextInt(1000));
+                case 1 -> sb.append(random.nextDouble() * 100);
+                case 2 -> sb.append(random.nextBoolean());
+                default -> sb.append('"').append(Long.toHexString(random.nextLong())).append('"');
+            }
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Telemetry array in the "ts"/"values" format with the given number of entries of {@code keys} keys each.
+     */
+    static String timeseriesJson(int entries, int keys) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < entries; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"ts\":").append(1700000000000L + i * 1000L).append(",\"values\":").append(telemetryJson(keys)).append('}');
+        }
+        return sb.append(']').toString();
+    }
+
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmarks;
+
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.server.common.adaptor.JsonConverter;
+import org.thingsboard.server.common.adaptor.StreamingJsonConverter;
+import org.thingsboard.server.common.data.kv.KvEntry;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the device telemetry payloads, as done by the transports and the rule engine.
+ * The tree and streaming conversions both start from the raw payload bytes; run with {@code -prof gc} to compare allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonConverterBenchmark {
+
+    private static final long SYSTEM_TS = 1700000000000L;
+
+    @Param({"FLAT", "TIMESERIES"})
+    private PayloadType payloadType;
+
+    @Param({"8", "64"})
+    private int keys;
+
+    private String payload;
+    private byte[] payloadBytes;
+
+    @Setup
+    public void setup() {
+        payload = switch (payloadType) {
+            case FLAT -> BenchmarkData.telemetryJson(keys);
+            case TIMESERIES -> BenchmarkData.timeseriesJson(10, keys);
+        };
+        payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public TransportProtos.PostTelemetryMsg convertToTelemetryProto() {
+        return JsonConverter.convertToTelemetryProto(JsonParser.parseString(new String(payloadBytes, StandardCharsets.UTF_8)), SYSTEM_TS);
+    }
+
+    @Benchmark
+    public TransportProtos.PostTelemetryMsg convertToTelemetryProtoStreaming() {
+        return StreamingJsonConverter.convertToTelemetryProto(new StringReader(new String(payloadBytes, StandardCharsets.UTF_8)), SYSTEM_TS);
+    }
+
+    @Benchmark
+    public Map<Long, List<KvEntry>> convertToTelemetry() {
+        return JsonConverter.convertToTelemetry(JsonParser.parseString(payload), SYSTEM_TS);
+    }
+
+    public enum PayloadType {
+        FLAT, TIMESERIES
+    }
+
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.server.common.data.DataConstants;
+import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.AttributeKvEntry;
+import org.thingsboard.server.common.data.kv.BaseAttributeKvEntry;
+import org.thingsboard.server.common.data.kv.BooleanDataEntry;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
+import org.thingsboard.server.common.msg.ToDeviceActorNotificationMsg;
+import org.thingsboard.server.common.msg.rule.engine.DeviceAttributesEventNotificationMsg;
+import org.thingsboard.server.common.util.ProtoUtils;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversions between the domain objects and the protobuf messages sent between the cluster nodes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProtoUtilsBenchmark {
+
+    @Param({"4", "64"})
+    private int attributes;
+
+    private DeviceAttributesEventNotificationMsg attributesMsg;
+    private TransportProtos.ToDeviceActorNotificationMsgProto attributesProto;
+    private Device device;
+    private TransportProtos.DeviceProto deviceProto;
+
+    @Setup
+    public void setup() {
+        List<AttributeKvEntry> values = new ArrayList<>(attributes);
+        for (int i = 0; i < attributes; i++) {
+            String key = "attr" + i;
+            values.add(new BaseAttributeKvEntry(switch (i % 4) {
+                case 0 -> new LongDataEntry(key, (long) i);
+                case 1 -> new DoubleDataEntry(key, i * 0.5);
+                case 2 -> new BooleanDataEntry(key, i % 3 == 0);
+                default -> new StringDataEntry(key, "value" + i);
+            }, 1700000000000L + i));
+        }
+        TenantId tenantId = TenantId.fromUUID(new UUID(1L, 1L));
+        DeviceId deviceId = new DeviceId(new UUID(2L, 2L));
+        attributesMsg = DeviceAttributesEventNotificationMsg.onUpdate(tenantId, deviceId, DataConstants.SHARED_SCOPE, values);
+        attributesProto = ProtoUtils.toProto(attributesMsg);
+
+        device = new Device(deviceId);
+        device.setCreatedTime(1700000000000L);
+        device.setTenantId(tenantId);
+        device.setCustomerId(new CustomerId(new UUID(3L, 3L)));
+        device.setDeviceProfileId(new DeviceProfileId(new UUID(4L, 4L)));
+        device.setName("Thermostat A1");
+        device.setType("thermostat");
+        device.setLabel("Building 1, floor 2");
+        deviceProto = ProtoUtils.toProto(device);
+    }
+
+    @Benchmark
+    public TransportProtos.ToDeviceActorNotificationMsgProto attributesUpdateToProto() {
+        return ProtoUtils.toProto(attributesMsg);
+    }
+
+    @Benchmark
+    public ToDeviceActorNotificationMsg attributesUpdateFromProto() {
+        return ProtoUtils.fromProto(attributesProto);
+    }
+
+    @Benchmark
+    public TransportProtos.DeviceProto deviceToProto() {
+        return ProtoUtils.toProto(device);
+    }
+
+    @Benchmark
+    public Device deviceFromProto() {
+        return ProtoUtils.fromProto(deviceProto);
+    }
+
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmarks;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.server.cache.limits.DefaultRateLimitService;
+import org.thingsboard.server.cache.limits.LocalRateLimitsFactory;
+import org.thingsboard.server.cache.limits.RateLimitService;
+import org.thingsboard.server.cache.limits.RateLimitsFactory;
+import org.thingsboard.server.cache.limits.TenantProfileProvider;
+import org.thingsboard.server.common.data.TenantProfile;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.limit.LimitedApi;
+import org.thingsboard.server.common.data.tenant.profile.DefaultTenantProfileConfiguration;
+import org.thingsboard.server.common.data.tenant.profile.TenantProfileData;
+import org.thingsboard.server.common.msg.notification.NotificationRuleProcessor;
+import org.thingsboard.server.common.msg.tools.TbRateLimiter;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Rate limits check done for every REST request, under the contention of 64 request threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(64)
+public class RateLimitServiceBenchmark {
+
+    private static final int CUSTOMERS = 1024;
+    private static final String RATE_LIMIT = "1000000000:1";
+
+    @Param({"compute", "lockFree"})
+    private String implementation;
+
+    private RateLimitService rateLimitService;
+    private TenantId tenantId;
+    private CustomerId[] customers;
+
+    @Setup
+    public void setup() {
+        DefaultTenantProfileConfiguration profileConfiguration = new DefaultTenantProfileConfiguration();
+        profileConfiguration.setTenantServerRestLimitsConfiguration(RATE_LIMIT);
+        profileConfiguration.setCustomerServerRestLimitsConfiguration(RATE_LIMIT);
+        TenantProfileData profileData = new TenantProfileData();
+        profileData.setConfiguration(profileConfiguration);
+        TenantProfile tenantProfile = new TenantProfile();
+        tenantProfile.setProfileData(profileData);
+        TenantProfileProvider tenantProfileProvider = tenantId -> tenantProfile;
+
+        RateLimitsFactory rateLimitsFactory = new LocalRateLimitsFactory();
+        NotificationRuleProcessor notificationRuleProcessor = mock(NotificationRuleProcessor.class);
+        rateLimitService = switch (implementation) {
+            case "compute" -> new ComputeRateLimitService(tenantProfileProvider, rateLimitsFactory);
+            case "lockFree" -> new DefaultRateLimitService(tenantProfileProvider, notificationRuleProcessor, rateLimitsFactory, 120, 200000);
+            default -> throw new IllegalArgumentException(implementation);
+        };
+
+        Random random = new Random(42);
+        tenantId = TenantId.fromUUID(new UUID(random.nextLong(), random.nextLong()));
+        customers = new CustomerId[CUSTOMERS];
+        for (int i = 0; i < CUSTOMERS; i++) {
+            customers[i] = new CustomerId(new UUID(random.nextLong(), random.nextLong()));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private int idx = (int) Thread.currentThread().getId();
+    }
+
+    @Benchmark
+    public boolean checkTenantRateLimit() {
+        return rateLimitService.checkRateLimit(LimitedApi.REST_REQUESTS_PER_TENANT, tenantId);
+    }
+
+    @Benchmark
+    public boolean checkCustomerRateLimit(ThreadState state) {
+        CustomerId customerId = customers[state.idx++ & (CUSTOMERS - 1)];
+        return rateLimitService.checkRateLimit(LimitedApi.REST_REQUESTS_PER_CUSTOMER, tenantId, customerId);
+    }
+
+    /**
+     * The previous implementation: a composite key per check and Caffeine map compute under the bin lock.
+     */
+    private static class ComputeRateLimitService implements RateLimitService {
+
+        private final TenantProfileProvider tenantProfileProvider;
+        private final RateLimitsFactory rateLimitsFactory;
+        private final Cache<RateLimitKey, TbRateLimiter> rateLimits = Caffeine.newBuilder()
+                .expireAfterAccess(120, TimeUnit.MINUTES)
+                .maximumSize(200000)
+                .build();
+
+        ComputeRateLimitService(TenantProfileProvider tenantProfileProvider, RateLimitsFactory rateLimitsFactory) {
+            this.tenantProfileProvider = tenantProfileProvider;
+            this.rateLimitsFactory = rateLimitsFactory;
+        }
+
+        @Override
+        public boolean checkRateLimit(LimitedApi api, TenantId tenantId) {
+            return checkRateLimit(api, tenantId, tenantId);
+        }
+
+        @Override
+        public boolean checkRateLimit(LimitedApi api, TenantId tenantId, Object level) {
+            return checkRateLimit(api, tenantId, level, false);
+        }
+
+        @Override
+        public boolean checkRateLimit(LimitedApi api, TenantId tenantId, Object level, boolean ignoreTenantNotFound) {
+            String rateLimitConfig = tenantProfileProvider.get(tenantId).getProfileConfiguration()
+                    .map(api::getLimitConfig).orElse(null);
+            return checkRateLimit(api, level, rateLimitConfig);
+        }
+
+        @Override
+        public boolean checkRateLimit(LimitedApi api, Object level, String rateLimitConfig) {
+            TbRateLimiter rateLimit = rateLimits.asMap().compute(new RateLimitKey(api, level), (k, limit) -> {
+                if (limit == null || !limit.getConfiguration().equals(rateLimitConfig)) {
+                    limit = rateLimitsFactory.create(api.name() + "::" + level, rateLimitConfig, api.isRefillRateLimitIntervally());
+                }
+                return limit;
+            });
+            return rateLimit.tryConsume();
+        }
+
+        @Override
+        public void cleanUp(LimitedApi api, Object level) {
+            rateLimits.invalidate(new RateLimitKey(api, level));
+        }
+
+    }
+
+    private record RateLimitKey(LimitedApi api, Object level) {}
+
+}
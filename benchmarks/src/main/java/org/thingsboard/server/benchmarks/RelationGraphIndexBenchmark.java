@@ -0,0 +1,189 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.id.AssetId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.relation.EntityRelation;
+import org.thingsboard.server.common.data.relation.EntitySearchDirection;
+import org.thingsboard.server.common.data.relation.RelationTypeGroup;
+import org.thingsboard.server.dao.relation.RelationDao;
+import org.thingsboard.server.dao.relation.RelationGraphIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Multi-level relation queries answered by the {@link RelationGraphIndex} on a graph of 10M relations:
+ * 1000 root assets x 100 child assets x 99 devices. The relations are generated on the fly while the index
+ * is loaded, the dao is not used by the measured queries. The load time and the heap used by the loaded index
+ * are printed on setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class RelationGraphIndexBenchmark {
+
+    private static final int ROOTS = 1000;
+    private static final int CHILDREN = 100;
+    private static final int LEAVES = 99;
+    private static final long RELATIONS = (long) ROOTS * CHILDREN * (1 + LEAVES);
+    private static final int LOAD_BATCH_SIZE = 10000;
+    private static final int QUERY_ENTITIES = 1024;
+
+    /**
+     * leafToRoot - 2 levels up from a device, childSubtree - 99 relations of a child asset,
+     * rootSubtree - 10k relations of a root asset on 2 levels.
+     */
+    @Param({"leafToRoot", "childSubtree", "rootSubtree"})
+    private String query;
+
+    private RelationGraphIndex index;
+    private EntityId[] entities;
+    private EntitySearchDirection direction;
+    private int idx;
+
+    @Setup(Level.Trial)
+    public void setup() throws InterruptedException {
+        RelationDao relationDao = mock(RelationDao.class);
+        RelationsGenerator generator = new RelationsGenerator();
+        given(relationDao.findAllByTypeGroup(eq(RelationTypeGroup.COMMON), any(), anyInt()))
+                .willAnswer(invocation -> generator.next(invocation.getArgument(2)));
+        // the generated relations have no additional info, so the executor used for its loading is not needed
+        index = new RelationGraphIndex(relationDao, null);
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "loadBatchSize", LOAD_BATCH_SIZE);
+
+        long heapBefore = usedHeap();
+        long startTs = System.currentTimeMillis();
+        index.init();
+        while (!index.isReady(RelationTypeGroup.COMMON)) {
+            Thread.sleep(10);
+        }
+        long loadTime = System.currentTimeMillis() - startTs;
+        System.out.printf("%nLoaded %d relations in %d ms, heap used by the index: ~%d MB%n",
+                RELATIONS, loadTime, (usedHeap() - heapBefore) / (1024 * 1024));
+
+        Random random = new Random(42);
+        entities = new EntityId[QUERY_ENTITIES];
+        for (int i = 0; i < QUERY_ENTITIES; i++) {
+            int child = random.nextInt(ROOTS * CHILDREN);
+            entities[i] = switch (query) {
+                case "leafToRoot" -> leaf((long) child * LEAVES + random.nextInt(LEAVES));
+                case "childSubtree" -> child(child);
+                case "rootSubtree" -> root(child / CHILDREN);
+                default -> throw new IllegalArgumentException("Unknown query: " + query);
+            };
+        }
+        direction = "leafToRoot".equals(query) ? EntitySearchDirection.TO : EntitySearchDirection.FROM;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        index.destroy();
+    }
+
+    @Benchmark
+    public Set<EntityRelation> findRelationsRecursively() throws Exception {
+        EntityId entityId = entities[idx++ & (QUERY_ENTITIES - 1)];
+        return index.findRelationsRecursively(entityId, direction, Integer.MAX_VALUE, false).get();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static AssetId root(long root) {
+        return new AssetId(uuid(root));
+    }
+
+    private static AssetId child(long child) {
+        return new AssetId(uuid(ROOTS + child));
+    }
+
+    private static DeviceId leaf(long leaf) {
+        return new DeviceId(uuid(ROOTS + (long) ROOTS * CHILDREN + leaf));
+    }
+
+    // SplitMix64 of the sequence number, so the ids are random but do not have to be kept in memory
+    private static UUID uuid(long seq) {
+        return new UUID(mix(seq * 2), mix(seq * 2 + 1));
+    }
+
+    private static long mix(long x) {
+        long z = x + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Emits the relation of each child asset to its root followed by the relations of the child to its devices.
+     */
+    private static class RelationsGenerator {
+
+        private long position;
+
+        synchronized List<EntityRelation> next(int limit) {
+            List<EntityRelation> batch = new ArrayList<>(limit);
+            while (batch.size() < limit && position < RELATIONS) {
+                long child = position / (1 + LEAVES);
+                int offset = (int) (position % (1 + LEAVES));
+                if (offset == 0) {
+                    batch.add(new EntityRelation(root(child / CHILDREN), child(child), EntityRelation.CONTAINS_TYPE));
+                } else {
+                    batch.add(new EntityRelation(child(child), leaf(child * LEAVES + offset - 1), EntityRelation.CONTAINS_TYPE));
+                }
+                position++;
+            }
+            return batch;
+        }
+
+    }
+
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.common.util.ThingsBoardExecutors;
+import org.thingsboard.server.actors.AbstractTbActor;
+import org.thingsboard.server.actors.DefaultTbActorSystem;
+import org.thingsboard.server.actors.TbActor;
+import org.thingsboard.server.actors.TbActorCreator;
+import org.thingsboard.server.actors.TbActorId;
+import org.thingsboard.server.actors.TbActorRef;
+import org.thingsboard.server.actors.TbActorSystem;
+import org.thingsboard.server.actors.TbActorSystemSettings;
+import org.thingsboard.server.actors.TbStringActorId;
+import org.thingsboard.server.common.msg.MsgType;
+import org.thingsboard.server.common.msg.TbActorMsg;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the actor mailboxes: messages are enqueued to the actors from the benchmark thread
+ * and the invocation completes when every message is processed by the dispatcher threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TbActorMailboxBenchmark {
+
+    private static final String DISPATCHER = "benchmark-dispatcher";
+    private static final int MESSAGES = 10000;
+    private static final TbActorMsg MSG = () -> MsgType.QUEUE_TO_RULE_ENGINE_MSG;
+
+    @Param({"1", "100"})
+    private int actorsCount;
+
+    @Param({"5", "100"})
+    private int actorThroughput;
+
+    @Param({"false", "true"})
+    private boolean batchMailbox;
+
+    private TbActorSystem actorSystem;
+    private ExecutorService executor;
+    private TbActorRef[] actors;
+    private volatile CountDownLatch latch;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int parallelism = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        actorSystem = new DefaultTbActorSystem(new TbActorSystemSettings(actorThroughput, 1, 1, batchMailbox, Math.max(actorThroughput, 100)));
+        executor = ThingsBoardExecutors.newWorkStealingPool(parallelism, getClass());
+        actorSystem.createDispatcher(DISPATCHER, executor);
+        actors = new TbActorRef[actorsCount];
+        for (int i = 0; i < actorsCount; i++) {
+            actors[i] = actorSystem.createRootActor(DISPATCHER, new CountingActorCreator(new TbStringActorId("actor-" + i)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        actorSystem.stop();
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void tellAndProcess() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(MESSAGES);
+        this.latch = latch;
+        for (int i = 0; i < MESSAGES; i++) {
+            actors[i % actorsCount].tell(MSG);
+        }
+        if (!latch.await(1, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Messages were not processed in time");
+        }
+    }
+
+    private class CountingActorCreator implements TbActorCreator {
+
+        private final TbActorId actorId;
+
+        CountingActorCreator(TbActorId actorId) {
+            this.actorId = actorId;
+        }
+
+        @Override
+        public TbActorId createActorId() {
+            return actorId;
+        }
+
+        @Override
+        public TbActor createActor() {
+            return new AbstractTbActor() {
+                @Override
+                public boolean process(TbActorMsg msg) {
+                    latch.countDown();
+                    return true;
+                }
+            };
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of {@link TbMsg} to and from the queue representation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TbMsgSerializationBenchmark {
+
+    @Param({"4", "64"})
+    private int payloadKeys;
+
+    private TbMsg msg;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        TbMsgMetaData metaData = new TbMsgMetaData();
+        metaData.putValue("deviceName", "Thermostat A1");
+        metaData.putValue("deviceType", "thermostat");
+        metaData.putValue("ts", "1700000000000");
+        msg = TbMsg.newMsg("Main", TbMsgType.POST_TELEMETRY_REQUEST, new DeviceId(new UUID(1L, 1L)),
+                new CustomerId(new UUID(2L, 2L)), metaData, BenchmarkData.telemetryJson(payloadKeys),
+                new RuleChainId(new UUID(3L, 3L)), new RuleNodeId(new UUID(4L, 4L)));
+        bytes = TbMsg.toByteArray(msg);
+    }
+
+    @Benchmark
+    public byte[] toByteArray() {
+        return TbMsg.toByteArray(msg);
+    }
+
+    @Benchmark
+    public TbMsg fromBytes() {
+        return TbMsg.fromBytes("Main", bytes, TbMsgCallback.EMPTY);
+    }
+
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmarks;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.stats.DefaultStatsFactory;
+import org.thingsboard.server.dao.sql.ScheduledLogExecutorComponent;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batching overhead of the SQL write queues. The save function only burns a fixed amount of CPU per element,
+ * so the results reflect the cost of enqueueing, batching and completing the futures.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TbSqlBlockingQueueBenchmark {
+
+    private static final int ELEMENTS = 10000;
+
+    @Param({"1", "4"})
+    private int maxThreads;
+
+    @Param({"100", "1000"})
+    private int batchSize;
+
+    private ScheduledLogExecutorComponent logExecutor;
+    private TbSqlBlockingQueueWrapper<Long, Void> queue;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        DefaultStatsFactory statsFactory = new DefaultStatsFactory();
+        ReflectionTestUtils.setField(statsFactory, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(statsFactory, "metricsEnabled", false);
+        statsFactory.init();
+        logExecutor = new ScheduledLogExecutorComponent();
+        logExecutor.init();
+
+        TbSqlBlockingQueueParams params = TbSqlBlockingQueueParams.builder()
+                .logName("Benchmark")
+                .batchSize(batchSize)
+                .maxDelay(5)
+                .statsPrintIntervalMs(TimeUnit.MINUTES.toMillis(10))
+                .statsNamePrefix("benchmark")
+                .batchSortEnabled(true)
+                .build();
+        queue = new TbSqlBlockingQueueWrapper<>(params, Object::hashCode, maxThreads, statsFactory);
+        queue.init(logExecutor, elements -> Blackhole.consumeCPU(elements.size() * 10L), Comparator.naturalOrder());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        queue.destroy();
+        logExecutor.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS)
+    public List<Void> addAndFlush() throws Exception {
+        List<ListenableFuture<Void>> futures = new ArrayList<>(ELEMENTS);
+        for (long i = 0; i < ELEMENTS; i++) {
+            futures.add(queue.add(i));
+        }
+        return Futures.allAsList(futures).get(1, TimeUnit.MINUTES);
+    }
+
+}
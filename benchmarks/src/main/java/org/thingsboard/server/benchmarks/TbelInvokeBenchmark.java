@@ -0,0 +1,103 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.script.api.ScriptType;
+import org.thingsboard.script.api.tbel.DefaultTbelInvokeService;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Invocation of the compiled TBEL scripts with the arguments prepared the same way as by the rule node script engine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TbelInvokeBenchmark {
+
+    private static final String FILTER_SCRIPT = "return msg.key0 > 500;";
+    private static final String TRANSFORM_SCRIPT = "msg.temperatureF = msg.key1 * 1.8 + 32;\n" +
+            "metadata.processed = 'true';\n" +
+            "return {msg: msg, metadata: metadata, msgType: msgType};";
+    private static final String[] ARG_NAMES = {"msg", "metadata", "msgType"};
+
+    private DefaultTbelInvokeService invokeService;
+    private UUID filterScriptId;
+    private UUID transformScriptId;
+    private String data;
+    private Map<String, String> metaData;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        invokeService = new DefaultTbelInvokeService(Optional.empty(), Optional.empty()) {};
+        ReflectionTestUtils.setField(invokeService, "maxTotalArgsSize", 100000L);
+        ReflectionTestUtils.setField(invokeService, "maxResultSize", 300000L);
+        ReflectionTestUtils.setField(invokeService, "maxScriptBodySize", 50000L);
+        ReflectionTestUtils.setField(invokeService, "maxErrors", 3);
+        ReflectionTestUtils.setField(invokeService, "maxBlackListDurationSec", 60);
+        ReflectionTestUtils.setField(invokeService, "threadPoolSize", 4);
+        ReflectionTestUtils.setField(invokeService, "maxMemoryLimitMb", 8L);
+        ReflectionTestUtils.setField(invokeService, "compiledScriptsCacheSize", 100);
+        invokeService.init();
+
+        filterScriptId = invokeService.eval(TenantId.SYS_TENANT_ID, ScriptType.RULE_NODE_SCRIPT, FILTER_SCRIPT, ARG_NAMES).get();
+        transformScriptId = invokeService.eval(TenantId.SYS_TENANT_ID, ScriptType.RULE_NODE_SCRIPT, TRANSFORM_SCRIPT, ARG_NAMES).get();
+        data = BenchmarkData.telemetryJson(16);
+        metaData = Map.of("deviceName", "Thermostat A1", "deviceType", "thermostat", "ts", "1700000000000");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        invokeService.stop();
+    }
+
+    @Benchmark
+    public Object filter() throws Exception {
+        return invokeService.invokeScript(TenantId.SYS_TENANT_ID, null, filterScriptId, prepareArgs()).get();
+    }
+
+    @Benchmark
+    public Object transform() throws Exception {
+        return invokeService.invokeScript(TenantId.SYS_TENANT_ID, null, transformScriptId, prepareArgs()).get();
+    }
+
+    private Object[] prepareArgs() {
+        return new Object[]{JacksonUtil.fromString(data, Object.class), new HashMap<>(metaData), "POST_TELEMETRY_REQUEST"};
+    }
+
+}
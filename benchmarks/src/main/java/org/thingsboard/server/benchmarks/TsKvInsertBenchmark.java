@@ -0,0 +1,147 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmarks;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.sqlts.insert.InsertTsRepository;
+import org.thingsboard.server.dao.sqlts.insert.sql.SqlCopyInsertTsRepository;
+import org.thingsboard.server.dao.sqlts.insert.sql.SqlInsertTsRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows per second saved to ts_kv by the batch insert and by the COPY based insert repositories, a batch of
+ * 100 entities x 10 keys per invocation. Every batch has a new timestamp, so the rows are inserted, not updated.
+ * Requires a PostgreSQL database with the ThingsBoard schema, e.g. {@code -p jdbcUrl=jdbc:postgresql://host:5432/thingsboard};
+ * the rows are written to the default ts_kv partition, which is created if missing, and deleted on teardown.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TsKvInsertBenchmark {
+
+    private static final int ENTITIES = 100;
+    private static final int KEYS = 10;
+    private static final int BATCH_SIZE = ENTITIES * KEYS;
+
+    @Param({"batch", "copy"})
+    private String insertMode;
+
+    @Param("jdbc:postgresql://localhost:5432/thingsboard")
+    private String jdbcUrl;
+
+    @Param("postgres")
+    private String username;
+
+    @Param("postgres")
+    private String password;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private InsertTsRepository<TsKvEntity> repository;
+    private UUID[] entityIds;
+    private long ts;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(jdbcUrl);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setMaximumPoolSize(1);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS ts_kv_indefinite PARTITION OF ts_kv DEFAULT");
+
+        repository = switch (insertMode) {
+            case "batch" -> new SqlInsertTsRepository();
+            case "copy" -> new SqlCopyInsertTsRepository();
+            default -> throw new IllegalArgumentException("Unknown insert mode: " + insertMode);
+        };
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(repository, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(repository, "removeNullChars", true);
+
+        entityIds = new UUID[ENTITIES];
+        for (int i = 0; i < ENTITIES; i++) {
+            entityIds[i] = UUID.randomUUID();
+        }
+        ts = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (UUID entityId : entityIds) {
+            jdbcTemplate.update("DELETE FROM ts_kv WHERE entity_id = ?", entityId);
+        }
+        dataSource.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void saveOrUpdate() {
+        List<TsKvEntity> entities = nextBatch();
+        // the batch insert repository is transactional when used as a bean
+        transactionTemplate.executeWithoutResult(status -> repository.saveOrUpdate(entities));
+    }
+
+    private List<TsKvEntity> nextBatch() {
+        ts++;
+        List<TsKvEntity> entities = new ArrayList<>(BATCH_SIZE);
+        for (UUID entityId : entityIds) {
+            for (int key = 0; key < KEYS; key++) {
+                TsKvEntity entity = new TsKvEntity();
+                entity.setEntityId(entityId);
+                entity.setKey(key);
+                entity.setTs(ts);
+                switch (key % 3) {
+                    case 0 -> entity.setLongValue(ts * key);
+                    case 1 -> entity.setDoubleValue(ts * 0.1 * key);
+                    default -> entity.setStrValue("value" + key);
+                }
+                entities.add(entity);
+            }
+        }
+        return entities;
+    }
+
+}
@@ -20,6 +20,7 @@ import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.server.common.msg.TbActorMsg;
+import org.thingsboard.server.common.stats.StatsFactory;
 
 import java.util.Collections;
 import java.util.List;
@@ -43,15 +44,22 @@ public class DefaultTbActorSystem implements TbActorSystem {
     private final ConcurrentMap<TbActorId, TbActorMailbox> actors = new ConcurrentHashMap<>();
     private final ConcurrentMap<TbActorId, ReentrantLock> actorCreationLocks = new ConcurrentHashMap<>();
     private final ConcurrentMap<TbActorId, Set<TbActorId>> parentChildMap = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, TbActorTypeStats> actorTypeStats = new ConcurrentHashMap<>();
 
     @Getter
     private final TbActorSystemSettings settings;
     @Getter
     private final ScheduledExecutorService scheduler;
+    private final StatsFactory statsFactory;
 
     public DefaultTbActorSystem(TbActorSystemSettings settings) {
+        this(settings, null);
+    }
+
+    public DefaultTbActorSystem(TbActorSystemSettings settings, StatsFactory statsFactory) {
         this.settings = settings;
         this.scheduler = Executors.newScheduledThreadPool(settings.getSchedulerPoolSize(), ThingsBoardThreadFactory.forName("actor-system-scheduler"));
+        this.statsFactory = statsFactory;
     }
 
     @Override
@@ -113,7 +121,7 @@ public class DefaultTbActorSystem implements TbActorSystem {
                             throw new TbActorNotRegisteredException(parent, "Parent Actor with id [" + parent + "] is not registered!");
                         }
                     }
-                    TbActorMailbox mailbox = new TbActorMailbox(this, settings, actorId, parentRef, actor, dispatcher);
+                    TbActorMailbox mailbox = new TbActorMailbox(this, settings, actorId, parentRef, actor, dispatcher, getActorTypeStats(actor));
                     actors.put(actorId, mailbox);
                     mailbox.initActor();
                     actorMailbox = mailbox;
@@ -131,6 +139,13 @@ public class DefaultTbActorSystem implements TbActorSystem {
         return actorMailbox;
     }
 
+    private TbActorTypeStats getActorTypeStats(TbActor actor) {
+        if (statsFactory == null || !settings.isBatchMailbox()) {
+            return null;
+        }
+        return actorTypeStats.computeIfAbsent(actor.getClass().getSimpleName(), actorType -> new TbActorTypeStats(statsFactory, actorType));
+    }
+
     @Override
     public void tellWithHighPriority(TbActorId target, TbActorMsg actorMsg) {
         tell(target, actorMsg, true);
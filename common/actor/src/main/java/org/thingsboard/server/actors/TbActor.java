@@ -18,10 +18,25 @@ package org.thingsboard.server.actors;
 import org.thingsboard.server.common.msg.TbActorMsg;
 import org.thingsboard.server.common.msg.TbActorStopReason;
 
+import java.util.List;
+
 public interface TbActor {
 
     boolean process(TbActorMsg msg);
 
+    /**
+     * Processes the messages drained from the mailbox at once. Invoked only if the batch mailbox is enabled.
+     * The high priority messages go first, otherwise the order of the messages is preserved.
+     * If the method throws, every message of the batch is passed to {@link #onProcessFailure(TbActorMsg, Throwable)},
+     * so the actors that may fail on a single message should handle its failure themselves.
+     *
+     * @param msgs the messages, the list is reused by the mailbox and must not be retained
+     * @return false if the actor does not support batch processing and the messages should be passed to {@link #process(TbActorMsg)} one by one
+     */
+    default boolean processBatch(List<TbActorMsg> msgs) {
+        return false;
+    }
+
     TbActorRef getActorRef();
 
     default void init(TbActorCtx ctx) throws TbActorException {
@@ -15,8 +15,8 @@
  */
 package org.thingsboard.server.actors;
 
+import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.msg.MsgType;
@@ -24,7 +24,9 @@ import org.thingsboard.server.common.msg.TbActorError;
 import org.thingsboard.server.common.msg.TbActorMsg;
 import org.thingsboard.server.common.msg.TbActorStopReason;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -33,7 +35,6 @@ import java.util.function.Supplier;
 
 @Slf4j
 @Getter
-@RequiredArgsConstructor
 public final class TbActorMailbox implements TbActorCtx {
     private static final boolean HIGH_PRIORITY = true;
     private static final boolean NORMAL_PRIORITY = false;
@@ -50,13 +51,45 @@ public final class TbActorMailbox implements TbActorCtx {
     private final TbActorRef parentRef;
     private final TbActor actor;
     private final Dispatcher dispatcher;
-    private final ConcurrentLinkedQueue<TbActorMsg> highPriorityMsgs = new ConcurrentLinkedQueue<>();
-    private final ConcurrentLinkedQueue<TbActorMsg> normalPriorityMsgs = new ConcurrentLinkedQueue<>();
+    private final Queue<TbActorMsg> highPriorityMsgs;
+    private final Queue<TbActorMsg> normalPriorityMsgs;
     private final AtomicBoolean busy = new AtomicBoolean(FREE);
     private final AtomicBoolean ready = new AtomicBoolean(NOT_READY);
     private final AtomicBoolean destroyInProgress = new AtomicBoolean();
     private volatile TbActorStopReason stopReason;
 
+    // The fields below are used by the batch mailbox only and are accessed by the thread that holds the busy flag
+    @Getter(AccessLevel.NONE)
+    private final List<TbActorMsg> batch;
+    @Getter(AccessLevel.NONE)
+    private final TbActorTypeStats stats;
+    private int throughput;
+
+    TbActorMailbox(TbActorSystem system, TbActorSystemSettings settings, TbActorId selfId, TbActorRef parentRef, TbActor actor, Dispatcher dispatcher) {
+        this(system, settings, selfId, parentRef, actor, dispatcher, null);
+    }
+
+    TbActorMailbox(TbActorSystem system, TbActorSystemSettings settings, TbActorId selfId, TbActorRef parentRef, TbActor actor, Dispatcher dispatcher, TbActorTypeStats stats) {
+        this.system = system;
+        this.settings = settings;
+        this.selfId = selfId;
+        this.parentRef = parentRef;
+        this.actor = actor;
+        this.dispatcher = dispatcher;
+        this.throughput = settings.getActorThroughput();
+        if (settings.isBatchMailbox()) {
+            this.highPriorityMsgs = new TbMpscQueue<>();
+            this.normalPriorityMsgs = new TbMpscQueue<>();
+            this.batch = new ArrayList<>(throughput);
+            this.stats = stats;
+        } else {
+            this.highPriorityMsgs = new ConcurrentLinkedQueue<>();
+            this.normalPriorityMsgs = new ConcurrentLinkedQueue<>();
+            this.batch = null;
+            this.stats = null;
+        }
+    }
+
     public void initActor() {
         dispatcher.getExecutor().execute(() -> tryInit(1));
     }
@@ -110,6 +143,9 @@ public final class TbActorMailbox implements TbActorCtx {
             } else {
                 normalPriorityMsgs.add(msg);
             }
+            if (stats != null) {
+                stats.getMailboxDepth().increment();
+            }
             tryProcessQueue(true);
         } else {
             if (highPriority && msg.getMsgType().equals(MsgType.RULE_NODE_UPDATED_MSG)) {
@@ -132,7 +168,7 @@ public final class TbActorMailbox implements TbActorCtx {
         if (ready.get() == READY) {
             if (newMsg || !highPriorityMsgs.isEmpty() || !normalPriorityMsgs.isEmpty()) {
                 if (busy.compareAndSet(FREE, BUSY)) {
-                    dispatcher.getExecutor().execute(this::processMailbox);
+                    dispatcher.getExecutor().execute(settings.isBatchMailbox() ? this::processMailboxBatch : this::processMailbox);
                 } else {
                     log.trace("[{}] MessageBox is busy, new msg: {}", selfId, newMsg);
                 }
@@ -152,19 +188,7 @@ public final class TbActorMailbox implements TbActorCtx {
                 msg = normalPriorityMsgs.poll();
             }
             if (msg != null) {
-                try {
-                    log.debug("[{}] Going to process message: {}", selfId, msg);
-                    actor.process(msg);
-                } catch (TbRuleNodeUpdateException updateException) {
-                    stopReason = TbActorStopReason.INIT_FAILED;
-                    destroy(updateException.getCause());
-                } catch (Throwable t) {
-                    log.debug("[{}] Failed to process message: {}", selfId, msg, t);
-                    ProcessFailureStrategy strategy = actor.onProcessFailure(msg, t);
-                    if (strategy.isStop()) {
-                        system.stop(selfId);
-                    }
-                }
+                processMsg(msg);
             } else {
                 noMoreElements = true;
                 break;
@@ -178,6 +202,105 @@ public final class TbActorMailbox implements TbActorCtx {
         }
     }
 
+    private void processMailboxBatch() {
+        int limit = throughput;
+        drainTo(highPriorityMsgs, limit);
+        drainTo(normalPriorityMsgs, limit);
+        int batchSize = batch.size();
+        if (batchSize > 0) {
+            long startTs = stats != null ? System.nanoTime() : 0L;
+            try {
+                processBatch();
+            } finally {
+                batch.clear();
+                if (stats != null) {
+                    stats.getMailboxDepth().add(-batchSize);
+                    stats.getProcessingTimer().record(System.nanoTime() - startTs, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+        boolean hasMoreElements = !highPriorityMsgs.isEmpty() || !normalPriorityMsgs.isEmpty();
+        if (hasMoreElements && batchSize == limit) {
+            throughput = Math.min(limit * 2, Math.max(settings.getMaxActorThroughput(), settings.getActorThroughput()));
+        } else if (!hasMoreElements && batchSize < limit / 2) {
+            throughput = Math.max(limit / 2, settings.getActorThroughput());
+        }
+        if (hasMoreElements) {
+            dispatcher.getExecutor().execute(this::processMailboxBatch);
+        } else {
+            busy.set(FREE);
+            // Messages added after the check above could not acquire the busy flag
+            tryProcessQueue(false);
+        }
+    }
+
+    private void drainTo(Queue<TbActorMsg> msgs, int limit) {
+        while (batch.size() < limit) {
+            TbActorMsg msg = msgs.poll();
+            if (msg == null) {
+                break;
+            }
+            batch.add(msg);
+        }
+    }
+
+    private void processBatch() {
+        log.debug("[{}] Going to process {} messages", selfId, batch.size());
+        boolean processed;
+        try {
+            processed = actor.processBatch(batch);
+        } catch (Throwable t) {
+            handleBatchProcessFailure(t);
+            return;
+        }
+        if (!processed) {
+            for (TbActorMsg msg : batch) {
+                processMsg(msg);
+            }
+        }
+    }
+
+    private void processMsg(TbActorMsg msg) {
+        try {
+            log.debug("[{}] Going to process message: {}", selfId, msg);
+            actor.process(msg);
+        } catch (Throwable t) {
+            handleProcessFailure(msg, t);
+        }
+    }
+
+    /*
+     * The actor may have processed a part of the batch before the failure, so the messages are not retried,
+     * every message of the batch is reported to the actor as failed instead.
+     * */
+    private void handleBatchProcessFailure(Throwable t) {
+        if (t instanceof TbRuleNodeUpdateException) {
+            handleProcessFailure(batch.get(0), t);
+            return;
+        }
+        log.debug("[{}] Failed to process {} messages", selfId, batch.size(), t);
+        boolean stop = false;
+        for (TbActorMsg msg : batch) {
+            stop |= actor.onProcessFailure(msg, t).isStop();
+        }
+        if (stop) {
+            system.stop(selfId);
+        }
+    }
+
+    private void handleProcessFailure(TbActorMsg msg, Throwable t) {
+        if (t instanceof TbRuleNodeUpdateException) {
+            stopReason = TbActorStopReason.INIT_FAILED;
+            destroy(t.getCause());
+        } else {
+            log.debug("[{}] Failed to process message: {}", selfId, msg, t);
+            ProcessFailureStrategy strategy = actor.onProcessFailure(msg, t);
+            if (strategy.isStop()) {
+                system.stop(selfId);
+            }
+        }
+    }
+
     @Override
     public TbActorId getSelf() {
         return selfId;
@@ -237,14 +360,46 @@ public final class TbActorMailbox implements TbActorCtx {
             try {
                 ready.set(NOT_READY);
                 actor.destroy(stopReason, cause);
-                highPriorityMsgs.forEach(msg -> msg.onTbActorStopped(stopReason));
-                normalPriorityMsgs.forEach(msg -> msg.onTbActorStopped(stopReason));
+                if (settings.isBatchMailbox()) {
+                    drainStopped();
+                } else {
+                    highPriorityMsgs.forEach(msg -> msg.onTbActorStopped(stopReason));
+                    normalPriorityMsgs.forEach(msg -> msg.onTbActorStopped(stopReason));
+                }
             } catch (Throwable t) {
                 log.warn("[{}] Failed to destroy actor: {}", selfId, t);
             }
         });
     }
 
+    /*
+     * The batch mailbox queues may be polled only by the holder of the busy flag. If the mailbox is busy,
+     * the messages are left to the processing in progress, which also decrements the mailbox depth for them.
+     * */
+    private void drainStopped() {
+        if (!busy.compareAndSet(FREE, BUSY)) {
+            return;
+        }
+        try {
+            int drained = drainStopped(highPriorityMsgs) + drainStopped(normalPriorityMsgs);
+            if (stats != null && drained > 0) {
+                stats.getMailboxDepth().add(-drained);
+            }
+        } finally {
+            busy.set(FREE);
+        }
+    }
+
+    private int drainStopped(Queue<TbActorMsg> msgs) {
+        int drained = 0;
+        TbActorMsg msg;
+        while ((msg = msgs.poll()) != null) {
+            drained++;
+            msg.onTbActorStopped(stopReason);
+        }
+        return drained;
+    }
+
     @Override
     public TbActorId getActorId() {
         return selfId;
@@ -15,13 +15,25 @@
  */
 package org.thingsboard.server.actors;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
 
 @Data
+@AllArgsConstructor
 public class TbActorSystemSettings {
 
     private final int actorThroughput;
     private final int schedulerPoolSize;
     private final int maxActorInitAttempts;
+    /**
+     * Deliver messages to the actors in batches, see {@link TbActor#processBatch(java.util.List)}.
+     * The batch size starts from {@link #actorThroughput} and grows up to {@link #maxActorThroughput} while the actor has a backlog.
+     */
+    private final boolean batchMailbox;
+    private final int maxActorThroughput;
+
+    public TbActorSystemSettings(int actorThroughput, int schedulerPoolSize, int maxActorInitAttempts) {
+        this(actorThroughput, schedulerPoolSize, maxActorInitAttempts, false, actorThroughput);
+    }
 
 }
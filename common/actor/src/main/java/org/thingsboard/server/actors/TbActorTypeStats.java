@@ -0,0 +1,39 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import java.util.concurrent.atomic.LongAdder;
+
+@Getter
+class TbActorTypeStats {
+
+    private static final String MAILBOX_DEPTH = "actors.mailboxDepth";
+    private static final String PROCESSING_TIME = "actors.processingTime";
+    private static final String ACTOR_TYPE_TAG = "actorType";
+
+    private final LongAdder mailboxDepth;
+    private final Timer processingTimer;
+
+    TbActorTypeStats(StatsFactory statsFactory, String actorType) {
+        this.mailboxDepth = statsFactory.createGauge(MAILBOX_DEPTH, new LongAdder(), ACTOR_TYPE_TAG, actorType);
+        this.processingTimer = statsFactory.createTimer(PROCESSING_TIME, ACTOR_TYPE_TAG, actorType);
+    }
+
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Unbounded multi-producer single-consumer queue based on the intrusive linked list of Dmitry Vyukov.
+ * Producers never retry: {@link #offer(Object)} is a single atomic swap of the head,
+ * while {@link #poll()} does not need any atomic operations at all.
+ * <p>
+ * Only one thread may poll the queue at a time, the mailbox guarantees this with its busy flag.
+ * {@link #isEmpty()} and the iterator may be used from any thread and are weakly consistent.
+ */
+final class TbMpscQueue<E> extends AbstractQueue<E> {
+
+    private final AtomicReference<Node<E>> head;
+    private Node<E> tail;
+
+    TbMpscQueue() {
+        Node<E> stub = new Node<>(null);
+        this.head = new AtomicReference<>(stub);
+        this.tail = stub;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        Node<E> node = new Node<>(e);
+        head.getAndSet(node).next = node;
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        Node<E> next = tail.next;
+        if (next == null) {
+            return null;
+        }
+        E value = next.value;
+        next.value = null;
+        tail = next;
+        return value;
+    }
+
+    @Override
+    public E peek() {
+        Node<E> next = tail.next;
+        return next != null ? next.value : null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return tail.next == null;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Node<E> node = tail.next; node != null && size < Integer.MAX_VALUE; node = node.next) {
+            size++;
+        }
+        return size;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private Node<E> node = tail;
+            private E nextValue = advance();
+
+            @Override
+            public boolean hasNext() {
+                return nextValue != null;
+            }
+
+            @Override
+            public E next() {
+                E value = nextValue;
+                if (value == null) {
+                    throw new NoSuchElementException();
+                }
+                nextValue = advance();
+                return value;
+            }
+
+            // skips the elements that were polled concurrently
+            private E advance() {
+                for (Node<E> next = node.next; next != null; next = next.next) {
+                    node = next;
+                    E value = next.value;
+                    if (value != null) {
+                        return value;
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    private static final class Node<E> {
+
+        private E value;
+        private volatile Node<E> next;
+
+        private Node(E value) {
+            this.value = value;
+        }
+
+    }
+
+}
@@ -45,21 +45,25 @@ public class ActorSystemTest {
     private static final int _100K = 100 * 1024;
     public static final int TIMEOUT_AWAIT_MAX_SEC = 30;
 
-    private volatile TbActorSystem actorSystem;
-    private volatile ExecutorService submitPool;
-    private ExecutorService executor;
-    private int parallelism;
+    protected volatile TbActorSystem actorSystem;
+    protected volatile ExecutorService submitPool;
+    protected ExecutorService executor;
+    protected int parallelism;
 
     @BeforeEach
     public void initActorSystem() {
         int cores = Runtime.getRuntime().availableProcessors();
         parallelism = Math.max(2, cores / 2);
         log.debug("parallelism {}", parallelism);
-        TbActorSystemSettings settings = new TbActorSystemSettings(5, parallelism, 42);
-        actorSystem = new DefaultTbActorSystem(settings);
+        actorSystem = createActorSystem();
         submitPool = Executors.newFixedThreadPool(parallelism, ThingsBoardThreadFactory.forName(getClass().getSimpleName() + "-submit-test-scope")); //order guaranteed
     }
 
+    protected TbActorSystem createActorSystem() {
+        TbActorSystemSettings settings = new TbActorSystemSettings(5, parallelism, 42);
+        return new DefaultTbActorSystem(settings);
+    }
+
     @AfterEach
     public void shutdownActorSystem() {
         actorSystem.stop();
@@ -265,7 +269,7 @@ public class ActorSystemTest {
         }
     }
 
-    private ActorTestCtx getActorTestCtx(int i) {
+    protected ActorTestCtx getActorTestCtx(int i) {
         CountDownLatch countDownLatch = new CountDownLatch(1);
         AtomicLong actual = new AtomicLong();
         AtomicInteger invocations = new AtomicInteger();
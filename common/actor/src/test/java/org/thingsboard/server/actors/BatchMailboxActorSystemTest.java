@@ -0,0 +1,158 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.msg.TbActorMsg;
+import org.thingsboard.server.common.stats.DefaultStatsFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the {@link ActorSystemTest} suite with the batch mailbox enabled.
+ */
+public class BatchMailboxActorSystemTest extends ActorSystemTest {
+
+    private static final int MAX_THROUGHPUT = 64;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Override
+    protected TbActorSystem createActorSystem() {
+        DefaultStatsFactory statsFactory = new DefaultStatsFactory();
+        ReflectionTestUtils.setField(statsFactory, "meterRegistry", meterRegistry);
+        TbActorSystemSettings settings = new TbActorSystemSettings(5, parallelism, 42, true, MAX_THROUGHPUT);
+        return new DefaultTbActorSystem(settings, statsFactory);
+    }
+
+    @Test
+    public void testMessagesDeliveredInBatches() throws InterruptedException {
+        executor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName(getClass().getSimpleName()));
+        actorSystem.createDispatcher(ROOT_DISPATCHER, executor);
+        int msgNumber = 10000;
+        ActorTestCtx testCtx = getActorTestCtx(msgNumber);
+        AtomicInteger maxBatchSize = new AtomicInteger();
+        TbActorRef actorRef = actorSystem.createRootActor(ROOT_DISPATCHER, new BatchTestActor.BatchTestActorCreator(
+                new TbEntityActorId(new DeviceId(UUID.randomUUID())), testCtx, maxBatchSize));
+
+        // keep the dispatcher busy until all messages are in the mailbox
+        CountDownLatch dispatcherLatch = new CountDownLatch(1);
+        executor.submit(() -> {
+            dispatcherLatch.await();
+            return null;
+        });
+        long expected = 0;
+        for (int i = 0; i < msgNumber; i++) {
+            actorRef.tell(new IntTbActorMsg(i));
+            expected += i;
+        }
+        dispatcherLatch.countDown();
+
+        assertThat(testCtx.getLatch().await(TIMEOUT_AWAIT_MAX_SEC, TimeUnit.SECONDS)).isTrue();
+        assertThat(testCtx.getActual().get()).isEqualTo(expected);
+        assertThat(maxBatchSize.get()).isEqualTo(MAX_THROUGHPUT);
+
+        Awaitility.await().atMost(TIMEOUT_AWAIT_MAX_SEC, TimeUnit.SECONDS)
+                .until(() -> meterRegistry.get("actors.mailboxDepth").tag("actorType", "BatchTestActor").gauge().value() == 0);
+        assertThat(meterRegistry.get("actors.processingTime").tag("actorType", "BatchTestActor").timer().count()).isPositive();
+    }
+
+    @Test
+    public void testMailboxDepthDecrementedForMessagesDrainedOnDestroy() {
+        executor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName(getClass().getSimpleName()));
+        actorSystem.createDispatcher(ROOT_DISPATCHER, executor);
+        TbActorId actorId = new TbEntityActorId(new DeviceId(UUID.randomUUID()));
+        // the actor keeps failing to init, so the messages stay in the mailbox
+        TbActorRef actorRef = actorSystem.createRootActor(ROOT_DISPATCHER,
+                new FailedToInitActor.FailedToInitActorCreator(actorId, getActorTestCtx(1), Integer.MAX_VALUE, 100));
+        for (int i = 0; i < 10; i++) {
+            actorRef.tell(new IntTbActorMsg(i));
+        }
+        assertThat(mailboxDepth("FailedToInitActor")).isEqualTo(10);
+
+        actorSystem.stop(actorId);
+
+        Awaitility.await().atMost(TIMEOUT_AWAIT_MAX_SEC, TimeUnit.SECONDS).until(() -> mailboxDepth("FailedToInitActor") == 0);
+    }
+
+    @Test
+    public void testEveryMessageReportedWhenBatchProcessingFails() throws InterruptedException {
+        executor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName(getClass().getSimpleName()));
+        actorSystem.createDispatcher(ROOT_DISPATCHER, executor);
+        TbActorId actorId = new TbEntityActorId(new DeviceId(UUID.randomUUID()));
+        Set<TbActorMsg> failedMsgs = ConcurrentHashMap.newKeySet();
+        TbActorRef actorRef = actorSystem.createRootActor(ROOT_DISPATCHER, new TbActorCreator() {
+            @Override
+            public TbActorId createActorId() {
+                return actorId;
+            }
+
+            @Override
+            public TbActor createActor() {
+                return new TestRootActor(actorId, getActorTestCtx(1)) {
+                    @Override
+                    public boolean processBatch(List<TbActorMsg> msgs) {
+                        throw new RuntimeException("Batch processing failure");
+                    }
+
+                    @Override
+                    public ProcessFailureStrategy onProcessFailure(TbActorMsg msg, Throwable t) {
+                        failedMsgs.add(msg);
+                        return ProcessFailureStrategy.resume();
+                    }
+                };
+            }
+        });
+
+        // keep the dispatcher busy until all messages are in the mailbox, so they are delivered in a single batch
+        CountDownLatch dispatcherLatch = new CountDownLatch(1);
+        executor.submit(() -> {
+            dispatcherLatch.await();
+            return null;
+        });
+        List<TbActorMsg> msgs = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            IntTbActorMsg msg = new IntTbActorMsg(i);
+            msgs.add(msg);
+            actorRef.tell(msg);
+        }
+        dispatcherLatch.countDown();
+
+        Awaitility.await().atMost(TIMEOUT_AWAIT_MAX_SEC, TimeUnit.SECONDS).untilAsserted(() -> assertThat(failedMsgs).containsExactlyInAnyOrderElementsOf(msgs));
+        assertThat(actorSystem.getActor(actorId)).isNotNull();
+    }
+
+    private double mailboxDepth(String actorType) {
+        return meterRegistry.get("actors.mailboxDepth").tag("actorType", actorType).gauge().value();
+    }
+
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TbMpscQueueTest {
+
+    @Test
+    public void testFifoOrder() {
+        TbMpscQueue<Integer> queue = new TbMpscQueue<>();
+        assertThat(queue.isEmpty()).isTrue();
+        assertThat(queue.poll()).isNull();
+
+        queue.add(1);
+        queue.add(2);
+        queue.add(3);
+
+        assertThat(queue).containsExactly(1, 2, 3);
+        assertThat(queue.peek()).isEqualTo(1);
+        assertThat(queue.poll()).isEqualTo(1);
+        assertThat(queue.size()).isEqualTo(2);
+        assertThat(queue.poll()).isEqualTo(2);
+        assertThat(queue.poll()).isEqualTo(3);
+        assertThat(queue.poll()).isNull();
+        assertThat(queue.isEmpty()).isTrue();
+        assertThat(queue).isEmpty();
+    }
+
+    @Test
+    public void testMultipleProducers() throws InterruptedException {
+        int producers = 4;
+        int msgsPerProducer = 100000;
+        TbMpscQueue<long[]> queue = new TbMpscQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int p = 0; p < producers; p++) {
+                int producer = p;
+                executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < msgsPerProducer; i++) {
+                        queue.offer(new long[]{producer, i});
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+
+            List<Integer> lastSeen = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                lastSeen.add(-1);
+            }
+            int received = 0;
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+            while (received < producers * msgsPerProducer && System.currentTimeMillis() < deadline) {
+                long[] msg = queue.poll();
+                if (msg == null) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                int producer = (int) msg[0];
+                int seq = (int) msg[1];
+                assertThat(seq).as("order of producer %s", producer).isEqualTo(lastSeen.get(producer) + 1);
+                lastSeen.set(producer, seq);
+                received++;
+            }
+            assertThat(received).isEqualTo(producers * msgsPerProducer);
+            assertThat(queue.isEmpty()).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
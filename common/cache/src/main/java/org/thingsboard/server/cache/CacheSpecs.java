@@ -21,4 +21,6 @@ import lombok.Data;
 public class CacheSpecs {
     private Integer timeToLiveInMinutes;
     private Integer maxSize;
+    private Integer nearCacheMaxSize;
+    private Integer nearCacheTimeToLiveInMs;
 }
@@ -34,9 +34,13 @@ import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.util.JedisClusterCRC16;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
@@ -97,19 +101,65 @@ public abstract class RedisTbTransactionalCache<K extends Serializable, V extend
         try (var connection = connectionFactory.getConnection()) {
             byte[] rawKey = getRawKey(key);
             byte[] rawValue = doGet(connection, rawKey, transactionMode);
-            if (rawValue == null || rawValue.length == 0) {
-                return null;
-            } else if (Arrays.equals(rawValue, BINARY_NULL_VALUE)) {
-                return SimpleTbCacheValueWrapper.empty();
-            } else {
-                long startTime = System.nanoTime();
-                V value = valueSerializer.deserialize(key, rawValue);
+            return toCacheValueWrapper(key, rawValue);
+        }
+    }
+
+    /**
+     * Returns the cached values of the given keys using a single pipelined round-trip.
+     * The keys that are absent in the cache are absent in the result
+     *
+     */
+    public Map<K, TbCacheValueWrapper<V>> getAll(Collection<K> keys) {
+        if (!cacheEnabled || keys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<K, TbCacheValueWrapper<V>> result = new HashMap<>(keys.size());
+        if (isClusterAware()) {
+            // the keys may belong to different slots, while the pipelining is supported within the single node only
+            for (K key : keys) {
+                TbCacheValueWrapper<V> value;
+                try (var connection = connectionFactory.getConnection()) {
+                    value = toCacheValueWrapper(key, doGet(connection, getRawKey(key), false));
+                }
                 if (value != null) {
-                    fstStatsService.recordDecodeTime(value.getClass(), startTime);
-                    fstStatsService.incrementDecode(value.getClass());
+                    result.put(key, value);
                 }
-                return SimpleTbCacheValueWrapper.wrap(value);
             }
+            return result;
+        }
+        List<K> keysList = new ArrayList<>(keys);
+        List<Object> rawValues;
+        try (var connection = connectionFactory.getConnection()) {
+            connection.openPipeline();
+            for (K key : keysList) {
+                doGet(connection, getRawKey(key), false);
+            }
+            rawValues = connection.closePipeline();
+        }
+        for (int i = 0; i < keysList.size(); i++) {
+            K key = keysList.get(i);
+            TbCacheValueWrapper<V> value = toCacheValueWrapper(key, (byte[]) rawValues.get(i));
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    protected TbCacheValueWrapper<V> toCacheValueWrapper(K key, byte[] rawValue) {
+        if (rawValue == null || rawValue.length == 0) {
+            return null;
+        } else if (Arrays.equals(rawValue, BINARY_NULL_VALUE)) {
+            return SimpleTbCacheValueWrapper.empty();
+        } else {
+            long startTime = System.nanoTime();
+            V value = valueSerializer.deserialize(key, rawValue);
+            if (value != null) {
+                fstStatsService.recordDecodeTime(value.getClass(), startTime);
+                fstStatsService.incrementDecode(value.getClass());
+            }
+            return SimpleTbCacheValueWrapper.wrap(value);
         }
     }
 
@@ -201,6 +251,10 @@ public abstract class RedisTbTransactionalCache<K extends Serializable, V extend
         return TbTransactionalCache.super.getAndPutInTransaction(key, dbCall, cacheValueToResult, dbValueToCacheValue, cacheNullValue);
     }
 
+    protected boolean isClusterAware() {
+        return connectionFactory.isRedisClusterAware();
+    }
+
     protected RedisConnection getConnection(byte[] rawKey) {
         if (!connectionFactory.isRedisClusterAware()) {
             return connectionFactory.getConnection();
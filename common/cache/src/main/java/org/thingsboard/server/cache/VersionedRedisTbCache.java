@@ -15,19 +15,30 @@
  */
 package org.thingsboard.server.cache;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.NotImplementedException;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.ReturnType;
 import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.thingsboard.server.common.data.CacheStatsService;
 import org.thingsboard.server.common.data.HasVersion;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 public abstract class VersionedRedisTbCache<K extends Serializable, V extends Serializable & HasVersion> extends RedisTbTransactionalCache<K, V> implements VersionedTbCache<K, V> {
@@ -61,8 +72,32 @@ public abstract class VersionedRedisTbCache<K extends Serializable, V extends Se
             """);
     static final byte[] SET_VERSIONED_VALUE_SHA = StringRedisSerializer.UTF_8.serialize("0453cb1814135b706b4198b09a09f43c9f67bbfe");
 
+    @Autowired
+    private CacheStatsService cacheStatsService;
+
+    /*
+     * Optional in-process tier in front of Redis. The entries keep the version of the value,
+     * so the concurrent writes of the older versions never replace the newer ones.
+     * The short TTL bounds the staleness of the values updated by the other nodes.
+     * */
+    private final Cache<K, NearCacheEntry<V>> nearCache;
+
     public VersionedRedisTbCache(String cacheName, CacheSpecsMap cacheSpecsMap, RedisConnectionFactory connectionFactory, TBRedisCacheConfiguration configuration, TbRedisSerializer<K, V> valueSerializer) {
         super(cacheName, cacheSpecsMap, connectionFactory, configuration, valueSerializer);
+        CacheSpecs cacheSpecs = Optional.ofNullable(cacheSpecsMap)
+                .map(CacheSpecsMap::getSpecs)
+                .map(x -> x.get(cacheName))
+                .orElse(null);
+        if (cacheEnabled && cacheSpecs != null
+                && cacheSpecs.getNearCacheMaxSize() != null && cacheSpecs.getNearCacheMaxSize() > 0
+                && cacheSpecs.getNearCacheTimeToLiveInMs() != null && cacheSpecs.getNearCacheTimeToLiveInMs() > 0) {
+            this.nearCache = Caffeine.newBuilder()
+                    .maximumSize(cacheSpecs.getNearCacheMaxSize())
+                    .expireAfterWrite(cacheSpecs.getNearCacheTimeToLiveInMs(), TimeUnit.MILLISECONDS)
+                    .build();
+        } else {
+            this.nearCache = null;
+        }
     }
 
     @PostConstruct
@@ -78,6 +113,83 @@ public abstract class VersionedRedisTbCache<K extends Serializable, V extends Se
         }
     }
 
+    @Override
+    public TbCacheValueWrapper<V> get(K key, boolean transactionMode) {
+        if (!cacheEnabled || transactionMode) {
+            return super.get(key, transactionMode);
+        }
+        if (nearCache != null) {
+            NearCacheEntry<V> entry = nearCache.getIfPresent(key);
+            if (entry != null) {
+                cacheStatsService.incrementNearCacheHit(getCacheName());
+                return SimpleTbCacheValueWrapper.wrap(entry.value());
+            }
+        }
+        TbCacheValueWrapper<V> value = super.get(key, false);
+        onRemoteGet(key, value);
+        return value;
+    }
+
+    @Override
+    public Map<K, TbCacheValueWrapper<V>> getAll(Collection<K> keys) {
+        if (!cacheEnabled || keys.isEmpty()) {
+            return super.getAll(keys);
+        }
+        Map<K, TbCacheValueWrapper<V>> result = new HashMap<>(keys.size());
+        Collection<K> remoteKeys = keys;
+        if (nearCache != null) {
+            List<K> missedKeys = new ArrayList<>(keys.size());
+            for (K key : keys) {
+                NearCacheEntry<V> entry = nearCache.getIfPresent(key);
+                if (entry != null) {
+                    cacheStatsService.incrementNearCacheHit(getCacheName());
+                    result.put(key, SimpleTbCacheValueWrapper.wrap(entry.value()));
+                } else {
+                    missedKeys.add(key);
+                }
+            }
+            remoteKeys = missedKeys;
+        }
+        if (!remoteKeys.isEmpty()) {
+            Map<K, TbCacheValueWrapper<V>> remoteValues = super.getAll(remoteKeys);
+            for (K key : remoteKeys) {
+                TbCacheValueWrapper<V> value = remoteValues.get(key);
+                onRemoteGet(key, value);
+                if (value != null) {
+                    result.put(key, value);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void onRemoteGet(K key, TbCacheValueWrapper<V> value) {
+        if (value == null) {
+            cacheStatsService.incrementCacheMiss(getCacheName());
+            return;
+        }
+        cacheStatsService.incrementRemoteCacheHit(getCacheName());
+        putToNearCache(key, value.get(), getVersion(value.get()));
+    }
+
+    private void putToNearCache(K key, V value, Long version) {
+        if (nearCache == null) {
+            return;
+        }
+        if (version == null) {
+            nearCache.invalidate(key);
+            return;
+        }
+        nearCache.asMap().compute(key, (k, existing) ->
+                existing != null && existing.version() >= version ? existing : new NearCacheEntry<>(value, version));
+    }
+
+    private void evictFromNearCache(K key) {
+        if (nearCache != null) {
+            nearCache.invalidate(key);
+        }
+    }
+
     @Override
     protected byte[] doGet(RedisConnection connection, byte[] rawKey, boolean transactionMode) {
         if (transactionMode) {
@@ -93,12 +205,14 @@ public abstract class VersionedRedisTbCache<K extends Serializable, V extends Se
             return;
         }
         doPut(key, value, version, cacheTtl);
+        putToNearCache(key, value, version);
     }
 
     @Override
     public void put(K key, V value, RedisConnection connection, boolean transactionMode) {
         if (transactionMode) {
             super.put(key, value, connection, true); // because scripting commands are not supported in transaction mode
+            evictFromNearCache(key);
             return;
         }
         Long version = getVersion(value);
@@ -107,6 +221,38 @@ public abstract class VersionedRedisTbCache<K extends Serializable, V extends Se
         }
         byte[] rawKey = getRawKey(key);
         doPut(rawKey, value, version, cacheTtl, connection);
+        putToNearCache(key, value, version);
+    }
+
+    /*
+     * Puts all the values using a single pipelined round-trip. Falls back to the one by one put
+     * on the cluster connection or if the pipeline has failed (e.g. the LUA script is not loaded yet).
+     * */
+    @Override
+    public void putAll(Map<K, V> values) {
+        if (!cacheEnabled || values.isEmpty()) {
+            return;
+        }
+        if (!isClusterAware()) {
+            byte[] rawExpiration = StringRedisSerializer.UTF_8.serialize(String.valueOf(cacheTtl.getExpirationTimeInSeconds()));
+            try (var connection = getConnection(getRawKey(values.keySet().iterator().next()))) {
+                connection.openPipeline();
+                values.forEach((key, value) -> {
+                    Long version = getVersion(value);
+                    if (version != null) {
+                        log.trace("put [{}][{}][{}]", key, value, version);
+                        byte[] rawVersion = StringRedisSerializer.UTF_8.serialize(String.valueOf(version));
+                        connection.scriptingCommands().evalSha(SET_VERSIONED_VALUE_SHA, ReturnType.VALUE, 1, getRawKey(key), getRawValue(value), rawVersion, rawExpiration);
+                    }
+                });
+                connection.closePipeline();
+                values.forEach((key, value) -> putToNearCache(key, value, getVersion(value)));
+                return;
+            } catch (Exception e) {
+                log.debug("Failed to put values using pipeline, falling back to one by one put", e);
+            }
+        }
+        values.forEach(this::put);
     }
 
     private void doPut(K key, V value, Long version, Expiration expiration) {
@@ -146,6 +292,21 @@ public abstract class VersionedRedisTbCache<K extends Serializable, V extends Se
         log.trace("evict [{}][{}]", key, version);
         if (version != null) {
             doPut(key, null, version, evictExpiration);
+            putToNearCache(key, null, version);
+        }
+    }
+
+    @Override
+    public void evict(K key) {
+        super.evict(key);
+        evictFromNearCache(key);
+    }
+
+    @Override
+    public void evict(Collection<K> keys) {
+        super.evict(keys);
+        if (nearCache != null) {
+            nearCache.invalidateAll(keys);
         }
     }
 
@@ -159,4 +320,6 @@ public abstract class VersionedRedisTbCache<K extends Serializable, V extends Se
         throw new NotImplementedException("evictOrPut is not supported by versioned cache");
     }
 
+    private record NearCacheEntry<V>(V value, long version) {}
+
 }
@@ -19,6 +19,8 @@ import org.thingsboard.server.common.data.HasVersion;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Supplier;
 
@@ -42,8 +44,27 @@ public interface VersionedTbCache<K extends Serializable, V extends Serializable
                 });
     }
 
+    /**
+     * Returns the cached values of the given keys. The keys that are absent in the cache are absent in the result
+     *
+     */
+    default Map<K, TbCacheValueWrapper<V>> getAll(Collection<K> keys) {
+        Map<K, TbCacheValueWrapper<V>> result = new HashMap<>(keys.size());
+        for (K key : keys) {
+            TbCacheValueWrapper<V> value = get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
     void put(K key, V value);
 
+    default void putAll(Map<K, V> values) {
+        values.forEach(this::put);
+    }
+
     void evict(K key);
 
     void evict(Collection<K> keys);
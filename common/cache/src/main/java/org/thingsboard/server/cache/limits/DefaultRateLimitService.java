@@ -17,7 +17,6 @@ package org.thingsboard.server.cache.limits;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
@@ -28,11 +27,14 @@ import org.thingsboard.server.common.data.exception.TenantProfileNotFoundExcepti
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.limit.LimitedApi;
+import org.thingsboard.server.common.data.tenant.profile.DefaultTenantProfileConfiguration;
 import org.thingsboard.server.common.data.notification.rule.trigger.RateLimitsTrigger;
 import org.thingsboard.server.common.msg.notification.NotificationRuleProcessor;
-import org.thingsboard.server.common.msg.tools.TbRateLimits;
+import org.thingsboard.server.common.msg.tools.TbRateLimiter;
+import org.thingsboard.server.common.msg.tools.TbRateLimitsSpec;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 @Lazy
 @Service
@@ -41,20 +43,30 @@ public class DefaultRateLimitService implements RateLimitService {
 
     private final TenantProfileProvider tenantProfileProvider;
     private final NotificationRuleProcessor notificationRuleProcessor;
+    private final RateLimitsFactory rateLimitsFactory;
 
     public DefaultRateLimitService(TenantProfileProvider tenantProfileProvider,
                                    @Lazy NotificationRuleProcessor notificationRuleProcessor,
+                                   RateLimitsFactory rateLimitsFactory,
                                    @Value("${cache.rateLimits.timeToLiveInMinutes:120}") int rateLimitsTtl,
                                    @Value("${cache.rateLimits.maxSize:200000}") int rateLimitsCacheMaxSize) {
         this.tenantProfileProvider = tenantProfileProvider;
         this.notificationRuleProcessor = notificationRuleProcessor;
+        this.rateLimitsFactory = rateLimitsFactory;
         this.rateLimits = Caffeine.newBuilder()
                 .expireAfterAccess(rateLimitsTtl, TimeUnit.MINUTES)
                 .maximumSize(rateLimitsCacheMaxSize)
                 .build();
+        this.rateLimitsSpecs = Caffeine.newBuilder()
+                .maximumSize(RATE_LIMITS_SPECS_CACHE_MAX_SIZE)
+                .build();
     }
 
-    private final Cache<RateLimitKey, TbRateLimits> rateLimits;
+    private static final int RATE_LIMITS_SPECS_CACHE_MAX_SIZE = 1000;
+
+    // grouped by level, so the hot path is a single lookup without allocating a composite key or locking the map bin
+    private final Cache<Object, LevelRateLimits> rateLimits;
+    private final Cache<String, TbRateLimitsSpec> rateLimitsSpecs;
 
     @Override
     public boolean checkRateLimit(LimitedApi api, TenantId tenantId) {
@@ -80,8 +92,8 @@ public class DefaultRateLimitService implements RateLimitService {
             }
         }
 
-        String rateLimitConfig = tenantProfile.getProfileConfiguration()
-                .map(api::getLimitConfig).orElse(null);
+        DefaultTenantProfileConfiguration profileConfiguration = tenantProfile.getDefaultProfileConfiguration();
+        String rateLimitConfig = profileConfiguration != null ? api.getLimitConfig(profileConfiguration) : null;
         boolean success = checkRateLimit(api, level, rateLimitConfig);
         if (!success) {
             notificationRuleProcessor.process(RateLimitsTrigger.builder()
@@ -96,20 +108,15 @@ public class DefaultRateLimitService implements RateLimitService {
 
     @Override
     public boolean checkRateLimit(LimitedApi api, Object level, String rateLimitConfig) {
-        RateLimitKey key = new RateLimitKey(api, level);
         if (StringUtils.isEmpty(rateLimitConfig)) {
-            rateLimits.invalidate(key);
+            cleanUp(api, level);
             return true;
         }
-        log.trace("[{}] Checking rate limit for {} ({})", level, api, rateLimitConfig);
+        if (log.isTraceEnabled()) {
+            log.trace("[{}] Checking rate limit for {} ({})", level, api, rateLimitConfig);
+        }
 
-        TbRateLimits rateLimit = rateLimits.asMap().compute(key, (k, limit) -> {
-            if (limit == null || !limit.getConfiguration().equals(rateLimitConfig)) {
-                limit = new TbRateLimits(rateLimitConfig, api.isRefillRateLimitIntervally());
-                log.trace("[{}] Created new rate limit bucket for {} ({})", level, api, rateLimitConfig);
-            }
-            return limit;
-        });
+        TbRateLimiter rateLimit = getRateLimit(api, level, rateLimitConfig);
         boolean success = rateLimit.tryConsume();
         if (!success) {
             log.debug("[{}] Rate limit exceeded for {} ({})", level, api, rateLimitConfig);
@@ -119,14 +126,45 @@ public class DefaultRateLimitService implements RateLimitService {
 
     @Override
     public void cleanUp(LimitedApi api, Object level) {
-        RateLimitKey key = new RateLimitKey(api, level);
-        rateLimits.invalidate(key);
+        LevelRateLimits levelRateLimits = rateLimits.getIfPresent(level);
+        if (levelRateLimits != null) {
+            levelRateLimits.set(api, null);
+        }
     }
 
-    @Data(staticConstructor = "of")
-    private static class RateLimitKey {
-        private final LimitedApi api;
-        private final Object level;
+    private TbRateLimiter getRateLimit(LimitedApi api, Object level, String rateLimitConfig) {
+        LevelRateLimits levelRateLimits = rateLimits.get(level, l -> new LevelRateLimits());
+        TbRateLimiter rateLimit = levelRateLimits.get(api);
+        // the configuration comes from the cached tenant profile, so the check is usually an identity comparison
+        if (rateLimit != null && rateLimitConfig.equals(rateLimit.getConfiguration())) {
+            return rateLimit;
+        }
+        synchronized (levelRateLimits) {
+            rateLimit = levelRateLimits.get(api);
+            if (rateLimit == null || !rateLimitConfig.equals(rateLimit.getConfiguration())) {
+                TbRateLimitsSpec spec = rateLimitsSpecs.get(rateLimitConfig, TbRateLimitsSpec::parse);
+                rateLimit = rateLimitsFactory.create(api.name() + "::" + level, spec, api.isRefillRateLimitIntervally());
+                levelRateLimits.set(api, rateLimit);
+                log.trace("[{}] Created new rate limit bucket for {} ({})", level, api, rateLimitConfig);
+            }
+            return rateLimit;
+        }
+    }
+
+    private static class LevelRateLimits {
+
+        private static final int API_COUNT = LimitedApi.values().length;
+
+        private final AtomicReferenceArray<TbRateLimiter> limits = new AtomicReferenceArray<>(API_COUNT);
+
+        TbRateLimiter get(LimitedApi api) {
+            return limits.get(api.ordinal());
+        }
+
+        void set(LimitedApi api, TbRateLimiter rateLimit) {
+            limits.set(api.ordinal(), rateLimit);
+        }
+
     }
 
 }
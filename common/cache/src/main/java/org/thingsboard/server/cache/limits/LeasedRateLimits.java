@@ -0,0 +1,118 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cache.limits;
+
+import lombok.Getter;
+import org.thingsboard.server.common.msg.tools.TbRateLimiter;
+import org.thingsboard.server.common.msg.tools.TbRateLimits;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rate limiter that consumes tokens leased from a bucket shared by all nodes of the cluster.
+ * The check itself is a lock-free decrement of the locally leased tokens; the lease is topped up
+ * by {@link RedisLeasedRateLimitsFactory} according to the demand observed since the previous renewal,
+ * or synchronously when the local tokens run out. The tokens that are not consumed within the lease interval
+ * are returned to the shared bucket.
+ */
+class LeasedRateLimits implements TbRateLimiter {
+
+    private final RedisLeasedRateLimitsFactory factory;
+    @Getter
+    private final String key;
+    @Getter
+    private final String configuration;
+    @Getter
+    private final boolean refillIntervally;
+
+    final byte[] rawKey;
+    final byte[][] bandwidthArgs;
+    final long capacity;
+    final long initialLease;
+
+    final AtomicLong tokens = new AtomicLong();
+    final LongAdder demand = new LongAdder();
+    final AtomicBoolean renewalRequested = new AtomicBoolean();
+    volatile boolean initialized;
+    volatile boolean registered;
+    volatile long lastRenewalTime;
+    volatile long lastTopUpDeniedTime;
+    volatile long leaseExpirationTime;
+    volatile TbRateLimits fallback;
+    int idleRenewals;
+
+    LeasedRateLimits(RedisLeasedRateLimitsFactory factory, String key, String configuration, boolean refillIntervally,
+                     byte[] rawKey, byte[][] bandwidthArgs, long capacity, long initialLease) {
+        this.factory = factory;
+        this.key = key;
+        this.configuration = configuration;
+        this.refillIntervally = refillIntervally;
+        this.rawKey = rawKey;
+        this.bandwidthArgs = bandwidthArgs;
+        this.capacity = capacity;
+        this.initialLease = initialLease;
+    }
+
+    @Override
+    public boolean tryConsume() {
+        return tryConsume(1);
+    }
+
+    @Override
+    public boolean tryConsume(long number) {
+        if (!initialized) {
+            factory.initialLease(this);
+        }
+        if (!registered) {
+            factory.register(this);
+        }
+        demand.add(number);
+        TbRateLimits fallback = this.fallback;
+        if (fallback != null) {
+            return fallback.tryConsume(number);
+        }
+        expireLease();
+        while (true) {
+            long current = tokens.get();
+            if (current < number) {
+                if (factory.topUp(this, number)) {
+                    continue;
+                }
+                factory.requestRenewal(this);
+                return false;
+            }
+            if (tokens.compareAndSet(current, current - number)) {
+                return true;
+            }
+        }
+    }
+
+    /*
+     * The tokens that were not consumed within the lease interval are given back to Redis, so that the node
+     * does not hold the tokens that the other nodes need.
+     * */
+    private void expireLease() {
+        if (tokens.get() > 0 && System.currentTimeMillis() >= leaseExpirationTime) {
+            long expired = tokens.getAndSet(0);
+            if (expired > 0) {
+                factory.returnExpiredLease(this, expired);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cache.limits;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Service;
+import org.thingsboard.server.common.msg.tools.TbRateLimiter;
+import org.thingsboard.server.common.msg.tools.TbRateLimits;
+import org.thingsboard.server.common.msg.tools.TbRateLimitsSpec;
+
+@Service
+@ConditionalOnExpression("'${cache.type:caffeine}' != 'redis' || '${cache.rateLimits.distributed.enabled:false}' != 'true'")
+public class LocalRateLimitsFactory implements RateLimitsFactory {
+
+    @Override
+    public TbRateLimiter create(String key, String configuration, boolean refillIntervally) {
+        return new TbRateLimits(configuration, refillIntervally);
+    }
+
+    @Override
+    public TbRateLimiter create(String key, TbRateLimitsSpec spec, boolean refillIntervally) {
+        return new TbRateLimits(spec, refillIntervally);
+    }
+
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cache.limits;
+
+import org.thingsboard.server.common.msg.tools.TbRateLimiter;
+import org.thingsboard.server.common.msg.tools.TbRateLimitsSpec;
+
+public interface RateLimitsFactory {
+
+    /**
+     * Creates a rate limiter for the given configuration, e.g. "100:1,1000:60".
+     *
+     * @param key identifies the limited resource across the cluster, e.g. the limited api and the tenant id
+     */
+    TbRateLimiter create(String key, String configuration, boolean refillIntervally);
+
+    /**
+     * Same as {@link #create(String, String, boolean)} for an already parsed configuration.
+     */
+    default TbRateLimiter create(String key, TbRateLimitsSpec spec, boolean refillIntervally) {
+        return create(key, spec.getConfiguration(), refillIntervally);
+    }
+
+}
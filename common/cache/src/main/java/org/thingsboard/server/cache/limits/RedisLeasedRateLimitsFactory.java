@@ -0,0 +1,421 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cache.limits;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.stereotype.Service;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.msg.tools.TbRateLimiter;
+import org.thingsboard.server.common.msg.tools.TbRateLimits;
+import org.thingsboard.server.common.msg.tools.TbRateLimitsSpec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distributed rate limits: every limited resource has a token bucket in Redis, and each node leases batches of tokens
+ * from it. Checks only touch the locally leased tokens; the leases are renewed periodically, sized by the demand
+ * observed during the previous lease interval, so that the cluster as a whole does not exceed the configured limits.
+ * When the local tokens run out before the renewal, the missing tokens are leased synchronously to admit bursts.
+ * If Redis is unavailable, the limits fall back to local buckets until the next successful lease.
+ */
+@Slf4j
+@Service
+@ConditionalOnExpression("'${cache.type:caffeine}' == 'redis' && '${cache.rateLimits.distributed.enabled:false}' == 'true'")
+public class RedisLeasedRateLimitsFactory implements RateLimitsFactory {
+
+    private static final String KEY_PREFIX = "rateLimits::";
+    private static final int MAX_IDLE_RENEWALS = 10;
+
+    static final byte[] LEASE_TOKENS_LUA_SCRIPT = StringRedisSerializer.UTF_8.serialize("""
+            local key = KEYS[1]
+            local requested = tonumber(ARGV[1])
+            local intervally = ARGV[2] == '1'
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local count = (#ARGV - 2) / 2
+
+            local granted = requested
+            local capacities = {}
+            local tokens = {}
+            local timestamps = {}
+            local ttl = 0
+            for i = 1, count do
+                local capacity = tonumber(ARGV[1 + 2 * i])
+                capacities[i] = capacity
+                local period = tonumber(ARGV[2 + 2 * i])
+                local stored = redis.call('HMGET', key, 'tokens' .. i, 'ts' .. i)
+                local available = tonumber(stored[1])
+                local ts = tonumber(stored[2])
+                if available == nil or ts == nil then
+                    available = capacity
+                    ts = now
+                elseif intervally then
+                    local intervals = math.floor((now - ts) / period)
+                    if intervals > 0 then
+                        available = capacity
+                        ts = ts + intervals * period
+                    end
+                elseif now > ts then
+                    available = math.min(capacity, available + (now - ts) * capacity / period)
+                    ts = now
+                end
+                tokens[i] = available
+                timestamps[i] = ts
+                granted = math.min(granted, math.floor(available))
+                ttl = math.max(ttl, period)
+            end
+            if requested < 0 then
+                for i = 1, count do
+                    tokens[i] = math.min(capacities[i], tokens[i] - requested)
+                end
+                granted = 0
+            else
+                if granted < 0 then
+                    granted = 0
+                end
+                for i = 1, count do
+                    tokens[i] = tokens[i] - granted
+                end
+            end
+
+            for i = 1, count do
+                redis.call('HSET', key, 'tokens' .. i, tostring(tokens[i]), 'ts' .. i, tostring(timestamps[i]))
+            end
+            redis.call('PEXPIRE', key, ttl * 2)
+            return granted
+            """);
+
+    private final RedisConnectionFactory connectionFactory;
+    private final Set<LeasedRateLimits> activeLimits = ConcurrentHashMap.newKeySet();
+
+    @Value("${cache.rateLimits.distributed.leaseIntervalMs:100}")
+    private long leaseIntervalMs;
+
+    private ScheduledExecutorService leaseExecutor;
+    private volatile byte[] leaseScriptSha;
+
+    public RedisLeasedRateLimitsFactory(RedisConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    @PostConstruct
+    public void init() {
+        leaseExecutor = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("rate-limits-lease"));
+        leaseExecutor.scheduleWithFixedDelay(this::renewActiveLimits, leaseIntervalMs, leaseIntervalMs, TimeUnit.MILLISECONDS);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            loadLeaseScript(connection);
+        } catch (Throwable t) {
+            log.error("Error on Redis rate limits lease script init", t);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (leaseExecutor != null) {
+            leaseExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public TbRateLimiter create(String key, String configuration, boolean refillIntervally) {
+        return create(key, TbRateLimitsSpec.parse(configuration), refillIntervally);
+    }
+
+    @Override
+    public TbRateLimiter create(String key, TbRateLimitsSpec spec, boolean refillIntervally) {
+        String configuration = spec.getConfiguration();
+        List<TbRateLimitsSpec.Limit> limits = spec.getLimits();
+        byte[][] bandwidthArgs = new byte[limits.size() * 2 + 1][];
+        bandwidthArgs[0] = serialize(refillIntervally ? "1" : "0");
+        long capacity = Long.MAX_VALUE;
+        long refillPerLease = Long.MAX_VALUE;
+        for (int i = 0; i < limits.size(); i++) {
+            TbRateLimitsSpec.Limit limit = limits.get(i);
+            long bandwidthCapacity = limit.capacity();
+            long periodMs = TimeUnit.SECONDS.toMillis(limit.durationSeconds());
+            bandwidthArgs[i * 2 + 1] = serialize(Long.toString(bandwidthCapacity));
+            bandwidthArgs[i * 2 + 2] = serialize(Long.toString(periodMs));
+            capacity = Math.min(capacity, bandwidthCapacity);
+            refillPerLease = Math.min(refillPerLease, bandwidthCapacity * leaseIntervalMs / periodMs);
+        }
+        long initialLease = Math.max(1, Math.min(capacity, refillPerLease));
+        byte[] rawKey = serialize(KEY_PREFIX + key + "::" + configuration + (refillIntervally ? "::intervally" : ""));
+        return new LeasedRateLimits(this, key, configuration, refillIntervally, rawKey, bandwidthArgs, capacity, initialLease);
+    }
+
+    void initialLease(LeasedRateLimits limits) {
+        synchronized (limits) {
+            if (limits.initialized) {
+                return;
+            }
+            try (RedisConnection connection = connectionFactory.getConnection()) {
+                lease(connection, limits, limits.initialLease);
+            } catch (Exception e) {
+                fallback(limits, e);
+            }
+            limits.initialized = true;
+        }
+    }
+
+    /*
+     * Synchronously leases the missing tokens when the local lease runs out, so a burst is not rejected until
+     * the next renewal. Each top-up leases at least the initial lease, and after Redis has not granted the requested
+     * tokens no other top-up is done for a quarter of the lease interval, so the number of Redis calls is bounded.
+     * */
+    boolean topUp(LeasedRateLimits limits, long number) {
+        if (number > limits.capacity || limits.fallback != null) {
+            return false;
+        }
+        synchronized (limits) {
+            long available = limits.tokens.get();
+            if (available >= number) {
+                return true;
+            }
+            long now = System.currentTimeMillis();
+            if (now - limits.lastTopUpDeniedTime < leaseIntervalMs / 4) {
+                return false;
+            }
+            long requested = Math.max(number, limits.initialLease) - available;
+            try (RedisConnection connection = connectionFactory.getConnection()) {
+                lease(connection, limits, requested);
+            } catch (Exception e) {
+                fallback(limits, e);
+            }
+            if (limits.tokens.get() < number) {
+                limits.lastTopUpDeniedTime = now;
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /*
+     * Returns the expired tokens to the bucket in Redis (the negative request makes the LUA script add them back,
+     * up to the capacity), so that the tokens leased by an idle node are not lost for the rest of the cluster.
+     * The tokens are returned synchronously, so that the following top-up can lease them again.
+     * */
+    void returnExpiredLease(LeasedRateLimits limits, long expired) {
+        if (limits.fallback != null) {
+            return;
+        }
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            evalLeaseScript(connection, limits, -expired);
+        } catch (Exception e) {
+            log.debug("[{}] Failed to return expired rate limits tokens", limits.getKey(), e);
+        }
+    }
+
+    void register(LeasedRateLimits limits) {
+        limits.registered = true;
+        activeLimits.add(limits);
+    }
+
+    void requestRenewal(LeasedRateLimits limits) {
+        if (System.currentTimeMillis() - limits.lastRenewalTime < leaseIntervalMs / 4) {
+            return;
+        }
+        if (limits.renewalRequested.compareAndSet(false, true)) {
+            leaseExecutor.execute(() -> {
+                limits.renewalRequested.set(false);
+                try (RedisConnection connection = connectionFactory.getConnection()) {
+                    renew(connection, limits);
+                } catch (Exception e) {
+                    fallback(limits, e);
+                }
+            });
+        }
+    }
+
+    private void renewActiveLimits() {
+        if (activeLimits.isEmpty()) {
+            return;
+        }
+        List<LeasedRateLimits> renewals = new ArrayList<>();
+        List<Long> requested = new ArrayList<>();
+        for (LeasedRateLimits limits : activeLimits) {
+            long toLease = getRenewalLease(limits);
+            if (toLease >= 0) {
+                renewals.add(limits);
+                requested.add(toLease);
+            }
+        }
+        if (renewals.isEmpty()) {
+            return;
+        }
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            leaseAll(connection, renewals, requested);
+        } catch (Exception e) {
+            log.warn("Failed to renew rate limits leases", e);
+            renewals.forEach(limits -> fallback(limits, e));
+        }
+    }
+
+    private void renew(RedisConnection connection, LeasedRateLimits limits) {
+        long toLease = getRenewalLease(limits);
+        if (toLease >= 0) {
+            lease(connection, limits, toLease);
+        }
+    }
+
+    /*
+     * Returns the number of tokens to lease according to the demand observed since the previous renewal,
+     * or -1 if the lease does not need to be renewed. The limits that stay idle for too long are deregistered.
+     * */
+    private long getRenewalLease(LeasedRateLimits limits) {
+        long demand = limits.demand.sumThenReset();
+        if (demand == 0) {
+            if (++limits.idleRenewals >= MAX_IDLE_RENEWALS) {
+                activeLimits.remove(limits);
+                limits.registered = false;
+            }
+            return -1;
+        }
+        limits.idleRenewals = 0;
+        long toLease = Math.min(limits.capacity, demand) - limits.tokens.get();
+        if (toLease > 0 || limits.fallback != null) {
+            return Math.max(toLease, 0);
+        }
+        return -1;
+    }
+
+    /*
+     * Leases the tokens for all the limits using a single pipelined round-trip. Falls back to the one by one lease
+     * on the cluster connection and for the limits whose script call has failed (e.g. the LUA script is not loaded).
+     * */
+    private void leaseAll(RedisConnection connection, List<LeasedRateLimits> limitsList, List<Long> requested) {
+        if (limitsList.size() == 1 || connection instanceof RedisClusterConnection) {
+            for (int i = 0; i < limitsList.size(); i++) {
+                lease(connection, limitsList.get(i), requested.get(i));
+            }
+            return;
+        }
+        byte[] sha = leaseScriptSha;
+        if (sha == null) {
+            sha = loadLeaseScript(connection);
+        }
+        long now = System.currentTimeMillis();
+        List<Object> results;
+        connection.openPipeline();
+        try {
+            for (int i = 0; i < limitsList.size(); i++) {
+                LeasedRateLimits limits = limitsList.get(i);
+                limits.lastRenewalTime = now;
+                connection.scriptingCommands().evalSha(sha, ReturnType.INTEGER, 1, getKeysAndArgs(limits, requested.get(i)));
+            }
+        } finally {
+            results = closePipeline(connection);
+        }
+        for (int i = 0; i < limitsList.size(); i++) {
+            Object result = results != null && i < results.size() ? results.get(i) : null;
+            if (result instanceof Number granted) {
+                onLeased(limitsList.get(i), granted.longValue());
+            } else {
+                log.debug("[{}] Failed to renew rate limits lease using pipeline: {}", limitsList.get(i).getKey(), result);
+                lease(connection, limitsList.get(i), requested.get(i));
+            }
+        }
+    }
+
+    private List<Object> closePipeline(RedisConnection connection) {
+        try {
+            return connection.closePipeline();
+        } catch (RedisPipelineException e) {
+            return e.getPipelineResult();
+        }
+    }
+
+    private void lease(RedisConnection connection, LeasedRateLimits limits, long requested) {
+        limits.lastRenewalTime = System.currentTimeMillis();
+        try {
+            onLeased(limits, evalLeaseScript(connection, limits, requested));
+        } catch (Exception e) {
+            fallback(limits, e);
+        }
+    }
+
+    private void onLeased(LeasedRateLimits limits, Long granted) {
+        if (granted != null && granted > 0) {
+            limits.leaseExpirationTime = System.currentTimeMillis() + leaseIntervalMs;
+            limits.tokens.addAndGet(granted);
+        }
+        if (limits.fallback != null) {
+            log.info("[{}] Rate limits lease restored", limits.getKey());
+            limits.fallback = null;
+        }
+    }
+
+    private void fallback(LeasedRateLimits limits, Exception e) {
+        if (limits.fallback == null) {
+            log.warn("[{}] Failed to lease rate limits tokens, falling back to local rate limits", limits.getKey(), e);
+            limits.fallback = new TbRateLimits(limits.getConfiguration(), limits.isRefillIntervally());
+        }
+    }
+
+    private Long evalLeaseScript(RedisConnection connection, LeasedRateLimits limits, long requested) {
+        byte[][] keysAndArgs = getKeysAndArgs(limits, requested);
+        byte[] sha = leaseScriptSha;
+        if (sha != null) {
+            try {
+                return connection.scriptingCommands().evalSha(sha, ReturnType.INTEGER, 1, keysAndArgs);
+            } catch (InvalidDataAccessApiUsageException e) {
+                log.debug("Loading rate limits lease LUA [{}]", connection.getNativeConnection());
+            }
+        }
+        try {
+            sha = loadLeaseScript(connection);
+            return connection.scriptingCommands().evalSha(sha, ReturnType.INTEGER, 1, keysAndArgs);
+        } catch (InvalidDataAccessApiUsageException e) {
+            log.debug("Slowly executing eval instead of fast evalsha");
+            return connection.scriptingCommands().eval(LEASE_TOKENS_LUA_SCRIPT, ReturnType.INTEGER, 1, keysAndArgs);
+        }
+    }
+
+    private byte[] loadLeaseScript(RedisConnection connection) {
+        byte[] sha = serialize(connection.scriptingCommands().scriptLoad(LEASE_TOKENS_LUA_SCRIPT));
+        leaseScriptSha = sha;
+        return sha;
+    }
+
+    private static byte[][] getKeysAndArgs(LeasedRateLimits limits, long requested) {
+        byte[][] keysAndArgs = new byte[limits.bandwidthArgs.length + 2][];
+        keysAndArgs[0] = limits.rawKey;
+        keysAndArgs[1] = serialize(Long.toString(requested));
+        System.arraycopy(limits.bandwidthArgs, 0, keysAndArgs, 2, limits.bandwidthArgs.length);
+        return keysAndArgs;
+    }
+
+    private static byte[] serialize(String value) {
+        return StringRedisSerializer.UTF_8.serialize(value);
+    }
+
+}
@@ -0,0 +1,170 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisKeyCommands;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.CacheStatsService;
+import org.thingsboard.server.common.data.FstStatsService;
+import org.thingsboard.server.common.data.HasVersion;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class VersionedRedisNearCacheTest {
+
+    private static final String CACHE_NAME = "testCache";
+
+    private final JedisConnectionFactory connectionFactory = mock(JedisConnectionFactory.class);
+    private final RedisConnection connection = mock(RedisConnection.class);
+    private final RedisStringCommands stringCommands = mock(RedisStringCommands.class);
+    private final CacheStatsService cacheStatsService = mock(CacheStatsService.class);
+
+    @BeforeEach
+    void setUp() {
+        given(connectionFactory.getConnection()).willReturn(connection);
+        given(connection.stringCommands()).willReturn(stringCommands);
+        given(connection.scriptingCommands()).willReturn(mock(RedisScriptingCommands.class));
+        given(connection.keyCommands()).willReturn(mock(RedisKeyCommands.class));
+    }
+
+    @Test
+    void givenNearCacheEnabled_whenGetTwice_thenRedisIsQueriedOnce() {
+        TestCache cache = createCache(true);
+        given(stringCommands.getRange(any(), anyLong(), anyLong())).willReturn(serialize(new TestValue("a", 1L)));
+
+        assertThat(cache.get("key").get()).isEqualTo(new TestValue("a", 1L));
+        assertThat(cache.get("key").get()).isEqualTo(new TestValue("a", 1L));
+
+        verify(stringCommands, times(1)).getRange(any(), anyLong(), anyLong());
+        verify(cacheStatsService).incrementRemoteCacheHit(CACHE_NAME);
+        verify(cacheStatsService).incrementNearCacheHit(CACHE_NAME);
+    }
+
+    @Test
+    void givenNearCacheEnabled_whenPutOlderVersion_thenNewerVersionIsKept() {
+        TestCache cache = createCache(true);
+
+        cache.put("key", new TestValue("new", 2L));
+        cache.put("key", new TestValue("old", 1L));
+
+        assertThat(cache.get("key").get()).isEqualTo(new TestValue("new", 2L));
+        verify(stringCommands, times(0)).getRange(any(), anyLong(), anyLong());
+    }
+
+    @Test
+    void givenNearCacheEnabled_whenEvict_thenNextGetQueriesRedis() {
+        TestCache cache = createCache(true);
+        cache.put("key", new TestValue("a", 1L));
+
+        cache.evict("key");
+
+        assertThat(cache.get("key")).isNull();
+        verify(stringCommands, times(1)).getRange(any(), anyLong(), anyLong());
+        verify(cacheStatsService).incrementCacheMiss(CACHE_NAME);
+    }
+
+    @Test
+    void givenNearCacheEnabled_whenGetAll_thenOnlyMissedKeysAreQueriedFromRedis() {
+        TestCache cache = createCache(true);
+        cache.put("key1", new TestValue("a", 1L));
+        given(connection.closePipeline()).willReturn(List.of(serialize(new TestValue("b", 1L))));
+
+        Map<String, TbCacheValueWrapper<TestValue>> values = cache.getAll(List.of("key1", "key2"));
+
+        assertThat(values).hasSize(2);
+        assertThat(values.get("key1").get()).isEqualTo(new TestValue("a", 1L));
+        assertThat(values.get("key2").get()).isEqualTo(new TestValue("b", 1L));
+        verify(stringCommands, times(1)).getRange(any(), anyLong(), anyLong());
+    }
+
+    @Test
+    void givenNearCacheDisabled_whenGetTwice_thenRedisIsQueriedTwice() {
+        TestCache cache = createCache(false);
+        given(stringCommands.getRange(any(), anyLong(), anyLong())).willReturn(serialize(new TestValue("a", 1L)));
+
+        cache.get("key");
+        cache.get("key");
+
+        verify(stringCommands, times(2)).getRange(any(), anyLong(), anyLong());
+        verify(cacheStatsService, times(2)).incrementRemoteCacheHit(CACHE_NAME);
+    }
+
+    private TestCache createCache(boolean nearCacheEnabled) {
+        CacheSpecs cacheSpecs = new CacheSpecs();
+        cacheSpecs.setTimeToLiveInMinutes(1440);
+        cacheSpecs.setMaxSize(1000);
+        if (nearCacheEnabled) {
+            cacheSpecs.setNearCacheMaxSize(1000);
+            cacheSpecs.setNearCacheTimeToLiveInMs(60000);
+        }
+        CacheSpecsMap cacheSpecsMap = new CacheSpecsMap();
+        cacheSpecsMap.setSpecs(Map.of(CACHE_NAME, cacheSpecs));
+        TestCache cache = new TestCache(cacheSpecsMap, connectionFactory, mock(TBRedisCacheConfiguration.class));
+        ReflectionTestUtils.setField(cache, "fstStatsService", mock(FstStatsService.class), FstStatsService.class);
+        ReflectionTestUtils.setField(cache, "cacheStatsService", cacheStatsService, CacheStatsService.class);
+        return cache;
+    }
+
+    private static byte[] serialize(TestValue value) {
+        return (value.data() + ":" + value.version()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    record TestValue(String data, Long version) implements Serializable, HasVersion {
+
+        @Override
+        public Long getVersion() {
+            return version;
+        }
+
+    }
+
+    static class TestCache extends VersionedRedisTbCache<String, TestValue> {
+
+        TestCache(CacheSpecsMap cacheSpecsMap, JedisConnectionFactory connectionFactory, TBRedisCacheConfiguration configuration) {
+            super(CACHE_NAME, cacheSpecsMap, connectionFactory, configuration, new TbRedisSerializer<>() {
+                @Override
+                public byte[] serialize(TestValue value) {
+                    return VersionedRedisNearCacheTest.serialize(value);
+                }
+
+                @Override
+                public TestValue deserialize(String key, byte[] bytes) {
+                    String[] parts = new String(bytes, StandardCharsets.UTF_8).split(":");
+                    return new TestValue(parts[0], Long.parseLong(parts[1]));
+                }
+            });
+        }
+
+    }
+
+}
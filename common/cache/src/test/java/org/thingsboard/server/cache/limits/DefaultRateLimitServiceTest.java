@@ -0,0 +1,88 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cache.limits;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.limit.LimitedApi;
+import org.thingsboard.server.common.msg.notification.NotificationRuleProcessor;
+import org.thingsboard.server.common.msg.tools.TbRateLimitsSpec;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class DefaultRateLimitServiceTest {
+
+    private RateLimitsFactory rateLimitsFactory;
+    private DefaultRateLimitService rateLimitService;
+    private Object level;
+
+    @BeforeEach
+    public void beforeEach() {
+        rateLimitsFactory = spy(new LocalRateLimitsFactory());
+        rateLimitService = new DefaultRateLimitService(mock(TenantProfileProvider.class), mock(NotificationRuleProcessor.class), rateLimitsFactory, 60, 100);
+        level = TenantId.fromUUID(UUID.randomUUID());
+    }
+
+    @Test
+    public void givenSameConfig_whenChecked_thenBucketIsCreatedOnce() {
+        assertThat(rateLimitService.checkRateLimit(LimitedApi.ENTITY_EXPORT, level, "2:600")).isTrue();
+        assertThat(rateLimitService.checkRateLimit(LimitedApi.ENTITY_EXPORT, level, new String("2:600"))).isTrue();
+        assertThat(rateLimitService.checkRateLimit(LimitedApi.ENTITY_EXPORT, level, "2:600")).isFalse();
+
+        verify(rateLimitsFactory, times(1)).create(anyString(), any(TbRateLimitsSpec.class), anyBoolean());
+    }
+
+    @Test
+    public void givenConfigChange_whenChecked_thenBucketIsRecreated() {
+        assertThat(rateLimitService.checkRateLimit(LimitedApi.ENTITY_EXPORT, level, "1:600")).isTrue();
+        assertThat(rateLimitService.checkRateLimit(LimitedApi.ENTITY_EXPORT, level, "1:600")).isFalse();
+
+        assertThat(rateLimitService.checkRateLimit(LimitedApi.ENTITY_EXPORT, level, "2:600")).isTrue();
+        assertThat(rateLimitService.checkRateLimit(LimitedApi.ENTITY_EXPORT, level, "2:600")).isTrue();
+        assertThat(rateLimitService.checkRateLimit(LimitedApi.ENTITY_EXPORT, level, "2:600")).isFalse();
+    }
+
+    @Test
+    public void givenApisOnSameLevel_whenChecked_thenBucketsAreIndependent() {
+        assertThat(rateLimitService.checkRateLimit(LimitedApi.ENTITY_EXPORT, level, "1:600")).isTrue();
+        assertThat(rateLimitService.checkRateLimit(LimitedApi.ENTITY_IMPORT, level, "1:600")).isTrue();
+        assertThat(rateLimitService.checkRateLimit(LimitedApi.ENTITY_EXPORT, level, "1:600")).isFalse();
+        assertThat(rateLimitService.checkRateLimit(LimitedApi.ENTITY_IMPORT, level, "1:600")).isFalse();
+    }
+
+    @Test
+    public void givenCleanUpOrEmptyConfig_whenChecked_thenBucketIsReset() {
+        assertThat(rateLimitService.checkRateLimit(LimitedApi.ENTITY_EXPORT, level, "1:600")).isTrue();
+        assertThat(rateLimitService.checkRateLimit(LimitedApi.ENTITY_EXPORT, level, "1:600")).isFalse();
+
+        rateLimitService.cleanUp(LimitedApi.ENTITY_EXPORT, level);
+        assertThat(rateLimitService.checkRateLimit(LimitedApi.ENTITY_EXPORT, level, "1:600")).isTrue();
+
+        assertThat(rateLimitService.checkRateLimit(LimitedApi.ENTITY_EXPORT, level, "")).isTrue();
+        assertThat(rateLimitService.checkRateLimit(LimitedApi.ENTITY_EXPORT, level, "1:600")).isTrue();
+    }
+
+}
@@ -0,0 +1,209 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cache.limits;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.msg.tools.TbRateLimiter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class RedisLeasedRateLimitsFactoryTest {
+
+    private final List<RedisLeasedRateLimitsFactory> factories = new ArrayList<>();
+    private final AtomicLong sharedTokens = new AtomicLong();
+    private final ThreadLocal<List<Object>> pipelineResults = new ThreadLocal<>();
+    private RedisScriptingCommands scriptingCommands;
+    private RedisConnection connection;
+
+    @AfterEach
+    public void tearDown() {
+        factories.forEach(RedisLeasedRateLimitsFactory::destroy);
+    }
+
+    @Test
+    public void givenLeasedTokens_whenConsumedLocally_thenNoRedisCallPerCheck() {
+        sharedTokens.set(1000);
+        RedisLeasedRateLimitsFactory factory = createFactory(100);
+        TbRateLimiter rateLimits = factory.create("REST_REQUESTS_PER_TENANT::tenant", "1000:1", false);
+
+        for (int i = 0; i < 50; i++) {
+            assertThat(rateLimits.tryConsume()).isTrue();
+        }
+
+        verify(scriptingCommands, times(1)).evalSha(any(byte[].class), any(ReturnType.class), anyInt(), any(byte[][].class));
+        assertThat(sharedTokens.get()).isEqualTo(1000 - 100);
+    }
+
+    @Test
+    public void givenTwoNodes_whenConsumingSharedBucket_thenClusterWideLimitIsNotExceeded() {
+        sharedTokens.set(100);
+        TbRateLimiter node1 = createFactory(10).create("TRANSPORT_MESSAGES_PER_TENANT::tenant", "100:3600", false);
+        TbRateLimiter node2 = createFactory(10).create("TRANSPORT_MESSAGES_PER_TENANT::tenant", "100:3600", false);
+
+        AtomicLong consumed = new AtomicLong();
+        await().atMost(10, TimeUnit.SECONDS).pollInterval(20, TimeUnit.MILLISECONDS).until(() -> {
+            for (int i = 0; i < 10; i++) {
+                if (node1.tryConsume()) {
+                    consumed.incrementAndGet();
+                }
+                if (node2.tryConsume()) {
+                    consumed.incrementAndGet();
+                }
+            }
+            // the expired leases are returned to the shared bucket, so eventually all the tokens are consumed
+            return consumed.get() >= 100;
+        });
+
+        assertThat(consumed.get()).isEqualTo(100);
+        assertThat(sharedTokens.get()).isZero();
+        assertThat(node1.tryConsume()).isFalse();
+        assertThat(node2.tryConsume()).isFalse();
+    }
+
+    @Test
+    public void givenBurstAboveInitialLease_whenConsuming_thenMissingTokensAreLeasedSynchronously() {
+        sharedTokens.set(1000);
+        RedisLeasedRateLimitsFactory factory = createFactory(6000);
+        // the initial lease is 1000 tokens per 600 seconds * 6 seconds
+        TbRateLimiter rateLimits = factory.create("REST_REQUESTS_PER_TENANT::tenant", "1000:600", false);
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(rateLimits.tryConsume()).isTrue();
+        }
+        assertThat(rateLimits.tryConsume()).isFalse();
+        assertThat(rateLimits.tryConsume()).isFalse();
+
+        assertThat(sharedTokens.get()).isZero();
+        // the initial lease, 99 top-ups of 10 tokens and a single denied top-up
+        verify(scriptingCommands, times(101)).evalSha(any(byte[].class), any(ReturnType.class), anyInt(), any(byte[][].class));
+    }
+
+    @Test
+    public void givenLeaseExpired_whenConsuming_thenExpiredTokensAreReturnedAndNewLeaseIsTaken() {
+        sharedTokens.set(1000);
+        RedisLeasedRateLimitsFactory factory = createFactory(6000);
+        TbRateLimiter rateLimits = factory.create("REST_REQUESTS_PER_TENANT::tenant", "1000:600", false);
+        assertThat(rateLimits.tryConsume()).isTrue();
+        assertThat(leasedTokens(rateLimits)).isEqualTo(9);
+
+        ((LeasedRateLimits) rateLimits).leaseExpirationTime = System.currentTimeMillis() - 1;
+
+        assertThat(rateLimits.tryConsume()).isTrue();
+        assertThat(leasedTokens(rateLimits)).isEqualTo(9);
+        assertThat(sharedTokens.get()).isEqualTo(1000 - 2 * 10 + 9);
+    }
+
+    @Test
+    public void givenRedisUnavailable_whenCheckingLimits_thenLocalLimitsAreApplied() {
+        RedisLeasedRateLimitsFactory factory = createFactory(60000);
+        willThrow(new RedisConnectionFailureException("Connection refused"))
+                .given(scriptingCommands).evalSha(any(byte[].class), any(ReturnType.class), anyInt(), any(byte[][].class));
+        TbRateLimiter rateLimits = factory.create("WS_UPDATES_PER_SESSION::session", "2:60", false);
+
+        assertThat(rateLimits.tryConsume()).isTrue();
+        assertThat(rateLimits.tryConsume()).isTrue();
+        assertThat(rateLimits.tryConsume()).isFalse();
+    }
+
+    @Test
+    public void givenManyActiveLimits_whenRenewed_thenLeasesAreRenewedInSinglePipeline() {
+        sharedTokens.set(10000);
+        RedisLeasedRateLimitsFactory factory = createFactory(300);
+        List<TbRateLimiter> tenantsLimits = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            TbRateLimiter rateLimits = factory.create("REST_REQUESTS_PER_TENANT::tenant" + i, "1000:1", false);
+            // the initial lease is the refill per lease interval: 1000 tokens per second * 300 ms
+            for (int j = 0; j < 300; j++) {
+                assertThat(rateLimits.tryConsume()).isTrue();
+            }
+            tenantsLimits.add(rateLimits);
+        }
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> tenantsLimits.stream().allMatch(rateLimits -> leasedTokens(rateLimits) == 300));
+
+        verify(connection).openPipeline();
+        verify(connection).closePipeline();
+        verify(scriptingCommands, times(10)).evalSha(any(byte[].class), any(ReturnType.class), anyInt(), any(byte[][].class));
+        assertThat(sharedTokens.get()).isEqualTo(10000 - 5 * 300 * 2);
+    }
+
+    private RedisLeasedRateLimitsFactory createFactory(long leaseIntervalMs) {
+        if (scriptingCommands == null) {
+            scriptingCommands = mock(RedisScriptingCommands.class);
+            given(scriptingCommands.scriptLoad(any())).willReturn("sha");
+            given(scriptingCommands.evalSha(any(byte[].class), any(ReturnType.class), anyInt(), any(byte[][].class))).willAnswer(invocation -> {
+                long requested = Long.parseLong(new String((byte[]) invocation.getArgument(4), StandardCharsets.UTF_8));
+                long granted;
+                synchronized (sharedTokens) {
+                    granted = Math.min(requested, sharedTokens.get());
+                    sharedTokens.addAndGet(-granted);
+                }
+                List<Object> results = pipelineResults.get();
+                if (results != null) {
+                    results.add(granted);
+                    return null;
+                }
+                return granted;
+            });
+        }
+        connection = mock(RedisConnection.class);
+        given(connection.scriptingCommands()).willReturn(scriptingCommands);
+        willAnswer(invocation -> {
+            pipelineResults.set(new ArrayList<>());
+            return null;
+        }).given(connection).openPipeline();
+        given(connection.closePipeline()).willAnswer(invocation -> {
+            List<Object> results = pipelineResults.get();
+            pipelineResults.remove();
+            return results;
+        });
+        RedisConnectionFactory connectionFactory = mock(RedisConnectionFactory.class);
+        given(connectionFactory.getConnection()).willReturn(connection);
+
+        RedisLeasedRateLimitsFactory factory = new RedisLeasedRateLimitsFactory(connectionFactory);
+        ReflectionTestUtils.setField(factory, "leaseIntervalMs", leaseIntervalMs);
+        factory.init();
+        factories.add(factory);
+        return factory;
+    }
+
+    private static long leasedTokens(TbRateLimiter rateLimits) {
+        return ((LeasedRateLimits) rateLimits).tokens.get();
+    }
+
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cache.limits;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.thingsboard.server.common.msg.tools.TbRateLimiter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@Testcontainers(disabledWithoutDocker = true)
+public class RedisLeasedRateLimitsLuaScriptTest {
+
+    @Container
+    private static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7.2-bookworm")
+            .withExposedPorts(6379);
+
+    private static JedisConnectionFactory connectionFactory;
+
+    private final List<RedisLeasedRateLimitsFactory> factories = new ArrayList<>();
+
+    @BeforeAll
+    static void beforeAll() {
+        connectionFactory = new JedisConnectionFactory(new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        connectionFactory.destroy();
+    }
+
+    @AfterEach
+    void tearDown() {
+        factories.forEach(RedisLeasedRateLimitsFactory::destroy);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.serverCommands().flushAll();
+        }
+    }
+
+    @Test
+    void givenTwoNodes_whenConsumingSharedBucket_thenClusterWideLimitIsNotExceeded() {
+        TbRateLimiter node1 = createFactory(60000).create("TRANSPORT_MESSAGES_PER_TENANT::tenant", "100:3600", false);
+        TbRateLimiter node2 = createFactory(60000).create("TRANSPORT_MESSAGES_PER_TENANT::tenant", "100:3600", false);
+
+        int consumed = 0;
+        for (int i = 0; i < 200; i++) {
+            if (node1.tryConsume()) {
+                consumed++;
+            }
+            if (node2.tryConsume()) {
+                consumed++;
+            }
+        }
+
+        assertThat(consumed).isEqualTo(100);
+        // the bucket is refilled continuously, so a fraction of a token may be available
+        assertThat(getStoredTokens("TRANSPORT_MESSAGES_PER_TENANT::tenant::100:3600", 1)).isLessThan(1);
+    }
+
+    @Test
+    void givenSeveralBandwidths_whenLeasing_thenTheMostRestrictiveBandwidthIsApplied() {
+        TbRateLimiter rateLimits = createFactory(60000).create("REST_REQUESTS_PER_TENANT::tenant", "1000:3600,10:60", false);
+
+        int consumed = 0;
+        for (int i = 0; i < 100; i++) {
+            if (rateLimits.tryConsume()) {
+                consumed++;
+            }
+        }
+
+        assertThat(consumed).isEqualTo(10);
+        assertThat(getStoredTokens("REST_REQUESTS_PER_TENANT::tenant::1000:3600,10:60", 1)).isCloseTo(990, within(1.0));
+        assertThat(getStoredTokens("REST_REQUESTS_PER_TENANT::tenant::1000:3600,10:60", 2)).isLessThan(1);
+    }
+
+    @Test
+    void givenIntervalRefill_whenPeriodPassed_thenBucketIsRefilledCompletely() {
+        RedisLeasedRateLimitsFactory factory = createFactory(60000);
+        TbRateLimiter rateLimits = factory.create("WS_UPDATES_PER_SESSION::session", "5:1", true);
+        for (int i = 0; i < 5; i++) {
+            assertThat(rateLimits.tryConsume()).isTrue();
+        }
+        assertThat(getStoredTokens("WS_UPDATES_PER_SESSION::session::5:1::intervally", 1)).isZero();
+
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            byte[] key = "rateLimits::WS_UPDATES_PER_SESSION::session::5:1::intervally".getBytes(StandardCharsets.UTF_8);
+            long ts = Long.parseLong(new String(connection.hashCommands().hGet(key, "ts1".getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8));
+            connection.hashCommands().hSet(key, "ts1".getBytes(StandardCharsets.UTF_8), Long.toString(ts - 1000).getBytes(StandardCharsets.UTF_8));
+            assertThat(connection.keyCommands().pTtl(key)).isPositive();
+        }
+
+        assertThat(rateLimits.tryConsume()).isTrue();
+        assertThat(((LeasedRateLimits) rateLimits).tokens.get()).isEqualTo(4);
+        assertThat(getStoredTokens("WS_UPDATES_PER_SESSION::session::5:1::intervally", 1)).isZero();
+    }
+
+    @Test
+    void givenExpiredLease_whenConsuming_thenUnusedTokensAreReturnedToBucket() {
+        TbRateLimiter rateLimits = createFactory(60000).create("REST_REQUESTS_PER_TENANT::tenant", "10:60", true);
+        assertThat(rateLimits.tryConsume()).isTrue();
+        assertThat(getStoredTokens("REST_REQUESTS_PER_TENANT::tenant::10:60::intervally", 1)).isZero();
+
+        ((LeasedRateLimits) rateLimits).leaseExpirationTime = 0;
+        assertThat(rateLimits.tryConsume()).isTrue();
+
+        // 9 expired tokens are returned, then leased again by the top-up, and 1 of them is consumed
+        assertThat(getStoredTokens("REST_REQUESTS_PER_TENANT::tenant::10:60::intervally", 1)).isZero();
+        assertThat(((LeasedRateLimits) rateLimits).tokens.get()).isEqualTo(8);
+    }
+
+    private RedisLeasedRateLimitsFactory createFactory(long leaseIntervalMs) {
+        RedisLeasedRateLimitsFactory factory = new RedisLeasedRateLimitsFactory(connectionFactory);
+        ReflectionTestUtils.setField(factory, "leaseIntervalMs", leaseIntervalMs);
+        factory.init();
+        factories.add(factory);
+        return factory;
+    }
+
+    private static double getStoredTokens(String key, int bandwidth) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            byte[] value = connection.hashCommands().hGet(("rateLimits::" + key).getBytes(StandardCharsets.UTF_8),
+                    ("tokens" + bandwidth).getBytes(StandardCharsets.UTF_8));
+            return Double.parseDouble(new String(value, StandardCharsets.UTF_8));
+        }
+    }
+
+}
@@ -0,0 +1,31 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue;
+
+/**
+ * Position of a consumer right after one of the packs it has polled, see {@link TbQueueConsumer#getCommitPosition()}.
+ * Opaque for the callers, each consumer implementation defines its own content.
+ * The position may cover only the partitions of its own pack.
+ */
+public interface TbQueueCommitPosition {
+
+    /**
+     * Returns the position that covers both this and the given later position of the same consumer,
+     * i.e. the furthest position of each partition of the two.
+     */
+    TbQueueCommitPosition merge(TbQueueCommitPosition next);
+
+}
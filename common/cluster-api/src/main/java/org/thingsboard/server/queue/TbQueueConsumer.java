@@ -36,6 +36,21 @@ public interface TbQueueConsumer<T extends TbQueueMsg> {
 
     void commit();
 
+    /**
+     * Returns the position right after the last pack returned by {@link #poll(long)}. It can be committed later with
+     * {@link #commit(TbQueueCommitPosition)}, while the packs polled after it are still being processed.
+     * The position may cover only the partitions of that pack, so the positions of several packs committed at once
+     * must be combined with {@link TbQueueCommitPosition#merge(TbQueueCommitPosition)}.
+     * Returns null if the consumer is only able to commit everything it has polled.
+     */
+    default TbQueueCommitPosition getCommitPosition() {
+        return null;
+    }
+
+    default void commit(TbQueueCommitPosition position) {
+        throw new UnsupportedOperationException("Commit of the position is not supported by " + getClass().getSimpleName());
+    }
+
     boolean isStopped();
 
     List<String> getFullTopicNames();
@@ -23,6 +23,7 @@ import lombok.Data;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.dao.cassandra.guava.GuavaSession;
 import org.thingsboard.server.dao.util.AsyncTask;
+import org.thingsboard.server.dao.util.AsyncTaskPriority;
 
 import java.util.function.Function;
 
@@ -35,6 +36,18 @@ public class CassandraStatementTask implements AsyncTask {
     private final TenantId tenantId;
     private final GuavaSession session;
     private final Statement statement;
+    private final AsyncTaskPriority priority;
+
+    public CassandraStatementTask(TenantId tenantId, GuavaSession session, Statement statement) {
+        this(tenantId, session, statement, AsyncTaskPriority.HIGH);
+    }
+
+    public CassandraStatementTask(TenantId tenantId, GuavaSession session, Statement statement, AsyncTaskPriority priority) {
+        this.tenantId = tenantId;
+        this.session = session;
+        this.statement = statement;
+        this.priority = priority;
+    }
 
     public ListenableFuture<TbResultSet> executeAsync(Function<Statement, TbResultSetFuture> executeAsyncFunction) {
         return Futures.transform(session.executeAsync(statement),
@@ -24,4 +24,8 @@ public interface AsyncTask {
 
     TenantId getTenantId();
 
+    default AsyncTaskPriority getPriority() {
+        return AsyncTaskPriority.HIGH;
+    }
+
 }
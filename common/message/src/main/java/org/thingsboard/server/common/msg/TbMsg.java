@@ -16,14 +16,21 @@
 package org.thingsboard.server.common.msg;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.StringUtils;
 import org.thingsboard.server.common.data.id.CustomerId;
@@ -31,11 +38,22 @@ import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.EntityIdFactory;
 import org.thingsboard.server.common.data.id.RuleChainId;
 import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.kv.BooleanDataEntry;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.JsonDataEntry;
+import org.thingsboard.server.common.data.kv.KvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
 import org.thingsboard.server.common.data.msg.TbMsgType;
 import org.thingsboard.server.common.msg.gen.MsgProtos;
 import org.thingsboard.server.common.msg.queue.TbMsgCallback;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -61,7 +79,25 @@ public final class TbMsg implements Serializable {
     private final CustomerId customerId;
     private final TbMsgMetaData metaData;
     private final TbMsgDataType dataType;
-    private final String data;
+    // May be null until first read if the message was created from a parsed data tree
+    @Setter(AccessLevel.NONE)
+    private volatile String data;
+
+    // Lazily parsed representation of the data. Never mutated once assigned, so it may be shared between message copies
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    @JsonIgnore
+    private transient volatile JsonNode dataTree;
+
+    // Typed entries of the data if the message was created from key-value pairs (e.g. telemetry or attributes from the transport).
+    // Kept while the data is not replaced, so that the data may be consumed without parsing it
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    @JsonIgnore
+    private final transient List<KvEntry> kvEntries;
+
     private final RuleChainId ruleChainId;
     private final RuleNodeId ruleNodeId;
 
@@ -232,6 +268,27 @@ public final class TbMsg implements Serializable {
         return newMsg(type, originator, null, metaData, dataType, data);
     }
 
+    /**
+     * Creates a new TbMsg instance with the data represented by typed key-value entries, e.g. telemetry or attributes
+     * received by the transport. The entries are used as is by the nodes that persist them,
+     * while the JSON object data is produced only when requested as a string or as a JSON tree.
+     *
+     * @param queueName   the name of the queue where the message will be sent
+     * @param type        the type of the message
+     * @param originator  the originator of the message
+     * @param customerId  the ID of the customer associated with the message
+     * @param metaData    the metadata of the message
+     * @param kvEntries   the data of the message as key-value entries
+     * @param ruleChainId the ID of the rule chain associated with the message
+     * @param ruleNodeId  the ID of the rule node associated with the message
+     * @return new TbMsg instance
+     */
+    public static TbMsg newKvMsg(String queueName, TbMsgType type, EntityId originator, CustomerId customerId, TbMsgMetaData metaData,
+                                 List<KvEntry> kvEntries, RuleChainId ruleChainId, RuleNodeId ruleNodeId) {
+        return new TbMsg(queueName, UUID.randomUUID(), System.currentTimeMillis(), type, type.name(), originator, customerId, metaData.copy(),
+                TbMsgDataType.JSON, null, null, Collections.unmodifiableList(kvEntries), ruleChainId, ruleNodeId, null, null, null, TbMsgCallback.EMPTY);
+    }
+
     // For Tests only
 
     @Deprecated(since = "3.6.0", forRemoval = true)
@@ -265,7 +322,7 @@ public final class TbMsg implements Serializable {
     @Deprecated(since = "3.6.0")
     public static TbMsg transformMsg(TbMsg tbMsg, String type, EntityId originator, TbMsgMetaData metaData, String data) {
         return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, null, type, originator, tbMsg.customerId, metaData.copy(), tbMsg.dataType,
-                data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.correlationId, tbMsg.partition, tbMsg.ctx.copy(), tbMsg.callback);
+                data, null, null, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.correlationId, tbMsg.partition, tbMsg.ctx.copy(), tbMsg.callback);
     }
 
     public static TbMsg newMsg(TbMsgType type, EntityId originator, TbMsgMetaData metaData, TbMsgDataType dataType, String data, RuleChainId ruleChainId, RuleNodeId ruleNodeId) {
@@ -280,53 +337,78 @@ public final class TbMsg implements Serializable {
 
     public static TbMsg transformMsg(TbMsg tbMsg, TbMsgType type, EntityId originator, TbMsgMetaData metaData, String data) {
         return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, type, type.name(), originator, tbMsg.customerId, metaData.copy(), tbMsg.dataType,
-                data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.correlationId, tbMsg.partition, tbMsg.ctx.copy(), tbMsg.callback);
+                data, null, null, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.correlationId, tbMsg.partition, tbMsg.ctx.copy(), tbMsg.callback);
     }
 
     public static TbMsg transformMsgOriginator(TbMsg tbMsg, EntityId originatorId) {
         return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, tbMsg.internalType, tbMsg.type, originatorId, tbMsg.getCustomerId(), tbMsg.metaData, tbMsg.dataType,
-                tbMsg.data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.correlationId, tbMsg.partition, tbMsg.ctx.copy(), tbMsg.getCallback());
+                tbMsg.data, tbMsg.dataTree, tbMsg.kvEntries, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.correlationId, tbMsg.partition, tbMsg.ctx.copy(), tbMsg.getCallback());
     }
 
     public static TbMsg transformMsgData(TbMsg tbMsg, String data) {
         return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, tbMsg.internalType, tbMsg.type, tbMsg.originator, tbMsg.customerId, tbMsg.metaData, tbMsg.dataType,
-                data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.correlationId, tbMsg.partition, tbMsg.ctx.copy(), tbMsg.getCallback());
+                data, null, null, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.correlationId, tbMsg.partition, tbMsg.ctx.copy(), tbMsg.getCallback());
+    }
+
+    /**
+     * Transforms an existing TbMsg instance by replacing its data with an already parsed JSON tree.
+     * The tree is cached as is and serialized to a string only when the data is requested as a string
+     * or the message is serialized to be pushed to a queue. The caller must not modify the tree afterwards;
+     * use {@link #copyDataAsJson()} to obtain a tree that is safe to modify. If the given tree is the unmodified
+     * {@link #getDataAsJson()} of the message, the original string representation of the data is kept.
+     *
+     * @param tbMsg the TbMsg instance to transform
+     * @param data  the new data
+     * @return the transformed TbMsg instance
+     */
+    public static TbMsg transformMsgData(TbMsg tbMsg, JsonNode data) {
+        return transformMsg(tbMsg, tbMsg.metaData, data);
     }
 
     public static TbMsg transformMsgMetadata(TbMsg tbMsg, TbMsgMetaData metadata) {
         return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, tbMsg.internalType, tbMsg.type, tbMsg.originator, tbMsg.customerId, metadata.copy(), tbMsg.dataType,
-                tbMsg.data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.correlationId, tbMsg.partition, tbMsg.ctx.copy(), tbMsg.getCallback());
+                tbMsg.data, tbMsg.dataTree, tbMsg.kvEntries, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.correlationId, tbMsg.partition, tbMsg.ctx.copy(), tbMsg.getCallback());
     }
 
     public static TbMsg transformMsg(TbMsg tbMsg, TbMsgMetaData metadata, String data) {
         return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, tbMsg.internalType, tbMsg.type, tbMsg.originator, tbMsg.customerId, metadata, tbMsg.dataType,
-                data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.correlationId, tbMsg.partition, tbMsg.ctx.copy(), tbMsg.getCallback());
+                data, null, null, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.correlationId, tbMsg.partition, tbMsg.ctx.copy(), tbMsg.getCallback());
+    }
+
+    /**
+     * Same as {@link #transformMsgData(TbMsg, JsonNode)} but also replaces the metadata of the message.
+     */
+    public static TbMsg transformMsg(TbMsg tbMsg, TbMsgMetaData metadata, JsonNode data) {
+        // the shared tree is never modified, so the same tree means the same data
+        boolean unmodified = data != null && data == tbMsg.dataTree;
+        return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, tbMsg.internalType, tbMsg.type, tbMsg.originator, tbMsg.customerId, metadata, tbMsg.dataType,
+                unmodified ? tbMsg.data : null, data, unmodified ? tbMsg.kvEntries : null, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.correlationId, tbMsg.partition, tbMsg.ctx.copy(), tbMsg.getCallback());
     }
 
     public static TbMsg transformMsgCustomerId(TbMsg tbMsg, CustomerId customerId) {
         return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, tbMsg.internalType, tbMsg.type, tbMsg.originator, customerId, tbMsg.metaData, tbMsg.dataType,
-                tbMsg.data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.correlationId, tbMsg.partition, tbMsg.ctx.copy(), tbMsg.getCallback());
+                tbMsg.data, tbMsg.dataTree, tbMsg.kvEntries, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.correlationId, tbMsg.partition, tbMsg.ctx.copy(), tbMsg.getCallback());
     }
 
     public static TbMsg transformMsgRuleChainId(TbMsg tbMsg, RuleChainId ruleChainId) {
         return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, tbMsg.internalType, tbMsg.type, tbMsg.originator, tbMsg.customerId, tbMsg.metaData, tbMsg.dataType,
-                tbMsg.data, ruleChainId, null, tbMsg.correlationId, tbMsg.partition, tbMsg.ctx.copy(), tbMsg.getCallback());
+                tbMsg.data, tbMsg.dataTree, tbMsg.kvEntries, ruleChainId, null, tbMsg.correlationId, tbMsg.partition, tbMsg.ctx.copy(), tbMsg.getCallback());
     }
 
     public static TbMsg transformMsgQueueName(TbMsg tbMsg, String queueName) {
         return new TbMsg(queueName, tbMsg.id, tbMsg.ts, tbMsg.internalType, tbMsg.type, tbMsg.originator, tbMsg.customerId, tbMsg.metaData, tbMsg.dataType,
-                tbMsg.data, tbMsg.getRuleChainId(), null, tbMsg.correlationId, tbMsg.partition, tbMsg.ctx.copy(), tbMsg.getCallback());
+                tbMsg.data, tbMsg.dataTree, tbMsg.kvEntries, tbMsg.getRuleChainId(), null, tbMsg.correlationId, tbMsg.partition, tbMsg.ctx.copy(), tbMsg.getCallback());
     }
 
     public static TbMsg transformMsg(TbMsg tbMsg, RuleChainId ruleChainId, String queueName) {
         return new TbMsg(queueName, tbMsg.id, tbMsg.ts, tbMsg.internalType, tbMsg.type, tbMsg.originator, tbMsg.customerId, tbMsg.metaData, tbMsg.dataType,
-                tbMsg.data, ruleChainId, null, tbMsg.correlationId, tbMsg.partition, tbMsg.ctx.copy(), tbMsg.getCallback());
+                tbMsg.data, tbMsg.dataTree, tbMsg.kvEntries, ruleChainId, null, tbMsg.correlationId, tbMsg.partition, tbMsg.ctx.copy(), tbMsg.getCallback());
     }
 
     //used for enqueueForTellNext
     public static TbMsg newMsg(TbMsg tbMsg, String queueName, RuleChainId ruleChainId, RuleNodeId ruleNodeId) {
         return new TbMsg(queueName, UUID.randomUUID(), tbMsg.getTs(), tbMsg.getInternalType(), tbMsg.getType(), tbMsg.getOriginator(), tbMsg.customerId, tbMsg.getMetaData().copy(),
-                tbMsg.getDataType(), tbMsg.getData(), ruleChainId, ruleNodeId, tbMsg.correlationId, tbMsg.partition, tbMsg.ctx.copy(), TbMsgCallback.EMPTY);
+                tbMsg.getDataType(), tbMsg.data, tbMsg.dataTree, tbMsg.kvEntries, ruleChainId, ruleNodeId, tbMsg.correlationId, tbMsg.partition, tbMsg.ctx.copy(), TbMsgCallback.EMPTY);
     }
 
     private TbMsg(String queueName, UUID id, long ts, TbMsgType internalType, EntityId originator, CustomerId customerId, TbMsgMetaData metaData, TbMsgDataType dataType, String data,
@@ -336,11 +418,11 @@ public final class TbMsg implements Serializable {
 
     private TbMsg(String queueName, UUID id, long ts, TbMsgType internalType, String type, EntityId originator, CustomerId customerId, TbMsgMetaData metaData, TbMsgDataType dataType, String data,
                   RuleChainId ruleChainId, RuleNodeId ruleNodeId, TbMsgProcessingCtx ctx, TbMsgCallback callback) {
-        this(queueName, id, ts, internalType, type, originator, customerId, metaData, dataType, data, ruleChainId, ruleNodeId, null, null, ctx, callback);
+        this(queueName, id, ts, internalType, type, originator, customerId, metaData, dataType, data, null, null, ruleChainId, ruleNodeId, null, null, ctx, callback);
     }
 
     private TbMsg(String queueName, UUID id, long ts, TbMsgType internalType, String type, EntityId originator, CustomerId customerId, TbMsgMetaData metaData, TbMsgDataType dataType, String data,
-                  RuleChainId ruleChainId, RuleNodeId ruleNodeId, UUID correlationId, Integer partition, TbMsgProcessingCtx ctx, TbMsgCallback callback) {
+                  JsonNode dataTree, List<KvEntry> kvEntries, RuleChainId ruleChainId, RuleNodeId ruleNodeId, UUID correlationId, Integer partition, TbMsgProcessingCtx ctx, TbMsgCallback callback) {
         this.id = id;
         this.queueName = queueName;
         if (ts > 0) {
@@ -363,6 +445,8 @@ public final class TbMsg implements Serializable {
         this.metaData = metaData;
         this.dataType = dataType;
         this.data = data;
+        this.dataTree = dataTree;
+        this.kvEntries = kvEntries;
         this.ruleChainId = ruleChainId;
         this.ruleNodeId = ruleNodeId;
         this.correlationId = correlationId;
@@ -404,7 +488,15 @@ public final class TbMsg implements Serializable {
         }
 
         builder.setDataType(msg.getDataType().ordinal());
-        builder.setData(msg.getData());
+        if (msg.kvEntries != null && !msg.kvEntries.isEmpty()) {
+            msg.kvEntries.forEach(kvEntry -> builder.addKv(toKvProto(kvEntry)));
+            String data = msg.data;
+            if (data != null) {
+                builder.setData(data);
+            }
+        } else {
+            builder.setData(msg.getData());
+        }
 
         if (msg.getCorrelationId() != null) {
             builder.setCorrelationIdMSB(msg.getCorrelationId().getMostSignificantBits());
@@ -451,8 +543,20 @@ public final class TbMsg implements Serializable {
             }
 
             TbMsgDataType dataType = TbMsgDataType.values()[proto.getDataType()];
+            String msgData = proto.getData();
+            List<KvEntry> kvEntries = null;
+            if (proto.getKvCount() > 0) {
+                kvEntries = new ArrayList<>(proto.getKvCount());
+                for (MsgProtos.TbMsgKvProto kvProto : proto.getKvList()) {
+                    kvEntries.add(fromKvProto(kvProto));
+                }
+                kvEntries = Collections.unmodifiableList(kvEntries);
+                if (msgData.isEmpty()) {
+                    msgData = null;
+                }
+            }
             return new TbMsg(queueName, UUID.fromString(proto.getId()), proto.getTs(), null, proto.getType(), entityId, customerId,
-                    metaData, dataType, proto.getData(), ruleChainId, ruleNodeId, correlationId, partition, ctx, callback);
+                    metaData, dataType, msgData, null, kvEntries, ruleChainId, ruleNodeId, correlationId, partition, ctx, callback);
         } catch (InvalidProtocolBufferException e) {
             throw new IllegalStateException("Could not parse protobuf for TbMsg", e);
         }
@@ -464,17 +568,65 @@ public final class TbMsg implements Serializable {
 
     public TbMsg copyWithRuleChainId(RuleChainId ruleChainId, UUID msgId) {
         return new TbMsg(this.queueName, msgId, this.ts, this.internalType, this.type, this.originator, this.customerId,
-                this.metaData, this.dataType, this.data, ruleChainId, null, this.correlationId, this.partition, this.ctx, callback);
+                this.metaData, this.dataType, this.data, this.dataTree, this.kvEntries, ruleChainId, null, this.correlationId, this.partition, this.ctx, callback);
     }
 
     public TbMsg copyWithRuleNodeId(RuleChainId ruleChainId, RuleNodeId ruleNodeId, UUID msgId) {
         return new TbMsg(this.queueName, msgId, this.ts, this.internalType, this.type, this.originator, this.customerId,
-                this.metaData, this.dataType, this.data, ruleChainId, ruleNodeId, this.correlationId, this.partition, this.ctx, callback);
+                this.metaData, this.dataType, this.data, this.dataTree, this.kvEntries, ruleChainId, ruleNodeId, this.correlationId, this.partition, this.ctx, callback);
     }
 
     public TbMsg copyWithNewCtx() {
         return new TbMsg(this.queueName, this.id, this.ts, this.internalType, this.type, this.originator, this.customerId,
-                this.metaData, this.dataType, this.data, ruleChainId, ruleNodeId, this.correlationId, this.partition, this.ctx.copy(), TbMsgCallback.EMPTY);
+                this.metaData, this.dataType, this.data, this.dataTree, this.kvEntries, ruleChainId, ruleNodeId, this.correlationId, this.partition, this.ctx.copy(), TbMsgCallback.EMPTY);
+    }
+
+    public String getData() {
+        String data = this.data;
+        if (data == null) {
+            JsonNode dataTree = getDataAsJson();
+            if (dataTree != null) {
+                data = writeData(dataTree);
+                this.data = data;
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Returns the message data as a JSON tree. The data is parsed on first access only and the result is cached,
+     * so subsequent calls, as well as copies of this message, reuse the same tree.
+     * The returned tree is shared and must not be modified; use {@link #copyDataAsJson()} for that.
+     *
+     * @return parsed message data or null if the message data is null or empty
+     * @throws IllegalArgumentException if the data is not a valid JSON
+     */
+    @JsonIgnore
+    public JsonNode getDataAsJson() {
+        JsonNode dataTree = this.dataTree;
+        if (dataTree == null) {
+            String data = this.data;
+            if (data != null && !data.isEmpty()) {
+                dataTree = parseData(data);
+                this.dataTree = dataTree;
+            } else if (data == null && kvEntries != null) {
+                dataTree = toDataTree(kvEntries);
+                this.dataTree = dataTree;
+            }
+        }
+        return dataTree;
+    }
+
+    /**
+     * Returns a deep copy of the message data JSON tree that may be modified and passed to
+     * {@link #transformMsgData(TbMsg, JsonNode)} without a round-trip through the string representation.
+     *
+     * @return modifiable copy of the parsed message data or null if the message data is null or empty
+     * @throws IllegalArgumentException if the data is not a valid JSON
+     */
+    public JsonNode copyDataAsJson() {
+        JsonNode dataTree = getDataAsJson();
+        return dataTree != null ? dataTree.deepCopy() : null;
     }
 
     public TbMsgCallback getCallback() {
@@ -509,6 +661,67 @@ public final class TbMsg implements Serializable {
         return ts;
     }
 
+    private static JsonNode parseData(String data) {
+        try {
+            return JacksonUtil.OBJECT_MAPPER.readTree(data);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("The given string value cannot be transformed to Json object: " + data, e);
+        }
+    }
+
+    private static String writeData(JsonNode dataTree) {
+        try {
+            return JacksonUtil.OBJECT_MAPPER.writeValueAsString(dataTree);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("The given Json object value cannot be transformed to a String: " + dataTree, e);
+        }
+    }
+
+    private static JsonNode toDataTree(List<KvEntry> kvEntries) {
+        ObjectNode dataTree = JacksonUtil.newObjectNode();
+        for (KvEntry kvEntry : kvEntries) {
+            switch (kvEntry.getDataType()) {
+                case BOOLEAN -> dataTree.put(kvEntry.getKey(), kvEntry.getBooleanValue().orElse(false));
+                case LONG -> dataTree.put(kvEntry.getKey(), kvEntry.getLongValue().orElse(0L));
+                case DOUBLE -> dataTree.put(kvEntry.getKey(), kvEntry.getDoubleValue().orElse(0.0));
+                case STRING -> dataTree.put(kvEntry.getKey(), kvEntry.getStrValue().orElse(EMPTY_STRING));
+                case JSON -> dataTree.set(kvEntry.getKey(), parseData(kvEntry.getJsonValue().orElse(EMPTY_JSON_OBJECT)));
+            }
+        }
+        return dataTree;
+    }
+
+    private static MsgProtos.TbMsgKvProto toKvProto(KvEntry kvEntry) {
+        MsgProtos.TbMsgKvProto.Builder builder = MsgProtos.TbMsgKvProto.newBuilder()
+                .setKey(kvEntry.getKey())
+                .setType(MsgProtos.TbMsgKvType.forNumber(kvEntry.getDataType().getProtoNumber()));
+        switch (kvEntry.getDataType()) {
+            case BOOLEAN -> kvEntry.getBooleanValue().ifPresent(builder::setBoolV);
+            case LONG -> kvEntry.getLongValue().ifPresent(builder::setLongV);
+            case DOUBLE -> kvEntry.getDoubleValue().ifPresent(builder::setDoubleV);
+            case STRING -> kvEntry.getStrValue().ifPresent(builder::setStringV);
+            case JSON -> kvEntry.getJsonValue().ifPresent(builder::setJsonV);
+        }
+        return builder.build();
+    }
+
+    private static KvEntry fromKvProto(MsgProtos.TbMsgKvProto proto) {
+        return switch (proto.getType()) {
+            case BOOLEAN_V -> new BooleanDataEntry(proto.getKey(), proto.getBoolV());
+            case LONG_V -> new LongDataEntry(proto.getKey(), proto.getLongV());
+            case DOUBLE_V -> new DoubleDataEntry(proto.getKey(), proto.getDoubleV());
+            case STRING_V -> new StringDataEntry(proto.getKey(), proto.getStringV());
+            case JSON_V -> new JsonDataEntry(proto.getKey(), proto.getJsonV());
+            default -> throw new IllegalStateException("Unsupported key-value type: " + proto.getType());
+        };
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        // the data tree is transient, so make sure the string representation is present
+        getData();
+        out.defaultWriteObject();
+    }
+
     private TbMsgType getInternalType(String type) {
         try {
             return TbMsgType.valueOf(type);
@@ -27,7 +27,7 @@ import java.time.Duration;
 /**
  * Created by ashvayka on 22.10.18.
  */
-public class TbRateLimits {
+public class TbRateLimits implements TbRateLimiter {
     private final LocalBucket bucket;
 
     @Getter
@@ -38,27 +38,27 @@ public class TbRateLimits {
     }
 
     public TbRateLimits(String limitsConfiguration, boolean refillIntervally) {
+        this(TbRateLimitsSpec.parse(limitsConfiguration), refillIntervally);
+    }
+
+    public TbRateLimits(TbRateLimitsSpec spec, boolean refillIntervally) {
         LocalBucketBuilder builder = Bucket.builder();
-        boolean initialized = false;
-        for (String limitSrc : limitsConfiguration.split(",")) {
-            long capacity = Long.parseLong(limitSrc.split(":")[0]);
-            long duration = Long.parseLong(limitSrc.split(":")[1]);
-            Refill refill = refillIntervally ? Refill.intervally(capacity, Duration.ofSeconds(duration)) : Refill.greedy(capacity, Duration.ofSeconds(duration));
+        for (TbRateLimitsSpec.Limit limit : spec.getLimits()) {
+            long capacity = limit.capacity();
+            Duration duration = Duration.ofSeconds(limit.durationSeconds());
+            Refill refill = refillIntervally ? Refill.intervally(capacity, duration) : Refill.greedy(capacity, duration);
             builder.addLimit(Bandwidth.classic(capacity, refill));
-            initialized = true;
-        }
-        if (initialized) {
-            bucket = builder.build();
-        } else {
-            throw new IllegalArgumentException("Failed to parse rate limits configuration: " + limitsConfiguration);
         }
-        this.configuration = limitsConfiguration;
+        this.bucket = builder.build();
+        this.configuration = spec.getConfiguration();
     }
 
+    @Override
     public boolean tryConsume() {
         return bucket.tryConsume(1);
     }
 
+    @Override
     public boolean tryConsume(long number) {
         return bucket.tryConsume(number);
     }
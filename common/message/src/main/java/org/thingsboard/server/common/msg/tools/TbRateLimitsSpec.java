@@ -0,0 +1,54 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.msg.tools;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Parsed form of a rate limits configuration like "100:1,1000:60".
+ * Parse once and reuse to create the buckets without splitting the configuration string again.
+ */
+public final class TbRateLimitsSpec {
+
+    @Getter
+    private final String configuration;
+    @Getter
+    private final List<Limit> limits;
+
+    private TbRateLimitsSpec(String configuration, List<Limit> limits) {
+        this.configuration = configuration;
+        this.limits = limits;
+    }
+
+    public static TbRateLimitsSpec parse(String limitsConfiguration) {
+        List<Limit> limits = new ArrayList<>();
+        for (String limitSrc : limitsConfiguration.split(",")) {
+            String[] parts = limitSrc.split(":");
+            limits.add(new Limit(Long.parseLong(parts[0]), Long.parseLong(parts[1])));
+        }
+        if (limits.isEmpty()) {
+            throw new IllegalArgumentException("Failed to parse rate limits configuration: " + limitsConfiguration);
+        }
+        return new TbRateLimitsSpec(limitsConfiguration, Collections.unmodifiableList(limits));
+    }
+
+    public record Limit(long capacity, long durationSeconds) {}
+
+}
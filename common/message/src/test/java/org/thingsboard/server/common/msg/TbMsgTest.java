@@ -0,0 +1,137 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.msg;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.kv.BooleanDataEntry;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.JsonDataEntry;
+import org.thingsboard.server.common.data.kv.KvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
+import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TbMsgTest {
+
+    private final DeviceId deviceId = new DeviceId(UUID.randomUUID());
+
+    @Test
+    public void testDataAsJson_parsedOnceAndSharedBetweenCopies() {
+        TbMsg msg = TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, deviceId, TbMsgMetaData.EMPTY, "{\"temperature\":42}");
+
+        JsonNode data = msg.getDataAsJson();
+
+        assertThat(data.get("temperature").asInt()).isEqualTo(42);
+        assertThat(msg.getDataAsJson()).isSameAs(data);
+        assertThat(TbMsg.transformMsgOriginator(msg, new DeviceId(UUID.randomUUID())).getDataAsJson()).isSameAs(data);
+        assertThat(msg.copyWithNewCtx().getDataAsJson()).isSameAs(data);
+    }
+
+    @Test
+    public void testCopyDataAsJson_doesNotModifySourceMessage() {
+        TbMsg msg = TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, deviceId, TbMsgMetaData.EMPTY, "{\"temperature\":42}");
+
+        ObjectNode data = (ObjectNode) msg.copyDataAsJson();
+        data.put("humidity", 73);
+        TbMsg transformed = TbMsg.transformMsgData(msg, data);
+
+        assertThat(msg.getData()).isEqualTo("{\"temperature\":42}");
+        assertThat(msg.getDataAsJson().has("humidity")).isFalse();
+        assertThat(transformed.getDataAsJson()).isSameAs(data);
+        assertThat(transformed.getData()).isEqualTo("{\"temperature\":42,\"humidity\":73}");
+    }
+
+    @Test
+    public void testTransformMsgData_unmodifiedTreeKeepsOriginalString() {
+        String original = "{ \"temperature\" : 42.0 }";
+        TbMsg msg = TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, deviceId, TbMsgMetaData.EMPTY, original);
+
+        TbMsg transformed = TbMsg.transformMsg(msg, new TbMsgMetaData(), msg.getDataAsJson());
+
+        assertThat(transformed.getData()).isSameAs(original);
+        assertThat(TbMsg.transformMsgData(transformed, transformed.getDataAsJson()).getData()).isSameAs(original);
+        assertThat(TbMsg.transformMsgData(msg, msg.copyDataAsJson()).getData()).isEqualTo("{\"temperature\":42.0}");
+    }
+
+    @Test
+    public void testKvMsg_unmodifiedTreeKeepsEntries() {
+        List<KvEntry> kvEntries = List.of(new LongDataEntry("temperature", 42L));
+        TbMsg msg = TbMsg.newKvMsg("Main", TbMsgType.POST_TELEMETRY_REQUEST, deviceId, null, TbMsgMetaData.EMPTY, kvEntries, null, null);
+
+        assertThat(TbMsg.transformMsgData(msg, msg.getDataAsJson()).getKvEntries()).isSameAs(msg.getKvEntries());
+        assertThat(TbMsg.transformMsgData(msg, msg.copyDataAsJson()).getKvEntries()).isNull();
+    }
+
+    @Test
+    public void testTransformMsgData_serializedWhenPushedToQueue() {
+        TbMsg msg = TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, deviceId, TbMsgMetaData.EMPTY, "{\"temperature\":42}");
+        ObjectNode data = (ObjectNode) msg.copyDataAsJson();
+        data.put("temperature", 43);
+
+        TbMsg transformed = TbMsg.transformMsg(msg, new TbMsgMetaData(), data);
+        TbMsg restored = TbMsg.fromBytes("Main", TbMsg.toByteArray(transformed), TbMsgCallback.EMPTY);
+
+        assertThat(restored.getData()).isEqualTo("{\"temperature\":43}");
+        assertThat(restored.getDataAsJson()).isEqualTo(data);
+    }
+
+    @Test
+    public void testKvMsg_dataProducedFromEntriesOnDemand() {
+        List<KvEntry> kvEntries = List.of(new BooleanDataEntry("active", true), new LongDataEntry("temperature", 42L),
+                new DoubleDataEntry("humidity", 73.5), new StringDataEntry("status", "ok"), new JsonDataEntry("location", "{\"lat\":1.5}"));
+        TbMsg msg = TbMsg.newKvMsg("Main", TbMsgType.POST_TELEMETRY_REQUEST, deviceId, null, TbMsgMetaData.EMPTY, kvEntries, null, null);
+
+        assertThat(msg.getKvEntries()).containsExactlyElementsOf(kvEntries);
+        assertThat(msg.getDataAsJson().get("location").get("lat").asDouble()).isEqualTo(1.5);
+        assertThat(msg.getData()).isEqualTo("{\"active\":true,\"temperature\":42,\"humidity\":73.5,\"status\":\"ok\",\"location\":{\"lat\":1.5}}");
+        assertThat(TbMsg.transformMsgOriginator(msg, new DeviceId(UUID.randomUUID())).getKvEntries()).isSameAs(msg.getKvEntries());
+        assertThat(TbMsg.transformMsgData(msg, "{\"temperature\":43}").getKvEntries()).isNull();
+    }
+
+    @Test
+    public void testKvMsg_entriesPreservedWhenPushedToQueue() {
+        List<KvEntry> kvEntries = List.of(new LongDataEntry("temperature", 42L), new JsonDataEntry("location", "{\"lat\":1.5}"));
+        TbMsg msg = TbMsg.newKvMsg("Main", TbMsgType.POST_TELEMETRY_REQUEST, deviceId, null, TbMsgMetaData.EMPTY, kvEntries, null, null);
+
+        TbMsg restored = TbMsg.fromBytes("Main", TbMsg.toByteArray(msg), TbMsgCallback.EMPTY);
+
+        assertThat(restored.getKvEntries()).containsExactlyElementsOf(kvEntries);
+        assertThat(restored.getData()).isEqualTo("{\"temperature\":42,\"location\":{\"lat\":1.5}}");
+
+        TbMsg empty = TbMsg.newKvMsg("Main", TbMsgType.POST_TELEMETRY_REQUEST, deviceId, null, TbMsgMetaData.EMPTY, List.of(), null, null);
+        assertThat(TbMsg.fromBytes("Main", TbMsg.toByteArray(empty), TbMsgCallback.EMPTY).getData()).isEqualTo(TbMsg.EMPTY_JSON_OBJECT);
+    }
+
+    @Test
+    public void testDataAsJson_emptyAndInvalidData() {
+        assertThat(TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, deviceId, TbMsgMetaData.EMPTY, TbMsg.EMPTY_STRING).getDataAsJson()).isNull();
+
+        TbMsg msg = TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, deviceId, TbMsgMetaData.EMPTY, "{invalid");
+        assertThatThrownBy(msg::getDataAsJson).isInstanceOf(IllegalArgumentException.class);
+        assertThat(msg.getData()).isEqualTo("{invalid");
+    }
+
+}
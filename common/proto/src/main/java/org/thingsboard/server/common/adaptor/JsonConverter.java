@@ -66,7 +66,7 @@ import java.util.stream.Collectors;
 public class JsonConverter {
 
     private static final Gson GSON = new Gson();
-    private static final String CAN_T_PARSE_VALUE = "Can't parse value: ";
+    static final String CAN_T_PARSE_VALUE = "Can't parse value: ";
     private static final String DEVICE_PROPERTY = "device";
 
     private static boolean isTypeCastEnabled = true;
@@ -185,47 +185,65 @@ public class JsonConverter {
         request.addTsKvList(builder.build());
     }
 
-    private static List<KeyValueProto> parseProtoValues(JsonObject valuesObject) {
+    static List<KeyValueProto> parseProtoValues(JsonObject valuesObject) {
         List<KeyValueProto> result = new ArrayList<>();
         for (Entry<String, JsonElement> valueEntry : valuesObject.entrySet()) {
-            JsonElement element = valueEntry.getValue();
-            if (element.isJsonPrimitive()) {
-                JsonPrimitive value = element.getAsJsonPrimitive();
-                if (value.isString()) {
-                    if (maxStringValueLength > 0 && value.getAsString().length() > maxStringValueLength) {
-                        String message = String.format("String value length [%d] for key [%s] is greater than maximum allowed [%d]", value.getAsString().length(), valueEntry.getKey(), maxStringValueLength);
-                        throw new JsonSyntaxException(message);
-                    }
-                    if (isTypeCastEnabled && NumberUtils.isParsable(value.getAsString())) {
-                        try {
-                            result.add(buildNumericKeyValueProto(value, valueEntry.getKey()));
-                        } catch (RuntimeException th) {
-                            result.add(KeyValueProto.newBuilder().setKey(valueEntry.getKey()).setType(KeyValueType.STRING_V)
-                                    .setStringV(value.getAsString()).build());
-                        }
-                    } else {
-                        result.add(KeyValueProto.newBuilder().setKey(valueEntry.getKey()).setType(KeyValueType.STRING_V)
-                                .setStringV(value.getAsString()).build());
-                    }
-                } else if (value.isBoolean()) {
-                    result.add(KeyValueProto.newBuilder().setKey(valueEntry.getKey()).setType(KeyValueType.BOOLEAN_V)
-                            .setBoolV(value.getAsBoolean()).build());
-                } else if (value.isNumber()) {
-                    result.add(buildNumericKeyValueProto(value, valueEntry.getKey()));
-                } else if (!value.isJsonNull()) {
-                    throw new JsonSyntaxException(CAN_T_PARSE_VALUE + value);
-                }
-            } else if (element.isJsonObject() || element.isJsonArray()) {
-                result.add(KeyValueProto.newBuilder().setKey(valueEntry.getKey()).setType(KeyValueType.JSON_V).setJsonV(element.toString()).build());
-            } else if (!element.isJsonNull()) {
-                throw new JsonSyntaxException(CAN_T_PARSE_VALUE + element);
+            KeyValueProto kv = toKeyValueProto(valueEntry.getKey(), valueEntry.getValue());
+            if (kv != null) {
+                result.add(kv);
             }
         }
         return result;
     }
 
-    private static KeyValueProto buildNumericKeyValueProto(JsonPrimitive value, String key) {
-        String valueAsString = value.getAsString();
+    /*
+     * Returns null for the null values, that are skipped.
+     * */
+    static KeyValueProto toKeyValueProto(String key, JsonElement element) {
+        if (element.isJsonPrimitive()) {
+            JsonPrimitive value = element.getAsJsonPrimitive();
+            if (value.isString()) {
+                return buildStringKeyValueProto(value.getAsString(), key);
+            } else if (value.isBoolean()) {
+                return buildBooleanKeyValueProto(value.getAsBoolean(), key);
+            } else if (value.isNumber()) {
+                return buildNumericKeyValueProto(value.getAsString(), key);
+            } else if (!value.isJsonNull()) {
+                throw new JsonSyntaxException(CAN_T_PARSE_VALUE + value);
+            }
+        } else if (element.isJsonObject() || element.isJsonArray()) {
+            return buildJsonKeyValueProto(element.toString(), key);
+        } else if (!element.isJsonNull()) {
+            throw new JsonSyntaxException(CAN_T_PARSE_VALUE + element);
+        }
+        return null;
+    }
+
+    static KeyValueProto buildStringKeyValueProto(String value, String key) {
+        if (maxStringValueLength > 0 && value.length() > maxStringValueLength) {
+            String message = String.format("String value length [%d] for key [%s] is greater than maximum allowed [%d]", value.length(), key, maxStringValueLength);
+            throw new JsonSyntaxException(message);
+        }
+        if (isTypeCastEnabled && NumberUtils.isParsable(value)) {
+            try {
+                return buildNumericKeyValueProto(value, key);
+            } catch (RuntimeException th) {
+                return KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.STRING_V).setStringV(value).build();
+            }
+        } else {
+            return KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.STRING_V).setStringV(value).build();
+        }
+    }
+
+    static KeyValueProto buildBooleanKeyValueProto(boolean value, String key) {
+        return KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.BOOLEAN_V).setBoolV(value).build();
+    }
+
+    static KeyValueProto buildJsonKeyValueProto(String value, String key) {
+        return KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.JSON_V).setJsonV(value).build();
+    }
+
+    static KeyValueProto buildNumericKeyValueProto(String valueAsString, String key) {
         KeyValueProto.Builder builder = KeyValueProto.newBuilder().setKey(key);
         var bd = new BigDecimal(valueAsString);
         if (bd.stripTrailingZeros().scale() <= 0 && !isSimpleDouble(valueAsString)) {
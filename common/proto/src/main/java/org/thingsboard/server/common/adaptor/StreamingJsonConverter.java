@@ -0,0 +1,333 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.adaptor;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import org.thingsboard.server.gen.transport.TransportProtos.KeyValueProto;
+import org.thingsboard.server.gen.transport.TransportProtos.PostAttributeMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.TsKvListProto;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.thingsboard.server.common.adaptor.JsonConverter.CAN_T_PARSE_VALUE;
+
+/**
+ * Single-pass counterpart of {@link JsonConverter} for the telemetry and attributes payloads.
+ * Reads the JSON tokens directly from the source and builds the protos without an intermediate {@link JsonElement} tree.
+ * The results, including the type inference of the values and the errors, are the same as of
+ * {@code JsonConverter.convertToTelemetryProto(JsonParser.parseReader(reader))}
+ * and {@code JsonConverter.convertToAttributesProto(JsonParser.parseReader(reader))}.
+ * Only the nested JSON values (objects and arrays) are read as trees, since they have to be normalized anyway.
+ */
+public class StreamingJsonConverter {
+
+    private static final TypeAdapter<JsonElement> JSON_ELEMENT_ADAPTER = new Gson().getAdapter(JsonElement.class);
+
+    private static final String TS = "ts";
+    private static final String VALUES = "values";
+
+    public static PostTelemetryMsg convertToTelemetryProto(Reader reader) throws JsonSyntaxException {
+        return convertToTelemetryProto(reader, System.currentTimeMillis());
+    }
+
+    public static PostTelemetryMsg convertToTelemetryProto(Reader reader, long systemTs) throws JsonSyntaxException {
+        return parse(reader, jsonReader -> readTelemetry(jsonReader, systemTs));
+    }
+
+    public static PostAttributeMsg convertToAttributesProto(Reader reader) throws JsonSyntaxException {
+        return parse(reader, StreamingJsonConverter::readAttributes);
+    }
+
+    /**
+     * Converts the gateway telemetry payload, e.g. {@code {"Device A": [{"ts": 1700000000000, "values": {"temperature": 42}}]}}.
+     * A conversion error of a device entry does not affect the other devices and is returned in the result of that device.
+     *
+     * @throws JsonSyntaxException if the payload is not a valid JSON object
+     */
+    public static List<GatewayDeviceMsg<PostTelemetryMsg>> convertToGatewayTelemetryProto(Reader reader, long systemTs) throws JsonSyntaxException {
+        return parse(reader, jsonReader -> readGatewayMsgs(jsonReader, JsonToken.BEGIN_ARRAY, deviceReader -> readTelemetry(deviceReader, systemTs)));
+    }
+
+    /**
+     * Converts the gateway attributes payload, e.g. {@code {"Device A": {"firmwareVersion": "1.0.1"}}}.
+     * A conversion error of a device entry does not affect the other devices and is returned in the result of that device.
+     *
+     * @throws JsonSyntaxException if the payload is not a valid JSON object
+     */
+    public static List<GatewayDeviceMsg<PostAttributeMsg>> convertToGatewayAttributesProto(Reader reader) throws JsonSyntaxException {
+        return parse(reader, jsonReader -> readGatewayMsgs(jsonReader, JsonToken.BEGIN_OBJECT, StreamingJsonConverter::readAttributes));
+    }
+
+    /**
+     * Result of the conversion of a single device entry of the gateway payload. Neither message nor error is set
+     * if the value of the device entry is of an unexpected type, e.g. not an array of telemetry objects.
+     */
+    public record GatewayDeviceMsg<T>(String deviceName, T msg, RuntimeException error) {
+
+        public boolean isSkipped() {
+            return msg == null && error == null;
+        }
+
+    }
+
+    private static <T> T parse(Reader reader, JsonReaderFunction<T> function) {
+        JsonReader jsonReader = new JsonReader(reader);
+        jsonReader.setLenient(true);
+        try {
+            if (isNullDocument(jsonReader)) {
+                throw new JsonSyntaxException(CAN_T_PARSE_VALUE + JsonNull.INSTANCE);
+            }
+            T result;
+            try {
+                result = function.apply(jsonReader);
+            } catch (RuntimeException e) {
+                // syntax errors take precedence, as if the whole document was parsed before the conversion
+                checkFullyConsumed(jsonReader);
+                throw e;
+            }
+            checkFullyConsumed(jsonReader);
+            return result;
+        } catch (MalformedJsonException | EOFException e) {
+            throw new JsonSyntaxException(e);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
+
+    /*
+     * The JsonParser returns JSON null for both empty and null documents and skips the check of the rest of the document.
+     * */
+    private static boolean isNullDocument(JsonReader reader) throws IOException {
+        try {
+            return reader.peek() == JsonToken.NULL;
+        } catch (EOFException e) {
+            return true;
+        }
+    }
+
+    private static void checkFullyConsumed(JsonReader reader) throws IOException {
+        // the rest of the document is checked in the strict mode, same as by the JsonParser
+        reader.setLenient(false);
+        if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new JsonSyntaxException("Did not consume the entire document.");
+        }
+    }
+
+    /*
+     * Reads the whole value even if the conversion fails, so the reader stays at a consistent position.
+     * */
+    private static PostTelemetryMsg readTelemetry(JsonReader reader, long systemTs) throws IOException {
+        PostTelemetryMsg.Builder builder = PostTelemetryMsg.newBuilder();
+        JsonToken token = reader.peek();
+        if (token == JsonToken.BEGIN_OBJECT) {
+            builder.addTsKvList(readTelemetryObject(reader, systemTs));
+        } else if (token == JsonToken.BEGIN_ARRAY) {
+            reader.beginArray();
+            try {
+                while (reader.hasNext()) {
+                    if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                        throw new JsonSyntaxException(CAN_T_PARSE_VALUE + readElement(reader));
+                    }
+                    builder.addTsKvList(readTelemetryObject(reader, systemTs));
+                }
+            } catch (RuntimeException e) {
+                while (reader.hasNext()) {
+                    readElement(reader);
+                }
+                reader.endArray();
+                throw e;
+            }
+            reader.endArray();
+        } else {
+            throw new JsonSyntaxException(CAN_T_PARSE_VALUE + readElement(reader));
+        }
+        return builder.build();
+    }
+
+    /*
+     * The object is in the {"ts": ..., "values": {...}} format if it has both keys, in any order.
+     * Since this is known only at the end of the object, the values are converted as they come,
+     * and the conversion errors are deferred to be thrown only if the value is actually used.
+     * */
+    private static TsKvListProto readTelemetryObject(JsonReader reader, long systemTs) throws IOException {
+        Map<String, Object> kvs = new LinkedHashMap<>();
+        boolean hasTs = false;
+        JsonElement ts = null;
+        boolean hasValues = false;
+        Map<String, Object> values = null;
+        JsonElement valuesElement = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if (TS.equals(key)) {
+                hasTs = true;
+                ts = readElement(reader);
+                kvs.put(key, toKeyValueProtoOrError(key, ts));
+            } else if (VALUES.equals(key)) {
+                hasValues = true;
+                if (hasTs && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    values = readValues(reader);
+                    valuesElement = null;
+                } else {
+                    // the format is not known yet, so the element is needed both as values and as a JSON value
+                    values = null;
+                    valuesElement = readElement(reader);
+                    kvs.put(key, toKeyValueProtoOrError(key, valuesElement));
+                }
+            } else if (hasTs && hasValues) {
+                readElement(reader);
+            } else {
+                kvs.put(key, readKeyValueProtoOrError(reader, key));
+            }
+        }
+        reader.endObject();
+
+        TsKvListProto.Builder builder = TsKvListProto.newBuilder();
+        if (hasTs && hasValues) {
+            builder.setTs(ts.getAsLong());
+            if (values != null) {
+                addKeyValueProtos(builder, values);
+            } else {
+                builder.addAllKv(JsonConverter.parseProtoValues(valuesElement.getAsJsonObject()));
+            }
+        } else {
+            builder.setTs(systemTs);
+            addKeyValueProtos(builder, kvs);
+        }
+        return builder.build();
+    }
+
+    private static PostAttributeMsg readAttributes(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            throw new JsonSyntaxException(CAN_T_PARSE_VALUE + readElement(reader));
+        }
+        PostAttributeMsg.Builder builder = PostAttributeMsg.newBuilder();
+        for (Object kv : readValues(reader).values()) {
+            if (kv instanceof RuntimeException e) {
+                throw e;
+            } else if (kv != null) {
+                builder.addKv((KeyValueProto) kv);
+            }
+        }
+        return builder.build();
+    }
+
+    private static <T> List<GatewayDeviceMsg<T>> readGatewayMsgs(JsonReader reader, JsonToken expectedToken, JsonReaderFunction<T> function) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            throw new JsonSyntaxException(CAN_T_PARSE_VALUE + readElement(reader));
+        }
+        // the last entry wins in case of duplicate device names, same as in the JsonObject
+        Map<String, GatewayDeviceMsg<T>> result = new LinkedHashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String deviceName = reader.nextName();
+            if (reader.peek() != expectedToken) {
+                readElement(reader);
+                result.put(deviceName, new GatewayDeviceMsg<>(deviceName, null, null));
+                continue;
+            }
+            try {
+                result.put(deviceName, new GatewayDeviceMsg<>(deviceName, function.apply(reader), null));
+            } catch (RuntimeException e) {
+                result.put(deviceName, new GatewayDeviceMsg<>(deviceName, null, e));
+            }
+        }
+        reader.endObject();
+        return new ArrayList<>(result.values());
+    }
+
+    private static Map<String, Object> readValues(JsonReader reader) throws IOException {
+        Map<String, Object> kvs = new LinkedHashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            kvs.put(key, readKeyValueProtoOrError(reader, key));
+        }
+        reader.endObject();
+        return kvs;
+    }
+
+    /*
+     * Returns the key-value proto, null for the null value or the conversion error.
+     * */
+    private static Object readKeyValueProtoOrError(JsonReader reader, String key) throws IOException {
+        try {
+            switch (reader.peek()) {
+                case STRING:
+                    return JsonConverter.buildStringKeyValueProto(reader.nextString(), key);
+                case NUMBER:
+                    return JsonConverter.buildNumericKeyValueProto(reader.nextString(), key);
+                case BOOLEAN:
+                    return JsonConverter.buildBooleanKeyValueProto(reader.nextBoolean(), key);
+                case NULL:
+                    reader.nextNull();
+                    return null;
+                case BEGIN_OBJECT:
+                case BEGIN_ARRAY:
+                    return JsonConverter.buildJsonKeyValueProto(readElement(reader).toString(), key);
+                default:
+                    throw new MalformedJsonException("Unexpected token " + reader.peek() + " at " + reader.getPath());
+            }
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    private static Object toKeyValueProtoOrError(String key, JsonElement element) {
+        try {
+            return JsonConverter.toKeyValueProto(key, element);
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    private static void addKeyValueProtos(TsKvListProto.Builder builder, Map<String, Object> kvs) {
+        for (Object kv : kvs.values()) {
+            if (kv instanceof RuntimeException e) {
+                throw e;
+            } else if (kv != null) {
+                builder.addKv((KeyValueProto) kv);
+            }
+        }
+    }
+
+    private static JsonElement readElement(JsonReader reader) throws IOException {
+        return JSON_ELEMENT_ADAPTER.read(reader);
+    }
+
+    @FunctionalInterface
+    private interface JsonReaderFunction<T> {
+
+        T apply(JsonReader reader) throws IOException;
+
+    }
+
+}
@@ -1042,12 +1042,25 @@ public class ProtoUtils {
             builder.setTenantProfile(toProto((TenantProfile) entity));
         } else if (entity instanceof ApiUsageState) {
             builder.setApiUsageState(toProto((ApiUsageState) entity));
+        } else if (entity instanceof DeviceCredentials) {
+            builder.setDeviceCredentials(toCredentialsUpdateProto((DeviceCredentials) entity));
         } else {
             log.warn("[{}] entity does not support toProto serialization .", entity.getClass().getSimpleName());
         }
         return builder.build();
     }
 
+    /*
+     * Transports only need to know which device was affected, so the credentials themselves are not sent.
+     * */
+    private static TransportProtos.DeviceCredentialsProto toCredentialsUpdateProto(DeviceCredentials deviceCredentials) {
+        return TransportProtos.DeviceCredentialsProto.newBuilder()
+                .setDeviceIdMSB(deviceCredentials.getDeviceId().getId().getMostSignificantBits())
+                .setDeviceIdLSB(deviceCredentials.getDeviceId().getId().getLeastSignificantBits())
+                .setCredentialsType(TransportProtos.CredentialsType.valueOf(deviceCredentials.getCredentialsType().name()))
+                .build();
+    }
+
     public static TransportProtos.DeviceInfoProto toDeviceInfoProto(Device device) throws JsonProcessingException {
         TransportProtos.DeviceInfoProto.Builder builder = TransportProtos.DeviceInfoProto.newBuilder()
                 .setTenantIdMSB(device.getTenantId().getId().getMostSignificantBits())
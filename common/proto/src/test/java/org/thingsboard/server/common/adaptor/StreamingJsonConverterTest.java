@@ -0,0 +1,258 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.adaptor;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Isolated;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.thingsboard.server.common.adaptor.StreamingJsonConverter.GatewayDeviceMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.PostAttributeMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Isolated("JsonConverter static settings being modified")
+public class StreamingJsonConverterTest {
+
+    private static final long SYSTEM_TS = 1700000000000L;
+
+    private static final List<String> PAYLOADS = List.of(
+            "{\"temperature\":42,\"humidity\":73.5,\"active\":true,\"status\":\"ok\"}",
+            "{\"ts\":1451649600512,\"values\":{\"temperature\":42,\"humidity\":73.5}}",
+            "{\"values\":{\"temperature\":42},\"ts\":\"1451649600512\"}",
+            "{\"ts\":1451649600512,\"other\":99999999999999999999999,\"values\":{\"temperature\":42}}",
+            "{\"ts\":1.5E3,\"values\":{\"a\":1},\"values\":{\"b\":2}}",
+            "{\"ts\":1,\"values\":{\"a\":1},\"values\":7}",
+            "{\"ts\":null,\"values\":{\"a\":1}}",
+            "{\"ts\":[5],\"values\":{\"a\":1}}",
+            "{\"ts\":true,\"values\":{\"a\":1}}",
+            "{\"ts\":1451649600512,\"value\":{\"a\":1}}",
+            "{\"values\":{\"a\":[1,2,{\"b\":null}]}}",
+            "{\"a\":1,\"b\":null,\"a\":null,\"c\":\"x\",\"b\":2}",
+            "{\"json\":{\"nested\":{\"deep\":[1.0,2E2,\"\\u2028\",\"<tag>\",true,null]}},\"arr\":[]}",
+            "{\"cast\":\"123\",\"castDouble\":\"1.50\",\"big\":\"12345678901234567890\",\"hex\":\"0x1F\",\"nan\":\"NaN\"}",
+            "{\"long\":9223372036854775807,\"overflow\":9223372036854775808,\"exp\":1E+1,\"expDouble\":101E-1,\"zero\":42.0}",
+            "{\"precise\":0.12345678901234567890,\"negative\":-0.0,\"int\":-17}",
+            "{\"longString\":\"abcdefghijklmnopqrstuvwxyz\"}",
+            "{unquoted:value,'single':'quoted',// comment\n\"n\":NaN}",
+            "[{\"a\":1},{\"ts\":2,\"values\":{\"b\":2}},{\"c\":\"3\"}]",
+            "[{\"a\":1},5,{\"c\":3}]",
+            "[{\"a\":99999999999999999999999},{\"b\":\"x\"]",
+            "[]",
+            "{}",
+            "42",
+            "\"text\"",
+            "null",
+            "",
+            "   ",
+            "{\"a\":1} trailing",
+            "{\"a\":1",
+            "{\"a\":}",
+            "{\"a\":1,}"
+    );
+
+    @AfterEach
+    public void after() {
+        JsonConverter.setTypeCastEnabled(true);
+        JsonConverter.setMaxStringValueLength(0);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void testTelemetrySameAsJsonConverter(boolean typeCastEnabled) {
+        JsonConverter.setTypeCastEnabled(typeCastEnabled);
+        JsonConverter.setMaxStringValueLength(typeCastEnabled ? 0 : 16);
+        for (String payload : payloads()) {
+            assertSameResult(payload,
+                    () -> JsonConverter.convertToTelemetryProto(JsonParser.parseString(payload), SYSTEM_TS),
+                    () -> StreamingJsonConverter.convertToTelemetryProto(new StringReader(payload), SYSTEM_TS));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void testAttributesSameAsJsonConverter(boolean typeCastEnabled) {
+        JsonConverter.setTypeCastEnabled(typeCastEnabled);
+        JsonConverter.setMaxStringValueLength(typeCastEnabled ? 0 : 16);
+        for (String payload : payloads()) {
+            assertSameResult(payload,
+                    () -> JsonConverter.convertToAttributesProto(JsonParser.parseString(payload)),
+                    () -> StreamingJsonConverter.convertToAttributesProto(new StringReader(payload)));
+        }
+    }
+
+    @Test
+    public void testGatewayTelemetrySameAsJsonConverter() {
+        JsonConverter.setTypeCastEnabled(false);
+        List<String> payloads = new ArrayList<>();
+        for (String payload : payloads()) {
+            payloads.add("{\"Device A\":[" + payload + "],\"Device B\":" + payload + ",\"Device C\":[{\"a\":1}]}");
+        }
+        payloads.add("{\"Device A\":[{\"a\":1}],\"Device B\":{\"b\":2},\"Device A\":[{\"c\":3}]}");
+        payloads.add("[{\"Device A\":[{\"a\":1}]}]");
+        for (String payload : payloads) {
+            assertSameResult(payload,
+                    () -> convertToGatewayMsgs(payload, true, element -> JsonConverter.convertToTelemetryProto(element, SYSTEM_TS)),
+                    () -> StreamingJsonConverter.convertToGatewayTelemetryProto(new StringReader(payload), SYSTEM_TS));
+        }
+    }
+
+    @Test
+    public void testGatewayAttributesSameAsJsonConverter() {
+        JsonConverter.setTypeCastEnabled(false);
+        List<String> payloads = new ArrayList<>();
+        for (String payload : payloads()) {
+            payloads.add("{\"Device A\":" + payload + ",\"Device B\":{\"b\":\"2\"}}");
+        }
+        for (String payload : payloads) {
+            assertSameResult(payload,
+                    () -> convertToGatewayMsgs(payload, false, JsonConverter::convertToAttributesProto),
+                    () -> StreamingJsonConverter.convertToGatewayAttributesProto(new StringReader(payload)));
+        }
+    }
+
+    @Test
+    public void testGatewayTelemetryConversionErrorDoesNotAffectOtherDevices() {
+        JsonConverter.setTypeCastEnabled(false);
+        String payload = "{\"Device A\":[{\"a\":1},{\"big\":99999999999999999999999},{\"c\":3}],\"Device B\":{\"b\":2},\"Device C\":[{\"c\":\"x\"}]}";
+
+        List<GatewayDeviceMsg<PostTelemetryMsg>> msgs = StreamingJsonConverter.convertToGatewayTelemetryProto(new StringReader(payload), SYSTEM_TS);
+
+        assertThat(msgs).extracting(GatewayDeviceMsg::deviceName).containsExactly("Device A", "Device B", "Device C");
+        assertThat(msgs.get(0).error()).isInstanceOf(JsonSyntaxException.class).hasMessage("Big integer values are not supported!");
+        assertThat(msgs.get(1).isSkipped()).isTrue();
+        assertThat(msgs.get(2).msg().getTsKvList(0).getKv(0).getStringV()).isEqualTo("x");
+    }
+
+    private static List<GatewayDeviceMsg<Object>> convertToGatewayMsgs(String payload, boolean telemetry, Function<JsonElement, Object> converter) {
+        JsonElement json = JsonParser.parseString(payload);
+        if (!json.isJsonObject()) {
+            throw new JsonSyntaxException(JsonConverter.CAN_T_PARSE_VALUE + json);
+        }
+        List<GatewayDeviceMsg<Object>> result = new ArrayList<>();
+        for (Map.Entry<String, JsonElement> deviceEntry : json.getAsJsonObject().entrySet()) {
+            JsonElement value = deviceEntry.getValue();
+            if (telemetry ? !value.isJsonArray() : !value.isJsonObject()) {
+                result.add(new GatewayDeviceMsg<>(deviceEntry.getKey(), null, null));
+                continue;
+            }
+            try {
+                result.add(new GatewayDeviceMsg<>(deviceEntry.getKey(), converter.apply(value), null));
+            } catch (RuntimeException e) {
+                result.add(new GatewayDeviceMsg<>(deviceEntry.getKey(), null, e));
+            }
+        }
+        return result;
+    }
+
+    private static void assertSameResult(String payload, Supplier<?> expected, Supplier<?> actual) {
+        assertThat(toComparable(actual)).as(payload).isEqualTo(toComparable(expected));
+    }
+
+    private static Object toComparable(Supplier<?> supplier) {
+        try {
+            Object result = supplier.get();
+            if (result instanceof List<?> msgs) {
+                return msgs.stream().map(msg -> {
+                    GatewayDeviceMsg<?> deviceMsg = (GatewayDeviceMsg<?>) msg;
+                    return List.of(deviceMsg.deviceName(), String.valueOf(deviceMsg.msg()), toComparable(deviceMsg.error()));
+                }).toList();
+            }
+            return result;
+        } catch (RuntimeException e) {
+            return toComparable(e);
+        }
+    }
+
+    private static String toComparable(RuntimeException e) {
+        return e != null ? e.getClass().getName() + ": " + e.getMessage() : "null";
+    }
+
+    private static List<String> payloads() {
+        List<String> payloads = new ArrayList<>(PAYLOADS);
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            payloads.add(randomTelemetry(random));
+        }
+        return payloads;
+    }
+
+    private static String randomTelemetry(Random random) {
+        StringBuilder sb = new StringBuilder();
+        boolean array = random.nextBoolean();
+        if (array) {
+            sb.append('[');
+        }
+        int objects = array ? random.nextInt(3) + 1 : 1;
+        for (int i = 0; i < objects; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            if (random.nextBoolean()) {
+                sb.append("{\"ts\":").append(random.nextInt(1000)).append(",\"values\":").append(randomObject(random, 0)).append('}');
+            } else {
+                sb.append(randomObject(random, 0));
+            }
+        }
+        if (array) {
+            sb.append(']');
+        }
+        return sb.toString();
+    }
+
+    private static String randomObject(Random random, int depth) {
+        StringBuilder sb = new StringBuilder("{");
+        int keys = random.nextInt(6);
+        for (int i = 0; i < keys; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("\"k").append(random.nextInt(4)).append("\":").append(randomValue(random, depth));
+        }
+        return sb.append('}').toString();
+    }
+
+    private static String randomValue(Random random, int depth) {
+        return switch (random.nextInt(depth < 2 ? 12 : 10)) {
+            case 0 -> String.valueOf(random.nextLong());
+            case 1 -> String.valueOf(random.nextDouble() * 1000);
+            case 2 -> String.valueOf(random.nextBoolean());
+            case 3 -> "\"" + random.nextInt() + "\"";
+            case 4 -> "\"" + random.nextDouble() + "\"";
+            case 5 -> "\"" + Long.toHexString(random.nextLong()) + "\"";
+            case 6 -> "null";
+            case 7 -> random.nextInt(1000) + "E" + (random.nextInt(40) - 20);
+            case 8 -> "1" + "0".repeat(random.nextInt(25));
+            case 9 -> "0." + "1".repeat(random.nextInt(20) + 1);
+            case 10 -> randomObject(random, depth + 1);
+            default -> "[" + randomValue(random, depth + 1) + "," + randomValue(random, depth + 1) + "]";
+        };
+    }
+
+}
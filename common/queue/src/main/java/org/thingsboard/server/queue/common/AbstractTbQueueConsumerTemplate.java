@@ -29,6 +29,9 @@ import java.util.List;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
@@ -45,6 +48,12 @@ public abstract class AbstractTbQueueConsumerTemplate<R, T extends TbQueueMsg> i
     protected final ReentrantLock consumerLock = new ReentrantLock(); //NonfairSync
     final Queue<Set<TopicPartitionInfo>> subscribeQueue = new ConcurrentLinkedQueue<>();
 
+    /**
+     * When set, the next pack is polled and decoded on this executor while the caller processes the current one.
+     */
+    protected ExecutorService prefetchExecutor;
+    private volatile Future<FetchedPack<R, T>> prefetchFuture;
+
     @Getter
     private final String topic;
 
@@ -74,7 +83,6 @@ public abstract class AbstractTbQueueConsumerTemplate<R, T extends TbQueueMsg> i
 
     @Override
     public List<T> poll(long durationInMillis) {
-        List<R> records;
         long startNanos = System.nanoTime();
         if (stopped) {
             log.error("poll invoked but consumer stopped for topic " + topic, new RuntimeException("stacktrace"));
@@ -84,12 +92,69 @@ public abstract class AbstractTbQueueConsumerTemplate<R, T extends TbQueueMsg> i
             return sleepAndReturnEmpty(startNanos, durationInMillis);
         }
 
+        if (prefetchExecutor != null) {
+            return pollPrefetched(durationInMillis);
+        }
+
         if (consumerLock.isLocked()) {
             log.error("poll. consumerLock is locked. will wait with no timeout. it looks like a race conditions or deadlock topic " + topic, new RuntimeException("stacktrace"));
         }
 
+        List<R> records = pollRecords(durationInMillis);
+
+        if (records.isEmpty() && !isLongPollingSupported()) {
+            return sleepAndReturnEmpty(startNanos, durationInMillis);
+        }
+
+        List<T> msgs = decodeRecords(records);
+        onRecordsDelivered(records);
+        return msgs;
+    }
+
+    /**
+     * Hands out the pack fetched in the background during the previous call and immediately starts fetching the next one.
+     * Records of the prefetched pack are delivered even if the subscription has changed in the meantime:
+     * the consumer position has already moved past them, so dropping them would lose the messages.
+     */
+    private List<T> pollPrefetched(long durationInMillis) {
+        Future<FetchedPack<R, T>> future = prefetchFuture;
+        FetchedPack<R, T> pack;
+        if (future != null) {
+            pack = getPrefetched(future);
+        } else {
+            pack = fetch(durationInMillis);
+        }
+        prefetchFuture = stopped ? null : prefetchExecutor.submit(() -> fetch(durationInMillis));
+        onRecordsDelivered(pack.records());
+        return pack.msgs();
+    }
+
+    private FetchedPack<R, T> getPrefetched(Future<FetchedPack<R, T>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new FetchedPack<>(emptyList(), emptyList());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException("Failed to prefetch records for topic " + topic, cause);
+        }
+    }
+
+    private FetchedPack<R, T> fetch(long durationInMillis) {
+        List<R> records = pollRecords(durationInMillis);
+        return new FetchedPack<>(records, decodeRecords(records));
+    }
+
+    private List<R> pollRecords(long durationInMillis) {
         consumerLock.lock();
         try {
+            if (stopped) {
+                return emptyList();
+            }
             while (!subscribeQueue.isEmpty()) {
                 subscribed = false;
                 partitions = subscribeQueue.poll();
@@ -100,16 +165,10 @@ public abstract class AbstractTbQueueConsumerTemplate<R, T extends TbQueueMsg> i
                 doSubscribe(topicNames);
                 subscribed = true;
             }
-            records = partitions.isEmpty() ? emptyList() : doPoll(durationInMillis);
+            return partitions.isEmpty() ? emptyList() : doPoll(durationInMillis);
         } finally {
             consumerLock.unlock();
         }
-
-        if (records.isEmpty() && !isLongPollingSupported()) {
-            return sleepAndReturnEmpty(startNanos, durationInMillis);
-        }
-
-        return decodeRecords(records);
     }
 
     @Nonnull
@@ -176,6 +235,9 @@ public abstract class AbstractTbQueueConsumerTemplate<R, T extends TbQueueMsg> i
         } finally {
             consumerLock.unlock();
         }
+        if (prefetchExecutor != null) {
+            prefetchExecutor.shutdownNow();
+        }
     }
 
     @Override
@@ -193,6 +255,12 @@ public abstract class AbstractTbQueueConsumerTemplate<R, T extends TbQueueMsg> i
 
     abstract protected void doUnsubscribe();
 
+    /**
+     * Invoked with the raw records of the pack that is handed out to the caller by {@link #poll(long)}.
+     */
+    protected void onRecordsDelivered(List<R> records) {
+    }
+
     @Override
     public List<String> getFullTopicNames() {
         if (partitions == null) {
@@ -205,4 +273,7 @@ public abstract class AbstractTbQueueConsumerTemplate<R, T extends TbQueueMsg> i
         return false;
     }
 
+    private record FetchedPack<R, T>(List<R> records, List<T> msgs) {
+    }
+
 }
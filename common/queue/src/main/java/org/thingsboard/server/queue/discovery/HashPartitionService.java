@@ -37,6 +37,7 @@ import org.thingsboard.server.queue.discovery.event.PartitionChangeEvent;
 import org.thingsboard.server.queue.discovery.event.ServiceListChangedEvent;
 import org.thingsboard.server.queue.util.AfterStartUp;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -67,6 +68,8 @@ public class HashPartitionService implements PartitionService {
     private Integer vcPartitions;
     @Value("${queue.partitions.hash_function_name:murmur3_128}")
     private String hashFunctionName;
+    @Value("${queue.partitions.assignment_strategy:modulo}")
+    private String assignmentStrategy;
 
     private final ApplicationEventPublisher applicationEventPublisher;
     private final TbServiceInfoProvider serviceInfoProvider;
@@ -87,6 +90,7 @@ public class HashPartitionService implements PartitionService {
     private volatile Map<TenantProfileId, List<ServiceInfo>> responsibleServices = Collections.emptyMap();
 
     private HashFunction hashFunction;
+    private boolean rendezvousAssignment;
 
     public HashPartitionService(TbServiceInfoProvider serviceInfoProvider,
                                 TenantRoutingInfoService tenantRoutingInfoService,
@@ -103,6 +107,7 @@ public class HashPartitionService implements PartitionService {
     @PostConstruct
     public void init() {
         this.hashFunction = forName(hashFunctionName);
+        this.rendezvousAssignment = isRendezvousAssignment(assignmentStrategy);
         QueueKey coreKey = new QueueKey(ServiceType.TB_CORE);
         partitionSizesMap.put(coreKey, corePartitions);
         partitionTopicsMap.put(coreKey, coreTopic);
@@ -634,13 +639,39 @@ public class HashPartitionService implements PartitionService {
                 servers = responsible;
             }
 
+            // the partitions of the system queues share the same key, so the rendezvous hash would not spread
+            // their few partitions evenly; the modulo keeps them balanced
+            if (rendezvousAssignment && !tenantId.isSysTenantId()) {
+                return resolveByRendezvousHash(servers, tenantId.getId(), partition);
+            }
             int hash = hash(tenantId.getId());
             return servers.get(Math.abs((hash + partition) % servers.size()));
         } else {
+            // core and version control queues are single-key queues too, so they are always assigned by modulo
             return servers.get(partition % servers.size());
         }
     }
 
+    // highest random weight: the partition goes to the server with the highest hash of (key, partition, server id),
+    // so adding or removing a server moves only the partitions this server wins or owned - about 1/N of them
+    private ServiceInfo resolveByRendezvousHash(List<ServiceInfo> servers, UUID key, int partition) {
+        ServiceInfo result = null;
+        long maxWeight = Long.MIN_VALUE;
+        for (ServiceInfo server : servers) {
+            long weight = hashFunction.newHasher()
+                    .putLong(key.getMostSignificantBits())
+                    .putLong(key.getLeastSignificantBits())
+                    .putInt(partition)
+                    .putString(server.getServiceId(), StandardCharsets.UTF_8)
+                    .hash().padToLong();
+            if (result == null || weight > maxWeight) {
+                result = server;
+                maxWeight = weight;
+            }
+        }
+        return result;
+    }
+
     private int hash(UUID key) {
         return hashFunction.newHasher()
                 .putLong(key.getMostSignificantBits())
@@ -661,6 +692,14 @@ public class HashPartitionService implements PartitionService {
         }
     }
 
+    private static boolean isRendezvousAssignment(String assignmentStrategy) {
+        return switch (assignmentStrategy) {
+            case "modulo" -> false;
+            case "rendezvous" -> true;
+            default -> throw new IllegalArgumentException("Unknown partitions assignment strategy " + assignmentStrategy);
+        };
+    }
+
     private List<String> toServiceIds(Collection<ServiceInfo> serviceInfos) {
         return serviceInfos.stream().map(ServiceInfo::getServiceId).collect(Collectors.toList());
     }
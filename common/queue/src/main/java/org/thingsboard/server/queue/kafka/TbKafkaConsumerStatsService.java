@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.queue.kafka;
 
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.Builder;
@@ -34,28 +35,38 @@ import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.server.common.data.StringUtils;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.msg.queue.ServiceType;
+import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.queue.discovery.PartitionService;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 @ConditionalOnProperty(prefix = "queue", value = "type", havingValue = "kafka")
 public class TbKafkaConsumerStatsService {
+    private static final String PARTITION_LAG = "kafkaConsumer.partitionLag";
+    private static final String COMMIT_LATENCY = "kafkaConsumer.commitLatency";
+
     private final Set<String> monitoredGroups = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<GroupTopicPartition, AtomicLong> partitionLags = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> commitTimers = new ConcurrentHashMap<>();
 
     private final TbKafkaSettings kafkaSettings;
     private final TbKafkaConsumerStatisticConfig statsConfig;
+    private final StatsFactory statsFactory;
 
     @Lazy
     @Autowired
@@ -149,6 +160,39 @@ public class TbKafkaConsumerStatsService {
         }
     }
 
+    /**
+     * Lag of the consumer position behind the end of the partition, as seen by the consumer after its last poll.
+     * Exported as a gauge tagged with the group, topic and partition.
+     */
+    public void reportPartitionLag(String groupId, TopicPartition tp, long lag) {
+        if (statsConfig.getEnabled() && !StringUtils.isEmpty(groupId)) {
+            partitionLags.computeIfAbsent(new GroupTopicPartition(groupId, tp.topic(), tp.partition()),
+                    key -> statsFactory.createGauge(PARTITION_LAG, new AtomicLong(), key.toTags())).set(lag);
+        }
+    }
+
+    /**
+     * Removes the lag gauges of the partitions that are no longer assigned to the consumer,
+     * so the gauges of revoked partitions do not keep reporting the last seen lag.
+     */
+    public void removePartitionLags(String groupId, Collection<TopicPartition> partitions) {
+        if (statsConfig.getEnabled() && !StringUtils.isEmpty(groupId)) {
+            for (TopicPartition tp : partitions) {
+                GroupTopicPartition key = new GroupTopicPartition(groupId, tp.topic(), tp.partition());
+                if (partitionLags.remove(key) != null) {
+                    statsFactory.removeGauge(PARTITION_LAG, key.toTags());
+                }
+            }
+        }
+    }
+
+    public void reportCommitLatency(String groupId, long latencyNanos) {
+        if (statsConfig.getEnabled() && !StringUtils.isEmpty(groupId)) {
+            commitTimers.computeIfAbsent(groupId, key -> statsFactory.createTimer(COMMIT_LATENCY, "groupId", key))
+                    .record(latencyNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
     @PreDestroy
     public void destroy() {
         if (statsPrintScheduler != null) {
@@ -160,6 +204,14 @@ public class TbKafkaConsumerStatsService {
     }
 
 
+    private record GroupTopicPartition(String groupId, String topic, int partition) {
+
+        String[] toTags() {
+            return new String[]{"groupId", groupId, "topic", topic, "partition", Integer.toString(partition)};
+        }
+
+    }
+
     @Builder
     @Data
     private static class GroupTopicStats {
@@ -17,21 +17,33 @@ package org.thingsboard.server.queue.kafka;
 
 import lombok.Builder;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.util.StopWatch;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.server.queue.TbQueueAdmin;
+import org.thingsboard.server.queue.TbQueueCommitPosition;
 import org.thingsboard.server.queue.TbQueueMsg;
 import org.thingsboard.server.queue.common.AbstractTbQueueConsumerTemplate;
 
 import java.io.IOException;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
 
 /**
  * Created by ashvayka on 24.09.18.
@@ -40,23 +52,35 @@ import java.util.Properties;
 public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQueueConsumerTemplate<ConsumerRecord<String, byte[]>, T> {
 
     private final TbQueueAdmin admin;
-    private final KafkaConsumer<String, byte[]> consumer;
+    private final Consumer<String, byte[]> consumer;
     private final TbKafkaDecoder<T> decoder;
 
     private final TbKafkaConsumerStatsService statsService;
     private final String groupId;
 
+    /**
+     * Pipelined mode: the next pack is polled while the current one is processed, so the consumer position
+     * runs ahead of the processed records. Offsets of the delivered pack are therefore tracked explicitly
+     * and committed asynchronously in batches, with a sync commit on partition revocation and on unsubscribe.
+     */
+    private final boolean pipelined;
+    private final long commitIntervalMs;
+    private final Map<TopicPartition, OffsetAndMetadata> pendingOffsets = new ConcurrentHashMap<>();
+    private volatile Map<TopicPartition, OffsetAndMetadata> deliveredOffsets = Collections.emptyMap();
+    private long lastCommitTime = System.currentTimeMillis();
+
     @Builder
     private TbKafkaConsumerTemplate(TbKafkaSettings settings, TbKafkaDecoder<T> decoder,
                                     String clientId, String groupId, String topic,
                                     TbQueueAdmin admin, TbKafkaConsumerStatsService statsService) {
-        super(topic);
-        Properties props = settings.toConsumerProps(topic);
-        props.put(ConsumerConfig.CLIENT_ID_CONFIG, clientId);
-        if (groupId != null) {
-            props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        }
+        this(settings, decoder, clientId, groupId, topic, admin, statsService, new KafkaConsumer<>(toConsumerProps(settings, topic, clientId, groupId)));
+    }
 
+    TbKafkaConsumerTemplate(TbKafkaSettings settings, TbKafkaDecoder<T> decoder,
+                            String clientId, String groupId, String topic,
+                            TbQueueAdmin admin, TbKafkaConsumerStatsService statsService,
+                            Consumer<String, byte[]> consumer) {
+        super(topic);
         this.statsService = statsService;
         this.groupId = groupId;
 
@@ -65,15 +89,30 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
         }
 
         this.admin = admin;
-        this.consumer = new KafkaConsumer<>(props);
+        this.consumer = consumer;
         this.decoder = decoder;
+
+        this.pipelined = settings.isConsumerPipeliningEnabled();
+        this.commitIntervalMs = settings.getConsumerPipeliningCommitIntervalMs();
+        if (pipelined) {
+            this.prefetchExecutor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName("kafka-consumer-prefetch-" + clientId));
+        }
+    }
+
+    private static Properties toConsumerProps(TbKafkaSettings settings, String topic, String clientId, String groupId) {
+        Properties props = settings.toConsumerProps(topic);
+        props.put(ConsumerConfig.CLIENT_ID_CONFIG, clientId);
+        if (groupId != null) {
+            props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        }
+        return props;
     }
 
     @Override
     protected void doSubscribe(List<String> topicNames) {
         if (!topicNames.isEmpty()) {
             topicNames.forEach(admin::createTopicIfNotExists);
-            consumer.subscribe(topicNames);
+            consumer.subscribe(topicNames, new RebalanceListener());
         } else {
             log.info("unsubscribe due to empty topic list");
             consumer.unsubscribe();
@@ -87,11 +126,19 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
 
         log.trace("poll topic {} maxDuration {}", getTopic(), durationInMillis);
 
+        if (pipelined) {
+            commitPendingOffsetsIfDue();
+        }
+
         ConsumerRecords<String, byte[]> records = consumer.poll(Duration.ofMillis(durationInMillis));
 
         stopWatch.stop();
         log.trace("poll topic {} took {}ms", getTopic(), stopWatch.getTotalTimeMillis());
 
+        if (statsService != null) {
+            reportLag(records);
+        }
+
         if (records.isEmpty()) {
             return Collections.emptyList();
         } else {
@@ -106,14 +153,149 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
         return decoder.decode(new KafkaTbQueueMsg(record));
     }
 
+    @Override
+    protected void onRecordsDelivered(List<ConsumerRecord<String, byte[]>> records) {
+        if (records.isEmpty()) {
+            deliveredOffsets = Collections.emptyMap();
+            return;
+        }
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (ConsumerRecord<String, byte[]> record : records) {
+            offsets.put(new TopicPartition(record.topic(), record.partition()), new OffsetAndMetadata(record.offset() + 1));
+        }
+        deliveredOffsets = offsets;
+    }
+
+    @Override
+    public void commit() {
+        if (!pipelined) {
+            super.commit();
+            return;
+        }
+        Map<TopicPartition, OffsetAndMetadata> offsets = deliveredOffsets;
+        deliveredOffsets = Collections.emptyMap();
+        pendingOffsets.putAll(offsets);
+    }
+
     @Override
     protected void doCommit() {
+        long startTime = System.nanoTime();
         consumer.commitSync();
+        reportCommitLatency(startTime);
+    }
+
+    @Override
+    public TbQueueCommitPosition getCommitPosition() {
+        return new KafkaCommitPosition(deliveredOffsets);
+    }
+
+    /**
+     * Commits the offsets of the given position only, so the packs polled after it are not committed.
+     * The offsets of the partitions that are no longer assigned to the consumer are skipped.
+     */
+    @Override
+    public void commit(TbQueueCommitPosition position) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = ((KafkaCommitPosition) position).offsets();
+        if (offsets.isEmpty()) {
+            return;
+        }
+        if (pipelined) {
+            pendingOffsets.putAll(offsets);
+            return;
+        }
+        consumerLock.lock();
+        try {
+            Set<TopicPartition> assignment = consumer.assignment();
+            Map<TopicPartition, OffsetAndMetadata> assignedOffsets = new HashMap<>();
+            offsets.forEach((tp, offset) -> {
+                if (assignment.contains(tp)) {
+                    assignedOffsets.put(tp, offset);
+                }
+            });
+            if (!assignedOffsets.isEmpty()) {
+                long startTime = System.nanoTime();
+                consumer.commitSync(assignedOffsets);
+                reportCommitLatency(startTime);
+            }
+        } finally {
+            consumerLock.unlock();
+        }
+    }
+
+    /**
+     * Must be called under the consumer lock, i.e. from the polling thread
+     */
+    private void commitPendingOffsetsIfDue() {
+        long now = System.currentTimeMillis();
+        if (pendingOffsets.isEmpty() || now - lastCommitTime < commitIntervalMs) {
+            return;
+        }
+        Map<TopicPartition, OffsetAndMetadata> offsets = drainPendingOffsets();
+        if (offsets.isEmpty()) {
+            return;
+        }
+        lastCommitTime = now;
+        long startTime = System.nanoTime();
+        consumer.commitAsync(offsets, (committed, e) -> {
+            if (e != null) {
+                log.warn("[{}] Failed to commit offsets {}", groupId, offsets, e);
+            } else {
+                reportCommitLatency(startTime);
+            }
+        });
+    }
+
+    private void commitPendingOffsetsSync() {
+        Map<TopicPartition, OffsetAndMetadata> offsets = drainPendingOffsets();
+        if (offsets.isEmpty()) {
+            return;
+        }
+        long startTime = System.nanoTime();
+        try {
+            consumer.commitSync(offsets);
+            reportCommitLatency(startTime);
+        } catch (Exception e) {
+            log.warn("[{}] Failed to commit offsets {}", groupId, offsets, e);
+        }
+    }
+
+    private Map<TopicPartition, OffsetAndMetadata> drainPendingOffsets() {
+        Set<TopicPartition> assignment = consumer.assignment();
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition tp : pendingOffsets.keySet()) {
+            OffsetAndMetadata offset = pendingOffsets.remove(tp);
+            if (offset != null && assignment.contains(tp)) {
+                offsets.put(tp, offset);
+            }
+        }
+        return offsets;
+    }
+
+    private void reportLag(ConsumerRecords<String, byte[]> records) {
+        for (TopicPartition tp : records.partitions()) {
+            consumer.currentLag(tp).ifPresent(lag -> statsService.reportPartitionLag(groupId, tp, lag));
+        }
+    }
+
+    private void removeLag(Collection<TopicPartition> partitions) {
+        if (statsService != null) {
+            statsService.removePartitionLags(groupId, partitions);
+        }
+    }
+
+    private void reportCommitLatency(long startTime) {
+        if (statsService != null) {
+            statsService.reportCommitLatency(groupId, System.nanoTime() - startTime);
+        }
     }
 
     @Override
     protected void doUnsubscribe() {
         if (consumer != null) {
+            if (pipelined) {
+                commitPendingOffsetsSync();
+            }
+            removeLag(consumer.assignment());
             consumer.unsubscribe();
             consumer.close();
         }
@@ -127,4 +309,38 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
         return true;
     }
 
+    private record KafkaCommitPosition(Map<TopicPartition, OffsetAndMetadata> offsets) implements TbQueueCommitPosition {
+
+        @Override
+        public TbQueueCommitPosition merge(TbQueueCommitPosition next) {
+            Map<TopicPartition, OffsetAndMetadata> merged = new HashMap<>(offsets);
+            ((KafkaCommitPosition) next).offsets().forEach((tp, offset) ->
+                    merged.merge(tp, offset, (a, b) -> a.offset() >= b.offset() ? a : b));
+            return new KafkaCommitPosition(merged);
+        }
+
+    }
+
+    private class RebalanceListener implements ConsumerRebalanceListener {
+
+        @Override
+        public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+            if (pipelined) {
+                commitPendingOffsetsSync();
+            }
+            removeLag(partitions);
+        }
+
+        @Override
+        public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+        }
+
+        @Override
+        public void onPartitionsLost(Collection<TopicPartition> partitions) {
+            pendingOffsets.keySet().removeAll(partitions);
+            removeLag(partitions);
+        }
+
+    }
+
 }
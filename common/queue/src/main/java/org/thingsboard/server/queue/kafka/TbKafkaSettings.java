@@ -120,6 +120,14 @@ public class TbKafkaSettings {
     @Value("${queue.kafka.auto_offset_reset:earliest}")
     private String autoOffsetReset;
 
+    @Value("${queue.kafka.consumer_pipelining.enabled:false}")
+    @Getter
+    private boolean consumerPipeliningEnabled;
+
+    @Value("${queue.kafka.consumer_pipelining.commit_interval_ms:1000}")
+    @Getter
+    private long consumerPipeliningCommitIntervalMs;
+
     @Value("${queue.kafka.use_confluent_cloud:false}")
     private boolean useConfluent;
 
@@ -0,0 +1,234 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.queue.TbQueueAdmin;
+import org.thingsboard.server.queue.TbQueueCommitPosition;
+import org.thingsboard.server.queue.TbQueueMsg;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class TbKafkaConsumerTemplateTest {
+
+    static final String TOPIC = "tb_rule_engine.main";
+    static final String GROUP_ID = "re-main-consumer";
+    static final TopicPartition TP = new TopicPartition(TOPIC, 0);
+
+    MockConsumer<String, byte[]> mockConsumer;
+    TbKafkaConsumerStatsService statsService;
+    TbKafkaConsumerTemplate<TbQueueMsg> consumerTemplate;
+
+    @AfterEach
+    void tearDown() {
+        if (consumerTemplate != null && !consumerTemplate.isStopped()) {
+            consumerTemplate.unsubscribe();
+        }
+    }
+
+    @Test
+    void givenPipeliningDisabled_whenCommit_thenCommitSyncCurrentPosition() {
+        consumerTemplate = createConsumerTemplate(false, 0);
+        consumerTemplate.subscribe();
+        mockConsumer.schedulePollTask(() -> {
+            mockConsumer.rebalance(List.of(TP));
+            addRecords(0, 2);
+        });
+
+        assertThat(consumerTemplate.poll(10)).hasSize(2);
+        consumerTemplate.commit();
+
+        verify(mockConsumer).commitSync();
+        verify(statsService).reportCommitLatency(eq(GROUP_ID), anyLong());
+        assertThat(mockConsumer.committed(Set.of(TP))).containsEntry(TP, new OffsetAndMetadata(2));
+    }
+
+    @Test
+    void givenPipeliningEnabled_whenNextPackIsPrefetched_thenOnlyDeliveredOffsetsAreCommitted() {
+        consumerTemplate = createConsumerTemplate(true, 0);
+        consumerTemplate.subscribe();
+        mockConsumer.updateEndOffsets(Map.of(TP, 5L));
+        mockConsumer.schedulePollTask(() -> {
+            mockConsumer.rebalance(List.of(TP));
+            addRecords(0, 2);
+        });
+        mockConsumer.schedulePollTask(() -> addRecords(2, 5));
+
+        assertThat(consumerTemplate.poll(10)).hasSize(2);
+        // the prefetch has moved the position past the records that are still being processed
+        await().atMost(5, TimeUnit.SECONDS).until(() -> mockConsumer.position(TP) == 5);
+        verify(statsService).reportPartitionLag(GROUP_ID, TP, 3L);
+        consumerTemplate.commit();
+
+        assertThat(consumerTemplate.poll(10)).hasSize(3);
+        await().atMost(5, TimeUnit.SECONDS)
+                .untilAsserted(() -> assertThat(mockConsumer.committed(Set.of(TP))).containsEntry(TP, new OffsetAndMetadata(2)));
+        verify(mockConsumer, never()).commitSync();
+
+        consumerTemplate.commit();
+        consumerTemplate.unsubscribe();
+
+        verify(mockConsumer).commitSync(Map.of(TP, new OffsetAndMetadata(5)));
+        verify(statsService, atLeastOnce()).reportCommitLatency(eq(GROUP_ID), anyLong());
+    }
+
+    @Test
+    void givenPipeliningEnabled_whenPartitionsRevoked_thenPendingOffsetsAreCommittedSync() {
+        consumerTemplate = createConsumerTemplate(true, TimeUnit.HOURS.toMillis(1));
+        consumerTemplate.subscribe();
+        mockConsumer.schedulePollTask(() -> {
+            mockConsumer.rebalance(List.of(TP));
+            addRecords(0, 2);
+        });
+
+        assertThat(consumerTemplate.poll(10)).hasSize(2);
+        consumerTemplate.commit();
+        verify(mockConsumer, never()).commitAsync(anyMap(), any());
+
+        mockConsumer.schedulePollTask(() -> mockConsumer.rebalance(Collections.emptyList()));
+        consumerTemplate.poll(10);
+        consumerTemplate.poll(10);
+
+        verify(mockConsumer, timeout(5000)).commitSync(Map.of(TP, new OffsetAndMetadata(2)));
+    }
+
+    @Test
+    void givenPartitionsRevoked_whenRebalance_thenLagGaugesAreRemoved() {
+        consumerTemplate = createConsumerTemplate(false, 0);
+        consumerTemplate.subscribe();
+        mockConsumer.schedulePollTask(() -> {
+            mockConsumer.rebalance(List.of(TP));
+            addRecords(0, 2);
+        });
+
+        assertThat(consumerTemplate.poll(10)).hasSize(2);
+        verify(statsService).reportPartitionLag(eq(GROUP_ID), eq(TP), anyLong());
+
+        mockConsumer.schedulePollTask(() -> mockConsumer.rebalance(Collections.emptyList()));
+        consumerTemplate.poll(10);
+
+        verify(statsService).removePartitionLags(GROUP_ID, List.of(TP));
+    }
+
+    @Test
+    void givenAssignedPartitions_whenUnsubscribe_thenLagGaugesAreRemoved() {
+        consumerTemplate = createConsumerTemplate(true, TimeUnit.HOURS.toMillis(1));
+        consumerTemplate.subscribe();
+        mockConsumer.schedulePollTask(() -> {
+            mockConsumer.rebalance(List.of(TP));
+            addRecords(0, 2);
+        });
+        assertThat(consumerTemplate.poll(10)).hasSize(2);
+
+        consumerTemplate.unsubscribe();
+
+        verify(statsService).removePartitionLags(GROUP_ID, Set.of(TP));
+    }
+
+    @Test
+    void givenPipeliningDisabled_whenCommitPosition_thenOnlyOffsetsOfThatPackAreCommitted() {
+        consumerTemplate = createConsumerTemplate(false, 0);
+        consumerTemplate.subscribe();
+        mockConsumer.schedulePollTask(() -> {
+            mockConsumer.rebalance(List.of(TP));
+            addRecords(0, 2);
+        });
+        mockConsumer.schedulePollTask(() -> addRecords(2, 5));
+
+        assertThat(consumerTemplate.poll(10)).hasSize(2);
+        TbQueueCommitPosition firstPack = consumerTemplate.getCommitPosition();
+        assertThat(consumerTemplate.poll(10)).hasSize(3);
+        TbQueueCommitPosition secondPack = consumerTemplate.getCommitPosition();
+
+        consumerTemplate.commit(firstPack);
+        assertThat(mockConsumer.committed(Set.of(TP))).containsEntry(TP, new OffsetAndMetadata(2));
+
+        consumerTemplate.commit(secondPack);
+        assertThat(mockConsumer.committed(Set.of(TP))).containsEntry(TP, new OffsetAndMetadata(5));
+        verify(mockConsumer, never()).commitSync();
+    }
+
+    @Test
+    void givenPacksOfDifferentPartitions_whenCommitMergedPosition_thenOffsetsOfBothPacksAreCommitted() {
+        TopicPartition tp1 = new TopicPartition(TOPIC, 1);
+        consumerTemplate = createConsumerTemplate(false, 0);
+        mockConsumer.updateBeginningOffsets(Map.of(tp1, 0L));
+        consumerTemplate.subscribe();
+        mockConsumer.schedulePollTask(() -> {
+            mockConsumer.rebalance(List.of(TP, tp1));
+            addRecords(0, 2);
+        });
+        mockConsumer.schedulePollTask(() -> {
+            for (int offset = 0; offset < 3; offset++) {
+                mockConsumer.addRecord(new ConsumerRecord<>(TOPIC, tp1.partition(), offset, UUID.randomUUID().toString(), new byte[]{(byte) offset}));
+            }
+        });
+
+        assertThat(consumerTemplate.poll(10)).hasSize(2);
+        TbQueueCommitPosition firstPack = consumerTemplate.getCommitPosition();
+        assertThat(consumerTemplate.poll(10)).hasSize(3);
+        TbQueueCommitPosition secondPack = consumerTemplate.getCommitPosition();
+
+        consumerTemplate.commit(firstPack.merge(secondPack));
+
+        assertThat(mockConsumer.committed(Set.of(TP, tp1)))
+                .containsEntry(TP, new OffsetAndMetadata(2))
+                .containsEntry(tp1, new OffsetAndMetadata(3));
+    }
+
+    private TbKafkaConsumerTemplate<TbQueueMsg> createConsumerTemplate(boolean pipelined, long commitIntervalMs) {
+        TbKafkaSettings settings = mock(TbKafkaSettings.class);
+        willReturn(pipelined).given(settings).isConsumerPipeliningEnabled();
+        willReturn(commitIntervalMs).given(settings).getConsumerPipeliningCommitIntervalMs();
+        statsService = mock(TbKafkaConsumerStatsService.class);
+        mockConsumer = spy(new MockConsumer<>(OffsetResetStrategy.EARLIEST));
+        mockConsumer.updateBeginningOffsets(Map.of(TP, 0L));
+        return new TbKafkaConsumerTemplate<>(settings, msg -> msg, "test-consumer", GROUP_ID, TOPIC,
+                mock(TbQueueAdmin.class), statsService, mockConsumer);
+    }
+
+    private void addRecords(int fromOffset, int toOffset) {
+        for (int offset = fromOffset; offset < toOffset; offset++) {
+            mockConsumer.addRecord(new ConsumerRecord<>(TOPIC, TP.partition(), offset, UUID.randomUUID().toString(), new byte[]{(byte) offset}));
+        }
+    }
+
+}
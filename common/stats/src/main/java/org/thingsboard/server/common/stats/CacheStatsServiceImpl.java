@@ -0,0 +1,59 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.stats;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.thingsboard.server.common.data.CacheStatsService;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts the cache reads by the tier that has served them: the in-process near cache (L1),
+ * the remote cache (L2) or none of them. The hit ratio of each tier is the share of its counter in the total.
+ */
+@Service
+public class CacheStatsServiceImpl implements CacheStatsService {
+
+    private static final String CACHE_REQUESTS = "cache_requests";
+
+    private final ConcurrentHashMap<String, DefaultCounter> nearHitCounters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, DefaultCounter> remoteHitCounters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, DefaultCounter> missCounters = new ConcurrentHashMap<>();
+
+    @Autowired
+    private StatsFactory statsFactory;
+
+    @Override
+    public void incrementNearCacheHit(String cacheName) {
+        nearHitCounters.computeIfAbsent(cacheName, key -> createCounter(key, "near_hit")).increment();
+    }
+
+    @Override
+    public void incrementRemoteCacheHit(String cacheName) {
+        remoteHitCounters.computeIfAbsent(cacheName, key -> createCounter(key, "remote_hit")).increment();
+    }
+
+    @Override
+    public void incrementCacheMiss(String cacheName) {
+        missCounters.computeIfAbsent(cacheName, key -> createCounter(key, "miss")).increment();
+    }
+
+    private DefaultCounter createCounter(String cacheName, String result) {
+        return statsFactory.createDefaultCounter(CACHE_REQUESTS, "cacheName", cacheName, "result", result);
+    }
+
+}
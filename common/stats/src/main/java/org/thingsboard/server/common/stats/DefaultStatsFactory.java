@@ -16,6 +16,8 @@
 package org.thingsboard.server.common.stats;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tags;
 import io.micrometer.core.instrument.Timer;
@@ -86,6 +88,14 @@ public class DefaultStatsFactory implements StatsFactory {
         return meterRegistry.gauge(key, Tags.of(tags), number);
     }
 
+    @Override
+    public void removeGauge(String key, String... tags) {
+        Gauge gauge = meterRegistry.find(key).tags(tags).gauge();
+        if (gauge != null) {
+            meterRegistry.remove(gauge);
+        }
+    }
+
     @Override
     public MessagesStats createMessagesStats(String key) {
         StatsCounter totalCounter = createStatsCounter(key, TOTAL_MSGS);
@@ -112,6 +122,16 @@ public class DefaultStatsFactory implements StatsFactory {
                 .register(meterRegistry));
     }
 
+    @Override
+    public DistributionSummary createDistributionSummary(String key, String... tags) {
+        DistributionSummary.Builder summaryBuilder = DistributionSummary.builder(key)
+                .tags(tags);
+        if (timerPercentiles != null && timerPercentiles.length > 0) {
+            summaryBuilder.publishPercentiles(timerPercentiles);
+        }
+        return summaryBuilder.register(meterRegistry);
+    }
+
     private static String[] getTags(String statsName, String[] otherTags) {
         String[] tags = new String[]{STATS_NAME_TAG, statsName};
         if (otherTags.length > 0) {
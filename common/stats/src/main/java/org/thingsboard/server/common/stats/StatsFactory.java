@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.common.stats;
 
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Timer;
 
 public interface StatsFactory {
@@ -25,10 +26,14 @@ public interface StatsFactory {
 
     <T extends Number> T createGauge(String key, T number, String... tags);
 
+    void removeGauge(String key, String... tags);
+
     MessagesStats createMessagesStats(String key);
 
     Timer createTimer(String key, String... tags);
 
     StatsTimer createTimer(StatsType type, String name, String... tags);
 
+    DistributionSummary createDistributionSummary(String key, String... tags);
+
 }
@@ -29,16 +29,21 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.thingsboard.server.common.adaptor.AdaptorException;
 import org.thingsboard.server.common.adaptor.JsonConverter;
+import org.thingsboard.server.common.adaptor.StreamingJsonConverter;
+import org.thingsboard.server.common.adaptor.StreamingJsonConverter.GatewayDeviceMsg;
 import org.thingsboard.server.common.data.StringUtils;
 import org.thingsboard.server.common.data.device.profile.MqttTopics;
 import org.thingsboard.server.common.data.ota.OtaPackageType;
 import org.thingsboard.server.gen.transport.TransportProtos;
 import org.thingsboard.server.transport.mqtt.session.MqttDeviceAwareSessionContext;
 
+import java.io.Reader;
+import java.io.StringReader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -57,9 +62,8 @@ public class JsonMqttAdaptor implements MqttTransportAdaptor {
 
     @Override
     public TransportProtos.PostTelemetryMsg convertToPostTelemetry(MqttDeviceAwareSessionContext ctx, MqttPublishMessage inbound) throws AdaptorException {
-        String payload = validatePayload(ctx.getSessionId(), inbound.payload(), false);
         try {
-            return JsonConverter.convertToTelemetryProto(JsonParser.parseString(payload));
+            return StreamingJsonConverter.convertToTelemetryProto(toReader(inbound.payload()));
         } catch (IllegalStateException | JsonSyntaxException ex) {
             log.debug("Failed to decode post telemetry request", ex);
             throw new AdaptorException(ex);
@@ -68,9 +72,8 @@ public class JsonMqttAdaptor implements MqttTransportAdaptor {
 
     @Override
     public TransportProtos.PostAttributeMsg convertToPostAttributes(MqttDeviceAwareSessionContext ctx, MqttPublishMessage inbound) throws AdaptorException {
-        String payload = validatePayload(ctx.getSessionId(), inbound.payload(), false);
         try {
-            return JsonConverter.convertToAttributesProto(JsonParser.parseString(payload));
+            return StreamingJsonConverter.convertToAttributesProto(toReader(inbound.payload()));
         } catch (IllegalStateException | JsonSyntaxException ex) {
             log.debug("Failed to decode post attributes request", ex);
             throw new AdaptorException(ex);
@@ -174,6 +177,32 @@ public class JsonMqttAdaptor implements MqttTransportAdaptor {
         }
     }
 
+    public static List<GatewayDeviceMsg<TransportProtos.PostTelemetryMsg>> convertToGatewayTelemetry(UUID sessionId, ByteBuf payloadData) throws AdaptorException {
+        try {
+            return StreamingJsonConverter.convertToGatewayTelemetryProto(toReader(payloadData), System.currentTimeMillis());
+        } catch (JsonSyntaxException ex) {
+            log.debug("[{}] Payload is in incorrect format: {}", sessionId, payloadData.toString(UTF8));
+            throw new AdaptorException(ex);
+        }
+    }
+
+    public static List<GatewayDeviceMsg<TransportProtos.PostAttributeMsg>> convertToGatewayAttributes(UUID sessionId, ByteBuf payloadData) throws AdaptorException {
+        try {
+            return StreamingJsonConverter.convertToGatewayAttributesProto(toReader(payloadData));
+        } catch (JsonSyntaxException ex) {
+            log.debug("[{}] Payload is in incorrect format: {}", sessionId, payloadData.toString(UTF8));
+            throw new AdaptorException(ex);
+        }
+    }
+
+    /*
+     * Decoding to a string is cheaper than an InputStreamReader, which allocates an 8 KB buffer per payload.
+     * The reader index of the payload is not changed.
+     * */
+    private static Reader toReader(ByteBuf payloadData) {
+        return new StringReader(payloadData.toString(UTF8));
+    }
+
     private TransportProtos.GetAttributeRequestMsg processGetAttributeRequestMsg(MqttPublishMessage inbound, String topicBase) throws AdaptorException {
         String topicName = inbound.variableHeader().topicName();
         try {
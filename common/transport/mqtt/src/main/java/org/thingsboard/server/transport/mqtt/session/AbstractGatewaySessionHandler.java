@@ -42,6 +42,7 @@ import org.springframework.util.ConcurrentReferenceHashMap;
 import org.thingsboard.common.util.DonAsynchron;
 import org.thingsboard.server.common.adaptor.AdaptorException;
 import org.thingsboard.server.common.adaptor.JsonConverter;
+import org.thingsboard.server.common.adaptor.StreamingJsonConverter.GatewayDeviceMsg;
 import org.thingsboard.server.common.adaptor.ProtoConverter;
 import org.thingsboard.server.common.data.DataConstants;
 import org.thingsboard.server.common.data.Device;
@@ -365,25 +366,27 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
     }
 
     protected void onDeviceTelemetryJson(int msgId, ByteBuf payload) throws AdaptorException {
-        JsonElement json = JsonMqttAdaptor.validateJsonPayload(sessionId, payload);
-        validateJsonObject(json);
-        for (Map.Entry<String, JsonElement> deviceEntry : json.getAsJsonObject().entrySet()) {
-            if (!deviceEntry.getValue().isJsonArray()) {
-                log.warn("{}[{}]", CAN_T_PARSE_VALUE, json);
+        for (GatewayDeviceMsg<TransportProtos.PostTelemetryMsg> deviceMsg : JsonMqttAdaptor.convertToGatewayTelemetry(sessionId, payload)) {
+            String deviceName = deviceMsg.deviceName();
+            if (deviceMsg.isSkipped()) {
+                log.warn("{}[{}]", CAN_T_PARSE_VALUE, deviceName);
                 continue;
             }
-            String deviceName = deviceEntry.getKey();
-            process(deviceName, deviceCtx -> processPostTelemetryMsg(deviceCtx, deviceEntry.getValue(), deviceName, msgId),
+            process(deviceName, deviceCtx -> processPostTelemetryMsg(deviceCtx, deviceMsg, msgId),
                     t -> failedToProcessLog(deviceName, TELEMETRY, t));
         }
     }
 
-    private void processPostTelemetryMsg(T deviceCtx, JsonElement msg, String deviceName, int msgId) {
+    private void processPostTelemetryMsg(T deviceCtx, GatewayDeviceMsg<TransportProtos.PostTelemetryMsg> deviceMsg, int msgId) {
+        String deviceName = deviceMsg.deviceName();
         try {
-            TransportProtos.PostTelemetryMsg postTelemetryMsg = JsonConverter.convertToTelemetryProto(msg.getAsJsonArray());
+            if (deviceMsg.error() != null) {
+                throw deviceMsg.error();
+            }
+            TransportProtos.PostTelemetryMsg postTelemetryMsg = deviceMsg.msg();
             transportService.process(deviceCtx.getSessionInfo(), postTelemetryMsg, getPubAckCallback(channel, deviceName, msgId, postTelemetryMsg));
         } catch (Throwable e) {
-            log.warn("[{}][{}][{}] Failed to convert telemetry: [{}]", gateway.getTenantId(), gateway.getDeviceId(), deviceName, msg, e);
+            log.warn("[{}][{}][{}] Failed to convert telemetry", gateway.getTenantId(), gateway.getDeviceId(), deviceName, e);
             ackOrClose(msgId);
         }
     }
@@ -485,26 +488,27 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
     }
 
     private void onDeviceAttributesJson(int msgId, ByteBuf payload) throws AdaptorException {
-        JsonElement json = JsonMqttAdaptor.validateJsonPayload(sessionId, payload);
-        validateJsonObject(json);
-        for (Map.Entry<String, JsonElement> deviceEntry : json.getAsJsonObject().entrySet()) {
-            if (!deviceEntry.getValue().isJsonObject()) {
-                log.warn("{}[{}]", CAN_T_PARSE_VALUE, json);
+        for (GatewayDeviceMsg<TransportProtos.PostAttributeMsg> deviceMsg : JsonMqttAdaptor.convertToGatewayAttributes(sessionId, payload)) {
+            String deviceName = deviceMsg.deviceName();
+            if (deviceMsg.isSkipped()) {
+                log.warn("{}[{}]", CAN_T_PARSE_VALUE, deviceName);
                 continue;
             }
-
-            String deviceName = deviceEntry.getKey();
-            process(deviceName, deviceCtx -> processPostAttributesMsg(deviceCtx, deviceEntry.getValue(), deviceName, msgId),
+            process(deviceName, deviceCtx -> processPostAttributesMsg(deviceCtx, deviceMsg, msgId),
                     t -> failedToProcessLog(deviceName, ATTRIBUTE, t));
         }
     }
 
-    private void processPostAttributesMsg(MqttDeviceAwareSessionContext deviceCtx, JsonElement msg, String deviceName, int msgId) {
+    private void processPostAttributesMsg(MqttDeviceAwareSessionContext deviceCtx, GatewayDeviceMsg<TransportProtos.PostAttributeMsg> deviceMsg, int msgId) {
+        String deviceName = deviceMsg.deviceName();
         try {
-            TransportProtos.PostAttributeMsg postAttributeMsg = JsonConverter.convertToAttributesProto(msg.getAsJsonObject());
+            if (deviceMsg.error() != null) {
+                throw deviceMsg.error();
+            }
+            TransportProtos.PostAttributeMsg postAttributeMsg = deviceMsg.msg();
             transportService.process(deviceCtx.getSessionInfo(), postAttributeMsg, getPubAckCallback(channel, deviceName, msgId, postAttributeMsg));
         } catch (Throwable e) {
-            log.warn("[{}][{}][{}] Failed to process device attributes command: [{}]", gateway.getTenantId(), gateway.getDeviceId(), deviceName, msg, e);
+            log.warn("[{}][{}][{}] Failed to process device attributes command", gateway.getTenantId(), gateway.getDeviceId(), deviceName, e);
             ackOrClose(msgId);
         }
     }
@@ -0,0 +1,47 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport;
+
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+/**
+ * Caches the results of the device credentials validation, so that devices do not pay a round-trip to the core
+ * on every connection or every HTTP request. Unknown credentials are cached as well, for a shorter time.
+ */
+public interface TransportDeviceCredentialsCache {
+
+    /**
+     * Returns the current version of the cache. The version changes on every invalidation and is passed back to
+     * {@link #put} so that a response received after the invalidation of its device is not cached.
+     */
+    long getVersion();
+
+    TransportProtos.ValidateDeviceCredentialsResponseMsg get(TransportProtos.TransportApiRequestMsg request);
+
+    void put(TransportProtos.TransportApiRequestMsg request, TransportProtos.ValidateDeviceCredentialsResponseMsg response, long version);
+
+    void evict(DeviceId deviceId);
+
+    void evict(DeviceProfileId deviceProfileId);
+
+    void evict(TenantId tenantId);
+
+    void evictUnknown();
+
+}
@@ -18,6 +18,7 @@ package org.thingsboard.server.common.transport.limits;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.thingsboard.server.cache.limits.RateLimitsFactory;
 import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.StringUtils;
 import org.thingsboard.server.common.data.TenantProfile;
@@ -51,6 +52,10 @@ import static org.thingsboard.server.common.transport.limits.TransportLimitsType
 public class DefaultTransportRateLimitService implements TransportRateLimitService {
 
     private final static DummyTransportRateLimit ALLOW = new DummyTransportRateLimit();
+    private static final String REGULAR_MSG = "msg";
+    private static final String TELEMETRY_MSG = "telemetryMsg";
+    private static final String TELEMETRY_DATA_POINTS = "telemetryDataPoints";
+
     private final ConcurrentMap<TenantId, Boolean> tenantAllowed = new ConcurrentHashMap<>();
     private final ConcurrentMap<TenantId, Set<DeviceId>> tenantDevices = new ConcurrentHashMap<>();
     private final ConcurrentMap<TenantId, Set<DeviceId>> tenantGateways = new ConcurrentHashMap<>();
@@ -62,6 +67,7 @@ public class DefaultTransportRateLimitService implements TransportRateLimitServi
     private final Map<InetAddress, InetAddressRateLimitStats> ipMap = new ConcurrentHashMap<>();
 
     private final TransportTenantProfileCache tenantProfileCache;
+    private final RateLimitsFactory rateLimitsFactory;
 
     @Value("${transport.rate_limits.ip_limits_enabled:false}")
     private boolean ipRateLimitsEnabled;
@@ -70,8 +76,9 @@ public class DefaultTransportRateLimitService implements TransportRateLimitServi
     @Value("${transport.rate_limits.ip_block_timeout:60000}")
     private long ipBlockTimeout;
 
-    public DefaultTransportRateLimitService(TransportTenantProfileCache tenantProfileCache) {
+    public DefaultTransportRateLimitService(TransportTenantProfileCache tenantProfileCache, RateLimitsFactory rateLimitsFactory) {
         this.tenantProfileCache = tenantProfileCache;
+        this.rateLimitsFactory = rateLimitsFactory;
     }
 
     @Override
@@ -106,30 +113,28 @@ public class DefaultTransportRateLimitService implements TransportRateLimitServi
     @Override
     public void update(TenantProfileUpdateResult update) {
         log.info("Received tenant profile update: {}", update.getProfile());
-        EntityTransportRateLimits tenantRateLimitPrototype = createRateLimits(update.getProfile(), TENANT_LIMITS);
-        EntityTransportRateLimits deviceRateLimitPrototype = createRateLimits(update.getProfile(), DEVICE_LIMITS);
-        EntityTransportRateLimits gatewayRateLimitPrototype = createRateLimits(update.getProfile(), GATEWAY_LIMITS);
-        EntityTransportRateLimits gatewayDeviceRateLimitPrototype = createRateLimits(update.getProfile(), GATEWAY_DEVICE_LIMITS);
+        LimitsConfig tenantLimitsConfig = getLimitsConfig(update.getProfile(), TENANT_LIMITS);
+        LimitsConfig deviceLimitsConfig = getLimitsConfig(update.getProfile(), DEVICE_LIMITS);
+        LimitsConfig gatewayLimitsConfig = getLimitsConfig(update.getProfile(), GATEWAY_LIMITS);
+        LimitsConfig gatewayDeviceLimitsConfig = getLimitsConfig(update.getProfile(), GATEWAY_DEVICE_LIMITS);
         for (TenantId tenantId : update.getAffectedTenants()) {
-            update(tenantId, tenantRateLimitPrototype, deviceRateLimitPrototype, gatewayRateLimitPrototype, gatewayDeviceRateLimitPrototype);
+            update(tenantId, tenantLimitsConfig, deviceLimitsConfig, gatewayLimitsConfig, gatewayDeviceLimitsConfig);
         }
     }
 
     @Override
     public void update(TenantId tenantId) {
-        EntityTransportRateLimits tenantRateLimitPrototype = createRateLimits(tenantProfileCache.get(tenantId), TENANT_LIMITS);
-        EntityTransportRateLimits deviceRateLimitPrototype = createRateLimits(tenantProfileCache.get(tenantId), DEVICE_LIMITS);
-        EntityTransportRateLimits gatewayRateLimitPrototype = createRateLimits(tenantProfileCache.get(tenantId), GATEWAY_LIMITS);
-        EntityTransportRateLimits gatewayDeviceRateLimitPrototype = createRateLimits(tenantProfileCache.get(tenantId), GATEWAY_DEVICE_LIMITS);
-        update(tenantId, tenantRateLimitPrototype, deviceRateLimitPrototype, gatewayRateLimitPrototype, gatewayDeviceRateLimitPrototype);
+        TenantProfile tenantProfile = tenantProfileCache.get(tenantId);
+        update(tenantId, getLimitsConfig(tenantProfile, TENANT_LIMITS), getLimitsConfig(tenantProfile, DEVICE_LIMITS),
+                getLimitsConfig(tenantProfile, GATEWAY_LIMITS), getLimitsConfig(tenantProfile, GATEWAY_DEVICE_LIMITS));
     }
 
-    private void update(TenantId tenantId, EntityTransportRateLimits tenantRateLimitPrototype, EntityTransportRateLimits deviceRateLimitPrototype,
-                        EntityTransportRateLimits gatewayRateLimitPrototype, EntityTransportRateLimits gatewayDeviceRateLimitPrototype) {
-        mergeLimits(tenantId, tenantRateLimitPrototype, perTenantLimits::get, perTenantLimits::put);
-        getTenantDevices(tenantId).forEach(deviceId -> mergeLimits(deviceId, deviceRateLimitPrototype, perDeviceLimits::get, perDeviceLimits::put));
-        getTenantGateways(tenantId).forEach(gatewayId -> mergeLimits(gatewayId, gatewayRateLimitPrototype, perGatewayLimits::get, perGatewayLimits::put));
-        getTenantGatewayDevices(tenantId).forEach(gatewayId -> mergeLimits(gatewayId, gatewayDeviceRateLimitPrototype, perGatewayDeviceLimits::get, perGatewayDeviceLimits::put));
+    private void update(TenantId tenantId, LimitsConfig tenantLimitsConfig, LimitsConfig deviceLimitsConfig,
+                        LimitsConfig gatewayLimitsConfig, LimitsConfig gatewayDeviceLimitsConfig) {
+        mergeLimits(tenantId, TENANT_LIMITS, tenantLimitsConfig, perTenantLimits::get, perTenantLimits::put);
+        getTenantDevices(tenantId).forEach(deviceId -> mergeLimits(deviceId, DEVICE_LIMITS, deviceLimitsConfig, perDeviceLimits::get, perDeviceLimits::put));
+        getTenantGateways(tenantId).forEach(gatewayId -> mergeLimits(gatewayId, GATEWAY_LIMITS, gatewayLimitsConfig, perGatewayLimits::get, perGatewayLimits::put));
+        getTenantGatewayDevices(tenantId).forEach(gatewayId -> mergeLimits(gatewayId, GATEWAY_DEVICE_LIMITS, gatewayDeviceLimitsConfig, perGatewayDeviceLimits::get, perGatewayDeviceLimits::put));
     }
 
     @Override
@@ -224,11 +229,16 @@ public class DefaultTransportRateLimitService implements TransportRateLimitServi
         }
     }
 
-    private <T extends EntityId> void mergeLimits(T entityId, EntityTransportRateLimits newRateLimits,
+    /**
+     * Only the configuration is shared between the entities of the tenant: every entity gets its own limits,
+     * since distributed rate limits are keyed by the entity.
+     */
+    private <T extends EntityId> void mergeLimits(T entityId, TransportLimitsType limitsType, LimitsConfig limitsConfig,
                                                   Function<T, EntityTransportRateLimits> getFunction,
                                                   BiConsumer<T, EntityTransportRateLimits> putFunction) {
         EntityTransportRateLimits oldRateLimits = getFunction.apply(entityId);
         if (oldRateLimits == null) {
+            EntityTransportRateLimits newRateLimits = newRateLimits(entityId, limitsType, limitsConfig);
             if (EntityType.TENANT.equals(entityId.getEntityType())) {
                 log.info("[{}] New rate limits: {}", entityId, newRateLimits);
             } else {
@@ -236,7 +246,7 @@ public class DefaultTransportRateLimitService implements TransportRateLimitServi
             }
             putFunction.accept(entityId, newRateLimits);
         } else {
-            EntityTransportRateLimits updated = merge(oldRateLimits, newRateLimits);
+            EntityTransportRateLimits updated = merge(entityId, limitsType, oldRateLimits, limitsConfig);
             if (updated != null) {
                 if (EntityType.TENANT.equals(entityId.getEntityType())) {
                     log.info("[{}] Updated rate limits: {}", entityId, updated);
@@ -248,68 +258,64 @@ public class DefaultTransportRateLimitService implements TransportRateLimitServi
         }
     }
 
-    private EntityTransportRateLimits merge(EntityTransportRateLimits oldRateLimits, EntityTransportRateLimits newRateLimits) {
-        boolean regularUpdate = !oldRateLimits.getRegularMsgRateLimit().getConfiguration().equals(newRateLimits.getRegularMsgRateLimit().getConfiguration());
-        boolean telemetryMsgRateUpdate = !oldRateLimits.getTelemetryMsgRateLimit().getConfiguration().equals(newRateLimits.getTelemetryMsgRateLimit().getConfiguration());
-        boolean telemetryDataPointUpdate = !oldRateLimits.getTelemetryDataPointsRateLimit().getConfiguration().equals(newRateLimits.getTelemetryDataPointsRateLimit().getConfiguration());
+    private EntityTransportRateLimits merge(EntityId entityId, TransportLimitsType limitsType,
+                                            EntityTransportRateLimits oldRateLimits, LimitsConfig newLimitsConfig) {
+        boolean regularUpdate = !oldRateLimits.getRegularMsgRateLimit().getConfiguration().equals(newLimitsConfig.regularMsg());
+        boolean telemetryMsgRateUpdate = !oldRateLimits.getTelemetryMsgRateLimit().getConfiguration().equals(newLimitsConfig.telemetryMsg());
+        boolean telemetryDataPointUpdate = !oldRateLimits.getTelemetryDataPointsRateLimit().getConfiguration().equals(newLimitsConfig.telemetryDataPoints());
         if (regularUpdate || telemetryMsgRateUpdate || telemetryDataPointUpdate) {
             return new EntityTransportRateLimits(
-                    regularUpdate ? newLimit(newRateLimits.getRegularMsgRateLimit().getConfiguration()) : oldRateLimits.getRegularMsgRateLimit(),
-                    telemetryMsgRateUpdate ? newLimit(newRateLimits.getTelemetryMsgRateLimit().getConfiguration()) : oldRateLimits.getTelemetryMsgRateLimit(),
-                    telemetryDataPointUpdate ? newLimit(newRateLimits.getTelemetryDataPointsRateLimit().getConfiguration()) : oldRateLimits.getTelemetryDataPointsRateLimit());
+                    regularUpdate ? newLimit(entityId, limitsType, REGULAR_MSG, newLimitsConfig.regularMsg()) : oldRateLimits.getRegularMsgRateLimit(),
+                    telemetryMsgRateUpdate ? newLimit(entityId, limitsType, TELEMETRY_MSG, newLimitsConfig.telemetryMsg()) : oldRateLimits.getTelemetryMsgRateLimit(),
+                    telemetryDataPointUpdate ? newLimit(entityId, limitsType, TELEMETRY_DATA_POINTS, newLimitsConfig.telemetryDataPoints()) : oldRateLimits.getTelemetryDataPointsRateLimit());
         } else {
             return null;
         }
     }
 
-    private EntityTransportRateLimits createRateLimits(TenantProfile tenantProfile, TransportLimitsType limitsType) {
+    private EntityTransportRateLimits createRateLimits(TenantProfile tenantProfile, TransportLimitsType limitsType, EntityId entityId) {
+        return newRateLimits(entityId, limitsType, getLimitsConfig(tenantProfile, limitsType));
+    }
+
+    private EntityTransportRateLimits newRateLimits(EntityId entityId, TransportLimitsType limitsType, LimitsConfig limitsConfig) {
+        return new EntityTransportRateLimits(
+                newLimit(entityId, limitsType, REGULAR_MSG, limitsConfig.regularMsg()),
+                newLimit(entityId, limitsType, TELEMETRY_MSG, limitsConfig.telemetryMsg()),
+                newLimit(entityId, limitsType, TELEMETRY_DATA_POINTS, limitsConfig.telemetryDataPoints()));
+    }
+
+    private LimitsConfig getLimitsConfig(TenantProfile tenantProfile, TransportLimitsType limitsType) {
         TenantProfileData profileData = tenantProfile.getProfileData();
         DefaultTenantProfileConfiguration profile = (DefaultTenantProfileConfiguration) profileData.getConfiguration();
         if (profile == null) {
-            return new EntityTransportRateLimits(ALLOW, ALLOW, ALLOW);
-        } else {
-            TransportRateLimit regularMsgRateLimit;
-            TransportRateLimit telemetryMsgRateLimit;
-            TransportRateLimit telemetryDpRateLimit;
-            switch (limitsType) {
-                case TENANT_LIMITS -> {
-                    regularMsgRateLimit = newLimit(profile.getTransportTenantMsgRateLimit());
-                    telemetryMsgRateLimit = newLimit(profile.getTransportTenantTelemetryMsgRateLimit());
-                    telemetryDpRateLimit = newLimit(profile.getTransportTenantTelemetryDataPointsRateLimit());
-                }
-                case DEVICE_LIMITS -> {
-                    regularMsgRateLimit = newLimit(profile.getTransportDeviceMsgRateLimit());
-                    telemetryMsgRateLimit = newLimit(profile.getTransportDeviceTelemetryMsgRateLimit());
-                    telemetryDpRateLimit = newLimit(profile.getTransportDeviceTelemetryDataPointsRateLimit());
-                }
-                case GATEWAY_LIMITS -> {
-                    regularMsgRateLimit = newLimit(profile.getTransportGatewayMsgRateLimit());
-                    telemetryMsgRateLimit = newLimit(profile.getTransportGatewayTelemetryMsgRateLimit());
-                    telemetryDpRateLimit = newLimit(profile.getTransportGatewayTelemetryDataPointsRateLimit());
-                }
-                case GATEWAY_DEVICE_LIMITS -> {
-                    regularMsgRateLimit = newLimit(profile.getTransportGatewayDeviceMsgRateLimit());
-                    telemetryMsgRateLimit = newLimit(profile.getTransportGatewayDeviceTelemetryMsgRateLimit());
-                    telemetryDpRateLimit = newLimit(profile.getTransportGatewayDeviceTelemetryDataPointsRateLimit());
-                }
-                default -> throw new IllegalStateException("Unknown limits type: " + limitsType);
-            }
-
-            return new EntityTransportRateLimits(regularMsgRateLimit, telemetryMsgRateLimit, telemetryDpRateLimit);
+            return LimitsConfig.NONE;
         }
+        return switch (limitsType) {
+            case TENANT_LIMITS -> new LimitsConfig(profile.getTransportTenantMsgRateLimit(),
+                    profile.getTransportTenantTelemetryMsgRateLimit(), profile.getTransportTenantTelemetryDataPointsRateLimit());
+            case DEVICE_LIMITS -> new LimitsConfig(profile.getTransportDeviceMsgRateLimit(),
+                    profile.getTransportDeviceTelemetryMsgRateLimit(), profile.getTransportDeviceTelemetryDataPointsRateLimit());
+            case GATEWAY_LIMITS -> new LimitsConfig(profile.getTransportGatewayMsgRateLimit(),
+                    profile.getTransportGatewayTelemetryMsgRateLimit(), profile.getTransportGatewayTelemetryDataPointsRateLimit());
+            case GATEWAY_DEVICE_LIMITS -> new LimitsConfig(profile.getTransportGatewayDeviceMsgRateLimit(),
+                    profile.getTransportGatewayDeviceTelemetryMsgRateLimit(), profile.getTransportGatewayDeviceTelemetryDataPointsRateLimit());
+        };
     }
 
-    private static TransportRateLimit newLimit(String config) {
-        return StringUtils.isEmpty(config) ? ALLOW : new SimpleTransportRateLimit(config);
+    private TransportRateLimit newLimit(EntityId entityId, TransportLimitsType limitsType, String limitName, String config) {
+        if (config.isEmpty()) {
+            return ALLOW;
+        }
+        return new SimpleTransportRateLimit(rateLimitsFactory.create(limitsType + "::" + limitName + "::" + entityId, config, false), config);
     }
 
     private EntityTransportRateLimits getTenantRateLimits(TenantId tenantId) {
-        return perTenantLimits.computeIfAbsent(tenantId, k -> createRateLimits(tenantProfileCache.get(tenantId), TENANT_LIMITS));
+        return perTenantLimits.computeIfAbsent(tenantId, k -> createRateLimits(tenantProfileCache.get(tenantId), TENANT_LIMITS, tenantId));
     }
 
     private EntityTransportRateLimits getDeviceRateLimits(TenantId tenantId, DeviceId deviceId) {
         return perDeviceLimits.computeIfAbsent(deviceId, k -> {
-            EntityTransportRateLimits limits = createRateLimits(tenantProfileCache.get(tenantId), DEVICE_LIMITS);
+            EntityTransportRateLimits limits = createRateLimits(tenantProfileCache.get(tenantId), DEVICE_LIMITS, deviceId);
             getTenantDevices(tenantId).add(deviceId);
             return limits;
         });
@@ -317,7 +323,7 @@ public class DefaultTransportRateLimitService implements TransportRateLimitServi
 
     private EntityTransportRateLimits getGatewayRateLimits(TenantId tenantId, DeviceId gatewayId) {
         return perGatewayLimits.computeIfAbsent(gatewayId, k -> {
-            EntityTransportRateLimits limits = createRateLimits(tenantProfileCache.get(tenantId), GATEWAY_LIMITS);
+            EntityTransportRateLimits limits = createRateLimits(tenantProfileCache.get(tenantId), GATEWAY_LIMITS, gatewayId);
             getTenantGateways(tenantId).add(gatewayId);
             return limits;
         });
@@ -325,7 +331,7 @@ public class DefaultTransportRateLimitService implements TransportRateLimitServi
 
     private EntityTransportRateLimits getGatewayDeviceRateLimits(TenantId tenantId, DeviceId gatewayId) {
         return perGatewayDeviceLimits.computeIfAbsent(gatewayId, k -> {
-            EntityTransportRateLimits limits = createRateLimits(tenantProfileCache.get(tenantId), GATEWAY_DEVICE_LIMITS);
+            EntityTransportRateLimits limits = createRateLimits(tenantProfileCache.get(tenantId), GATEWAY_DEVICE_LIMITS, gatewayId);
             getTenantGatewayDevices(tenantId).add(gatewayId);
             return limits;
         });
@@ -343,4 +349,19 @@ public class DefaultTransportRateLimitService implements TransportRateLimitServi
         return tenantGatewayDevices.computeIfAbsent(tenantId, id -> ConcurrentHashMap.newKeySet());
     }
 
+    /**
+     * Rate limits configuration of the entities of one type, empty strings mean no limits.
+     */
+    private record LimitsConfig(String regularMsg, String telemetryMsg, String telemetryDataPoints) {
+
+        static final LimitsConfig NONE = new LimitsConfig("", "", "");
+
+        LimitsConfig {
+            regularMsg = StringUtils.isEmpty(regularMsg) ? "" : regularMsg;
+            telemetryMsg = StringUtils.isEmpty(telemetryMsg) ? "" : telemetryMsg;
+            telemetryDataPoints = StringUtils.isEmpty(telemetryDataPoints) ? "" : telemetryDataPoints;
+        }
+
+    }
+
 }
@@ -17,12 +17,13 @@ package org.thingsboard.server.common.transport.limits;
 
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.thingsboard.server.common.msg.tools.TbRateLimiter;
 import org.thingsboard.server.common.msg.tools.TbRateLimits;
 
 @RequiredArgsConstructor
 public class SimpleTransportRateLimit implements TransportRateLimit {
 
-    private final TbRateLimits rateLimit;
+    private final TbRateLimiter rateLimit;
     @Getter
     private final String configuration;
 
@@ -0,0 +1,187 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.transport.TransportDeviceCredentialsCache;
+import org.thingsboard.server.gen.transport.TransportProtos.DeviceInfoProto;
+import org.thingsboard.server.gen.transport.TransportProtos.TransportApiRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.ValidateDeviceCredentialsResponseMsg;
+import org.thingsboard.server.queue.util.TbTransportComponent;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+@Slf4j
+@Service
+@TbTransportComponent
+public class DefaultTransportDeviceCredentialsCache implements TransportDeviceCredentialsCache {
+
+    private final boolean enabled;
+    private final Cache<TransportApiRequestMsg, ValidateDeviceCredentialsResponseMsg> cache;
+    private final Cache<TransportApiRequestMsg, ValidateDeviceCredentialsResponseMsg> unknownCache;
+    private final ConcurrentMap<DeviceId, Set<TransportApiRequestMsg>> deviceRequests = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    public DefaultTransportDeviceCredentialsCache(@Value("${cache.transportDeviceCredentials.enabled:false}") boolean enabled,
+                                                  @Value("${cache.transportDeviceCredentials.timeToLiveInMinutes:5}") int ttl,
+                                                  @Value("${cache.transportDeviceCredentials.maxSize:100000}") int maxSize,
+                                                  @Value("${cache.transportDeviceCredentials.unknown.timeToLiveInSeconds:30}") int unknownTtl,
+                                                  @Value("${cache.transportDeviceCredentials.unknown.maxSize:10000}") int unknownMaxSize) {
+        this.enabled = enabled && maxSize > 0;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl, TimeUnit.MINUTES)
+                .maximumSize(Math.max(maxSize, 0))
+                .<TransportApiRequestMsg, ValidateDeviceCredentialsResponseMsg>evictionListener((request, response, cause) -> {
+                    if (request != null && response != null) {
+                        unindex(request, response);
+                    }
+                })
+                .build();
+        this.unknownCache = Caffeine.newBuilder()
+                .expireAfterWrite(unknownTtl, TimeUnit.SECONDS)
+                .maximumSize(Math.max(unknownMaxSize, 0))
+                .build();
+    }
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    @Override
+    public ValidateDeviceCredentialsResponseMsg get(TransportApiRequestMsg request) {
+        if (!enabled || !isCacheable(request)) {
+            return null;
+        }
+        ValidateDeviceCredentialsResponseMsg response = cache.getIfPresent(request);
+        return response != null ? response : unknownCache.getIfPresent(request);
+    }
+
+    @Override
+    public void put(TransportApiRequestMsg request, ValidateDeviceCredentialsResponseMsg response, long version) {
+        if (!enabled || !isCacheable(request)) {
+            return;
+        }
+        if (!response.hasDeviceInfo()) {
+            unknownCache.put(request, response);
+            if (this.version.get() != version) {
+                unknownCache.asMap().remove(request, response);
+            }
+            return;
+        }
+        DeviceId deviceId = getDeviceId(response.getDeviceInfo());
+        deviceRequests.compute(deviceId, (id, requests) -> {
+            if (requests == null) {
+                requests = ConcurrentHashMap.newKeySet();
+            }
+            requests.add(request);
+            return requests;
+        });
+        ValidateDeviceCredentialsResponseMsg old = cache.asMap().put(request, response);
+        if (old != null && !deviceId.equals(getDeviceId(old.getDeviceInfo()))) {
+            unindex(request, old);
+        }
+        // The version is checked after the entry is indexed: invalidations that happen later will find and remove it,
+        // and the ones that happened while the request was in flight are detected here.
+        if (this.version.get() != version && cache.asMap().remove(request, response)) {
+            log.trace("[{}] Discarding the credentials validation result received after the invalidation", deviceId);
+            unindex(request, response);
+        }
+    }
+
+    @Override
+    public void evict(DeviceId deviceId) {
+        if (!enabled) {
+            return;
+        }
+        version.incrementAndGet();
+        Set<TransportApiRequestMsg> requests = deviceRequests.remove(deviceId);
+        if (requests != null) {
+            cache.invalidateAll(requests);
+        }
+    }
+
+    @Override
+    public void evict(DeviceProfileId deviceProfileId) {
+        UUID id = deviceProfileId.getId();
+        evictIf(deviceInfo -> deviceInfo.getDeviceProfileIdMSB() == id.getMostSignificantBits()
+                && deviceInfo.getDeviceProfileIdLSB() == id.getLeastSignificantBits());
+    }
+
+    @Override
+    public void evict(TenantId tenantId) {
+        UUID id = tenantId.getId();
+        evictIf(deviceInfo -> deviceInfo.getTenantIdMSB() == id.getMostSignificantBits()
+                && deviceInfo.getTenantIdLSB() == id.getLeastSignificantBits());
+    }
+
+    @Override
+    public void evictUnknown() {
+        if (!enabled) {
+            return;
+        }
+        version.incrementAndGet();
+        unknownCache.invalidateAll();
+    }
+
+    /*
+     * Device profile and tenant changes are rare, so a full scan is used instead of additional indexes.
+     * */
+    private void evictIf(Predicate<DeviceInfoProto> predicate) {
+        if (!enabled) {
+            return;
+        }
+        version.incrementAndGet();
+        for (Map.Entry<TransportApiRequestMsg, ValidateDeviceCredentialsResponseMsg> entry : cache.asMap().entrySet()) {
+            if (predicate.test(entry.getValue().getDeviceInfo()) && cache.asMap().remove(entry.getKey(), entry.getValue())) {
+                unindex(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void unindex(TransportApiRequestMsg request, ValidateDeviceCredentialsResponseMsg response) {
+        deviceRequests.computeIfPresent(getDeviceId(response.getDeviceInfo()), (id, requests) -> {
+            requests.remove(request);
+            return requests.isEmpty() ? null : requests;
+        });
+    }
+
+    /*
+     * The requests that may create a device are not cached.
+     * */
+    private static boolean isCacheable(TransportApiRequestMsg request) {
+        return request.hasValidateTokenRequestMsg() || request.hasValidateBasicMqttCredRequestMsg() || request.hasValidateX509CertRequestMsg();
+    }
+
+    private static DeviceId getDeviceId(DeviceInfoProto deviceInfo) {
+        return new DeviceId(new UUID(deviceInfo.getDeviceIdMSB(), deviceInfo.getDeviceIdLSB()));
+    }
+
+}
@@ -52,6 +52,7 @@ import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.RuleChainId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.id.TenantProfileId;
+import org.thingsboard.server.common.data.kv.KvEntry;
 import org.thingsboard.server.common.data.limit.LimitedApi;
 import org.thingsboard.server.common.data.msg.TbMsgType;
 import org.thingsboard.server.common.data.notification.rule.trigger.RateLimitsTrigger;
@@ -71,6 +72,7 @@ import org.thingsboard.server.common.transport.DeviceDeletedEvent;
 import org.thingsboard.server.common.transport.DeviceProfileUpdatedEvent;
 import org.thingsboard.server.common.transport.DeviceUpdatedEvent;
 import org.thingsboard.server.common.transport.SessionMsgListener;
+import org.thingsboard.server.common.transport.TransportDeviceCredentialsCache;
 import org.thingsboard.server.common.transport.TransportDeviceProfileCache;
 import org.thingsboard.server.common.transport.TransportResourceCache;
 import org.thingsboard.server.common.transport.TransportService;
@@ -83,6 +85,7 @@ import org.thingsboard.server.common.transport.limits.EntityLimitKey;
 import org.thingsboard.server.common.transport.limits.EntityLimitsCache;
 import org.thingsboard.server.common.transport.limits.TransportRateLimitService;
 import org.thingsboard.server.common.transport.util.JsonUtils;
+import org.thingsboard.server.common.util.KvProtoUtil;
 import org.thingsboard.server.common.util.ProtoUtils;
 import org.thingsboard.server.gen.transport.TransportProtos;
 import org.thingsboard.server.gen.transport.TransportProtos.ProvisionDeviceRequestMsg;
@@ -111,6 +114,7 @@ import org.thingsboard.server.queue.scheduler.SchedulerComponent;
 import org.thingsboard.server.queue.util.AfterStartUp;
 import org.thingsboard.server.queue.util.TbTransportComponent;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -125,6 +129,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
 /**
@@ -156,6 +161,8 @@ public class DefaultTransportService extends TransportActivityManager implements
     private int notificationsPollDuration;
     @Value("${transport.stats.enabled:false}")
     private boolean statsEnabled;
+    @Value("${transport.rule_engine.typed_payload_enabled:false}")
+    private boolean typedPayloadEnabled;
 
     @Autowired
     @Lazy
@@ -173,6 +180,7 @@ public class DefaultTransportService extends TransportActivityManager implements
     private final StatsFactory statsFactory;
     private final TransportDeviceProfileCache deviceProfileCache;
     private final TransportTenantProfileCache tenantProfileCache;
+    private final TransportDeviceCredentialsCache deviceCredentialsCache;
 
     private final TransportRateLimitService rateLimitService;
     private final SchedulerComponent scheduler;
@@ -404,8 +412,20 @@ public class DefaultTransportService extends TransportActivityManager implements
 
     private void doProcess(DeviceTransportType transportType, TbProtoQueueMsg<TransportApiRequestMsg> protoMsg,
                            TransportServiceCallback<ValidateDeviceCredentialsResponse> callback) {
-        ListenableFuture<ValidateDeviceCredentialsResponse> response = Futures.transform(transportApiRequestTemplate.send(protoMsg), tmp -> {
-            TransportProtos.ValidateDeviceCredentialsResponseMsg msg = tmp.getValue().getValidateCredResponseMsg();
+        TransportApiRequestMsg requestMsg = protoMsg.getValue();
+        TransportProtos.ValidateDeviceCredentialsResponseMsg cachedMsg = deviceCredentialsCache.get(requestMsg);
+        ListenableFuture<TransportProtos.ValidateDeviceCredentialsResponseMsg> responseMsg;
+        if (cachedMsg != null) {
+            responseMsg = Futures.immediateFuture(cachedMsg);
+        } else {
+            long cacheVersion = deviceCredentialsCache.getVersion();
+            responseMsg = Futures.transform(transportApiRequestTemplate.send(protoMsg), tmp -> {
+                TransportProtos.ValidateDeviceCredentialsResponseMsg msg = tmp.getValue().getValidateCredResponseMsg();
+                deviceCredentialsCache.put(requestMsg, msg, cacheVersion);
+                return msg;
+            }, MoreExecutors.directExecutor());
+        }
+        ListenableFuture<ValidateDeviceCredentialsResponse> response = Futures.transform(responseMsg, msg -> {
             ValidateDeviceCredentialsResponse.ValidateDeviceCredentialsResponseBuilder result = ValidateDeviceCredentialsResponse.builder();
             if (msg.hasDeviceInfo()) {
                 result.credentials(msg.getCredentialsBody());
@@ -555,8 +575,7 @@ public class DefaultTransportService extends TransportActivityManager implements
                 metaData.putValue("deviceName", sessionInfo.getDeviceName());
                 metaData.putValue("deviceType", sessionInfo.getDeviceType());
                 metaData.putValue("ts", tsKv.getTs() + "");
-                JsonObject json = JsonUtils.getJsonObject(tsKv.getKvList());
-                sendToRuleEngine(tenantId, deviceId, customerId, sessionInfo, json, metaData, TbMsgType.POST_TELEMETRY_REQUEST, packCallback);
+                sendToRuleEngine(tenantId, deviceId, customerId, sessionInfo, tsKv.getKvList(), metaData, TbMsgType.POST_TELEMETRY_REQUEST, packCallback);
             }
         }
     }
@@ -572,7 +591,6 @@ public class DefaultTransportService extends TransportActivityManager implements
             recordActivityInternal(sessionInfo);
             TenantId tenantId = getTenantId(sessionInfo);
             DeviceId deviceId = new DeviceId(new UUID(sessionInfo.getDeviceIdMSB(), sessionInfo.getDeviceIdLSB()));
-            JsonObject json = JsonUtils.getJsonObject(msg.getKvList());
             TbMsgMetaData metaData = md != null ? md.copy() : new TbMsgMetaData();
             metaData.putValue("deviceName", sessionInfo.getDeviceName());
             metaData.putValue("deviceType", sessionInfo.getDeviceType());
@@ -581,7 +599,7 @@ public class DefaultTransportService extends TransportActivityManager implements
             }
             metaData.putValue(DataConstants.NOTIFY_DEVICE_METADATA_KEY, "false");
             CustomerId customerId = getCustomerId(sessionInfo);
-            sendToRuleEngine(tenantId, deviceId, customerId, sessionInfo, json, metaData, TbMsgType.POST_ATTRIBUTES_REQUEST,
+            sendToRuleEngine(tenantId, deviceId, customerId, sessionInfo, msg.getKvList(), metaData, TbMsgType.POST_ATTRIBUTES_REQUEST,
                     new TransportTbQueueCallback(new ApiStatsProxyCallback<>(tenantId, customerId, msg.getKvList().size(), callback)));
         }
     }
@@ -921,14 +939,17 @@ public class DefaultTransportService extends TransportActivityManager implements
                 UUID entityUuid = new UUID(msg.getEntityIdMSB(), msg.getEntityIdLSB());
                 if (EntityType.DEVICE_PROFILE.equals(entityType)) {
                     deviceProfileCache.evict(new DeviceProfileId(new UUID(msg.getEntityIdMSB(), msg.getEntityIdLSB())));
+                    deviceCredentialsCache.evict(new DeviceProfileId(entityUuid));
                 } else if (EntityType.TENANT_PROFILE.equals(entityType)) {
                     tenantProfileCache.remove(new TenantProfileId(entityUuid));
                 } else if (EntityType.TENANT.equals(entityType)) {
                     TenantId tenantId = TenantId.fromUUID(entityUuid);
                     rateLimitService.remove(tenantId);
                     partitionService.removeTenant(tenantId);
+                    deviceCredentialsCache.evict(tenantId);
                 } else if (EntityType.DEVICE.equals(entityType)) {
                     rateLimitService.remove(new DeviceId(entityUuid));
+                    deviceCredentialsCache.evict(new DeviceId(entityUuid));
                     onDeviceDeleted(new DeviceId(entityUuid));
                 }
             } else if (toSessionMsg.hasResourceUpdateMsg()) {
@@ -989,6 +1010,7 @@ public class DefaultTransportService extends TransportActivityManager implements
             case DEVICEPROFILE:
                 DeviceProfile deviceProfile = deviceProfileCache.put(msg.getDeviceProfile());
                 log.debug("On device profile update: {}", deviceProfile);
+                deviceCredentialsCache.evict(deviceProfile.getId());
                 onProfileUpdate(deviceProfile);
                 break;
             case TENANTPROFILE:
@@ -1008,7 +1030,16 @@ public class DefaultTransportService extends TransportActivityManager implements
                 //TODO: if transport is disabled, we should close all sessions and not to check credentials.
                 break;
             case DEVICE:
-                onDeviceUpdate(ProtoUtils.fromProto(msg.getDevice()));
+                Device device = ProtoUtils.fromProto(msg.getDevice());
+                deviceCredentialsCache.evict(device.getId());
+                // The device may be a new one, using credentials that were previously unknown.
+                deviceCredentialsCache.evictUnknown();
+                onDeviceUpdate(device);
+                break;
+            case DEVICECREDENTIALS:
+                TransportProtos.DeviceCredentialsProto deviceCredentials = msg.getDeviceCredentials();
+                deviceCredentialsCache.evict(new DeviceId(new UUID(deviceCredentials.getDeviceIdMSB(), deviceCredentials.getDeviceIdLSB())));
+                deviceCredentialsCache.evictUnknown();
                 break;
             default:
                 log.warn("UNKNOWN entity update type: [{}]", msg.getEntityUpdateCase());
@@ -1112,8 +1143,28 @@ public class DefaultTransportService extends TransportActivityManager implements
         tbCoreMsgProducer.send(tpi, new TbProtoQueueMsg<>(routingKey, msg), wrappedCallback);
     }
 
+    private void sendToRuleEngine(TenantId tenantId, DeviceId deviceId, CustomerId customerId, TransportProtos.SessionInfoProto sessionInfo, List<TransportProtos.KeyValueProto> kvList,
+                                  TbMsgMetaData metaData, TbMsgType tbMsgType, TbQueueCallback callback) {
+        if (!typedPayloadEnabled) {
+            sendToRuleEngine(tenantId, deviceId, customerId, sessionInfo, JsonUtils.getJsonObject(kvList), metaData, tbMsgType, callback);
+            return;
+        }
+        List<KvEntry> kvEntries = new ArrayList<>(kvList.size());
+        for (TransportProtos.KeyValueProto kv : kvList) {
+            kvEntries.add(KvProtoUtil.fromTsKvProto(kv));
+        }
+        sendToRuleEngine(tenantId, sessionInfo, (queueName, ruleChainId) ->
+                TbMsg.newKvMsg(queueName, tbMsgType, deviceId, customerId, metaData, kvEntries, ruleChainId, null), callback);
+    }
+
     private void sendToRuleEngine(TenantId tenantId, DeviceId deviceId, CustomerId customerId, TransportProtos.SessionInfoProto sessionInfo, JsonObject json,
                                   TbMsgMetaData metaData, TbMsgType tbMsgType, TbQueueCallback callback) {
+        sendToRuleEngine(tenantId, sessionInfo, (queueName, ruleChainId) ->
+                TbMsg.newMsg(queueName, tbMsgType, deviceId, customerId, metaData, gson.toJson(json), ruleChainId, null), callback);
+    }
+
+    private void sendToRuleEngine(TenantId tenantId, TransportProtos.SessionInfoProto sessionInfo,
+                                  BiFunction<String, RuleChainId, TbMsg> msgFactory, TbQueueCallback callback) {
         DeviceProfileId deviceProfileId = new DeviceProfileId(new UUID(sessionInfo.getDeviceProfileIdMSB(), sessionInfo.getDeviceProfileIdLSB()));
         DeviceProfile deviceProfile = deviceProfileCache.get(deviceProfileId);
         RuleChainId ruleChainId;
@@ -1128,7 +1179,7 @@ public class DefaultTransportService extends TransportActivityManager implements
             queueName = deviceProfile.getDefaultQueueName();
         }
 
-        TbMsg tbMsg = TbMsg.newMsg(queueName, tbMsgType, deviceId, customerId, metaData, gson.toJson(json), ruleChainId, null);
+        TbMsg tbMsg = msgFactory.apply(queueName, ruleChainId);
         ruleEngineProducerService.sendToRuleEngine(ruleEngineMsgProducer, tenantId, tbMsg, new StatsCallback(callback, ruleEngineProducerStats));
         ruleEngineProducerStats.incrementTotal();
     }
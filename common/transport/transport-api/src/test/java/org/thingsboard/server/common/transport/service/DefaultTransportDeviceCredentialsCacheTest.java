@@ -0,0 +1,147 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.gen.transport.TransportProtos.TransportApiRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.ValidateDeviceCredentialsResponseMsg;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DefaultTransportDeviceCredentialsCacheTest {
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final DeviceProfileId deviceProfileId = new DeviceProfileId(UUID.randomUUID());
+
+    private DefaultTransportDeviceCredentialsCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new DefaultTransportDeviceCredentialsCache(true, 5, 100, 30, 100);
+    }
+
+    @Test
+    public void testValidCredentialsAreCachedUntilDeviceIsChanged() {
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        TransportApiRequestMsg request = tokenRequest("token1");
+        TransportApiRequestMsg otherRequest = tokenRequest("token2");
+        ValidateDeviceCredentialsResponseMsg response = validResponse(deviceId);
+
+        cache.put(request, response, cache.getVersion());
+        cache.put(otherRequest, validResponse(new DeviceId(UUID.randomUUID())), cache.getVersion());
+        assertThat(cache.get(request)).isEqualTo(response);
+
+        cache.evict(deviceId);
+        assertThat(cache.get(request)).isNull();
+        assertThat(cache.get(otherRequest)).isNotNull();
+    }
+
+    @Test
+    public void testUnknownCredentialsAreCachedUntilDeviceIsChanged() {
+        TransportApiRequestMsg request = tokenRequest("unknown");
+
+        cache.put(request, ValidateDeviceCredentialsResponseMsg.getDefaultInstance(), cache.getVersion());
+        assertThat(cache.get(request)).isEqualTo(ValidateDeviceCredentialsResponseMsg.getDefaultInstance());
+
+        cache.evictUnknown();
+        assertThat(cache.get(request)).isNull();
+    }
+
+    @Test
+    public void testResponseReceivedAfterInvalidationIsNotCached() {
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        TransportApiRequestMsg request = tokenRequest("token");
+        TransportApiRequestMsg unknownRequest = tokenRequest("unknown");
+
+        long version = cache.getVersion();
+        cache.evict(deviceId);
+        cache.put(request, validResponse(deviceId), version);
+        cache.put(unknownRequest, ValidateDeviceCredentialsResponseMsg.getDefaultInstance(), version);
+
+        assertThat(cache.get(request)).isNull();
+        assertThat(cache.get(unknownRequest)).isNull();
+    }
+
+    @Test
+    public void testEvictByDeviceProfileAndTenant() {
+        TransportApiRequestMsg request = tokenRequest("token");
+        TransportApiRequestMsg basicRequest = TransportApiRequestMsg.newBuilder()
+                .setValidateBasicMqttCredRequestMsg(TransportProtos.ValidateBasicMqttCredRequestMsg.newBuilder()
+                        .setClientId("clientId").setUserName("userName").setPassword("password").build())
+                .build();
+
+        cache.put(request, validResponse(new DeviceId(UUID.randomUUID())), cache.getVersion());
+        cache.put(basicRequest, validResponse(new DeviceId(UUID.randomUUID())), cache.getVersion());
+        cache.evict(new DeviceProfileId(UUID.randomUUID()));
+        assertThat(cache.get(request)).isNotNull();
+
+        cache.evict(deviceProfileId);
+        assertThat(cache.get(request)).isNull();
+        assertThat(cache.get(basicRequest)).isNull();
+
+        cache.put(request, validResponse(new DeviceId(UUID.randomUUID())), cache.getVersion());
+        cache.evict(tenantId);
+        assertThat(cache.get(request)).isNull();
+    }
+
+    @Test
+    public void testRequestsThatMayCreateDeviceAreNotCached() {
+        TransportApiRequestMsg request = TransportApiRequestMsg.newBuilder()
+                .setValidateOrCreateX509CertRequestMsg(TransportProtos.ValidateOrCreateDeviceX509CertRequestMsg.newBuilder()
+                        .setCertificateChain("chain").build())
+                .build();
+
+        cache.put(request, validResponse(new DeviceId(UUID.randomUUID())), cache.getVersion());
+        assertThat(cache.get(request)).isNull();
+    }
+
+    @Test
+    public void testDisabledCache() {
+        cache = new DefaultTransportDeviceCredentialsCache(false, 5, 100, 30, 100);
+        TransportApiRequestMsg request = tokenRequest("token");
+
+        cache.put(request, validResponse(new DeviceId(UUID.randomUUID())), cache.getVersion());
+        assertThat(cache.get(request)).isNull();
+    }
+
+    private static TransportApiRequestMsg tokenRequest(String token) {
+        return TransportApiRequestMsg.newBuilder()
+                .setValidateTokenRequestMsg(TransportProtos.ValidateDeviceTokenRequestMsg.newBuilder().setToken(token).build())
+                .build();
+    }
+
+    private ValidateDeviceCredentialsResponseMsg validResponse(DeviceId deviceId) {
+        return ValidateDeviceCredentialsResponseMsg.newBuilder()
+                .setDeviceInfo(TransportProtos.DeviceInfoProto.newBuilder()
+                        .setTenantIdMSB(tenantId.getId().getMostSignificantBits())
+                        .setTenantIdLSB(tenantId.getId().getLeastSignificantBits())
+                        .setDeviceIdMSB(deviceId.getId().getMostSignificantBits())
+                        .setDeviceIdLSB(deviceId.getId().getLeastSignificantBits())
+                        .setDeviceProfileIdMSB(deviceProfileId.getId().getMostSignificantBits())
+                        .setDeviceProfileIdLSB(deviceProfileId.getId().getLeastSignificantBits())
+                        .setDeviceName("device")
+                        .build())
+                .build();
+    }
+
+}
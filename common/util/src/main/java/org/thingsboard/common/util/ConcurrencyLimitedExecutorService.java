@@ -0,0 +1,122 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.common.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor service that runs the tasks on the delegate executor and limits the number of concurrently running tasks.
+ * The tasks that exceed the limit wait in a FIFO queue and are passed to the delegate only when a running task completes,
+ * so the submitting thread is never blocked and a thread-per-task delegate never has more than {@code maxConcurrency} threads.
+ */
+class ConcurrencyLimitedExecutorService extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+    private final Queue<Runnable> pendingTasks = new ConcurrentLinkedQueue<>();
+
+    ConcurrencyLimitedExecutorService(ExecutorService delegate, int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Max concurrency must be positive: " + maxConcurrency);
+        }
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        Objects.requireNonNull(command);
+        if (delegate.isShutdown()) {
+            throw new RejectedExecutionException("Executor is shut down");
+        }
+        pendingTasks.add(command);
+        startPendingTasks();
+    }
+
+    /*
+     * Both the submitter and the completed task check the queue after their own update,
+     * so a task added while all the permits are taken is picked up by the next release.
+     * */
+    private void startPendingTasks() {
+        while (!pendingTasks.isEmpty() && permits.tryAcquire()) {
+            Runnable task = pendingTasks.poll();
+            if (task == null) {
+                permits.release();
+                continue;
+            }
+            try {
+                delegate.execute(() -> run(task));
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                return;
+            }
+        }
+    }
+
+    private void run(Runnable task) {
+        try {
+            task.run();
+        } finally {
+            permits.release();
+            startPendingTasks();
+        }
+    }
+
+    int getPendingTaskCount() {
+        return pendingTasks.size();
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> tasks = new ArrayList<>();
+        Runnable task;
+        while ((task = pendingTasks.poll()) != null) {
+            tasks.add(task);
+        }
+        delegate.shutdownNow();
+        return tasks;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+}
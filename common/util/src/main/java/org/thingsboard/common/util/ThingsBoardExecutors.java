@@ -15,11 +15,21 @@
  */
 package org.thingsboard.common.util;
 
+import lombok.extern.slf4j.Slf4j;
+
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+@Slf4j
 public class ThingsBoardExecutors {
 
+    private static final long VIRTUAL_THREAD_KEEP_ALIVE_SEC = 10;
+
     /**
      * Method forked from ExecutorService to provide thread poll name
      *
@@ -48,4 +58,58 @@ public class ThingsBoardExecutors {
         return newWorkStealingPool(parallelism, clazz.getSimpleName());
     }
 
+    /**
+     * Creates an executor that starts a new virtual thread for each task, so the tasks that block on I/O do not occupy platform threads.
+     * At most {@code maxConcurrency} tasks are executed at the same time, the rest of the tasks wait in a FIFO queue
+     * and get their virtual threads in the order of submission as the running tasks complete.
+     * <p>
+     * Virtual threads are available since Java 21. On the older runtimes the executor falls back to an elastic pool
+     * of {@code maxConcurrency} platform threads, so the callers should check {@link #isVirtualThreadSupported()} before passing a large limit.
+     *
+     * @param maxConcurrency the maximum number of concurrently running tasks
+     * @param namePrefix used to define thread name
+     * @return the newly created executor
+     * @throws IllegalArgumentException if {@code maxConcurrency <= 0}
+     */
+    public static ExecutorService newVirtualThreadPool(int maxConcurrency, String namePrefix) {
+        ExecutorService threadPerTaskExecutor = newVirtualThreadPerTaskExecutor(namePrefix);
+        if (threadPerTaskExecutor != null) {
+            return new ConcurrencyLimitedExecutorService(threadPerTaskExecutor, maxConcurrency);
+        }
+        log.warn("[{}] Virtual threads are not supported by the current runtime, platform threads will be used", namePrefix);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency,
+                VIRTUAL_THREAD_KEEP_ALIVE_SEC, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), ThingsBoardThreadFactory.forName(namePrefix));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public static boolean isVirtualThreadSupported() {
+        return newVirtualThreadFactory("virtual-thread-check") != null;
+    }
+
+    // Executors.newThreadPerTaskExecutor() is resolved reflectively since the code is compiled for Java 17
+    private static ExecutorService newVirtualThreadPerTaskExecutor(String namePrefix) {
+        ThreadFactory threadFactory = newVirtualThreadFactory(namePrefix);
+        if (threadFactory == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, threadFactory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Thread.ofVirtual() is resolved reflectively since the code is compiled for Java 17
+    private static ThreadFactory newVirtualThreadFactory(String namePrefix) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix + "-virtual-", 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
 }
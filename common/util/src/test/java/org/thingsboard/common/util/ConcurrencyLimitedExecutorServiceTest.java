@@ -0,0 +1,126 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.common.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+public class ConcurrencyLimitedExecutorServiceTest {
+
+    // a thread per task delegate with platform threads, so the limit is checked on any runtime
+    private final ThreadPoolExecutor delegate = (ThreadPoolExecutor) Executors.newCachedThreadPool(ThingsBoardThreadFactory.forName("limited-test"));
+
+    @AfterEach
+    public void tearDown() {
+        delegate.shutdownNow();
+    }
+
+    @Test
+    public void givenAllPermitsTaken_whenTasksSubmitted_thenTasksQueuedWithoutThreads() throws InterruptedException {
+        int maxConcurrency = 2;
+        int tasks = 10;
+        ConcurrencyLimitedExecutorService executor = new ConcurrencyLimitedExecutorService(delegate, maxConcurrency);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(tasks);
+        List<Integer> startOrder = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < tasks; i++) {
+            int task = i;
+            executor.execute(() -> {
+                startOrder.add(task);
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            });
+        }
+
+        await().atMost(10, TimeUnit.SECONDS).until(() -> startOrder.size() == maxConcurrency);
+        assertThat(executor.getPendingTaskCount()).isEqualTo(tasks - maxConcurrency);
+        assertThat(delegate.getActiveCount()).isEqualTo(maxConcurrency);
+
+        release.countDown();
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(startOrder).containsExactlyInAnyOrderElementsOf(IntStream.range(0, tasks).boxed().toList());
+        assertThat(executor.getPendingTaskCount()).isZero();
+        assertThat(delegate.getLargestPoolSize()).isLessThanOrEqualTo(maxConcurrency * 2);
+    }
+
+    @Test
+    public void givenSinglePermit_whenTasksSubmitted_thenTasksStartedInSubmissionOrder() throws InterruptedException {
+        int tasks = 100;
+        ConcurrencyLimitedExecutorService executor = new ConcurrencyLimitedExecutorService(delegate, 1);
+        CountDownLatch done = new CountDownLatch(tasks);
+        List<Integer> startOrder = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < tasks; i++) {
+            int task = i;
+            executor.execute(() -> {
+                startOrder.add(task);
+                done.countDown();
+            });
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(startOrder).containsExactlyElementsOf(IntStream.range(0, tasks).boxed().toList());
+    }
+
+    @Test
+    public void givenTaskFails_whenTasksSubmitted_thenPermitReleased() throws InterruptedException {
+        ConcurrencyLimitedExecutorService executor = new ConcurrencyLimitedExecutorService(delegate, 1);
+        CountDownLatch done = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            throw new RuntimeException("test");
+        });
+        executor.execute(done::countDown);
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void givenShutdown_whenTaskSubmitted_thenRejectedAndPendingTasksReturned() {
+        ConcurrencyLimitedExecutorService executor = new ConcurrencyLimitedExecutorService(delegate, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Runnable pending = () -> {};
+        executor.execute(pending);
+
+        assertThat(executor.shutdownNow()).containsExactly(pending);
+        assertThatThrownBy(() -> executor.execute(() -> {})).isInstanceOf(RejectedExecutionException.class);
+    }
+
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.common.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ThingsBoardExecutorsTest {
+
+    @Test
+    public void givenVirtualThreadPool_whenTasksBlock_thenConcurrencyIsLimited() throws InterruptedException {
+        int maxConcurrency = 3;
+        int tasks = 20;
+        ExecutorService executor = ThingsBoardExecutors.newVirtualThreadPool(maxConcurrency, "test-dispatcher");
+        try {
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+            CountDownLatch done = new CountDownLatch(tasks);
+            for (int i = 0; i < tasks; i++) {
+                executor.execute(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    done.countDown();
+                });
+            }
+
+            assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(maxRunning.get()).isBetween(1, maxConcurrency);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void givenVirtualThreadPool_whenTaskExecuted_thenThreadNamedAfterPool() throws Exception {
+        ExecutorService executor = ThingsBoardExecutors.newVirtualThreadPool(1, "test-dispatcher");
+        try {
+            String threadName = executor.submit(() -> Thread.currentThread().getName()).get(10, TimeUnit.SECONDS);
+            assertThat(threadName).startsWith("test-dispatcher-");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @EnabledForJreRange(max = JRE.JAVA_20)
+    public void givenVirtualThreadsNotSupported_whenTasksBlock_thenPlatformThreadsWithinConcurrencyLimit() throws Exception {
+        assertThat(ThingsBoardExecutors.isVirtualThreadSupported()).isFalse();
+        int maxConcurrency = 3;
+        int tasks = 50;
+        ExecutorService executor = ThingsBoardExecutors.newVirtualThreadPool(maxConcurrency, "test-dispatcher");
+        try {
+            Set<Thread> threads = ConcurrentHashMap.newKeySet();
+            CountDownLatch done = new CountDownLatch(tasks);
+            for (int i = 0; i < tasks; i++) {
+                executor.execute(() -> {
+                    threads.add(Thread.currentThread());
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    done.countDown();
+                });
+            }
+
+            assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(threads).hasSizeBetween(1, maxConcurrency)
+                    .allSatisfy(thread -> assertThat(thread.getName()).startsWith("test-dispatcher-"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    public void givenVirtualThreadsSupported_whenTasksBlock_thenEachTaskRunsOnOwnVirtualThreadWithinConcurrencyLimit() throws Exception {
+        assertThat(ThingsBoardExecutors.isVirtualThreadSupported()).isTrue();
+        int maxConcurrency = 5;
+        int tasks = 200;
+        ExecutorService executor = ThingsBoardExecutors.newVirtualThreadPool(maxConcurrency, "test-dispatcher");
+        try {
+            Method isVirtual = Thread.class.getMethod("isVirtual");
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+            AtomicInteger virtualThreads = new AtomicInteger();
+            Set<Long> threadIds = ConcurrentHashMap.newKeySet();
+            CountDownLatch done = new CountDownLatch(tasks);
+            for (int i = 0; i < tasks; i++) {
+                executor.execute(() -> {
+                    Thread thread = Thread.currentThread();
+                    threadIds.add(thread.getId());
+                    try {
+                        if ((boolean) isVirtual.invoke(thread)) {
+                            virtualThreads.incrementAndGet();
+                        }
+                    } catch (ReflectiveOperationException e) {
+                        throw new RuntimeException(e);
+                    }
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    done.countDown();
+                });
+            }
+
+            assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(virtualThreads.get()).isEqualTo(tasks);
+            assertThat(threadIds).hasSize(tasks);
+            assertThat(maxRunning.get()).isBetween(1, maxConcurrency);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
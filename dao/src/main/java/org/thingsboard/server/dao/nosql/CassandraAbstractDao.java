@@ -26,6 +26,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.dao.cassandra.CassandraCluster;
 import org.thingsboard.server.dao.cassandra.guava.GuavaSession;
+import org.thingsboard.server.dao.util.AsyncTaskPriority;
 import org.thingsboard.server.dao.util.BufferedRateExecutor;
 
 import java.util.concurrent.ConcurrentHashMap;
@@ -65,30 +66,38 @@ public abstract class CassandraAbstractDao {
     }
 
     protected AsyncResultSet executeRead(TenantId tenantId, Statement statement) {
-        return execute(tenantId, statement, defaultReadLevel, rateReadLimiter);
+        return execute(tenantId, statement, defaultReadLevel, AsyncTaskPriority.MEDIUM, rateReadLimiter);
     }
 
     protected AsyncResultSet executeWrite(TenantId tenantId, Statement statement) {
-        return execute(tenantId, statement, defaultWriteLevel, rateWriteLimiter);
+        return execute(tenantId, statement, defaultWriteLevel, AsyncTaskPriority.HIGH, rateWriteLimiter);
     }
 
     protected TbResultSetFuture executeAsyncRead(TenantId tenantId, Statement statement) {
-        return executeAsync(tenantId, statement, defaultReadLevel, rateReadLimiter);
+        return executeAsyncRead(tenantId, statement, AsyncTaskPriority.MEDIUM);
+    }
+
+    protected TbResultSetFuture executeAsyncRead(TenantId tenantId, Statement statement, AsyncTaskPriority priority) {
+        return executeAsync(tenantId, statement, defaultReadLevel, priority, rateReadLimiter);
     }
 
     protected TbResultSetFuture executeAsyncWrite(TenantId tenantId, Statement statement) {
-        return executeAsync(tenantId, statement, defaultWriteLevel, rateWriteLimiter);
+        return executeAsyncWrite(tenantId, statement, AsyncTaskPriority.HIGH);
+    }
+
+    protected TbResultSetFuture executeAsyncWrite(TenantId tenantId, Statement statement, AsyncTaskPriority priority) {
+        return executeAsync(tenantId, statement, defaultWriteLevel, priority, rateWriteLimiter);
     }
 
-    private AsyncResultSet execute(TenantId tenantId, Statement statement, ConsistencyLevel level,
+    private AsyncResultSet execute(TenantId tenantId, Statement statement, ConsistencyLevel level, AsyncTaskPriority priority,
                                    BufferedRateExecutor<CassandraStatementTask, TbResultSetFuture> rateExecutor) {
         if (log.isDebugEnabled()) {
             log.debug("Execute cassandra statement {}", statementToString(statement));
         }
-        return executeAsync(tenantId, statement, level, rateExecutor).getUninterruptibly();
+        return executeAsync(tenantId, statement, level, priority, rateExecutor).getUninterruptibly();
     }
 
-    private TbResultSetFuture executeAsync(TenantId tenantId, Statement statement, ConsistencyLevel level,
+    private TbResultSetFuture executeAsync(TenantId tenantId, Statement statement, ConsistencyLevel level, AsyncTaskPriority priority,
                                            BufferedRateExecutor<CassandraStatementTask, TbResultSetFuture> rateExecutor) {
         if (log.isDebugEnabled()) {
             log.debug("Execute cassandra async statement {}", statementToString(statement));
@@ -96,7 +105,7 @@ public abstract class CassandraAbstractDao {
         if (statement.getConsistencyLevel() == null) {
             statement = statement.setConsistencyLevel(level);
         }
-        return rateExecutor.submit(new CassandraStatementTask(tenantId, getSession(), statement));
+        return rateExecutor.submit(new CassandraStatementTask(tenantId, getSession(), statement, priority));
     }
 
     private static String statementToString(Statement statement) {
@@ -49,11 +49,14 @@ public class CassandraBufferedRateWriteExecutor extends AbstractBufferedRateExec
             @Value("${cassandra.query.poll_ms:50}") long pollMs,
             @Value("${cassandra.query.tenant_rate_limits.print_tenant_names}") boolean printTenantNames,
             @Value("${cassandra.query.print_queries_freq:0}") int printQueriesFreq,
+            @Value("${cassandra.query.fair_scheduling.enabled:false}") boolean fairSchedulingEnabled,
+            @Value("${cassandra.query.fair_scheduling.tenant_quantum:16}") int fairSchedulingQuantum,
+            @Value("${cassandra.query.fair_scheduling.priority_weights:8,4,1}") String fairSchedulingPriorityWeights,
             @Autowired StatsFactory statsFactory,
             @Autowired EntityService entityService,
             @Autowired RateLimitService rateLimitService) {
         super(queueLimit, concurrencyLimit, maxWaitTime, dispatcherThreads, callbackThreads, pollMs, printQueriesFreq, statsFactory,
-                entityService, rateLimitService, printTenantNames);
+                entityService, rateLimitService, printTenantNames, fairSchedulingEnabled, fairSchedulingQuantum, fairSchedulingPriorityWeights);
     }
 
     @Scheduled(fixedDelayString = "${cassandra.query.rate_limit_print_interval_ms}")
@@ -87,7 +90,7 @@ public class CassandraBufferedRateWriteExecutor extends AbstractBufferedRateExec
         CassandraStatementTask task = taskCtx.getTask();
         return task.executeAsync(
                 statement ->
-                        this.submit(new CassandraStatementTask(task.getTenantId(), task.getSession(), statement))
+                        this.submit(new CassandraStatementTask(task.getTenantId(), task.getSession(), statement, task.getPriority()))
         );
     }
 
@@ -82,6 +82,7 @@ public class BaseRelationService implements RelationService {
     private final ApplicationEventPublisher eventPublisher;
     private final JpaExecutorService executor;
     private final JpaRelationQueryExecutorService relationsExecutor;
+    private final RelationGraphIndex relationGraphIndex;
     protected ScheduledExecutorService timeoutExecutorService;
 
     @Value("${sql.relations.query_timeout:20}")
@@ -90,13 +91,14 @@ public class BaseRelationService implements RelationService {
     public BaseRelationService(RelationDao relationDao, @Lazy EntityService entityService,
                                TbTransactionalCache<RelationCacheKey, RelationCacheValue> cache,
                                ApplicationEventPublisher eventPublisher, JpaExecutorService executor,
-                               JpaRelationQueryExecutorService relationsExecutor) {
+                               JpaRelationQueryExecutorService relationsExecutor, RelationGraphIndex relationGraphIndex) {
         this.relationDao = relationDao;
         this.entityService = entityService;
         this.cache = cache;
         this.eventPublisher = eventPublisher;
         this.executor = executor;
         this.relationsExecutor = relationsExecutor;
+        this.relationGraphIndex = relationGraphIndex;
     }
 
     @PostConstruct
@@ -120,6 +122,7 @@ public class BaseRelationService implements RelationService {
         keys.add(new RelationCacheKey(null, event.getTo(), event.getType(), event.getTypeGroup(), EntitySearchDirection.TO));
         keys.add(new RelationCacheKey(null, event.getTo(), null, event.getTypeGroup(), EntitySearchDirection.TO));
         cache.evict(keys);
+        relationGraphIndex.onRelationChange(event);
         log.debug("Processed evict event: {}", event);
     }
 
@@ -619,6 +622,9 @@ public class BaseRelationService implements RelationService {
         if (lvl == 0) {
             return Futures.immediateFuture(Collections.emptySet());
         }
+        if (relationGraphIndex.isReady(relationTypeGroup)) {
+            return relationGraphIndex.findRelationsRecursively(rootId, direction, lvl, fetchLastLevelOnly);
+        }
         var relationQueueCtx = new RelationQueueCtx(tenantId, direction, relationTypeGroup, fetchLastLevelOnly, lvl, uniqueMap);
         relationQueueCtx.tasks.add(new RelationTask(1, rootId, Collections.emptyList()));
         relationsExecutor.submit(() -> processQueue(relationQueueCtx));
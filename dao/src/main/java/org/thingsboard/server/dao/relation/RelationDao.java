@@ -71,4 +71,16 @@ public interface RelationDao {
     List<EntityRelation> deleteInboundRelations(TenantId tenantId, EntityId entity, RelationTypeGroup relationTypeGroup);
 
     List<EntityRelation> findRuleNodeToRuleChainRelations(RuleChainType ruleChainType, int limit);
+
+    /**
+     * Returns the relations of the type group in the primary key order, starting after the given relation
+     * (or from the beginning if it is null). Used to iterate over all the relations using the keyset pagination.
+     */
+    List<EntityRelation> findAllByTypeGroup(RelationTypeGroup typeGroup, EntityRelation after, int limit);
+
+    /**
+     * Returns the relations of the type group from the given entity to any of the given entities.
+     * The lookup uses a single query per chunk of the target ids instead of a query per relation.
+     */
+    List<EntityRelation> findAllByFromAndTo(TenantId tenantId, EntityId from, Collection<? extends EntityId> to, RelationTypeGroup typeGroup);
 }
@@ -0,0 +1,299 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.relation;
+
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.EntityIdFactory;
+import org.thingsboard.server.common.data.relation.EntitySearchDirection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compact adjacency index of the relations of a single type group.
+ * The entity ids are interned into the int node numbers and the relation types into the int type numbers.
+ * Every edge is packed into a single long: the target node, the kind of the relation additional info and the type.
+ * The edges of every node are kept in both directions. The node left without edges is released and its number is reused.
+ * Not thread safe, the access is guarded by the {@link RelationGraphIndex}.
+ */
+class RelationGraph {
+
+    static final int ADDITIONAL_INFO_NONE = 0;
+    static final int ADDITIONAL_INFO_EMPTY = 1;
+    static final int ADDITIONAL_INFO_PRESENT = 2;
+
+    private static final long NODE_MASK = 0xFFFFFFFFL;
+    private static final int ADDITIONAL_INFO_SHIFT = 32;
+    private static final long ADDITIONAL_INFO_MASK = 0x3L;
+    private static final int TYPE_SHIFT = 34;
+    private static final long EDGE_KEY_MASK = ~(ADDITIONAL_INFO_MASK << ADDITIONAL_INFO_SHIFT);
+
+    private static final int INITIAL_NODES_CAPACITY = 1024;
+    private static final int INITIAL_EDGES_CAPACITY = 2;
+    private static final long[] NO_EDGES = new long[0];
+
+    private long[] nodeMsb = new long[INITIAL_NODES_CAPACITY];
+    private long[] nodeLsb = new long[INITIAL_NODES_CAPACITY];
+    private byte[] nodeTypes = new byte[INITIAL_NODES_CAPACITY];
+    private long[][] outEdges = new long[INITIAL_NODES_CAPACITY][];
+    private int[] outSizes = new int[INITIAL_NODES_CAPACITY];
+    private long[][] inEdges = new long[INITIAL_NODES_CAPACITY][];
+    private int[] inSizes = new int[INITIAL_NODES_CAPACITY];
+    private int nodeCount;
+    private int[] freeNodes = new int[INITIAL_NODES_CAPACITY];
+    private int freeNodeCount;
+
+    // open addressing hash table of the node numbers + 1, 0 marks the empty slot
+    private int[] slots = new int[INITIAL_NODES_CAPACITY * 2];
+
+    private final Map<String, Integer> typeIds = new HashMap<>();
+    private final List<String> types = new ArrayList<>();
+
+    private long edgeCount;
+
+    /*
+     * Adds the edge or updates the kind of its additional info. The lookup of the existing edge is linear in the node degree,
+     * so the bulk load of the unique relations skips it.
+     * */
+    boolean addEdge(EntityId from, EntityId to, String type, int additionalInfo, boolean checkExisting) {
+        int fromNode = getOrCreateNode(from);
+        int toNode = getOrCreateNode(to);
+        int typeId = typeIds.computeIfAbsent(type, t -> {
+            types.add(t);
+            return types.size() - 1;
+        });
+        long outEdge = toEdge(toNode, typeId, additionalInfo);
+        long inEdge = toEdge(fromNode, typeId, additionalInfo);
+        int outIdx = checkExisting ? indexOf(outEdges[fromNode], outSizes[fromNode], outEdge) : -1;
+        if (outIdx >= 0) {
+            outEdges[fromNode][outIdx] = outEdge;
+            inEdges[toNode][indexOf(inEdges[toNode], inSizes[toNode], inEdge)] = inEdge;
+            return false;
+        }
+        outEdges[fromNode] = append(outEdges[fromNode], outSizes[fromNode]++, outEdge);
+        inEdges[toNode] = append(inEdges[toNode], inSizes[toNode]++, inEdge);
+        edgeCount++;
+        return true;
+    }
+
+    boolean removeEdge(EntityId from, EntityId to, String type) {
+        int fromNode = getNode(from);
+        int toNode = getNode(to);
+        Integer typeId = typeIds.get(type);
+        if (fromNode < 0 || toNode < 0 || typeId == null) {
+            return false;
+        }
+        int outIdx = indexOf(outEdges[fromNode], outSizes[fromNode], toEdge(toNode, typeId, ADDITIONAL_INFO_NONE));
+        if (outIdx < 0) {
+            return false;
+        }
+        int inIdx = indexOf(inEdges[toNode], inSizes[toNode], toEdge(fromNode, typeId, ADDITIONAL_INFO_NONE));
+        outSizes[fromNode] = remove(outEdges[fromNode], outSizes[fromNode], outIdx);
+        inSizes[toNode] = remove(inEdges[toNode], inSizes[toNode], inIdx);
+        edgeCount--;
+        releaseNodeIfIsolated(fromNode);
+        releaseNodeIfIsolated(toNode);
+        return true;
+    }
+
+    int getNode(EntityId entityId) {
+        long msb = entityId.getId().getMostSignificantBits();
+        long lsb = entityId.getId().getLeastSignificantBits();
+        int mask = slots.length - 1;
+        for (int slot = hash(msb, lsb) & mask; ; slot = (slot + 1) & mask) {
+            int node = slots[slot] - 1;
+            if (node < 0) {
+                return -1;
+            }
+            if (nodeMsb[node] == msb && nodeLsb[node] == lsb) {
+                return node;
+            }
+        }
+    }
+
+    EntityId getEntityId(int node) {
+        return EntityIdFactory.getByTypeAndUuid(nodeTypes[node], new UUID(nodeMsb[node], nodeLsb[node]));
+    }
+
+    int getDegree(int node, EntitySearchDirection direction) {
+        return direction == EntitySearchDirection.FROM ? outSizes[node] : inSizes[node];
+    }
+
+    long getEdge(int node, EntitySearchDirection direction, int idx) {
+        return direction == EntitySearchDirection.FROM ? outEdges[node][idx] : inEdges[node][idx];
+    }
+
+    String getType(long edge) {
+        return types.get((int) (edge >>> TYPE_SHIFT));
+    }
+
+    static int getTarget(long edge) {
+        return (int) (edge & NODE_MASK);
+    }
+
+    static int getAdditionalInfo(long edge) {
+        return (int) ((edge >>> ADDITIONAL_INFO_SHIFT) & ADDITIONAL_INFO_MASK);
+    }
+
+    int getNodeCount() {
+        return nodeCount - freeNodeCount;
+    }
+
+    long getEdgeCount() {
+        return edgeCount;
+    }
+
+    /*
+     * Approximate heap size of the index, assuming 16 bytes of the array header and 4 bytes of the reference.
+     * */
+    long estimateMemoryUsage() {
+        long size = 16L * 7 + 8L * nodeMsb.length * 2 + nodeTypes.length + 4L * (outEdges.length + inEdges.length)
+                + 4L * (outSizes.length + inSizes.length) + 16 + 4L * slots.length + 16 + 4L * freeNodes.length;
+        for (int node = 0; node < nodeCount; node++) {
+            size += estimateMemoryUsage(outEdges[node]) + estimateMemoryUsage(inEdges[node]);
+        }
+        return size;
+    }
+
+    private static long estimateMemoryUsage(long[] edges) {
+        return edges == null || edges == NO_EDGES ? 0 : 16 + 8L * edges.length;
+    }
+
+    private int getOrCreateNode(EntityId entityId) {
+        int node = getNode(entityId);
+        if (node >= 0) {
+            return node;
+        }
+        if (freeNodeCount > 0) {
+            node = freeNodes[--freeNodeCount];
+        } else {
+            if (nodeCount == nodeMsb.length) {
+                growNodes();
+            }
+            node = nodeCount++;
+        }
+        nodeMsb[node] = entityId.getId().getMostSignificantBits();
+        nodeLsb[node] = entityId.getId().getLeastSignificantBits();
+        nodeTypes[node] = (byte) entityId.getEntityType().ordinal();
+        outEdges[node] = NO_EDGES;
+        inEdges[node] = NO_EDGES;
+        if (nodeCount * 2 > slots.length) {
+            slots = new int[slots.length * 2];
+            for (int i = 0; i < nodeCount; i++) {
+                if (outEdges[i] != null) {
+                    putSlot(i);
+                }
+            }
+        } else {
+            putSlot(node);
+        }
+        return node;
+    }
+
+    private void putSlot(int node) {
+        int mask = slots.length - 1;
+        int slot = hash(nodeMsb[node], nodeLsb[node]) & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = node + 1;
+    }
+
+    /*
+     * Releases the node of the entity that has no relations left, e.g. the deleted one. The released node is marked by the null edges.
+     * */
+    private void releaseNodeIfIsolated(int node) {
+        if (outEdges[node] == null || outSizes[node] > 0 || inSizes[node] > 0) {
+            return;
+        }
+        removeSlot(node);
+        outEdges[node] = null;
+        inEdges[node] = null;
+        if (freeNodeCount == freeNodes.length) {
+            freeNodes = Arrays.copyOf(freeNodes, freeNodes.length * 2);
+        }
+        freeNodes[freeNodeCount++] = node;
+    }
+
+    /*
+     * Removes the node from the linear probing table and shifts back the following nodes of the same cluster,
+     * so the lookup never stops at the empty slot before reaching them.
+     * */
+    private void removeSlot(int node) {
+        int mask = slots.length - 1;
+        int slot = hash(nodeMsb[node], nodeLsb[node]) & mask;
+        while (slots[slot] != node + 1) {
+            slot = (slot + 1) & mask;
+        }
+        for (int next = (slot + 1) & mask; slots[next] != 0; next = (next + 1) & mask) {
+            int other = slots[next] - 1;
+            int home = hash(nodeMsb[other], nodeLsb[other]) & mask;
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                slots[slot] = slots[next];
+                slot = next;
+            }
+        }
+        slots[slot] = 0;
+    }
+
+    private void growNodes() {
+        int capacity = nodeMsb.length + (nodeMsb.length >> 1);
+        nodeMsb = Arrays.copyOf(nodeMsb, capacity);
+        nodeLsb = Arrays.copyOf(nodeLsb, capacity);
+        nodeTypes = Arrays.copyOf(nodeTypes, capacity);
+        outEdges = Arrays.copyOf(outEdges, capacity);
+        outSizes = Arrays.copyOf(outSizes, capacity);
+        inEdges = Arrays.copyOf(inEdges, capacity);
+        inSizes = Arrays.copyOf(inSizes, capacity);
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static long toEdge(int target, int typeId, int additionalInfo) {
+        return ((long) typeId << TYPE_SHIFT) | ((long) additionalInfo << ADDITIONAL_INFO_SHIFT) | (target & NODE_MASK);
+    }
+
+    private static int indexOf(long[] edges, int size, long edge) {
+        long key = edge & EDGE_KEY_MASK;
+        for (int i = 0; i < size; i++) {
+            if ((edges[i] & EDGE_KEY_MASK) == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long[] append(long[] edges, int size, long edge) {
+        if (size == edges.length) {
+            edges = Arrays.copyOf(edges, Math.max(INITIAL_EDGES_CAPACITY, size * 2));
+        }
+        edges[size] = edge;
+        return edges;
+    }
+
+    private static int remove(long[] edges, int size, int idx) {
+        edges[idx] = edges[size - 1];
+        return size - 1;
+    }
+
+}
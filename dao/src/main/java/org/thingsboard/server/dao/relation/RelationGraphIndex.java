@@ -0,0 +1,362 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.relation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.relation.EntityRelation;
+import org.thingsboard.server.common.data.relation.EntitySearchDirection;
+import org.thingsboard.server.common.data.relation.RelationTypeGroup;
+import org.thingsboard.server.dao.sql.JpaExecutorService;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of the {@link RelationTypeGroup#COMMON} relations used to answer the multi-level relation queries
+ * without walking the relation table level by level. The index is loaded in background on startup
+ * and kept current from the {@link EntityRelationEvent}s, the SQL path is used until the load is completed.
+ * The changed relations are re-read from the database in background batches, so the index may lag behind
+ * the relation changes for the duration of a batch. If a batch fails to be read, the SQL path is used
+ * until the retry of the batch succeeds.
+ * The relations found using the index have no version. The additional info is loaded from the database
+ * only for the relations that have a non-empty one.
+ * Note that the index is updated by the relation changes made on the current node only.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class RelationGraphIndex {
+
+    private final RelationDao relationDao;
+    private final JpaExecutorService executor;
+
+    @Value("${sql.relations.graph_index.enabled:false}")
+    private boolean enabled;
+
+    @Value("${sql.relations.graph_index.load_batch_size:10000}")
+    private int loadBatchSize;
+
+    @Value("${sql.relations.graph_index.refresh_retry_interval_ms:5000}")
+    private long refreshRetryIntervalMs;
+
+    private final RelationGraph graph = new RelationGraph();
+    private final ReadWriteLock graphLock = new ReentrantReadWriteLock();
+    private final Set<RelationKey> pendingRefreshes = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+
+    // the single thread serializes the load and the refreshes, so the state read from the database later is applied later
+    private ScheduledExecutorService indexExecutor;
+    private volatile boolean loaded;
+    private volatile boolean ready;
+    private volatile boolean failed;
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            indexExecutor = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("relation-graph-index"));
+            indexExecutor.submit(this::load);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (indexExecutor != null) {
+            indexExecutor.shutdownNow();
+        }
+    }
+
+    public boolean isReady(RelationTypeGroup typeGroup) {
+        return ready && (typeGroup == null || typeGroup == RelationTypeGroup.COMMON);
+    }
+
+    /**
+     * Schedules the refresh of the changed relation. The refreshes of the relations changed while the previous batch
+     * was read from the database are merged into the next batch.
+     */
+    public void onRelationChange(EntityRelationEvent event) {
+        if (!enabled || failed || event.getTypeGroup() != RelationTypeGroup.COMMON) {
+            return;
+        }
+        pendingRefreshes.add(new RelationKey(event.getFrom(), event.getTo(), event.getType()));
+        scheduleRefresh(0);
+    }
+
+    public ListenableFuture<Set<EntityRelation>> findRelationsRecursively(EntityId rootId, EntitySearchDirection direction,
+                                                                          int maxLvl, boolean fetchLastLevelOnly) {
+        Set<EntityRelation> result = new LinkedHashSet<>();
+        List<EntityRelation> withAdditionalInfo = new ArrayList<>();
+        graphLock.readLock().lock();
+        try {
+            int rootNode = graph.getNode(rootId);
+            if (rootNode < 0) {
+                return Futures.immediateFuture(Collections.emptySet());
+            }
+            Set<Integer> visited = new HashSet<>();
+            Queue<RelationTask> tasks = new ArrayDeque<>();
+            tasks.add(new RelationTask(1, rootNode, Collections.emptyList()));
+            RelationTask task;
+            while ((task = tasks.poll()) != null) {
+                int degree = graph.getDegree(task.node, direction);
+                List<EntityRelation> relations = new ArrayList<>(degree);
+                Map<Integer, List<EntityRelation>> newChildrenRelations = new LinkedHashMap<>();
+                for (int i = 0; i < degree; i++) {
+                    long edge = graph.getEdge(task.node, direction, i);
+                    int child = RelationGraph.getTarget(edge);
+                    EntityRelation relation = toRelation(task.node, edge, direction);
+                    if (RelationGraph.getAdditionalInfo(edge) == RelationGraph.ADDITIONAL_INFO_PRESENT) {
+                        withAdditionalInfo.add(relation);
+                    }
+                    relations.add(relation);
+                    if (visited.add(child)) {
+                        newChildrenRelations.put(child, new ArrayList<>());
+                    }
+                    if (fetchLastLevelOnly) {
+                        var list = newChildrenRelations.get(child);
+                        if (list != null) {
+                            list.add(relation);
+                        }
+                    }
+                }
+                if (fetchLastLevelOnly) {
+                    if (relations.isEmpty()) {
+                        result.addAll(task.prevRelations);
+                    } else if (task.lvl == maxLvl) {
+                        result.addAll(relations);
+                    }
+                } else {
+                    result.addAll(relations);
+                }
+                int newLvl = task.lvl + 1;
+                if (newLvl <= maxLvl) {
+                    newChildrenRelations.forEach((child, childRelations) -> tasks.add(new RelationTask(newLvl, child, childRelations)));
+                }
+            }
+        } finally {
+            graphLock.readLock().unlock();
+        }
+        withAdditionalInfo.retainAll(result);
+        if (withAdditionalInfo.isEmpty()) {
+            return Futures.immediateFuture(result);
+        }
+        return executor.submit(() -> {
+            Map<RelationKey, EntityRelation> storedRelations = findStoredRelations(withAdditionalInfo.stream().map(RelationKey::of).toList());
+            for (EntityRelation relation : withAdditionalInfo) {
+                EntityRelation stored = storedRelations.get(RelationKey.of(relation));
+                if (stored != null) {
+                    // the additional info is a part of the relation hash code
+                    result.remove(relation);
+                    relation.setAdditionalInfo(stored.getAdditionalInfo());
+                    relation.setVersion(stored.getVersion());
+                    result.add(relation);
+                }
+            }
+            return result;
+        });
+    }
+
+    long getEdgeCount() {
+        graphLock.readLock().lock();
+        try {
+            return graph.getEdgeCount();
+        } finally {
+            graphLock.readLock().unlock();
+        }
+    }
+
+    int getNodeCount() {
+        graphLock.readLock().lock();
+        try {
+            return graph.getNodeCount();
+        } finally {
+            graphLock.readLock().unlock();
+        }
+    }
+
+    long getMemoryUsage() {
+        graphLock.readLock().lock();
+        try {
+            return graph.estimateMemoryUsage();
+        } finally {
+            graphLock.readLock().unlock();
+        }
+    }
+
+    private void load() {
+        long startTs = System.currentTimeMillis();
+        try {
+            EntityRelation last = null;
+            List<EntityRelation> batch;
+            do {
+                batch = relationDao.findAllByTypeGroup(RelationTypeGroup.COMMON, last, loadBatchSize);
+                graphLock.writeLock().lock();
+                try {
+                    for (EntityRelation relation : batch) {
+                        graph.addEdge(relation.getFrom(), relation.getTo(), relation.getType(), getAdditionalInfoKind(relation.getAdditionalInfo()), false);
+                    }
+                } finally {
+                    graphLock.writeLock().unlock();
+                }
+                if (!batch.isEmpty()) {
+                    last = batch.get(batch.size() - 1);
+                }
+            } while (batch.size() == loadBatchSize);
+            loaded = true;
+            // the relations changed during the load may be loaded in the outdated state or twice, so re-read them
+            refreshPending();
+            log.info("Loaded relation graph index: {} entities, {} relations, ~{} MB, took {} ms", graph.getNodeCount(), getEdgeCount(),
+                    getMemoryUsage() / (1024 * 1024), System.currentTimeMillis() - startTs);
+        } catch (Exception e) {
+            log.error("Failed to load the relation graph index, the relation queries will use the database", e);
+            failed = true;
+            pendingRefreshes.clear();
+        }
+    }
+
+    private void scheduleRefresh(long delayMs) {
+        if (refreshScheduled.compareAndSet(false, true)) {
+            try {
+                indexExecutor.schedule(this::refreshPending, delayMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                log.debug("Relation graph index is stopped, skipping the refresh");
+            }
+        }
+    }
+
+    /*
+     * Re-reads the pending relations using a query per the source entity and replaces their edges in a single write lock.
+     * Every pending relation is removed from the set before it is read, so a change committed after the read schedules a new refresh.
+     * If the read fails, the relations are returned to the set and the index is not used until the retry succeeds.
+     * */
+    private void refreshPending() {
+        refreshScheduled.set(false);
+        List<RelationKey> keys = new ArrayList<>();
+        for (Iterator<RelationKey> it = pendingRefreshes.iterator(); it.hasNext(); ) {
+            keys.add(it.next());
+            it.remove();
+        }
+        if (keys.isEmpty()) {
+            ready = loaded;
+            return;
+        }
+        try {
+            Map<RelationKey, EntityRelation> storedRelations = findStoredRelations(keys);
+            graphLock.writeLock().lock();
+            try {
+                for (RelationKey key : keys) {
+                    while (graph.removeEdge(key.from(), key.to(), key.type())) {
+                        log.trace("Removed outdated relation [{}]", key);
+                    }
+                    EntityRelation relation = storedRelations.get(key);
+                    if (relation != null) {
+                        graph.addEdge(relation.getFrom(), relation.getTo(), relation.getType(), getAdditionalInfoKind(relation.getAdditionalInfo()), false);
+                    }
+                }
+            } finally {
+                graphLock.writeLock().unlock();
+            }
+            ready = loaded;
+            log.trace("Refreshed {} relations of the relation graph index", keys.size());
+        } catch (Exception e) {
+            log.warn("Failed to refresh {} relations of the relation graph index, retrying in {} ms", keys.size(), refreshRetryIntervalMs, e);
+            ready = false;
+            pendingRefreshes.addAll(keys);
+            scheduleRefresh(refreshRetryIntervalMs);
+        }
+    }
+
+    private Map<RelationKey, EntityRelation> findStoredRelations(Collection<RelationKey> keys) {
+        Map<EntityId, Set<EntityId>> toByFrom = new HashMap<>();
+        for (RelationKey key : keys) {
+            toByFrom.computeIfAbsent(key.from(), from -> new HashSet<>()).add(key.to());
+        }
+        Map<RelationKey, EntityRelation> storedRelations = new HashMap<>();
+        toByFrom.forEach((from, to) -> {
+            for (EntityRelation relation : relationDao.findAllByFromAndTo(TenantId.SYS_TENANT_ID, from, to, RelationTypeGroup.COMMON)) {
+                storedRelations.put(RelationKey.of(relation), relation);
+            }
+        });
+        return storedRelations;
+    }
+
+    private EntityRelation toRelation(int node, long edge, EntitySearchDirection direction) {
+        EntityId nodeId = graph.getEntityId(node);
+        EntityId targetId = graph.getEntityId(RelationGraph.getTarget(edge));
+        EntityRelation relation = direction == EntitySearchDirection.FROM ?
+                new EntityRelation(nodeId, targetId, graph.getType(edge), RelationTypeGroup.COMMON) :
+                new EntityRelation(targetId, nodeId, graph.getType(edge), RelationTypeGroup.COMMON);
+        if (RelationGraph.getAdditionalInfo(edge) == RelationGraph.ADDITIONAL_INFO_EMPTY) {
+            relation.setAdditionalInfo(JacksonUtil.newObjectNode());
+        }
+        return relation;
+    }
+
+    private static int getAdditionalInfoKind(JsonNode additionalInfo) {
+        if (additionalInfo == null) {
+            return RelationGraph.ADDITIONAL_INFO_NONE;
+        } else if (additionalInfo.isObject() && additionalInfo.isEmpty()) {
+            return RelationGraph.ADDITIONAL_INFO_EMPTY;
+        } else {
+            return RelationGraph.ADDITIONAL_INFO_PRESENT;
+        }
+    }
+
+    private record RelationKey(EntityId from, EntityId to, String type) {
+
+        static RelationKey of(EntityRelation relation) {
+            return new RelationKey(relation.getFrom(), relation.getTo(), relation.getType());
+        }
+
+    }
+
+    @RequiredArgsConstructor
+    private static class RelationTask {
+        private final int lvl;
+        private final int node;
+        private final List<EntityRelation> prevRelations;
+    }
+
+}
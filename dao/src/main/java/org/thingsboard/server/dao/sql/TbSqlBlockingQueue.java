@@ -17,10 +17,13 @@ package org.thingsboard.server.dao.sql;
 
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.server.common.data.util.CollectionsUtil;
 import org.thingsboard.server.common.stats.MessagesStats;
+import org.thingsboard.server.common.stats.StatsFactory;
 
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -29,32 +32,48 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
 public class TbSqlBlockingQueue<E, R> implements TbSqlQueue<E, R> {
 
-    private final BlockingQueue<TbSqlQueueElement<E, R>> queue = new LinkedBlockingQueue<>();
+    private final BlockingQueue<TbSqlQueueElement<E, R>> queue;
     private final TbSqlBlockingQueueParams params;
 
     private ExecutorService executor;
     private final MessagesStats stats;
+    private final StatsFactory statsFactory;
 
-    public TbSqlBlockingQueue(TbSqlBlockingQueueParams params, MessagesStats stats) {
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private volatile int currentBatchSize;
+    private Timer flushTimer;
+    private DistributionSummary batchSizeSummary;
+
+    public TbSqlBlockingQueue(TbSqlBlockingQueueParams params, MessagesStats stats, StatsFactory statsFactory) {
         this.params = params;
         this.stats = stats;
+        this.statsFactory = statsFactory;
+        this.queue = params.isBounded() ? new LinkedBlockingQueue<>(params.getMaxQueueSize()) : new LinkedBlockingQueue<>();
+        this.currentBatchSize = params.getBatchSize();
     }
 
     @Override
     public void init(ScheduledLogExecutorComponent logExecutor, Function<List<E>, List<R>> saveFunction, Comparator<E> batchUpdateComparator, Function<List<TbSqlQueueElement<E, R>>, List<TbSqlQueueElement<E, R>>> filter, int index) {
+        String queueTag = params.getStatsNamePrefix();
+        String indexTag = Integer.toString(index);
+        statsFactory.createGauge("sqlQueue.size", queueSize, "queue", queueTag, "index", indexTag);
+        flushTimer = statsFactory.createTimer("sqlQueue.flushLatency", "queue", queueTag, "index", indexTag);
+        batchSizeSummary = statsFactory.createDistributionSummary("sqlQueue.batchSize", "queue", queueTag, "index", indexTag);
+
         executor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName("sql-queue-" + index + "-" + params.getLogName().toLowerCase()));
         executor.submit(() -> {
             String logName = params.getLogName();
-            int batchSize = params.getBatchSize();
             long maxDelay = params.getMaxDelay();
-            final List<TbSqlQueueElement<E, R>> entities = new ArrayList<>(batchSize);
+            final List<TbSqlQueueElement<E, R>> entities = new ArrayList<>(params.getBatchSize());
             while (!Thread.interrupted()) {
                 try {
                     long currentTs = System.currentTimeMillis();
@@ -64,8 +83,10 @@ public class TbSqlBlockingQueue<E, R> implements TbSqlQueue<E, R> {
                     } else {
                         entities.add(attr);
                     }
+                    int batchSize = currentBatchSize;
                     queue.drainTo(entities, batchSize - 1);
-                    boolean fullPack = entities.size() == batchSize;
+                    queueSize.addAndGet(-entities.size());
+                    boolean fullPack = entities.size() >= batchSize;
                     if (log.isDebugEnabled()) {
                         log.debug("[{}] Going to save {} entities", logName, entities.size());
                         log.trace("[{}] Going to save entities: {}", logName, entities);
@@ -77,7 +98,11 @@ public class TbSqlBlockingQueue<E, R> implements TbSqlQueue<E, R> {
                         entitiesToSave = entitiesToSave.stream().sorted((o1, o2) -> batchUpdateComparator.compare(o1.getEntity(), o2.getEntity())).toList();
                     }
 
+                    long flushStartNs = System.nanoTime();
                     List<R> result = saveFunction.apply(entitiesToSave.stream().map(TbSqlQueueElement::getEntity).collect(Collectors.toList()));
+                    long flushTimeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - flushStartNs);
+                    flushTimer.record(flushTimeMs, TimeUnit.MILLISECONDS);
+                    batchSizeSummary.record(entities.size());
 
                     if (params.isWithResponse()) {
                         for (int i = 0; i < entitiesToSave.size(); i++) {
@@ -92,7 +117,11 @@ public class TbSqlBlockingQueue<E, R> implements TbSqlQueue<E, R> {
                     }
 
                     stats.incrementSuccessful(entities.size());
-                    if (!fullPack) {
+                    if (params.isAdaptiveBatchSize()) {
+                        adjustBatchSize(flushTimeMs, fullPack);
+                    }
+                    // No need to wait for more entities if enough of them were queued while we were saving
+                    if (!fullPack && queue.size() < currentBatchSize) {
                         long remainingDelay = maxDelay - (System.currentTimeMillis() - currentTs);
                         if (remainingDelay > 0) {
                             Thread.sleep(remainingDelay);
@@ -120,8 +149,8 @@ public class TbSqlBlockingQueue<E, R> implements TbSqlQueue<E, R> {
 
         logExecutor.scheduleAtFixedRate(() -> {
             if (!queue.isEmpty() || stats.getTotal() > 0 || stats.getSuccessful() > 0 || stats.getFailed() > 0) {
-                log.info("Queue-{} [{}] queueSize [{}] totalAdded [{}] totalSaved [{}] totalFailed [{}]", index,
-                        params.getLogName(), queue.size(), stats.getTotal(), stats.getSuccessful(), stats.getFailed());
+                log.info("Queue-{} [{}] queueSize [{}] batchSize [{}] totalAdded [{}] totalSaved [{}] totalFailed [{}]", index,
+                        params.getLogName(), queue.size(), currentBatchSize, stats.getTotal(), stats.getSuccessful(), stats.getFailed());
                 stats.reset();
             }
         }, params.getStatsPrintIntervalMs(), params.getStatsPrintIntervalMs(), TimeUnit.MILLISECONDS);
@@ -134,11 +163,47 @@ public class TbSqlBlockingQueue<E, R> implements TbSqlQueue<E, R> {
         }
     }
 
+    /*
+     * Multiplicative decrease when the database can't keep up with the target latency,
+     * additive increase while full packs are flushed well within it.
+     */
+    void adjustBatchSize(long flushTimeMs, boolean fullPack) {
+        int maxBatchSize = params.getBatchSize();
+        int minBatchSize = Math.max(1, maxBatchSize / 10);
+        long targetLatency = params.getTargetFlushLatencyMs();
+        if (flushTimeMs > targetLatency) {
+            currentBatchSize = Math.max(minBatchSize, currentBatchSize / 2);
+        } else if (fullPack && flushTimeMs < targetLatency / 2) {
+            currentBatchSize = Math.min(maxBatchSize, currentBatchSize + minBatchSize);
+        }
+    }
+
+    int getCurrentBatchSize() {
+        return currentBatchSize;
+    }
+
     @Override
     public ListenableFuture<R> add(E element) {
         SettableFuture<R> future = SettableFuture.create();
-        queue.add(new TbSqlQueueElement<>(future, element));
+        TbSqlQueueElement<E, R> queueElement = new TbSqlQueueElement<>(future, element);
         stats.incrementTotal();
+        boolean added;
+        if (params.isBounded() && params.getQueueFullPolicy() == TbSqlQueueFullPolicy.BLOCK) {
+            try {
+                added = queue.offer(queueElement, params.getQueueFullTimeoutMs(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                added = false;
+            }
+        } else {
+            added = queue.offer(queueElement);
+        }
+        if (added) {
+            queueSize.incrementAndGet();
+        } else {
+            stats.incrementFailed();
+            future.setException(new RejectedExecutionException("[" + params.getLogName() + "] Queue is full, max queue size " + params.getMaxQueueSize()));
+        }
         return future;
     }
 }
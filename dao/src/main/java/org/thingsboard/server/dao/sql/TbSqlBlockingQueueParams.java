@@ -31,4 +31,26 @@ public class TbSqlBlockingQueueParams {
     private final String statsNamePrefix;
     private final boolean batchSortEnabled;
     private final boolean withResponse;
+    /**
+     * Max number of pending elements per queue. 0 or negative means unbounded.
+     */
+    private final int maxQueueSize;
+    @Builder.Default
+    private final TbSqlQueueFullPolicy queueFullPolicy = TbSqlQueueFullPolicy.REJECT;
+    /**
+     * Max time the producer waits for free space when {@link TbSqlQueueFullPolicy#BLOCK} is used.
+     */
+    @Builder.Default
+    private final long queueFullTimeoutMs = 1000;
+    /**
+     * If enabled, the batch size is decreased when the flush takes longer than {@link #targetFlushLatencyMs}
+     * and increased back up to {@link #batchSize} when the database keeps up.
+     */
+    private final boolean adaptiveBatchSize;
+    @Builder.Default
+    private final long targetFlushLatencyMs = 1000;
+
+    public boolean isBounded() {
+        return maxQueueSize > 0;
+    }
 }
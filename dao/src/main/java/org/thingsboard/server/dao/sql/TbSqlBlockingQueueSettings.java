@@ -0,0 +1,50 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Backpressure and batch sizing settings shared by the SQL batch queues of all storage types.
+ */
+@Component
+@Getter
+public class TbSqlBlockingQueueSettings {
+
+    @Value("${sql.batch_queue_full_policy:REJECT}")
+    private TbSqlQueueFullPolicy queueFullPolicy;
+
+    @Value("${sql.batch_queue_full_timeout_ms:1000}")
+    private long queueFullTimeoutMs;
+
+    @Value("${sql.batch_adaptive_size:false}")
+    private boolean adaptiveBatchSize;
+
+    @Value("${sql.batch_target_flush_latency_ms:1000}")
+    private long targetFlushLatencyMs;
+
+    public TbSqlBlockingQueueParams.TbSqlBlockingQueueParamsBuilder newParamsBuilder(int maxQueueSize) {
+        return TbSqlBlockingQueueParams.builder()
+                .maxQueueSize(maxQueueSize)
+                .queueFullPolicy(queueFullPolicy)
+                .queueFullTimeoutMs(queueFullTimeoutMs)
+                .adaptiveBatchSize(adaptiveBatchSize)
+                .targetFlushLatencyMs(targetFlushLatencyMs);
+    }
+
+}
@@ -41,6 +41,7 @@ import org.thingsboard.server.dao.model.sql.AttributeKvEntity;
 import org.thingsboard.server.dao.sql.JpaAbstractDaoListeningExecutorService;
 import org.thingsboard.server.dao.sql.ScheduledLogExecutorComponent;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueSettings;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
 import org.thingsboard.server.dao.util.SqlDao;
 
@@ -87,11 +88,17 @@ public class JpaAttributeDao extends JpaAbstractDaoListeningExecutorService impl
     @Value("${sql.batch_sort:true}")
     private boolean batchSortEnabled;
 
+    @Value("${sql.attributes.max_queue_size:0}")
+    private int maxQueueSize;
+
+    @Autowired
+    private TbSqlBlockingQueueSettings queueSettings;
+
     private TbSqlBlockingQueueWrapper<AttributeKvEntity, Long> queue;
 
     @PostConstruct
     private void init() {
-        TbSqlBlockingQueueParams params = TbSqlBlockingQueueParams.builder()
+        TbSqlBlockingQueueParams params = queueSettings.newParamsBuilder(maxQueueSize)
                 .logName("Attributes")
                 .batchSize(batchSize)
                 .maxDelay(maxDelay)
@@ -19,6 +19,7 @@ import org.springframework.stereotype.Component;
 import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.dao.config.DedicatedEventsDataSource;
 import org.thingsboard.server.dao.sql.ScheduledLogExecutorComponent;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueSettings;
 import org.thingsboard.server.dao.sqlts.insert.sql.DedicatedEventsSqlPartitioningRepository;
 import org.thingsboard.server.dao.util.SqlDao;
 
@@ -36,10 +37,11 @@ public class DedicatedJpaEventDao extends JpaBaseEventDao {
                                 RuleNodeDebugEventRepository ruleNodeDebugEventRepository,
                                 RuleChainDebugEventRepository ruleChainDebugEventRepository,
                                 ScheduledLogExecutorComponent logExecutor,
-                                StatsFactory statsFactory) {
+                                StatsFactory statsFactory,
+                                TbSqlBlockingQueueSettings queueSettings) {
         super(partitionConfiguration, partitioningRepository, lcEventRepository, statsEventRepository,
                 errorEventRepository, eventInsertRepository, ruleNodeDebugEventRepository,
-                ruleChainDebugEventRepository, logExecutor, statsFactory);
+                ruleChainDebugEventRepository, logExecutor, statsFactory, queueSettings);
     }
 
 }
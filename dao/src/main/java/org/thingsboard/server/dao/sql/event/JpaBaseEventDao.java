@@ -43,6 +43,7 @@ import org.thingsboard.server.dao.event.EventDao;
 import org.thingsboard.server.dao.model.sql.EventEntity;
 import org.thingsboard.server.dao.sql.ScheduledLogExecutorComponent;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueSettings;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
 import org.thingsboard.server.dao.sqlts.insert.sql.SqlPartitioningRepository;
 import org.thingsboard.server.dao.util.SqlDao;
@@ -72,6 +73,7 @@ public class JpaBaseEventDao implements EventDao {
     private final RuleChainDebugEventRepository ruleChainDebugEventRepository;
     private final ScheduledLogExecutorComponent logExecutor;
     private final StatsFactory statsFactory;
+    private final TbSqlBlockingQueueSettings queueSettings;
 
     @Value("${sql.events.batch_size:10000}")
     private int batchSize;
@@ -88,13 +90,16 @@ public class JpaBaseEventDao implements EventDao {
     @Value("${sql.batch_sort:true}")
     private boolean batchSortEnabled;
 
+    @Value("${sql.events.max_queue_size:0}")
+    private int maxQueueSize;
+
     private TbSqlBlockingQueueWrapper<Event, Void> queue;
 
     private final Map<EventType, EventRepository<?, ?>> repositories = new ConcurrentHashMap<>();
 
     @PostConstruct
     private void init() {
-        TbSqlBlockingQueueParams params = TbSqlBlockingQueueParams.builder()
+        TbSqlBlockingQueueParams params = queueSettings.newParamsBuilder(maxQueueSize)
                 .logName("Events")
                 .batchSize(batchSize)
                 .maxDelay(maxDelay)
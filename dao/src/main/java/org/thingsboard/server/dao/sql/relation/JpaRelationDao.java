@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.dao.sql.relation;
 
+import com.google.common.collect.Iterables;
 import com.google.common.util.concurrent.ListenableFuture;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -36,8 +37,10 @@ import org.thingsboard.server.dao.util.SqlDao;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -58,6 +61,8 @@ import static org.thingsboard.server.dao.model.ModelConstants.VERSION_COLUMN;
 public class JpaRelationDao extends JpaAbstractDaoListeningExecutorService implements RelationDao {
 
     private static final List<String> ALL_TYPE_GROUP_NAMES = new ArrayList<>();
+    private static final UUID MIN_UUID = new UUID(0L, 0L);
+    private static final int TO_IDS_CHUNK_SIZE = 1000;
     private static final String RETURNING = "RETURNING from_id, from_type, to_id, to_type, relation_type, relation_type_group, nextval('relation_version_seq') as version";
     private static final String DELETE_QUERY = "DELETE FROM relation WHERE from_id = ? AND from_type = ? AND to_id = ? AND to_type = ? AND relation_type = ? AND relation_type_group = ? " + RETURNING;
 
@@ -292,4 +297,28 @@ public class JpaRelationDao extends JpaAbstractDaoListeningExecutorService imple
     public List<EntityRelation> findRuleNodeToRuleChainRelations(RuleChainType ruleChainType, int limit) {
         return DaoUtil.convertDataList(relationRepository.findRuleNodeToRuleChainRelations(ruleChainType, PageRequest.of(0, limit)));
     }
+
+    @Override
+    public List<EntityRelation> findAllByTypeGroup(RelationTypeGroup typeGroup, EntityRelation after, int limit) {
+        if (after == null) {
+            return DaoUtil.convertDataList(relationRepository.findAllByRelationTypeGroupAfter(typeGroup.name(),
+                    MIN_UUID, "", "", "", MIN_UUID, "", limit));
+        }
+        return DaoUtil.convertDataList(relationRepository.findAllByRelationTypeGroupAfter(typeGroup.name(),
+                after.getFrom().getId(), after.getFrom().getEntityType().name(), after.getTypeGroup().name(), after.getType(),
+                after.getTo().getId(), after.getTo().getEntityType().name(), limit));
+    }
+
+    @Override
+    public List<EntityRelation> findAllByFromAndTo(TenantId tenantId, EntityId from, Collection<? extends EntityId> to, RelationTypeGroup typeGroup) {
+        Set<UUID> toIds = to.stream().map(EntityId::getId).collect(Collectors.toSet());
+        List<EntityRelation> relations = new ArrayList<>();
+        for (List<UUID> toIdsChunk : Iterables.partition(toIds, TO_IDS_CHUNK_SIZE)) {
+            relations.addAll(DaoUtil.convertDataList(relationRepository.findAllByFromIdAndFromTypeAndRelationTypeGroupAndToIdIn(
+                    from.getId(), from.getEntityType().name(), typeGroup.name(), toIdsChunk)));
+        }
+        // the ids are unique across the entity types, but the target type is a part of the relation key
+        relations.removeIf(relation -> !to.contains(relation.getTo()));
+        return relations;
+    }
 }
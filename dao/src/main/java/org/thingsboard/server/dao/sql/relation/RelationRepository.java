@@ -26,6 +26,7 @@ import org.thingsboard.server.common.data.rule.RuleChainType;
 import org.thingsboard.server.dao.model.sql.RelationCompositeKey;
 import org.thingsboard.server.dao.model.sql.RelationEntity;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -45,6 +46,11 @@ public interface RelationRepository
                                                                                        String relationType,
                                                                                        String relationTypeGroup);
 
+    List<RelationEntity> findAllByFromIdAndFromTypeAndRelationTypeGroupAndToIdIn(UUID fromId,
+                                                                                  String fromType,
+                                                                                  String relationTypeGroup,
+                                                                                  Collection<UUID> toIds);
+
     List<RelationEntity> findAllByToIdAndToTypeAndRelationTypeGroup(UUID toId,
                                                                     String toType,
                                                                     String relationTypeGroup);
@@ -63,6 +69,19 @@ public interface RelationRepository
             "AND r.toId in (SELECT id from RuleChainEntity where type = :ruleChainType )")
     List<RelationEntity> findRuleNodeToRuleChainRelations(@Param("ruleChainType") RuleChainType ruleChainType, Pageable page);
 
+    @Query(value = "SELECT * FROM relation WHERE relation_type_group = :relationTypeGroup " +
+            "AND (from_id, from_type, relation_type_group, relation_type, to_id, to_type) > " +
+            "(:fromId, :fromType, :lastTypeGroup, :relationType, :toId, :toType) " +
+            "ORDER BY from_id, from_type, relation_type_group, relation_type, to_id, to_type LIMIT :limit", nativeQuery = true)
+    List<RelationEntity> findAllByRelationTypeGroupAfter(@Param("relationTypeGroup") String relationTypeGroup,
+                                                         @Param("fromId") UUID fromId,
+                                                         @Param("fromType") String fromType,
+                                                         @Param("lastTypeGroup") String lastTypeGroup,
+                                                         @Param("relationType") String relationType,
+                                                         @Param("toId") UUID toId,
+                                                         @Param("toType") String toType,
+                                                         @Param("limit") int limit);
+
     @Transactional
     <S extends RelationEntity> S save(S entity);
 
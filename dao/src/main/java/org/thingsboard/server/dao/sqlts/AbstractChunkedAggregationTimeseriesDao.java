@@ -21,6 +21,7 @@ import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort.Direction;
 import org.thingsboard.server.common.data.id.EntityId;
@@ -39,6 +40,7 @@ import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
 import org.thingsboard.server.dao.sqlts.insert.InsertTsRepository;
+import org.thingsboard.server.dao.sqlts.ts.TsKvAggregationRepository;
 import org.thingsboard.server.dao.sqlts.ts.TsKvRepository;
 import org.thingsboard.server.dao.timeseries.TimeseriesDao;
 import org.thingsboard.server.dao.util.TimeUtils;
@@ -60,6 +62,12 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
     @Autowired
     protected InsertTsRepository<TsKvEntity> insertRepository;
 
+    @Autowired
+    protected TsKvAggregationRepository aggregationRepository;
+
+    @Value("${sql.ts.aggregation_single_query:false}")
+    protected boolean aggregationSingleQuery;
+
     protected TbSqlBlockingQueueWrapper<TsKvEntity, Void> tsQueue;
     @Autowired
     private StatsFactory statsFactory;
@@ -69,7 +77,7 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
 
     @PostConstruct
     protected void init() {
-        TbSqlBlockingQueueParams tsParams = TbSqlBlockingQueueParams.builder()
+        TbSqlBlockingQueueParams tsParams = queueSettings.newParamsBuilder(tsMaxQueueSize)
                 .logName("TS")
                 .batchSize(tsBatchSize)
                 .maxDelay(tsMaxDelay)
@@ -121,6 +129,8 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
         var aggParams = query.getAggParameters();
         if (Aggregation.NONE.equals(aggParams.getAggregation())) {
             return Futures.immediateFuture(findAllAsyncWithLimit(entityId, query));
+        } else if (aggregationSingleQuery) {
+            return findAndAggregateAllAsync(entityId, query);
         } else {
             List<ListenableFuture<Optional<TsKvEntity>>> futures = new ArrayList<>();
             var intervalType = aggParams.getIntervalType();
@@ -144,6 +154,48 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
         }
     }
 
+    /*
+     * Same intervals as the per-interval path above, but all of them are aggregated by a single query.
+     */
+    private ListenableFuture<ReadTsKvQueryResult> findAndAggregateAllAsync(EntityId entityId, ReadTsKvQuery query) {
+        var aggParams = query.getAggParameters();
+        var intervalType = aggParams.getIntervalType();
+        boolean fixedInterval = IntervalType.MILLISECONDS.equals(intervalType);
+        long startPeriod = query.getStartTs();
+        long endPeriod = Math.max(query.getStartTs() + 1, query.getEndTs());
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(startPeriod);
+        while (startPeriod < endPeriod) {
+            long endTs;
+            if (fixedInterval) {
+                endTs = startPeriod + aggParams.getInterval();
+            } else {
+                endTs = TimeUtils.calculateIntervalEnd(startPeriod, intervalType, aggParams.getTzId());
+            }
+            endTs = Math.min(endTs, endPeriod);
+            bounds.add(endTs);
+            startPeriod = endTs;
+        }
+        long[] bucketBounds = bounds.stream().mapToLong(Long::longValue).toArray();
+        ListenableFuture<List<Optional<? extends AbstractTsKvEntity>>> future = service.submit(() -> {
+            var keyId = keyDictionaryDao.getOrSaveKeyId(query.getKey());
+            TsKvEntity[] aggregates = aggregationRepository.findAggregates(entityId.getId(), keyId, query.getAggregation(),
+                    bucketBounds, fixedInterval ? aggParams.getInterval() : 0);
+            List<Optional<? extends AbstractTsKvEntity>> result = new ArrayList<>(aggregates.length);
+            for (int i = 0; i < aggregates.length; i++) {
+                TsKvEntity entity = aggregates[i];
+                if (entity != null) {
+                    entity.setEntityId(entityId.getId());
+                    entity.setStrKey(query.getKey());
+                    entity.setTs(bucketBounds[i] + (bucketBounds[i + 1] - bucketBounds[i]) / 2);
+                }
+                result.add(Optional.ofNullable(entity));
+            }
+            return result;
+        });
+        return getReadTsKvQueryResultFuture(query, future);
+    }
+
     private ReadTsKvQueryResult findAllAsyncWithLimit(EntityId entityId, ReadTsKvQuery query) {
         Integer keyId = keyDictionaryDao.getOrSaveKeyId(query.getKey());
         List<TsKvEntity> tsKvEntities = tsKvRepository.findAllWithLimit(
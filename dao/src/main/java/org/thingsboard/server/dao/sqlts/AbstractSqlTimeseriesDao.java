@@ -29,6 +29,7 @@ import org.thingsboard.server.common.data.kv.ReadTsKvQueryResult;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
 import org.thingsboard.server.dao.model.ModelConstants;
 import org.thingsboard.server.dao.sql.ScheduledLogExecutorComponent;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueSettings;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -66,6 +67,12 @@ public abstract class AbstractSqlTimeseriesDao extends BaseAbstractSqlTimeseries
     @Value("${sql.batch_sort:true}")
     protected boolean batchSortEnabled;
 
+    @Value("${sql.ts.max_queue_size:0}")
+    protected int tsMaxQueueSize;
+
+    @Autowired
+    protected TbSqlBlockingQueueSettings queueSettings;
+
     @Value("${sql.ttl.ts.ts_key_value_ttl:0}")
     private long systemTtl;
 
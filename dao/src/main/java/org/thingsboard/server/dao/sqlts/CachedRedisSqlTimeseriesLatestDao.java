@@ -40,8 +40,14 @@ import org.thingsboard.server.dao.timeseries.TimeseriesLatestDao;
 import org.thingsboard.server.dao.timeseries.TsLatestCacheKey;
 import org.thingsboard.server.dao.util.SqlTsLatestAnyDaoCachedRedis;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Slf4j
 @Component
@@ -152,6 +158,62 @@ public class CachedRedisSqlTimeseriesLatestDao extends BaseAbstractSqlTimeseries
         }, MoreExecutors.directExecutor());
     }
 
+    /*
+     * Fetches all the cached values using a single pipelined round-trip to Redis.
+     * The misses are fetched from the DB using a single query and put to the cache in bulk.
+     * */
+    @Override
+    public ListenableFuture<Map<EntityId, List<TsKvEntry>>> findLatest(TenantId tenantId, Collection<EntityId> entityIds, Collection<String> keys) {
+        List<TsLatestCacheKey> cacheKeys = new ArrayList<>(entityIds.size() * keys.size());
+        for (EntityId entityId : entityIds) {
+            for (String key : keys) {
+                cacheKeys.add(new TsLatestCacheKey(entityId, key));
+            }
+        }
+        ListenableFuture<Map<TsLatestCacheKey, TbCacheValueWrapper<TsKvEntry>>> cacheFuture = cacheExecutorService.submit(() -> cache.getAll(cacheKeys));
+
+        return Futures.transformAsync(cacheFuture, cacheValues -> {
+            Map<EntityId, List<TsKvEntry>> result = new HashMap<>();
+            List<TsLatestCacheKey> missedCacheKeys = new ArrayList<>();
+            for (TsLatestCacheKey cacheKey : cacheKeys) {
+                TbCacheValueWrapper<TsKvEntry> cacheValueWrap = cacheValues.get(cacheKey);
+                if (cacheValueWrap == null) {
+                    missedCacheKeys.add(cacheKey);
+                } else if (cacheValueWrap.get() != null) {
+                    result.computeIfAbsent(cacheKey.getEntityId(), id -> new ArrayList<>()).add(cacheValueWrap.get());
+                }
+            }
+            hitCounter.add(cacheKeys.size() - missedCacheKeys.size());
+            missCounter.add(missedCacheKeys.size());
+            if (missedCacheKeys.isEmpty()) {
+                return Futures.immediateFuture(result);
+            }
+            log.debug("findLatest cache misses [{}]", missedCacheKeys);
+            Set<EntityId> missedEntityIds = new HashSet<>();
+            Set<String> missedKeys = new HashSet<>();
+            missedCacheKeys.forEach(cacheKey -> {
+                missedEntityIds.add(cacheKey.getEntityId());
+                missedKeys.add(cacheKey.getKey());
+            });
+            ListenableFuture<Map<EntityId, List<TsKvEntry>>> daoFuture = sqlDao.findLatest(tenantId, missedEntityIds, missedKeys);
+
+            return Futures.transform(daoFuture, daoValues -> {
+                Map<TsLatestCacheKey, TsKvEntry> foundValues = new HashMap<>();
+                daoValues.forEach((entityId, entries) -> entries.forEach(entry -> foundValues.put(new TsLatestCacheKey(entityId, entry.getKey()), entry)));
+                Map<TsLatestCacheKey, TsKvEntry> missedValues = new HashMap<>(missedCacheKeys.size());
+                for (TsLatestCacheKey cacheKey : missedCacheKeys) {
+                    TsKvEntry entry = foundValues.get(cacheKey);
+                    missedValues.put(cacheKey, entry);
+                    if (entry != null) {
+                        result.computeIfAbsent(cacheKey.getEntityId(), id -> new ArrayList<>()).add(entry);
+                    }
+                }
+                cache.putAll(missedValues);
+                return result;
+            }, cacheExecutorService);
+        }, MoreExecutors.directExecutor());
+    }
+
     @Override
     public ListenableFuture<List<TsKvEntry>> findAllLatest(TenantId tenantId, EntityId entityId) {
         return sqlDao.findAllLatest(tenantId, entityId);
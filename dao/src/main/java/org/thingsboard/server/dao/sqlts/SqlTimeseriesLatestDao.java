@@ -45,6 +45,7 @@ import org.thingsboard.server.dao.model.sqlts.latest.TsKvLatestCompositeKey;
 import org.thingsboard.server.dao.model.sqlts.latest.TsKvLatestEntity;
 import org.thingsboard.server.dao.sql.ScheduledLogExecutorComponent;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueSettings;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
 import org.thingsboard.server.dao.sql.TbSqlQueueElement;
 import org.thingsboard.server.dao.sqlts.insert.latest.InsertLatestTsRepository;
@@ -54,6 +55,8 @@ import org.thingsboard.server.dao.timeseries.TimeseriesLatestDao;
 import org.thingsboard.server.dao.util.SqlTsLatestAnyDao;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -99,6 +102,12 @@ public class SqlTimeseriesLatestDao extends BaseAbstractSqlTimeseriesDao impleme
     @Value("${sql.batch_sort:true}")
     protected boolean batchSortEnabled;
 
+    @Value("${sql.ts_latest.max_queue_size:0}")
+    private int tsLatestMaxQueueSize;
+
+    @Autowired
+    private TbSqlBlockingQueueSettings queueSettings;
+
     @Autowired
     protected ScheduledLogExecutorComponent logExecutor;
 
@@ -110,7 +119,7 @@ public class SqlTimeseriesLatestDao extends BaseAbstractSqlTimeseriesDao impleme
 
     @PostConstruct
     protected void init() {
-        TbSqlBlockingQueueParams tsLatestParams = TbSqlBlockingQueueParams.builder()
+        TbSqlBlockingQueueParams tsLatestParams = queueSettings.newParamsBuilder(tsLatestMaxQueueSize)
                 .logName("TS Latest")
                 .batchSize(tsLatestBatchSize)
                 .maxDelay(tsLatestMaxDelay)
@@ -166,6 +175,21 @@ public class SqlTimeseriesLatestDao extends BaseAbstractSqlTimeseriesDao impleme
         return service.submit(() -> wrapNullTsKvEntry(key, doFindLatestSync(entityId, key)));
     }
 
+    @Override
+    public ListenableFuture<Map<EntityId, List<TsKvEntry>>> findLatest(TenantId tenantId, Collection<EntityId> entityIds, Collection<String> keys) {
+        if (entityIds.isEmpty() || keys.isEmpty()) {
+            return Futures.immediateFuture(Collections.emptyMap());
+        }
+        Map<UUID, EntityId> entityIdsMap = entityIds.stream().collect(Collectors.toMap(EntityId::getId, Function.identity(), (a, b) -> a));
+        return service.submit(() -> {
+            Map<EntityId, List<TsKvEntry>> result = new HashMap<>();
+            for (TsKvLatestEntity entity : searchTsKvLatestRepository.findAllByEntityIdsAndKeys(entityIdsMap.keySet(), keys)) {
+                result.computeIfAbsent(entityIdsMap.get(entity.getEntityId()), id -> new ArrayList<>()).add(DaoUtil.getData(entity));
+            }
+            return result;
+        });
+    }
+
     @Override
     public ListenableFuture<List<TsKvEntry>> findAllLatest(TenantId tenantId, EntityId entityId) {
         return getFindAllLatestFuture(entityId);
@@ -0,0 +1,142 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.insert;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.thingsboard.server.dao.model.sql.AbstractTsKvEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.WeakHashMap;
+
+/**
+ * Base class for the insert repositories that stream time-series rows into a session-local staging table
+ * using the binary COPY protocol and then merge them into the target table with a single set-based statement.
+ * <p>
+ * Staging tables are temporary (hence unlogged and private to the connection) and are truncated on commit,
+ * so the copy and the merge must be executed within the same transaction. The staging table is created once
+ * per pooled connection: the created tables are tracked by the physical connection, and the tracking is dropped
+ * if the transaction that created the table is rolled back.
+ */
+public abstract class AbstractTsKvCopyInsertRepository extends AbstractInsertRepository {
+
+    private static final byte[] COPY_SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    private static final short TS_KV_FIELDS_COUNT = 8;
+    private static final int ROW_SIZE_ESTIMATE = 64;
+
+    protected static final String STAGING_COLUMNS = "entity_id uuid, key int, ts bigint, bool_v boolean, str_v varchar, long_v bigint, dbl_v double precision, json_v json";
+
+    private final Set<PGConnection> stagingTableConnections = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    protected void copyToStagingTable(Connection connection, String stagingTable, List<? extends AbstractTsKvEntity> entities) throws SQLException {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        if (!stagingTableConnections.contains(pgConnection)) {
+            createStagingTable(connection, pgConnection, stagingTable);
+        }
+        CopyManager copyManager = pgConnection.getCopyAPI();
+        try {
+            copyManager.copyIn("COPY " + stagingTable + " FROM STDIN (FORMAT BINARY)", new ByteArrayInputStream(toBinaryCopy(entities)));
+        } catch (IOException e) {
+            throw new SQLException("Failed to copy " + entities.size() + " entities to " + stagingTable, e);
+        }
+    }
+
+    private void createStagingTable(Connection connection, PGConnection pgConnection, String stagingTable) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TEMP TABLE IF NOT EXISTS " + stagingTable + " (" + STAGING_COLUMNS + ") ON COMMIT DELETE ROWS");
+        }
+        stagingTableConnections.add(pgConnection);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        stagingTableConnections.remove(pgConnection);
+                    }
+                }
+            });
+        }
+    }
+
+    protected byte[] toBinaryCopy(List<? extends AbstractTsKvEntity> entities) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(COPY_SIGNATURE.length + 10 + entities.size() * ROW_SIZE_ESTIMATE);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(COPY_SIGNATURE);
+        out.writeInt(0); // flags
+        out.writeInt(0); // header extension length
+        for (AbstractTsKvEntity entity : entities) {
+            out.writeShort(TS_KV_FIELDS_COUNT);
+            writeUuid(out, entity.getEntityId());
+            out.writeInt(Integer.BYTES);
+            out.writeInt(entity.getKey());
+            out.writeInt(Long.BYTES);
+            out.writeLong(entity.getTs());
+            if (entity.getBooleanValue() != null) {
+                out.writeInt(1);
+                out.writeByte(entity.getBooleanValue() ? 1 : 0);
+            } else {
+                out.writeInt(-1);
+            }
+            writeText(out, replaceNullChars(entity.getStrValue()));
+            if (entity.getLongValue() != null) {
+                out.writeInt(Long.BYTES);
+                out.writeLong(entity.getLongValue());
+            } else {
+                out.writeInt(-1);
+            }
+            if (entity.getDoubleValue() != null) {
+                out.writeInt(Double.BYTES);
+                out.writeDouble(entity.getDoubleValue());
+            } else {
+                out.writeInt(-1);
+            }
+            writeText(out, replaceNullChars(entity.getJsonValue()));
+        }
+        out.writeShort(-1);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeInt(16);
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static void writeText(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] data = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(data.length);
+            out.write(data);
+        }
+    }
+
+}
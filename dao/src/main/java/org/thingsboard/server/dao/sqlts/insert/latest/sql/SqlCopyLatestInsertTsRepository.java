@@ -0,0 +1,108 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.insert.latest.sql;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.stereotype.Repository;
+import org.thingsboard.server.dao.model.sqlts.latest.TsKvLatestCompositeKey;
+import org.thingsboard.server.dao.model.sqlts.latest.TsKvLatestEntity;
+import org.thingsboard.server.dao.sqlts.insert.AbstractTsKvCopyInsertRepository;
+import org.thingsboard.server.dao.sqlts.insert.latest.InsertLatestTsRepository;
+import org.thingsboard.server.dao.util.SqlDao;
+import org.thingsboard.server.dao.util.SqlTsLatestAnyDao;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@SqlTsLatestAnyDao
+@ConditionalOnProperty(prefix = "sql.ts_latest", value = "insert_mode", havingValue = "copy")
+@Repository
+@SqlDao
+public class SqlCopyLatestInsertTsRepository extends AbstractTsKvCopyInsertRepository implements InsertLatestTsRepository {
+
+    @Value("${sql.ts_latest.update_by_latest_ts:true}")
+    private Boolean updateByLatestTs;
+
+    private static final String STAGING_TABLE = "ts_kv_latest_copy_staging";
+
+    private static final String MERGE_FROM_STAGING =
+            "INSERT INTO ts_kv_latest (entity_id, key, ts, bool_v, str_v, long_v, dbl_v, json_v, version) " +
+                    "SELECT entity_id, key, ts, bool_v, str_v, long_v, dbl_v, json_v, nextval('ts_kv_latest_version_seq') FROM " + STAGING_TABLE + " " +
+                    "ON CONFLICT (entity_id, key) DO UPDATE SET ts = excluded.ts, bool_v = excluded.bool_v, str_v = excluded.str_v, " +
+                    "long_v = excluded.long_v, dbl_v = excluded.dbl_v, json_v = excluded.json_v, version = nextval('ts_kv_latest_version_seq')";
+
+    private static final String MERGE_FROM_STAGING_BY_LATEST_TS = MERGE_FROM_STAGING + " WHERE ts_kv_latest.ts <= excluded.ts";
+
+    private static final String RETURNING = " RETURNING entity_id, key, version";
+
+    private String mergeQuery;
+
+    @PostConstruct
+    private void init() {
+        this.mergeQuery = (updateByLatestTs ? MERGE_FROM_STAGING_BY_LATEST_TS : MERGE_FROM_STAGING) + RETURNING;
+    }
+
+    @Override
+    public List<Long> saveOrUpdate(List<TsKvLatestEntity> entities) {
+        Map<TsKvLatestCompositeKey, Integer> winners = selectWinners(entities);
+        List<TsKvLatestEntity> toSave = new ArrayList<>(winners.size());
+        winners.values().forEach(i -> toSave.add(entities.get(i)));
+
+        Map<TsKvLatestCompositeKey, Long> versions = transactionTemplate.execute(status -> jdbcTemplate.execute((ConnectionCallback<Map<TsKvLatestCompositeKey, Long>>) connection -> {
+            copyToStagingTable(connection, STAGING_TABLE, toSave);
+            Map<TsKvLatestCompositeKey, Long> result = new HashMap<>(toSave.size());
+            try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(mergeQuery)) {
+                while (rs.next()) {
+                    result.put(new TsKvLatestCompositeKey(rs.getObject(1, UUID.class), rs.getInt(2)), rs.getLong(3));
+                }
+            }
+            return result;
+        }));
+
+        List<Long> seqNumbers = new ArrayList<>(Collections.nCopies(entities.size(), null));
+        winners.forEach((key, index) -> seqNumbers.set(index, versions.get(key)));
+        return seqNumbers;
+    }
+
+    /*
+     * A single INSERT ... ON CONFLICT can't update the same row twice, so only one entry per entity and key
+     * is merged: the one with the greatest timestamp if update_by_latest_ts is enabled, the last one otherwise.
+     * Superseded entries get a null version, the same as entries that were not applied because of an older timestamp.
+     */
+    private Map<TsKvLatestCompositeKey, Integer> selectWinners(List<TsKvLatestEntity> entities) {
+        Map<TsKvLatestCompositeKey, Integer> winners = new LinkedHashMap<>(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            TsKvLatestEntity entity = entities.get(i);
+            TsKvLatestCompositeKey key = new TsKvLatestCompositeKey(entity.getEntityId(), entity.getKey());
+            Integer previous = winners.get(key);
+            if (previous == null || !updateByLatestTs || entities.get(previous).getTs() <= entity.getTs()) {
+                winners.put(key, i);
+            }
+        }
+        return winners;
+    }
+
+}
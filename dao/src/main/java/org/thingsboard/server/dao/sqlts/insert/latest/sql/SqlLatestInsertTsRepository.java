@@ -17,6 +17,7 @@ package org.thingsboard.server.dao.sqlts.insert.latest.sql;
 
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import org.thingsboard.server.dao.AbstractVersionedInsertRepository;
@@ -31,6 +32,7 @@ import java.sql.Types;
 import java.util.List;
 
 @SqlTsLatestAnyDao
+@ConditionalOnProperty(prefix = "sql.ts_latest", value = "insert_mode", havingValue = "batch", matchIfMissing = true)
 @Repository
 @Transactional
 @SqlDao
@@ -0,0 +1,69 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.insert.sql;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.stereotype.Repository;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvCompositeKey;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.sqlts.insert.AbstractTsKvCopyInsertRepository;
+import org.thingsboard.server.dao.sqlts.insert.InsertTsRepository;
+import org.thingsboard.server.dao.util.SqlTsDao;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@SqlTsDao
+@ConditionalOnProperty(prefix = "sql.ts", value = "insert_mode", havingValue = "copy")
+@Repository
+public class SqlCopyInsertTsRepository extends AbstractTsKvCopyInsertRepository implements InsertTsRepository<TsKvEntity> {
+
+    private static final String STAGING_TABLE = "ts_kv_copy_staging";
+
+    private static final String MERGE_FROM_STAGING = "INSERT INTO ts_kv (entity_id, key, ts, bool_v, str_v, long_v, dbl_v, json_v) " +
+            "SELECT entity_id, key, ts, bool_v, str_v, long_v, dbl_v, json_v FROM " + STAGING_TABLE + " " +
+            "ON CONFLICT (entity_id, key, ts) DO UPDATE SET bool_v = excluded.bool_v, str_v = excluded.str_v, " +
+            "long_v = excluded.long_v, dbl_v = excluded.dbl_v, json_v = excluded.json_v;";
+
+    @Override
+    public void saveOrUpdate(List<TsKvEntity> entities) {
+        List<TsKvEntity> toSave = deduplicate(entities);
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            copyToStagingTable(connection, STAGING_TABLE, toSave);
+            try (Statement stmt = connection.createStatement()) {
+                stmt.executeUpdate(MERGE_FROM_STAGING);
+            }
+            return null;
+        }));
+    }
+
+    /*
+     * A single INSERT ... ON CONFLICT can't update the same row twice, so the last value wins here,
+     * the same way it does when the rows are upserted one by one. Order of the batch is preserved.
+     */
+    private static List<TsKvEntity> deduplicate(List<TsKvEntity> entities) {
+        Map<TsKvCompositeKey, TsKvEntity> unique = new LinkedHashMap<>(entities.size());
+        for (TsKvEntity entity : entities) {
+            unique.put(new TsKvCompositeKey(entity.getEntityId(), entity.getKey(), entity.getTs()), entity);
+        }
+        return unique.size() == entities.size() ? entities : new ArrayList<>(unique.values());
+    }
+
+}
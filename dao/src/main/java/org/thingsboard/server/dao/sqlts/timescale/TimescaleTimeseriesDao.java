@@ -79,7 +79,7 @@ public class TimescaleTimeseriesDao extends AbstractSqlTimeseriesDao implements
 
     @PostConstruct
     protected void init() {
-        TbSqlBlockingQueueParams tsParams = TbSqlBlockingQueueParams.builder()
+        TbSqlBlockingQueueParams tsParams = queueSettings.newParamsBuilder(tsMaxQueueSize)
                 .logName("TS Timescale")
                 .batchSize(tsBatchSize)
                 .maxDelay(tsMaxDelay)
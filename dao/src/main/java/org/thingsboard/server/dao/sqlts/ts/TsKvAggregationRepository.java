@@ -0,0 +1,128 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.ts;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.util.SqlTsDao;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Computes aggregates for all time buckets of a query in a single SQL statement.
+ * Fixed-width buckets are resolved arithmetically, calendar buckets (week, month, quarter in a given time zone)
+ * are resolved with a binary search over the bucket bounds using width_bucket.
+ * The per-bucket values are converted to {@link TsKvEntity} the same way as the per-interval queries of {@link TsKvRepository}.
+ */
+@SqlTsDao
+@Repository
+public class TsKvAggregationRepository {
+
+    private static final String FROM_WHERE = " FROM ts_kv WHERE entity_id = ? AND key = ? AND ts >= ? AND ts < ? GROUP BY bucket ORDER BY bucket";
+    private static final String FIXED_BUCKET = "SELECT (ts - ?) / ? AS bucket, ";
+    private static final String CALENDAR_BUCKET = "SELECT width_bucket(ts, ?) - 1 AS bucket, ";
+
+    private static final String SUM_AND_AVG_COLUMNS = "SUM(COALESCE(long_v, 0)), SUM(COALESCE(dbl_v, 0.0)), COUNT(long_v), COUNT(dbl_v), MAX(ts)";
+    private static final String MAX_COLUMNS = "MAX(long_v), MAX(dbl_v), COUNT(long_v), COUNT(dbl_v), MAX(ts), MAX(str_v), MAX(ts) FILTER (WHERE str_v IS NOT NULL)";
+    private static final String MIN_COLUMNS = "MIN(long_v), MIN(dbl_v), COUNT(long_v), COUNT(dbl_v), MAX(ts), MIN(str_v), MAX(ts) FILTER (WHERE str_v IS NOT NULL)";
+    private static final String COUNT_COLUMNS = "COUNT(bool_v), COUNT(str_v), COUNT(long_v), COUNT(dbl_v), COUNT(json_v), MAX(ts)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param bucketBounds bounds of the buckets in ascending order: bucket {@code i} covers {@code [bucketBounds[i], bucketBounds[i + 1])}
+     * @param interval     width of the buckets in milliseconds or 0 if the buckets have different widths
+     * @return aggregated entity per bucket, {@code null} for the buckets without data
+     */
+    public TsKvEntity[] findAggregates(UUID entityId, int keyId, Aggregation aggregation, long[] bucketBounds, long interval) {
+        int bucketsCount = bucketBounds.length - 1;
+        long startTs = bucketBounds[0];
+        long endTs = bucketBounds[bucketsCount];
+        String query = (interval > 0 ? FIXED_BUCKET : CALENDAR_BUCKET) + getColumns(aggregation) + FROM_WHERE;
+        TsKvEntity[] result = new TsKvEntity[bucketsCount];
+        jdbcTemplate.query(query, ps -> {
+            int i = 1;
+            if (interval > 0) {
+                ps.setLong(i++, startTs);
+                ps.setLong(i++, interval);
+            } else {
+                Array bounds = ps.getConnection().createArrayOf("bigint", Arrays.stream(bucketBounds).boxed().toArray());
+                ps.setArray(i++, bounds);
+            }
+            ps.setObject(i++, entityId);
+            ps.setInt(i++, keyId);
+            ps.setLong(i++, startTs);
+            ps.setLong(i, endTs);
+        }, rs -> {
+            int bucket = rs.getInt(1);
+            if (bucket >= 0 && bucket < bucketsCount) {
+                TsKvEntity entity = toEntity(rs, aggregation);
+                if (entity.isNotEmpty()) {
+                    result[bucket] = entity;
+                }
+            }
+        });
+        return result;
+    }
+
+    private static String getColumns(Aggregation aggregation) {
+        return switch (aggregation) {
+            case AVG, SUM -> SUM_AND_AVG_COLUMNS;
+            case MAX -> MAX_COLUMNS;
+            case MIN -> MIN_COLUMNS;
+            case COUNT -> COUNT_COLUMNS;
+            default -> throw new IllegalArgumentException("Not supported aggregation type: " + aggregation);
+        };
+    }
+
+    private static TsKvEntity toEntity(ResultSet rs, Aggregation aggregation) throws SQLException {
+        switch (aggregation) {
+            case AVG:
+            case SUM:
+                return new TsKvEntity(getLong(rs, 2), getDouble(rs, 3), getLong(rs, 4), getLong(rs, 5), aggregation.name(), getLong(rs, 6));
+            case MAX:
+            case MIN:
+                TsKvEntity numeric = new TsKvEntity(getLong(rs, 2), getDouble(rs, 3), getLong(rs, 4), getLong(rs, 5), aggregation.name(), getLong(rs, 6));
+                if (numeric.isNotEmpty()) {
+                    return numeric;
+                }
+                return new TsKvEntity(rs.getString(7), getLong(rs, 8));
+            case COUNT:
+                return new TsKvEntity(getLong(rs, 2), getLong(rs, 3), getLong(rs, 4), getLong(rs, 5), getLong(rs, 6), getLong(rs, 7));
+            default:
+                throw new IllegalArgumentException("Not supported aggregation type: " + aggregation);
+        }
+    }
+
+    private static Long getLong(ResultSet rs, int column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Double getDouble(ResultSet rs, int column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+
+}
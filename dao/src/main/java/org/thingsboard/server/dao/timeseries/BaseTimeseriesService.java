@@ -33,9 +33,11 @@ import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.kv.Aggregation;
 import org.thingsboard.server.common.data.kv.BaseDeleteTsKvQuery;
 import org.thingsboard.server.common.data.kv.BaseReadTsKvQuery;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
 import org.thingsboard.server.common.data.kv.DeleteTsKvQuery;
 import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.ReadTsKvQueryResult;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
 import org.thingsboard.server.common.data.kv.TsKvLatestRemovingResult;
 import org.thingsboard.server.dao.entityview.EntityViewService;
@@ -45,7 +47,9 @@ import org.thingsboard.server.dao.service.Validator;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -126,12 +130,17 @@ public class BaseTimeseriesService implements TimeseriesService {
     @Override
     public ListenableFuture<List<TsKvEntry>> findLatest(TenantId tenantId, EntityId entityId, Collection<String> keys) {
         validate(entityId);
-        List<ListenableFuture<TsKvEntry>> futures = new ArrayList<>(keys.size());
         keys.forEach(key -> Validator.validateString(key, k -> "Incorrect key " + k));
-        for (String key : keys) {
-            futures.add(timeseriesLatestDao.findLatest(tenantId, entityId, key));
-        }
-        return Futures.allAsList(futures);
+        return Futures.transform(timeseriesLatestDao.findLatest(tenantId, Collections.singletonList(entityId), keys), latest -> {
+            Map<String, TsKvEntry> entries = new HashMap<>();
+            latest.getOrDefault(entityId, Collections.emptyList()).forEach(entry -> entries.put(entry.getKey(), entry));
+            List<TsKvEntry> result = new ArrayList<>(keys.size());
+            for (String key : keys) {
+                TsKvEntry entry = entries.get(key);
+                result.add(entry != null ? entry : new BasicTsKvEntry(System.currentTimeMillis(), new StringDataEntry(key, null)));
+            }
+            return result;
+        }, MoreExecutors.directExecutor());
     }
 
     @Override
@@ -55,6 +55,7 @@ import org.thingsboard.server.dao.model.ModelConstants;
 import org.thingsboard.server.dao.nosql.TbResultSet;
 import org.thingsboard.server.dao.nosql.TbResultSetFuture;
 import org.thingsboard.server.dao.sqlts.AggregationTimeseriesDao;
+import org.thingsboard.server.dao.util.AsyncTaskPriority;
 import org.thingsboard.server.dao.util.NoSqlTsDao;
 import org.thingsboard.server.dao.util.TimeUtils;
 
@@ -361,7 +362,7 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
 
             BoundStatement stmt = stmtBuilder.build();
 
-            Futures.addCallback(executeAsyncRead(tenantId, stmt), new FutureCallback<TbResultSet>() {
+            Futures.addCallback(executeAsyncRead(tenantId, stmt, AsyncTaskPriority.LOW), new FutureCallback<TbResultSet>() {
                 @Override
                 public void onSuccess(@Nullable TbResultSet result) {
                     if (result == null) {
@@ -466,7 +467,7 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
                     stmtBuilder.setLong(5, endTs);
                     BoundStatement stmt = stmtBuilder.build();
                     log.debug(GENERATED_QUERY_FOR_ENTITY_TYPE_AND_ENTITY_ID, stmt, entityId.getEntityType(), entityId.getId());
-                    futures.add(executeAsyncRead(tenantId, stmt));
+                    futures.add(executeAsyncRead(tenantId, stmt, AsyncTaskPriority.LOW));
                 }
                 return Futures.allAsList(futures);
             } catch (Throwable e) {
@@ -538,7 +539,7 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
 
             BoundStatement stmt = stmtBuilder.build();
 
-            Futures.addCallback(executeAsyncWrite(tenantId, stmt), new FutureCallback<AsyncResultSet>() {
+            Futures.addCallback(executeAsyncWrite(tenantId, stmt, AsyncTaskPriority.LOW), new FutureCallback<AsyncResultSet>() {
                 @Override
                 public void onSuccess(@Nullable AsyncResultSet result) {
                     deleteAsync(tenantId, cursor, resultFuture);
@@ -743,7 +744,7 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
                 .whereColumn(ModelConstants.KEY_COLUMN).isEqualTo(literal(key))
                 .whereColumn(ModelConstants.PARTITION_COLUMN).isGreaterThanOrEqualTo(literal(minPartition))
                 .whereColumn(ModelConstants.PARTITION_COLUMN).isLessThanOrEqualTo(literal(maxPartition));
-        return executeAsyncRead(tenantId, select.build());
+        return executeAsyncRead(tenantId, select.build(), AsyncTaskPriority.LOW);
     }
 
     private PreparedStatement getFetchStmt(Aggregation aggType, String orderBy) {
@@ -15,7 +15,9 @@
  */
 package org.thingsboard.server.dao.timeseries;
 
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.thingsboard.server.common.data.id.DeviceProfileId;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
@@ -23,7 +25,11 @@ import org.thingsboard.server.common.data.kv.DeleteTsKvQuery;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
 import org.thingsboard.server.common.data.kv.TsKvLatestRemovingResult;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface TimeseriesLatestDao {
@@ -40,6 +46,32 @@ public interface TimeseriesLatestDao {
      */
     ListenableFuture<TsKvEntry> findLatest(TenantId tenantId, EntityId entityId, String key);
 
+    /**
+     * Latest values of the given keys for each of the given entities.
+     * The entities and keys without the value in the DB are absent in the result
+     *
+     */
+    default ListenableFuture<Map<EntityId, List<TsKvEntry>>> findLatest(TenantId tenantId, Collection<EntityId> entityIds, Collection<String> keys) {
+        List<ListenableFuture<Optional<TsKvEntry>>> futures = new ArrayList<>(entityIds.size() * keys.size());
+        List<EntityId> futureEntityIds = new ArrayList<>(entityIds.size() * keys.size());
+        for (EntityId entityId : entityIds) {
+            for (String key : keys) {
+                futures.add(findLatestOpt(tenantId, entityId, key));
+                futureEntityIds.add(entityId);
+            }
+        }
+        return Futures.transform(Futures.allAsList(futures), entries -> {
+            Map<EntityId, List<TsKvEntry>> result = new HashMap<>();
+            for (int i = 0; i < entries.size(); i++) {
+                Optional<TsKvEntry> entry = entries.get(i);
+                if (entry.isPresent()) {
+                    result.computeIfAbsent(futureEntityIds.get(i), id -> new ArrayList<>()).add(entry.get());
+                }
+            }
+            return result;
+        }, MoreExecutors.directExecutor());
+    }
+
     ListenableFuture<List<TsKvEntry>> findAllLatest(TenantId tenantId, EntityId entityId);
 
     ListenableFuture<Long> saveLatest(TenantId tenantId, EntityId entityId, TsKvEntry tsKvEntry);
@@ -41,6 +41,7 @@ import org.thingsboard.server.common.stats.StatsType;
 import org.thingsboard.server.dao.entity.EntityService;
 import org.thingsboard.server.dao.nosql.CassandraStatementTask;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -70,6 +71,7 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
     private final ScheduledExecutorService timeoutExecutor;
     private final int concurrencyLimit;
     private final int printQueriesFreq;
+    private final boolean fairSchedulingEnabled;
 
     private final AtomicInteger printQueriesIdx = new AtomicInteger(0);
 
@@ -84,16 +86,23 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
 
     public AbstractBufferedRateExecutor(int queueLimit, int concurrencyLimit, long maxWaitTime, int dispatcherThreads,
                                         int callbackThreads, long pollMs, int printQueriesFreq, StatsFactory statsFactory,
-                                        EntityService entityService, RateLimitService rateLimitService, boolean printTenantNames) {
+                                        EntityService entityService, RateLimitService rateLimitService, boolean printTenantNames,
+                                        boolean fairSchedulingEnabled, int fairSchedulingQuantum, String fairSchedulingPriorityWeights) {
         this.maxWaitTime = maxWaitTime;
         this.pollMs = pollMs;
         this.concurrencyLimit = concurrencyLimit;
         this.printQueriesFreq = printQueriesFreq;
-        this.queue = new LinkedBlockingDeque<>(queueLimit);
+        this.fairSchedulingEnabled = fairSchedulingEnabled;
+        if (fairSchedulingEnabled) {
+            this.queue = new TenantFairBlockingQueue<>(queueLimit, fairSchedulingQuantum, parsePriorityWeights(fairSchedulingPriorityWeights),
+                    taskCtx -> taskCtx.getTask().getTenantId(), taskCtx -> taskCtx.getTask().getPriority());
+        } else {
+            this.queue = new LinkedBlockingDeque<>(queueLimit);
+        }
         this.dispatcherExecutor = Executors.newFixedThreadPool(dispatcherThreads, ThingsBoardThreadFactory.forName("nosql-" + getBufferName() + "-dispatcher"));
         this.callbackExecutor = ThingsBoardExecutors.newWorkStealingPool(callbackThreads, "nosql-" + getBufferName() + "-callback");
         this.timeoutExecutor = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("nosql-" + getBufferName() + "-timeout"));
-        this.stats = new BufferedRateExecutorStats(statsFactory);
+        this.stats = new BufferedRateExecutorStats(statsFactory, getBufferName());
         String concurrencyLevelKey = StatsType.RATE_EXECUTOR.getName() + "." + CONCURRENCY_LEVEL + getBufferName(); //metric name may change with buffer name suffix
         this.concurrencyLevel = statsFactory.createGauge(concurrencyLevelKey, new AtomicInteger(0));
 
@@ -125,10 +134,16 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
         }
 
         if (!perTenantLimitReached) {
+            if (fairSchedulingEnabled) {
+                stats.onTenantTaskQueued(getStatsTenantId(tenantId));
+            }
             try {
                 stats.getTotalAdded().increment();
                 queue.add(new AsyncTaskContext<>(UUID.randomUUID(), task, settableFuture, System.currentTimeMillis()));
             } catch (IllegalStateException e) {
+                if (fairSchedulingEnabled) {
+                    stats.onTenantTaskDequeued(getStatsTenantId(tenantId), 0);
+                }
                 stats.getTotalRejected().increment();
                 settableFuture.setException(e);
             }
@@ -136,6 +151,19 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
         return result;
     }
 
+    private static TenantId getStatsTenantId(TenantId tenantId) {
+        return tenantId != null ? tenantId : TenantId.SYS_TENANT_ID;
+    }
+
+    private static int[] parsePriorityWeights(String priorityWeights) {
+        if (priorityWeights == null || priorityWeights.isBlank()) {
+            int[] weights = new int[AsyncTaskPriority.values().length];
+            Arrays.fill(weights, 1);
+            return weights;
+        }
+        return Arrays.stream(priorityWeights.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+
     public void stop() {
         if (dispatcherExecutor != null) {
             dispatcherExecutor.shutdownNow();
@@ -165,6 +193,9 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
                 if (curLvl <= concurrencyLimit) {
                     taskCtx = queue.take();
                     final AsyncTaskContext<T, V> finalTaskCtx = taskCtx;
+                    if (fairSchedulingEnabled) {
+                        stats.onTenantTaskDequeued(getStatsTenantId(taskCtx.getTask().getTenantId()), System.currentTimeMillis() - taskCtx.getCreateTime());
+                    }
                     if (printQueriesFreq > 0) {
                         if (printQueriesIdx.incrementAndGet() >= printQueriesFreq) {
                             printQueriesIdx.set(0);
@@ -296,6 +327,12 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
             });
             statsBuilder.append("totalRateLimitedTenants").append(" = [").append(rateLimitedTenantsCount).append("] ");
             statsBuilder.append(CONCURRENCY_LEVEL).append(" = [").append(concurrencyLevel.get()).append("] ");
+            if (fairSchedulingEnabled) {
+                int queuedTenantsCount = (int) stats.getTenantQueueSizes().values().stream()
+                        .filter(tenantQueueSize -> tenantQueueSize.get() > 0)
+                        .count();
+                statsBuilder.append("queuedTenants").append(" = [").append(queuedTenantsCount).append("] ");
+            }
 
             stats.getStatsCounters().forEach(StatsCounter::clear);
             log.info("[{}] Permits {}", getBufferName(), statsBuilder);
@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.dao.util;
 
+import io.micrometer.core.instrument.Timer;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.server.common.data.id.TenantId;
@@ -27,12 +28,14 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Getter
 public class BufferedRateExecutorStats {
     private static final String TENANT_ID_TAG = "tenantId";
-
+    private static final String BUFFER_NAME_TAG = "bufferName";
 
     private static final String TOTAL_ADDED = "totalAdded";
     private static final String TOTAL_LAUNCHED = "totalLaunched";
@@ -41,10 +44,15 @@ public class BufferedRateExecutorStats {
     private static final String TOTAL_EXPIRED = "totalExpired";
     private static final String TOTAL_REJECTED = "totalRejected";
     private static final String TOTAL_RATE_LIMITED = "totalRateLimited";
+    private static final String TENANT_QUEUE_SIZE = "tenantQueueSize";
+    private static final String TENANT_WAIT_TIME = "tenantWaitTime";
 
     private final StatsFactory statsFactory;
+    private final String bufferName;
 
     private final ConcurrentMap<TenantId, DefaultCounter> rateLimitedTenants = new ConcurrentHashMap<>();
+    private final ConcurrentMap<TenantId, AtomicInteger> tenantQueueSizes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<TenantId, Timer> tenantWaitTimers = new ConcurrentHashMap<>();
 
     private final List<StatsCounter> statsCounters = new ArrayList<>();
 
@@ -56,8 +64,9 @@ public class BufferedRateExecutorStats {
     private final StatsCounter totalRejected;
     private final StatsCounter totalRateLimited;
 
-    public BufferedRateExecutorStats(StatsFactory statsFactory) {
+    public BufferedRateExecutorStats(StatsFactory statsFactory, String bufferName) {
         this.statsFactory = statsFactory;
+        this.bufferName = bufferName;
 
         String key = StatsType.RATE_EXECUTOR.getName();
 
@@ -87,4 +96,25 @@ public class BufferedRateExecutorStats {
         )
                 .increment();
     }
+
+    public void onTenantTaskQueued(TenantId tenantId) {
+        getTenantQueueSize(tenantId).incrementAndGet();
+    }
+
+    public void onTenantTaskDequeued(TenantId tenantId, long waitTimeMs) {
+        getTenantQueueSize(tenantId).decrementAndGet();
+        tenantWaitTimers.computeIfAbsent(tenantId,
+                tId -> statsFactory.createTimer(StatsType.RATE_EXECUTOR.getName() + "." + TENANT_WAIT_TIME,
+                        BUFFER_NAME_TAG, bufferName, TENANT_ID_TAG, tId.toString())
+        ).record(waitTimeMs, TimeUnit.MILLISECONDS);
+    }
+
+    private AtomicInteger getTenantQueueSize(TenantId tenantId) {
+        return tenantQueueSizes.computeIfAbsent(tenantId, tId -> {
+            AtomicInteger queueSize = new AtomicInteger();
+            statsFactory.createGauge(StatsType.RATE_EXECUTOR.getName() + "." + TENANT_QUEUE_SIZE, queueSize,
+                    BUFFER_NAME_TAG, bufferName, TENANT_ID_TAG, tId.toString());
+            return queueSize;
+        });
+    }
 }
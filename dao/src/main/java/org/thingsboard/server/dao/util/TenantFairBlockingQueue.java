@@ -0,0 +1,313 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.util;
+
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Bounded blocking queue that keeps a separate sub-queue per tenant and per priority class.
+ * Priority classes are served by weighted round-robin, so the lower classes are slowed down but never starved.
+ * Tenants inside the class are served by deficit round-robin: each tenant dispatches up to the quantum
+ * of the elements in a row and then yields to the next tenant with queued elements.
+ * Every element has a unit cost, since the cost of the query is not known before its execution.
+ */
+public class TenantFairBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    private final int capacity;
+    private final int quantum;
+    private final int[] weights;
+    private final Function<E, TenantId> tenantIdFunction;
+    private final Function<E, AsyncTaskPriority> priorityFunction;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private final List<PriorityClass<E>> classes;
+    private int count;
+    private int currentClass;
+    private int classCredit;
+
+    public TenantFairBlockingQueue(int capacity, int quantum, int[] weights,
+                                   Function<E, TenantId> tenantIdFunction, Function<E, AsyncTaskPriority> priorityFunction) {
+        if (capacity <= 0 || quantum <= 0) {
+            throw new IllegalArgumentException("Capacity and quantum must be positive");
+        }
+        AsyncTaskPriority[] priorities = AsyncTaskPriority.values();
+        if (weights.length != priorities.length) {
+            throw new IllegalArgumentException("Expected " + priorities.length + " priority weights, but got " + weights.length);
+        }
+        this.capacity = capacity;
+        this.quantum = quantum;
+        this.weights = new int[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] <= 0) {
+                throw new IllegalArgumentException("Priority weights must be positive");
+            }
+            this.weights[i] = weights[i];
+        }
+        this.tenantIdFunction = tenantIdFunction;
+        this.priorityFunction = priorityFunction;
+        this.classes = new ArrayList<>(priorities.length);
+        for (int i = 0; i < priorities.length; i++) {
+            classes.add(new PriorityClass<>());
+        }
+        this.classCredit = this.weights[0];
+    }
+
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        lock.lock();
+        try {
+            if (count == capacity) {
+                return false;
+            }
+            enqueue(e);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        Objects.requireNonNull(e);
+        lock.lockInterruptibly();
+        try {
+            while (count == capacity) {
+                notFull.await();
+            }
+            enqueue(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        Objects.requireNonNull(e);
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == capacity) {
+                if (nanos <= 0L) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            enqueue(e);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E poll() {
+        lock.lock();
+        try {
+            return count == 0 ? null : dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0L) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the head of the highest non-empty priority class, which is not necessarily the next element to take.
+     */
+    @Override
+    public E peek() {
+        lock.lock();
+        try {
+            for (PriorityClass<E> priorityClass : classes) {
+                TenantQueue<E> tenantQueue = priorityClass.active.peekFirst();
+                if (tenantQueue != null) {
+                    return tenantQueue.elements.peekFirst();
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            return capacity - count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        Objects.requireNonNull(c);
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        lock.lock();
+        try {
+            int n = 0;
+            while (n < maxElements && count > 0) {
+                c.add(dequeue());
+                n++;
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the iterator over the snapshot of the queue. The iterator does not support removal.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        lock.lock();
+        try {
+            List<E> snapshot = new ArrayList<>(count);
+            for (PriorityClass<E> priorityClass : classes) {
+                priorityClass.active.forEach(tenantQueue -> snapshot.addAll(tenantQueue.elements));
+            }
+            return Collections.unmodifiableList(snapshot).iterator();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(E e) {
+        AsyncTaskPriority priority = priorityFunction.apply(e);
+        PriorityClass<E> priorityClass = classes.get(priority != null ? priority.ordinal() : 0);
+        TenantId tenantId = tenantIdFunction.apply(e);
+        TenantQueue<E> tenantQueue = priorityClass.tenants.computeIfAbsent(tenantId != null ? tenantId : TenantId.SYS_TENANT_ID, TenantQueue::new);
+        if (tenantQueue.elements.isEmpty()) {
+            priorityClass.active.addLast(tenantQueue);
+        }
+        tenantQueue.elements.addLast(e);
+        priorityClass.size++;
+        count++;
+        notEmpty.signal();
+    }
+
+    /*
+     * Must be called under the lock when the queue is not empty.
+     * */
+    private E dequeue() {
+        while (classCredit == 0 || classes.get(currentClass).size == 0) {
+            currentClass = (currentClass + 1) % classes.size();
+            classCredit = weights[currentClass];
+        }
+        classCredit--;
+        PriorityClass<E> priorityClass = classes.get(currentClass);
+        TenantQueue<E> tenantQueue = priorityClass.active.peekFirst();
+        if (tenantQueue.deficit == 0) {
+            tenantQueue.deficit = quantum;
+        }
+        E e = tenantQueue.elements.pollFirst();
+        tenantQueue.deficit--;
+        if (tenantQueue.elements.isEmpty()) {
+            priorityClass.active.pollFirst();
+            priorityClass.tenants.remove(tenantQueue.tenantId);
+        } else if (tenantQueue.deficit == 0) {
+            priorityClass.active.addLast(priorityClass.active.pollFirst());
+        }
+        priorityClass.size--;
+        count--;
+        notFull.signal();
+        return e;
+    }
+
+    private static class PriorityClass<E> {
+        private final Map<TenantId, TenantQueue<E>> tenants = new HashMap<>();
+        private final ArrayDeque<TenantQueue<E>> active = new ArrayDeque<>();
+        private int size;
+    }
+
+    private static class TenantQueue<E> {
+        private final TenantId tenantId;
+        private final ArrayDeque<E> elements = new ArrayDeque<>();
+        private int deficit;
+
+        private TenantQueue(TenantId tenantId) {
+            this.tenantId = tenantId;
+        }
+    }
+
+}
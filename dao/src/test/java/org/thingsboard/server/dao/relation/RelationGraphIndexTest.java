@@ -0,0 +1,201 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.relation;
+
+import com.google.common.util.concurrent.Futures;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.server.common.data.id.AssetId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.relation.EntityRelation;
+import org.thingsboard.server.common.data.relation.EntitySearchDirection;
+import org.thingsboard.server.common.data.relation.RelationTypeGroup;
+import org.thingsboard.server.dao.sql.JpaExecutorService;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+
+class RelationGraphIndexTest {
+
+    private final RelationDao relationDao = mock(RelationDao.class);
+    private final JpaExecutorService executor = mock(JpaExecutorService.class);
+    private RelationGraphIndex index;
+
+    private final AssetId building = new AssetId(UUID.randomUUID());
+    private final AssetId floor1 = new AssetId(UUID.randomUUID());
+    private final AssetId floor2 = new AssetId(UUID.randomUUID());
+    private final DeviceId device1 = new DeviceId(UUID.randomUUID());
+    private final DeviceId device2 = new DeviceId(UUID.randomUUID());
+
+    private final EntityRelation buildingToFloor1 = new EntityRelation(building, floor1, EntityRelation.CONTAINS_TYPE);
+    private final EntityRelation buildingToFloor2 = new EntityRelation(building, floor2, EntityRelation.CONTAINS_TYPE);
+    private final EntityRelation floor1ToDevice1 = new EntityRelation(floor1, device1, EntityRelation.CONTAINS_TYPE);
+    private final EntityRelation floor2ToDevice2 = new EntityRelation(floor2, device2, EntityRelation.MANAGES_TYPE);
+
+    @BeforeEach
+    void setUp() {
+        index = new RelationGraphIndex(relationDao, executor);
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "loadBatchSize", 2);
+        ReflectionTestUtils.setField(index, "refreshRetryIntervalMs", 100L);
+        given(executor.submit(any(Callable.class))).willAnswer(invocation -> Futures.immediateFuture(((Callable<?>) invocation.getArgument(0)).call()));
+        given(relationDao.findAllByTypeGroup(eq(RelationTypeGroup.COMMON), any(), anyInt())).willReturn(List.of());
+        given(relationDao.findAllByTypeGroup(RelationTypeGroup.COMMON, null, 2)).willReturn(List.of(buildingToFloor1, buildingToFloor2));
+        given(relationDao.findAllByTypeGroup(RelationTypeGroup.COMMON, buildingToFloor2, 2)).willReturn(List.of(floor1ToDevice1, floor2ToDevice2));
+        index.init();
+        await().atMost(10, TimeUnit.SECONDS).until(() -> index.isReady(RelationTypeGroup.COMMON));
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.destroy();
+    }
+
+    @Test
+    void givenLoadedIndex_whenFindFromAllLevels_thenAllRelationsReturned() throws Exception {
+        assertThat(index.isReady(RelationTypeGroup.COMMON)).isTrue();
+        assertThat(index.isReady(RelationTypeGroup.RULE_NODE)).isFalse();
+
+        Set<EntityRelation> relations = index.findRelationsRecursively(building, EntitySearchDirection.FROM, Integer.MAX_VALUE, false).get();
+
+        assertThat(relations).containsExactlyInAnyOrder(buildingToFloor1, buildingToFloor2, floor1ToDevice1, floor2ToDevice2);
+    }
+
+    @Test
+    void givenLoadedIndex_whenFindWithMaxLevel_thenDeeperRelationsSkipped() throws Exception {
+        Set<EntityRelation> relations = index.findRelationsRecursively(building, EntitySearchDirection.FROM, 1, false).get();
+
+        assertThat(relations).containsExactlyInAnyOrder(buildingToFloor1, buildingToFloor2);
+    }
+
+    @Test
+    void givenLoadedIndex_whenFindLastLevelOnly_thenLeafRelationsReturned() throws Exception {
+        Set<EntityRelation> relations = index.findRelationsRecursively(building, EntitySearchDirection.FROM, Integer.MAX_VALUE, true).get();
+
+        assertThat(relations).containsExactlyInAnyOrder(floor1ToDevice1, floor2ToDevice2);
+    }
+
+    @Test
+    void givenLoadedIndex_whenFindToDirection_thenAncestorRelationsReturned() throws Exception {
+        Set<EntityRelation> relations = index.findRelationsRecursively(device2, EntitySearchDirection.TO, Integer.MAX_VALUE, false).get();
+
+        assertThat(relations).containsExactlyInAnyOrder(floor2ToDevice2, buildingToFloor2);
+    }
+
+    @Test
+    void givenRelationChange_whenFind_thenIndexIsUpdated() throws Exception {
+        EntityRelation device1ToDevice2 = new EntityRelation(device1, device2, EntityRelation.MANAGES_TYPE);
+        given(relationDao.findAllByFromAndTo(any(), eq(device1), any(), eq(RelationTypeGroup.COMMON))).willReturn(List.of(device1ToDevice2));
+        index.onRelationChange(EntityRelationEvent.from(device1ToDevice2));
+        index.onRelationChange(EntityRelationEvent.from(floor1ToDevice1));
+
+        await().atMost(10, TimeUnit.SECONDS).untilAsserted(() -> {
+            assertThat(index.findRelationsRecursively(floor1, EntitySearchDirection.FROM, Integer.MAX_VALUE, false).get()).isEmpty();
+            assertThat(index.findRelationsRecursively(device1, EntitySearchDirection.FROM, Integer.MAX_VALUE, false).get()).containsExactly(device1ToDevice2);
+        });
+    }
+
+    @Test
+    void givenRelationWithAdditionalInfo_whenFind_thenAdditionalInfoIsLoaded() throws Exception {
+        EntityRelation withInfo = new EntityRelation(device1, device2, EntityRelation.CONTAINS_TYPE, RelationTypeGroup.COMMON, JacksonUtil.toJsonNode("{\"a\":1}"));
+        given(relationDao.findAllByFromAndTo(any(), eq(device1), any(), eq(RelationTypeGroup.COMMON))).willReturn(List.of(withInfo));
+        index.onRelationChange(EntityRelationEvent.from(withInfo));
+        await().atMost(10, TimeUnit.SECONDS).until(() -> index.getEdgeCount() == 5);
+
+        Set<EntityRelation> relations = index.findRelationsRecursively(device1, EntitySearchDirection.FROM, 1, false).get();
+
+        assertThat(relations).containsExactly(withInfo);
+        assertThat(relations.iterator().next().getAdditionalInfo().get("a").asInt()).isEqualTo(1);
+    }
+
+    @Test
+    void givenRelationsWithAdditionalInfoFromSameEntity_whenFind_thenAdditionalInfoIsLoadedInSingleQuery() throws Exception {
+        EntityRelation toDevice1 = new EntityRelation(floor2, device1, EntityRelation.MANAGES_TYPE, RelationTypeGroup.COMMON, JacksonUtil.toJsonNode("{\"a\":1}"));
+        EntityRelation toDevice2 = new EntityRelation(floor2, device2, EntityRelation.CONTAINS_TYPE, RelationTypeGroup.COMMON, JacksonUtil.toJsonNode("{\"a\":2}"));
+        given(relationDao.findAllByFromAndTo(any(), eq(floor2), any(), eq(RelationTypeGroup.COMMON))).willReturn(List.of(toDevice1, toDevice2));
+        index.onRelationChange(EntityRelationEvent.from(toDevice1));
+        index.onRelationChange(EntityRelationEvent.from(toDevice2));
+        await().atMost(10, TimeUnit.SECONDS).until(() -> index.getEdgeCount() == 6);
+        clearInvocations(relationDao);
+
+        Set<EntityRelation> relations = index.findRelationsRecursively(floor2, EntitySearchDirection.FROM, 1, false).get();
+
+        assertThat(relations).containsExactlyInAnyOrder(toDevice1, toDevice2, floor2ToDevice2);
+        then(relationDao).should().findAllByFromAndTo(any(), eq(floor2), eq(Set.of(device1, device2)), eq(RelationTypeGroup.COMMON));
+        then(relationDao).shouldHaveNoMoreInteractions();
+    }
+
+    @Test
+    void givenRefreshFailed_whenRetrySucceeds_thenIndexIsUpdatedAndReadyAgain() throws Exception {
+        given(relationDao.findAllByFromAndTo(any(), eq(floor1), any(), eq(RelationTypeGroup.COMMON))).willThrow(new RuntimeException("Connection refused"));
+        index.onRelationChange(EntityRelationEvent.from(floor1ToDevice1));
+
+        await().atMost(10, TimeUnit.SECONDS).until(() -> !index.isReady(RelationTypeGroup.COMMON));
+        assertThat(index.getEdgeCount()).isEqualTo(4);
+
+        given(relationDao.findAllByFromAndTo(any(), eq(floor1), any(), eq(RelationTypeGroup.COMMON))).willReturn(List.of());
+
+        await().atMost(10, TimeUnit.SECONDS).until(() -> index.isReady(RelationTypeGroup.COMMON));
+        assertThat(index.getEdgeCount()).isEqualTo(3);
+        assertThat(index.findRelationsRecursively(floor1, EntitySearchDirection.FROM, Integer.MAX_VALUE, false).get()).isEmpty();
+    }
+
+    @Test
+    void givenAllRelationsOfEntityDeleted_whenRefreshed_thenEntityNodeIsReclaimed() throws Exception {
+        assertThat(index.getNodeCount()).isEqualTo(5);
+        index.onRelationChange(EntityRelationEvent.from(floor2ToDevice2));
+
+        await().atMost(10, TimeUnit.SECONDS).until(() -> index.getNodeCount() == 4);
+        assertThat(index.findRelationsRecursively(device2, EntitySearchDirection.TO, Integer.MAX_VALUE, false).get()).isEmpty();
+        assertThat(index.findRelationsRecursively(building, EntitySearchDirection.FROM, Integer.MAX_VALUE, false).get())
+                .containsExactlyInAnyOrder(buildingToFloor1, buildingToFloor2, floor1ToDevice1);
+
+        DeviceId device3 = new DeviceId(UUID.randomUUID());
+        EntityRelation floor2ToDevice3 = new EntityRelation(floor2, device3, EntityRelation.CONTAINS_TYPE);
+        given(relationDao.findAllByFromAndTo(any(), eq(floor2), any(), eq(RelationTypeGroup.COMMON))).willReturn(List.of(floor2ToDevice3));
+        index.onRelationChange(EntityRelationEvent.from(floor2ToDevice3));
+
+        await().atMost(10, TimeUnit.SECONDS).until(() -> index.getEdgeCount() == 4);
+        assertThat(index.getNodeCount()).isEqualTo(5);
+        assertThat(index.findRelationsRecursively(device3, EntitySearchDirection.TO, Integer.MAX_VALUE, false).get())
+                .containsExactlyInAnyOrder(floor2ToDevice3, buildingToFloor2);
+    }
+
+    @Test
+    void givenUnknownEntity_whenFind_thenEmptyResult() throws Exception {
+        EntityId unknown = new DeviceId(UUID.randomUUID());
+
+        assertThat(index.findRelationsRecursively(unknown, EntitySearchDirection.FROM, Integer.MAX_VALUE, false).get()).isEmpty();
+    }
+
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.relation;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.relation.EntityRelation;
+import org.thingsboard.server.common.data.relation.EntitySearchDirection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RelationGraphTest {
+
+    @Test
+    void givenRelationsRemovedInRandomOrder_whenGetNode_thenRemainingEntitiesAreFoundAndIsolatedAreReleased() {
+        RelationGraph graph = new RelationGraph();
+        Random random = new Random(42);
+        List<EntityId> entities = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            entities.add(new DeviceId(UUID.randomUUID()));
+        }
+        EntityId root = entities.get(0);
+        for (int i = 1; i < entities.size(); i++) {
+            graph.addEdge(root, entities.get(i), EntityRelation.CONTAINS_TYPE, RelationGraph.ADDITIONAL_INFO_NONE, false);
+        }
+        assertThat(graph.getNodeCount()).isEqualTo(5000);
+
+        List<EntityId> removed = new ArrayList<>();
+        List<EntityId> remaining = new ArrayList<>(entities.subList(1, entities.size()));
+        for (int i = 0; i < 3000; i++) {
+            EntityId entityId = remaining.remove(random.nextInt(remaining.size()));
+            assertThat(graph.removeEdge(root, entityId, EntityRelation.CONTAINS_TYPE)).isTrue();
+            removed.add(entityId);
+        }
+
+        assertThat(graph.getNodeCount()).isEqualTo(2000);
+        assertThat(graph.getDegree(graph.getNode(root), EntitySearchDirection.FROM)).isEqualTo(1999);
+        for (EntityId entityId : remaining) {
+            int node = graph.getNode(entityId);
+            assertThat(node).isNotNegative();
+            assertThat(graph.getEntityId(node)).isEqualTo(entityId);
+        }
+        for (EntityId entityId : removed) {
+            assertThat(graph.getNode(entityId)).isNegative();
+        }
+
+        for (EntityId entityId : removed) {
+            graph.addEdge(entityId, root, EntityRelation.MANAGES_TYPE, RelationGraph.ADDITIONAL_INFO_NONE, false);
+        }
+        assertThat(graph.getNodeCount()).isEqualTo(5000);
+        assertThat(graph.getDegree(graph.getNode(root), EntitySearchDirection.TO)).isEqualTo(3000);
+        for (EntityId entityId : entities) {
+            assertThat(graph.getEntityId(graph.getNode(entityId))).isEqualTo(entityId);
+        }
+    }
+
+}
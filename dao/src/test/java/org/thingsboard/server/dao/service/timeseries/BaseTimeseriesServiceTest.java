@@ -168,6 +168,19 @@ public abstract class BaseTimeseriesServiceTest extends AbstractServiceTest {
         equalsIgnoreVersion(toTsEntry(TS, stringKvEntry), entries.get(0));
     }
 
+    @Test
+    public void testFindLatestByMultipleKeys() throws Exception {
+        saveEntries(deviceId, TS - 1);
+        saveEntries(deviceId, TS);
+
+        List<TsKvEntry> entries = tsService.findLatest(tenantId, deviceId, List.of(LONG_KEY, "missingKey", STRING_KEY)).get(MAX_TIMEOUT, TimeUnit.SECONDS);
+        Assert.assertEquals(3, entries.size());
+        equalsIgnoreVersion(toTsEntry(TS, longKvEntry), entries.get(0));
+        Assert.assertEquals("missingKey", entries.get(1).getKey());
+        Assert.assertNull(entries.get(1).getValue());
+        equalsIgnoreVersion(toTsEntry(TS, stringKvEntry), entries.get(2));
+    }
+
     @Test
     public void testFindLatestOpt_givenSaveWithHistoricalNonOrderedTS() throws Exception {
         if (databaseTsLatestType.equals("cassandra")) {
@@ -0,0 +1,146 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.service.timeseries.sql;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.common.data.kv.AggregationParams;
+import org.thingsboard.server.common.data.kv.BaseReadTsKvQuery;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.DataType;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.IntervalType;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.dao.service.AbstractServiceTest;
+import org.thingsboard.server.dao.service.DaoSqlTest;
+import org.thingsboard.server.dao.timeseries.TimeseriesDao;
+import org.thingsboard.server.dao.timeseries.TimeseriesService;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@DaoSqlTest
+@TestPropertySource(properties = "sql.ts.aggregation_single_query=true")
+public class TimeseriesAggregationSingleQuerySqlTest extends AbstractServiceTest {
+
+    private static final String LONG_KEY = "longKey";
+    private static final String DOUBLE_KEY = "doubleKey";
+    private static final String STRING_KEY = "stringKey";
+    private static final List<Aggregation> AGGREGATIONS = List.of(Aggregation.AVG, Aggregation.SUM, Aggregation.MIN, Aggregation.MAX, Aggregation.COUNT);
+    private static final ZoneId TZ = ZoneId.of("America/New_York");
+    private static final int MAX_TIMEOUT = 30;
+
+    // 2024-01-03T07:00:00Z, not aligned to the day, week or month
+    private static final long START_TS = 1704265200000L;
+    private static final long STEP = TimeUnit.HOURS.toMillis(7) + TimeUnit.MINUTES.toMillis(13);
+    private static final long END_TS = START_TS + TimeUnit.DAYS.toMillis(200);
+    // no data in this period, so some of the intervals are empty
+    private static final long GAP_START_TS = START_TS + TimeUnit.DAYS.toMillis(40);
+    private static final long GAP_END_TS = START_TS + TimeUnit.DAYS.toMillis(110);
+
+    @Autowired
+    private TimeseriesService tsService;
+
+    @Autowired
+    private TimeseriesDao timeseriesDao;
+
+    private DeviceId deviceId;
+
+    @Before
+    public void before() throws Exception {
+        deviceId = new DeviceId(UUID.randomUUID());
+
+        List<TsKvEntry> entries = new ArrayList<>();
+        long i = 0;
+        for (long ts = START_TS; ts < END_TS; ts += STEP, i++) {
+            if (ts >= GAP_START_TS && ts < GAP_END_TS) {
+                continue;
+            }
+            entries.add(new BasicTsKvEntry(ts, new LongDataEntry(LONG_KEY, i % 17 - 5)));
+            entries.add(new BasicTsKvEntry(ts, new DoubleDataEntry(DOUBLE_KEY, (i % 23) * 0.37 - 2.5)));
+            entries.add(new BasicTsKvEntry(ts, new StringDataEntry(STRING_KEY, "value" + (i % 11))));
+        }
+        tsService.save(tenantId, deviceId, entries, 0).get(MAX_TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void givenMillisecondsInterval_whenFindAll_thenSameResultAsPerIntervalQueries() throws Exception {
+        for (long interval : List.of(TimeUnit.HOURS.toMillis(8), TimeUnit.DAYS.toMillis(1), TimeUnit.DAYS.toMillis(45))) {
+            for (Aggregation aggregation : AGGREGATIONS) {
+                verifySameResult(AggregationParams.milliseconds(aggregation, interval));
+            }
+        }
+    }
+
+    @Test
+    public void givenCalendarInterval_whenFindAll_thenSameResultAsPerIntervalQueries() throws Exception {
+        for (IntervalType intervalType : List.of(IntervalType.WEEK, IntervalType.WEEK_ISO, IntervalType.MONTH, IntervalType.QUARTER)) {
+            for (Aggregation aggregation : AGGREGATIONS) {
+                verifySameResult(AggregationParams.calendar(aggregation, intervalType, TZ));
+            }
+        }
+    }
+
+    private void verifySameResult(AggregationParams params) throws Exception {
+        for (String key : List.of(LONG_KEY, DOUBLE_KEY, STRING_KEY)) {
+            ReadTsKvQuery query = new BaseReadTsKvQuery(key, START_TS, END_TS, params, 10000, "ASC");
+            List<TsKvEntry> expected = findAll(query, false);
+            List<TsKvEntry> actual = findAll(query, true);
+
+            String description = key + " " + params;
+            assertThat(expected).as(description).isNotEmpty();
+            assertThat(actual).as(description).hasSameSizeAs(expected);
+            for (int i = 0; i < expected.size(); i++) {
+                TsKvEntry expectedEntry = expected.get(i);
+                TsKvEntry actualEntry = actual.get(i);
+                assertThat(actualEntry.getTs()).as(description).isEqualTo(expectedEntry.getTs());
+                assertThat(actualEntry.getKey()).as(description).isEqualTo(expectedEntry.getKey());
+                assertThat(actualEntry.getDataType()).as(description).isEqualTo(expectedEntry.getDataType());
+                if (expectedEntry.getDataType() == DataType.DOUBLE) {
+                    assertThat(actualEntry.getDoubleValue().get()).as(description).isCloseTo(expectedEntry.getDoubleValue().get(), within(1e-9));
+                } else {
+                    assertThat(actualEntry.getValueAsString()).as(description).isEqualTo(expectedEntry.getValueAsString());
+                }
+            }
+        }
+    }
+
+    private List<TsKvEntry> findAll(ReadTsKvQuery query, boolean singleQuery) throws Exception {
+        Object dao = AopTestUtils.getUltimateTargetObject(timeseriesDao);
+        ReflectionTestUtils.setField(dao, "aggregationSingleQuery", singleQuery);
+        try {
+            return tsService.findAll(tenantId, deviceId, List.of(query)).get(MAX_TIMEOUT, TimeUnit.SECONDS);
+        } finally {
+            ReflectionTestUtils.setField(dao, "aggregationSingleQuery", true);
+        }
+    }
+
+}
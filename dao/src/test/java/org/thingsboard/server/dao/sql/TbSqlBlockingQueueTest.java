@@ -0,0 +1,175 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.stats.MessagesStats;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.Mockito.mock;
+
+public class TbSqlBlockingQueueTest {
+
+    private final ScheduledLogExecutorComponent logExecutor = new ScheduledLogExecutorComponent();
+    private StatsFactory statsFactory;
+    private TbSqlBlockingQueue<String, Void> queue;
+    private Number queueSizeGauge;
+
+    @BeforeEach
+    public void setUp() {
+        logExecutor.init();
+        statsFactory = mock(StatsFactory.class);
+        willAnswer(invocation -> queueSizeGauge = invocation.getArgument(1)).given(statsFactory).createGauge(anyString(), any(), any(String[].class));
+        willReturn(mock(Timer.class)).given(statsFactory).createTimer(anyString(), any(String[].class));
+        willReturn(mock(DistributionSummary.class)).given(statsFactory).createDistributionSummary(anyString(), any(String[].class));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (queue != null) {
+            queue.destroy();
+        }
+        logExecutor.stop();
+    }
+
+    @Test
+    public void givenBoundedQueueWithRejectPolicy_whenQueueIsFull_thenFutureFailed() throws Exception {
+        CountDownLatch saveStarted = new CountDownLatch(1);
+        CountDownLatch releaseSave = new CountDownLatch(1);
+        queue = createQueue(TbSqlBlockingQueueParams.builder()
+                .logName("Test")
+                .batchSize(1)
+                .maxDelay(10)
+                .statsPrintIntervalMs(10000)
+                .statsNamePrefix("test")
+                .maxQueueSize(1)
+                .queueFullPolicy(TbSqlQueueFullPolicy.REJECT)
+                .build(), entities -> {
+            saveStarted.countDown();
+            await(releaseSave);
+        });
+
+        ListenableFuture<Void> first = queue.add("first");
+        assertThat(saveStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        ListenableFuture<Void> second = queue.add("second");
+        ListenableFuture<Void> rejected = queue.add("rejected");
+
+        assertThatThrownBy(rejected::get).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+        assertThat(queueSizeGauge.intValue()).isEqualTo(1);
+
+        releaseSave.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertThat(queueSizeGauge.intValue()).isZero();
+    }
+
+    @Test
+    public void givenBoundedQueueWithBlockPolicy_whenQueueIsFullUntilTimeout_thenFutureFailed() throws Exception {
+        CountDownLatch saveStarted = new CountDownLatch(1);
+        CountDownLatch releaseSave = new CountDownLatch(1);
+        queue = createQueue(TbSqlBlockingQueueParams.builder()
+                .logName("Test")
+                .batchSize(1)
+                .maxDelay(10)
+                .statsPrintIntervalMs(10000)
+                .statsNamePrefix("test")
+                .maxQueueSize(1)
+                .queueFullPolicy(TbSqlQueueFullPolicy.BLOCK)
+                .queueFullTimeoutMs(50)
+                .build(), entities -> {
+            saveStarted.countDown();
+            await(releaseSave);
+        });
+
+        queue.add("first");
+        assertThat(saveStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        queue.add("second");
+        long startTs = System.currentTimeMillis();
+        ListenableFuture<Void> timedOut = queue.add("timedOut");
+
+        assertThat(System.currentTimeMillis() - startTs).isGreaterThanOrEqualTo(50);
+        assertThatThrownBy(timedOut::get).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+        releaseSave.countDown();
+    }
+
+    @Test
+    public void givenAdaptiveBatchSize_whenFlushIsSlowOrFast_thenBatchSizeAdjusted() {
+        queue = new TbSqlBlockingQueue<>(TbSqlBlockingQueueParams.builder()
+                .logName("Test")
+                .batchSize(1000)
+                .maxDelay(10)
+                .statsNamePrefix("test")
+                .adaptiveBatchSize(true)
+                .targetFlushLatencyMs(100)
+                .build(), mock(MessagesStats.class), statsFactory);
+
+        queue.adjustBatchSize(200, true);
+        assertThat(queue.getCurrentBatchSize()).isEqualTo(500);
+        queue.adjustBatchSize(200, false);
+        queue.adjustBatchSize(200, false);
+        queue.adjustBatchSize(200, false);
+        queue.adjustBatchSize(200, false);
+        assertThat(queue.getCurrentBatchSize()).isEqualTo(100);
+
+        queue.adjustBatchSize(10, false);
+        assertThat(queue.getCurrentBatchSize()).isEqualTo(100);
+        queue.adjustBatchSize(10, true);
+        assertThat(queue.getCurrentBatchSize()).isEqualTo(200);
+        for (int i = 0; i < 20; i++) {
+            queue.adjustBatchSize(10, true);
+        }
+        assertThat(queue.getCurrentBatchSize()).isEqualTo(1000);
+    }
+
+    private TbSqlBlockingQueue<String, Void> createQueue(TbSqlBlockingQueueParams params, Consumer<List<String>> saveFunction) {
+        TbSqlBlockingQueue<String, Void> queue = new TbSqlBlockingQueue<>(params, mock(MessagesStats.class), statsFactory);
+        queue.init(logExecutor, entities -> {
+            saveFunction.accept(entities);
+            return null;
+        }, Comparator.naturalOrder(), l -> l, 0);
+        return queue;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -18,20 +18,31 @@ package org.thingsboard.server.dao.sqlts;
 import com.google.common.util.concurrent.Futures;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.thingsboard.server.common.data.kv.BaseReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.ReadTsKvQueryResult;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.dao.dictionary.KeyDictionaryDao;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.sql.JpaExecutorService;
+import org.thingsboard.server.dao.sqlts.ts.TsKvAggregationRepository;
 
 import java.util.Optional;
+import java.util.concurrent.Callable;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.BDDMockito.willCallRealMethod;
 import static org.mockito.BDDMockito.willReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -146,6 +157,26 @@ public class AbstractChunkedAggregationTimeseriesDaoTest {
         }
     }
 
+    @Test
+    public void givenSingleQueryAggregation_whenAggregateCount_thenAllIntervalsAggregatedByOneQuery() {
+        TsKvAggregationRepository aggregationRepository = mock(TsKvAggregationRepository.class);
+        KeyDictionaryDao keyDictionaryDao = mock(KeyDictionaryDao.class);
+        JpaExecutorService service = mock(JpaExecutorService.class);
+        willAnswer(invocation -> Futures.immediateFuture(invocation.<Callable<?>>getArgument(0).call())).given(service).submit(any(Callable.class));
+        willReturn(1).given(keyDictionaryDao).getOrSaveKeyId(TEMP);
+        willReturn(new TsKvEntity[2]).given(aggregationRepository).findAggregates(any(), anyInt(), any(), any(), anyLong());
+        ReflectionTestUtils.setField(tsDao, "aggregationSingleQuery", true);
+        ReflectionTestUtils.setField(tsDao, "aggregationRepository", aggregationRepository);
+        ReflectionTestUtils.setField(tsDao, "keyDictionaryDao", keyDictionaryDao);
+        ReflectionTestUtils.setField(tsDao, "service", service);
+
+        ReadTsKvQuery query = new BaseReadTsKvQuery(TEMP, 1, 3000, 2000, LIMIT, COUNT, DESC);
+        tsDao.findAllAsync(SYS_TENANT_ID, SYS_TENANT_ID, query);
+
+        verify(tsDao, never()).findAndAggregateAsync(any(), any(), anyLong(), anyLong(), anyLong(), any());
+        verify(aggregationRepository, times(1)).findAggregates(eq(SYS_TENANT_ID.getId()), eq(1), eq(COUNT), aryEq(new long[]{1, 2001, 3000}), eq(2000L));
+    }
+
     long getTsForReadTsKvQuery(long startTs, long endTs) {
         return startTs + (endTs - startTs) / 2L;
     }
@@ -0,0 +1,132 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.insert.latest.sql;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.thingsboard.server.dao.AbstractJpaDaoTest;
+import org.thingsboard.server.dao.model.sqlts.latest.TsKvLatestEntity;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SqlCopyLatestInsertTsRepositoryTest extends AbstractJpaDaoTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private UUID entityId;
+    private long ts;
+
+    @Before
+    public void setUp() {
+        entityId = UUID.randomUUID();
+        ts = System.currentTimeMillis();
+    }
+
+    @Test
+    public void givenDuplicatesInBatch_whenSaveOrUpdate_thenEntryWithLatestTsWins() {
+        SqlCopyLatestInsertTsRepository repository = createRepository(true);
+
+        List<Long> versions = repository.saveOrUpdate(List.of(
+                createEntity(1, ts + 1, 1L),
+                createEntity(1, ts, 2L),
+                createEntity(2, ts, 3L),
+                createEntity(2, ts, 4L)));
+
+        assertThat(versions.get(0)).isNotNull();
+        assertThat(versions.get(1)).isNull();
+        assertThat(versions.get(2)).isNull();
+        assertThat(versions.get(3)).isNotNull();
+        assertThat(findLongValue(1)).isEqualTo(1L);
+        assertThat(findTs(1)).isEqualTo(ts + 1);
+        assertThat(findLongValue(2)).isEqualTo(4L);
+    }
+
+    @Test
+    public void givenNewerValueStored_whenSaveOrUpdateOlder_thenValueIsNotUpdated() {
+        SqlCopyLatestInsertTsRepository repository = createRepository(true);
+        Long storedVersion = repository.saveOrUpdate(List.of(createEntity(1, ts, 1L))).get(0);
+
+        List<Long> versions = repository.saveOrUpdate(List.of(createEntity(1, ts - 1, 2L), createEntity(2, ts - 1, 3L)));
+
+        assertThat(storedVersion).isNotNull();
+        assertThat(versions.get(0)).isNull();
+        assertThat(versions.get(1)).isNotNull();
+        assertThat(findLongValue(1)).isEqualTo(1L);
+        assertThat(findVersion(1)).isEqualTo(storedVersion);
+
+        Long newerVersion = repository.saveOrUpdate(List.of(createEntity(1, ts + 1, 4L))).get(0);
+
+        assertThat(newerVersion).isGreaterThan(storedVersion);
+        assertThat(findLongValue(1)).isEqualTo(4L);
+        assertThat(findVersion(1)).isEqualTo(newerVersion);
+    }
+
+    @Test
+    public void givenUpdateByLatestTsDisabled_whenSaveOrUpdate_thenLastEntryWins() {
+        SqlCopyLatestInsertTsRepository repository = createRepository(false);
+        repository.saveOrUpdate(List.of(createEntity(1, ts + 10, 1L)));
+
+        List<Long> versions = repository.saveOrUpdate(List.of(createEntity(1, ts + 1, 2L), createEntity(1, ts, 3L)));
+
+        assertThat(versions.get(0)).isNull();
+        assertThat(versions.get(1)).isNotNull();
+        assertThat(findLongValue(1)).isEqualTo(3L);
+        assertThat(findTs(1)).isEqualTo(ts);
+        assertThat(findVersion(1)).isEqualTo(versions.get(1));
+    }
+
+    private SqlCopyLatestInsertTsRepository createRepository(boolean updateByLatestTs) {
+        SqlCopyLatestInsertTsRepository repository = new SqlCopyLatestInsertTsRepository();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(repository, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(repository, "updateByLatestTs", updateByLatestTs);
+        ReflectionTestUtils.invokeMethod(repository, "init");
+        return repository;
+    }
+
+    private Long findLongValue(int key) {
+        return jdbcTemplate.queryForObject("SELECT long_v FROM ts_kv_latest WHERE entity_id = ? AND key = ?", Long.class, entityId, key);
+    }
+
+    private Long findTs(int key) {
+        return jdbcTemplate.queryForObject("SELECT ts FROM ts_kv_latest WHERE entity_id = ? AND key = ?", Long.class, entityId, key);
+    }
+
+    private Long findVersion(int key) {
+        return jdbcTemplate.queryForObject("SELECT version FROM ts_kv_latest WHERE entity_id = ? AND key = ?", Long.class, entityId, key);
+    }
+
+    private TsKvLatestEntity createEntity(int key, long ts, Long longValue) {
+        TsKvLatestEntity entity = new TsKvLatestEntity();
+        entity.setEntityId(entityId);
+        entity.setKey(key);
+        entity.setTs(ts);
+        entity.setLongValue(longValue);
+        return entity;
+    }
+
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.insert.sql;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.dao.AbstractJpaDaoTest;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.sqlts.insert.InsertTsRepository;
+import org.thingsboard.server.dao.timeseries.TimeseriesDao;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SqlCopyInsertTsRepositoryTest extends AbstractJpaDaoTest {
+
+    @Autowired
+    private InsertTsRepository<TsKvEntity> batchInsertRepository;
+
+    @Autowired
+    private TimeseriesDao timeseriesDao;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private SqlCopyInsertTsRepository copyInsertRepository;
+    private long ts;
+
+    @Before
+    public void setUp() throws Exception {
+        copyInsertRepository = new SqlCopyInsertTsRepository();
+        ReflectionTestUtils.setField(copyInsertRepository, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(copyInsertRepository, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(copyInsertRepository, "removeNullChars", true);
+
+        ts = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1);
+        // creates the ts_kv partition for the current period
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        timeseriesDao.save(TenantId.SYS_TENANT_ID, deviceId, new BasicTsKvEntry(ts, new LongDataEntry("partition", 0L)), 0).get(30, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void givenDuplicatesInBatch_whenSaveOrUpdate_thenLastValueWins() {
+        UUID entityId = UUID.randomUUID();
+        copyInsertRepository.saveOrUpdate(List.of(
+                createEntity(entityId, 1, ts, 1L, null),
+                createEntity(entityId, 1, ts, 2L, null),
+                createEntity(entityId, 2, ts, null, "str\u0000value")));
+
+        assertThat(jdbcTemplate.queryForObject("SELECT long_v FROM ts_kv WHERE entity_id = ? AND key = 1 AND ts = ?", Long.class, entityId, ts)).isEqualTo(2L);
+        assertThat(jdbcTemplate.queryForObject("SELECT str_v FROM ts_kv WHERE entity_id = ? AND key = 2 AND ts = ?", String.class, entityId, ts)).isEqualTo("strvalue");
+    }
+
+    @Test
+    public void givenExistingRows_whenSaveOrUpdate_thenRowsUpdated() {
+        UUID entityId = UUID.randomUUID();
+        batchInsertRepository.saveOrUpdate(List.of(createEntity(entityId, 1, ts, 1L, null)));
+        copyInsertRepository.saveOrUpdate(List.of(createEntity(entityId, 1, ts, null, "updated")));
+
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM ts_kv WHERE entity_id = ?", Long.class, entityId)).isEqualTo(1L);
+        assertThat(jdbcTemplate.queryForObject("SELECT long_v FROM ts_kv WHERE entity_id = ?", Long.class, entityId)).isNull();
+        assertThat(jdbcTemplate.queryForObject("SELECT str_v FROM ts_kv WHERE entity_id = ?", String.class, entityId)).isEqualTo("updated");
+    }
+
+    @Test
+    public void givenFailedBatch_whenSaveOrUpdate_thenStagingTableIsRecreated() {
+        UUID entityId = UUID.randomUUID();
+        // the pool hands the last used connection to the same thread, drop the staging table created by the previous tests
+        jdbcTemplate.execute("DROP TABLE IF EXISTS ts_kv_copy_staging");
+        TsKvEntity invalidJson = createEntity(entityId, 1, ts, null, null);
+        invalidJson.setJsonValue("{");
+        // the copy fails and the transaction that created the staging table is rolled back
+        assertThatThrownBy(() -> copyInsertRepository.saveOrUpdate(List.of(invalidJson))).isInstanceOf(DataAccessException.class);
+
+        copyInsertRepository.saveOrUpdate(List.of(createEntity(entityId, 1, ts, 2L, null)));
+
+        assertThat(jdbcTemplate.queryForObject("SELECT long_v FROM ts_kv WHERE entity_id = ? AND key = 1 AND ts = ?", Long.class, entityId, ts)).isEqualTo(2L);
+    }
+
+    private static TsKvEntity createEntity(UUID entityId, int key, long ts, Long longValue, String strValue) {
+        TsKvEntity entity = new TsKvEntity();
+        entity.setEntityId(entityId);
+        entity.setKey(key);
+        entity.setTs(ts);
+        entity.setLongValue(longValue);
+        entity.setStrValue(strValue);
+        return entity;
+    }
+
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.util;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TenantFairBlockingQueueTest {
+
+    private final TenantId tenantA = TenantId.fromUUID(UUID.randomUUID());
+    private final TenantId tenantB = TenantId.fromUUID(UUID.randomUUID());
+
+    @Test
+    void givenNoisyTenant_whenTake_thenOtherTenantIsServedAfterQuantum() throws InterruptedException {
+        TenantFairBlockingQueue<Task> queue = newQueue(100, 2, 1, 1, 1);
+        for (int i = 0; i < 10; i++) {
+            queue.add(new Task(tenantA, AsyncTaskPriority.HIGH, i));
+        }
+        queue.add(new Task(tenantB, AsyncTaskPriority.HIGH, 0));
+        queue.add(new Task(tenantB, AsyncTaskPriority.HIGH, 1));
+        queue.add(new Task(tenantB, AsyncTaskPriority.HIGH, 2));
+
+        List<String> order = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            order.add(queue.take().toString());
+        }
+
+        assertThat(order).startsWith("A0", "A1", "B0", "B1", "A2", "A3", "B2", "A4", "A5", "A6");
+        assertThat(order).hasSize(13);
+    }
+
+    @Test
+    void givenPriorityWeights_whenTake_thenLowerClassesAreNotStarved() throws InterruptedException {
+        TenantFairBlockingQueue<Task> queue = newQueue(100, 16, 3, 2, 1);
+        for (int i = 0; i < 6; i++) {
+            queue.add(new Task(tenantA, AsyncTaskPriority.LOW, i));
+            queue.add(new Task(tenantA, AsyncTaskPriority.MEDIUM, i));
+            queue.add(new Task(tenantA, AsyncTaskPriority.HIGH, i));
+        }
+
+        List<AsyncTaskPriority> order = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            order.add(queue.take().getPriority());
+        }
+
+        assertThat(order).containsExactly(AsyncTaskPriority.HIGH, AsyncTaskPriority.HIGH, AsyncTaskPriority.HIGH,
+                AsyncTaskPriority.MEDIUM, AsyncTaskPriority.MEDIUM, AsyncTaskPriority.LOW);
+    }
+
+    @Test
+    void givenOnlyLowPriorityTasks_whenTake_thenTheyAreServed() throws InterruptedException {
+        TenantFairBlockingQueue<Task> queue = newQueue(100, 16, 8, 4, 1);
+        queue.add(new Task(tenantA, AsyncTaskPriority.LOW, 0));
+        queue.add(new Task(tenantA, AsyncTaskPriority.LOW, 1));
+
+        assertThat(queue.take().toString()).isEqualTo("A0");
+        assertThat(queue.take().toString()).isEqualTo("A1");
+        assertThat(queue.poll(10, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void givenFullQueue_whenAdd_thenRejected() {
+        TenantFairBlockingQueue<Task> queue = newQueue(2, 16, 1, 1, 1);
+        queue.add(new Task(tenantA, AsyncTaskPriority.HIGH, 0));
+        assertThat(queue.offer(new Task(tenantB, AsyncTaskPriority.LOW, 0))).isTrue();
+
+        assertThat(queue.remainingCapacity()).isZero();
+        assertThatThrownBy(() -> queue.add(new Task(tenantB, AsyncTaskPriority.HIGH, 1))).isInstanceOf(IllegalStateException.class);
+
+        assertThat(queue.poll()).isNotNull();
+        assertThat(queue.offer(new Task(tenantB, AsyncTaskPriority.HIGH, 1))).isTrue();
+        assertThat(queue).hasSize(2);
+    }
+
+    private TenantFairBlockingQueue<Task> newQueue(int capacity, int quantum, int... weights) {
+        return new TenantFairBlockingQueue<>(capacity, quantum, weights, Task::getTenantId, Task::getPriority);
+    }
+
+    private class Task implements AsyncTask {
+
+        private final TenantId tenantId;
+        private final AsyncTaskPriority priority;
+        private final int idx;
+
+        Task(TenantId tenantId, AsyncTaskPriority priority, int idx) {
+            this.tenantId = tenantId;
+            this.priority = priority;
+            this.idx = idx;
+        }
+
+        @Override
+        public TenantId getTenantId() {
+            return tenantId;
+        }
+
+        @Override
+        public AsyncTaskPriority getPriority() {
+            return priority;
+        }
+
+        @Override
+        public String toString() {
+            return (tenantId.equals(tenantA) ? "A" : "B") + idx;
+        }
+
+    }
+
+}
@@ -23,7 +23,6 @@ import lombok.extern.slf4j.Slf4j;
 import net.objecthunter.exp4j.Expression;
 import net.objecthunter.exp4j.ExpressionBuilder;
 import org.springframework.util.ConcurrentReferenceHashMap;
-import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.rule.engine.api.RuleNode;
 import org.thingsboard.rule.engine.api.TbContext;
 import org.thingsboard.rule.engine.api.TbNode;
@@ -172,7 +171,7 @@ public class TbMathNode implements TbNode {
     private Optional<ObjectNode> convertMsgBodyIfRequired(TbMsg msg) {
         Optional<ObjectNode> msgBodyOpt;
         if (msgBodyToJsonConversionRequired) {
-            var jsonNode = JacksonUtil.toJsonNode(msg.getData());
+            var jsonNode = msg.copyDataAsJson();
             if (jsonNode.isObject()) {
                 msgBodyOpt = Optional.of((ObjectNode) jsonNode);
             } else {
@@ -202,7 +201,7 @@ public class TbMathNode implements TbNode {
         } else {
             body.put(mathResultKey, toDoubleValue(mathResultDef, result));
         }
-        return TbMsg.transformMsgData(msg, JacksonUtil.toString(body));
+        return TbMsg.transformMsgData(msg, body);
     }
 
     private TbMsg addToMeta(TbMsg msg, TbMathResult mathResultDef, String mathResultKey, double result) {
@@ -32,6 +32,7 @@ import org.thingsboard.server.common.adaptor.JsonConverter;
 import org.thingsboard.server.common.data.AttributeScope;
 import org.thingsboard.server.common.data.StringUtils;
 import org.thingsboard.server.common.data.kv.AttributeKvEntry;
+import org.thingsboard.server.common.data.kv.BaseAttributeKvEntry;
 import org.thingsboard.server.common.data.kv.KvEntry;
 import org.thingsboard.server.common.data.plugin.ComponentType;
 import org.thingsboard.server.common.data.util.TbPair;
@@ -83,8 +84,7 @@ public class TbMsgAttributesNode implements TbNode {
             ctx.tellFailure(msg, new IllegalArgumentException("Unsupported msg type: " + msg.getType()));
             return;
         }
-        String src = msg.getData();
-        List<AttributeKvEntry> newAttributes = new ArrayList<>(JsonConverter.convertToAttributes(JsonParser.parseString(src)));
+        List<AttributeKvEntry> newAttributes = toAttributes(msg);
         if (newAttributes.isEmpty()) {
             ctx.tellSuccess(msg);
             return;
@@ -109,6 +109,22 @@ public class TbMsgAttributesNode implements TbNode {
                 MoreExecutors.directExecutor());
     }
 
+    /*
+     * Uses the typed entries of the message if it was created from the transport payload, so the data is not parsed.
+     * */
+    private static List<AttributeKvEntry> toAttributes(TbMsg msg) {
+        List<KvEntry> kvEntries = msg.getKvEntries();
+        if (kvEntries == null) {
+            return new ArrayList<>(JsonConverter.convertToAttributes(JsonParser.parseString(msg.getData())));
+        }
+        long ts = System.currentTimeMillis();
+        List<AttributeKvEntry> attributes = new ArrayList<>(kvEntries.size());
+        for (KvEntry kvEntry : kvEntries) {
+            attributes.add(new BaseAttributeKvEntry(kvEntry, ts));
+        }
+        return attributes;
+    }
+
     void saveAttr(List<AttributeKvEntry> attributes, TbContext ctx, TbMsg msg, AttributeScope scope, boolean sendAttributesUpdateNotification) {
         if (attributes.isEmpty()) {
             ctx.tellSuccess(msg);
@@ -87,18 +87,11 @@ public class TbMsgTimeseriesNode implements TbNode {
             return;
         }
         long ts = computeTs(msg, config.isUseServerTs());
-        String src = msg.getData();
-        Map<Long, List<KvEntry>> tsKvMap = JsonConverter.convertToTelemetry(JsonParser.parseString(src), ts);
-        if (tsKvMap.isEmpty()) {
-            ctx.tellFailure(msg, new IllegalArgumentException("Msg body is empty: " + src));
+        List<TsKvEntry> tsKvEntryList = toTsKvEntries(msg, ts);
+        if (tsKvEntryList.isEmpty()) {
+            ctx.tellFailure(msg, new IllegalArgumentException("Msg body is empty: " + msg.getData()));
             return;
         }
-        List<TsKvEntry> tsKvEntryList = new ArrayList<>();
-        for (Map.Entry<Long, List<KvEntry>> tsKvEntry : tsKvMap.entrySet()) {
-            for (KvEntry kvEntry : tsKvEntry.getValue()) {
-                tsKvEntryList.add(new BasicTsKvEntry(tsKvEntry.getKey(), kvEntry));
-            }
-        }
         String ttlValue = msg.getMetaData().getValue("TTL");
         long ttl = !StringUtils.isEmpty(ttlValue) ? Long.parseLong(ttlValue) : config.getDefaultTTL();
         if (ttl == 0L) {
@@ -111,6 +104,27 @@ public class TbMsgTimeseriesNode implements TbNode {
         }
     }
 
+    /*
+     * Uses the typed entries of the message if it was created from the transport payload, so the data is not parsed.
+     * */
+    private static List<TsKvEntry> toTsKvEntries(TbMsg msg, long ts) {
+        List<TsKvEntry> tsKvEntryList = new ArrayList<>();
+        List<KvEntry> kvEntries = msg.getKvEntries();
+        if (kvEntries != null) {
+            for (KvEntry kvEntry : kvEntries) {
+                tsKvEntryList.add(new BasicTsKvEntry(ts, kvEntry));
+            }
+        } else {
+            Map<Long, List<KvEntry>> tsKvMap = JsonConverter.convertToTelemetry(JsonParser.parseString(msg.getData()), ts);
+            for (Map.Entry<Long, List<KvEntry>> tsKvEntry : tsKvMap.entrySet()) {
+                for (KvEntry kvEntry : tsKvEntry.getValue()) {
+                    tsKvEntryList.add(new BasicTsKvEntry(tsKvEntry.getKey(), kvEntry));
+                }
+            }
+        }
+        return tsKvEntryList;
+    }
+
     public static long computeTs(TbMsg msg, boolean ignoreMetadataTs) {
         return ignoreMetadataTs ? System.currentTimeMillis() : msg.getMetaDataTs();
     }
@@ -69,13 +69,12 @@ public class TbCopyKeysNode extends TbAbstractTransformNodeWithTbMsgSource {
     @Override
     public void onMsg(TbContext ctx, TbMsg msg) throws ExecutionException, InterruptedException, TbNodeException {
         var metaDataCopy = msg.getMetaData().copy();
-        String msgData = msg.getData();
+        JsonNode dataNode = msg.getDataAsJson();
         boolean msgChanged = false;
-        JsonNode dataNode = JacksonUtil.toJsonNode(msgData);
         if (dataNode.isObject()) {
             switch (copyFrom) {
                 case METADATA:
-                    ObjectNode msgDataNode = (ObjectNode) dataNode;
+                    ObjectNode msgDataNode = (ObjectNode) dataNode.deepCopy();
                     Map<String, String> metaDataMap = metaDataCopy.getData();
                     for (Map.Entry<String, String> entry : metaDataMap.entrySet()) {
                         String mdKey = entry.getKey();
@@ -85,7 +84,7 @@ public class TbCopyKeysNode extends TbAbstractTransformNodeWithTbMsgSource {
                             msgDataNode.put(mdKey, mdValue);
                         }
                     }
-                    msgData = JacksonUtil.toString(msgDataNode);
+                    dataNode = msgDataNode;
                     break;
                 case DATA:
                     Iterator<Map.Entry<String, JsonNode>> iteratorNode = dataNode.fields();
@@ -105,7 +104,7 @@ public class TbCopyKeysNode extends TbAbstractTransformNodeWithTbMsgSource {
                     log.debug("Unexpected CopyFrom value: {}. Allowed values: {}", copyFrom, TbMsgSource.values());
             }
         }
-        ctx.tellSuccess(msgChanged ? TbMsg.transformMsg(msg, metaDataCopy, msgData) : msg);
+        ctx.tellSuccess(msgChanged ? TbMsg.transformMsg(msg, metaDataCopy, dataNode) : msg);
     }
 
     @Override
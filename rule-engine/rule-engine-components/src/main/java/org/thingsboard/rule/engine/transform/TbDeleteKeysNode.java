@@ -18,7 +18,6 @@ package org.thingsboard.rule.engine.transform;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.extern.slf4j.Slf4j;
-import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.rule.engine.api.RuleNode;
 import org.thingsboard.rule.engine.api.TbContext;
 import org.thingsboard.rule.engine.api.TbNodeConfiguration;
@@ -69,7 +68,7 @@ public class TbDeleteKeysNode extends TbAbstractTransformNodeWithTbMsgSource {
     @Override
     public void onMsg(TbContext ctx, TbMsg msg) throws ExecutionException, InterruptedException, TbNodeException {
         var metaDataCopy = msg.getMetaData().copy();
-        var msgDataStr = msg.getData();
+        JsonNode msgData = null;
         boolean hasNoChanges = false;
         switch (deleteFrom) {
             case METADATA:
@@ -83,24 +82,32 @@ public class TbDeleteKeysNode extends TbAbstractTransformNodeWithTbMsgSource {
                 hasNoChanges = mdKeysToDelete.isEmpty();
                 break;
             case DATA:
-                JsonNode dataNode = JacksonUtil.toJsonNode(msgDataStr);
+                JsonNode dataNode = msg.getDataAsJson();
                 if (dataNode.isObject()) {
-                    var msgDataObject = (ObjectNode) dataNode;
                     var msgKeysToDelete = new ArrayList<String>();
                     dataNode.fieldNames().forEachRemaining(key -> {
                         if (matches(key)) {
                             msgKeysToDelete.add(key);
                         }
                     });
-                    msgDataObject.remove(msgKeysToDelete);
-                    msgDataStr = JacksonUtil.toString(msgDataObject);
                     hasNoChanges = msgKeysToDelete.isEmpty();
+                    if (!hasNoChanges) {
+                        ObjectNode msgDataObject = dataNode.deepCopy();
+                        msgDataObject.remove(msgKeysToDelete);
+                        msgData = msgDataObject;
+                    }
                 }
                 break;
             default:
                 log.debug("Unexpected DeleteFrom value: {}. Allowed values: {}", deleteFrom, TbMsgSource.values());
         }
-        ctx.tellSuccess(hasNoChanges ? msg : TbMsg.transformMsg(msg, metaDataCopy, msgDataStr));
+        if (hasNoChanges) {
+            ctx.tellSuccess(msg);
+        } else if (msgData != null) {
+            ctx.tellSuccess(TbMsg.transformMsg(msg, metaDataCopy, msgData));
+        } else {
+            ctx.tellSuccess(TbMsg.transformMsgMetadata(msg, metaDataCopy));
+        }
     }
 
     @Override
@@ -18,7 +18,6 @@ package org.thingsboard.rule.engine.transform;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.extern.slf4j.Slf4j;
-import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.rule.engine.api.RuleNode;
 import org.thingsboard.rule.engine.api.TbContext;
 import org.thingsboard.rule.engine.api.TbNodeConfiguration;
@@ -69,7 +68,7 @@ public class TbRenameKeysNode extends TbAbstractTransformNodeWithTbMsgSource {
     @Override
     public void onMsg(TbContext ctx, TbMsg msg) throws ExecutionException, InterruptedException, TbNodeException {
         TbMsgMetaData metaDataCopy = msg.getMetaData().copy();
-        String data = msg.getData();
+        JsonNode data = null;
         boolean msgChanged = false;
         switch (renameIn) {
             case METADATA:
@@ -87,9 +86,9 @@ public class TbRenameKeysNode extends TbAbstractTransformNodeWithTbMsgSource {
                 metaDataCopy = new TbMsgMetaData(metaDataMap);
                 break;
             case DATA:
-                JsonNode dataNode = JacksonUtil.toJsonNode(data);
+                JsonNode dataNode = msg.getDataAsJson();
                 if (dataNode.isObject()) {
-                    ObjectNode msgData = (ObjectNode) dataNode;
+                    ObjectNode msgData = dataNode.deepCopy();
                     for (Map.Entry<String, String> entry : renameKeysMapping.entrySet()) {
                         String currentKeyName = entry.getKey();
                         String newKeyName = entry.getValue();
@@ -100,13 +99,19 @@ public class TbRenameKeysNode extends TbAbstractTransformNodeWithTbMsgSource {
                             msgData.remove(currentKeyName);
                         }
                     }
-                    data = JacksonUtil.toString(msgData);
+                    data = msgData;
                 }
                 break;
             default:
                 log.debug("Unexpected RenameIn value: {}. Allowed values: {}", renameIn, TbMsgSource.values());
         }
-        ctx.tellSuccess(msgChanged ? TbMsg.transformMsg(msg, metaDataCopy, data) : msg);
+        if (!msgChanged) {
+            ctx.tellSuccess(msg);
+        } else if (data != null) {
+            ctx.tellSuccess(TbMsg.transformMsg(msg, metaDataCopy, data));
+        } else {
+            ctx.tellSuccess(TbMsg.transformMsgMetadata(msg, metaDataCopy));
+        }
     }
 
     @Override
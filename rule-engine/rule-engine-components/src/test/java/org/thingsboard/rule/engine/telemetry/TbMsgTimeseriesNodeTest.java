@@ -38,6 +38,8 @@ import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.id.TenantProfileId;
 import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
 import org.thingsboard.server.common.data.kv.KvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
 import org.thingsboard.server.common.data.msg.TbMsgType;
 import org.thingsboard.server.common.data.tenant.profile.DefaultTenantProfileConfiguration;
@@ -180,6 +182,27 @@ public class TbMsgTimeseriesNodeTest {
         verifyNoMoreInteractions(ctxMock, telemetryServiceMock);
     }
 
+    @Test
+    public void givenMsgWithKvEntries_whenOnMsg_thenSaveEntriesWithoutParsingData() throws TbNodeException {
+        init();
+
+        long ts = System.currentTimeMillis();
+        var metadata = Map.of("ts", String.valueOf(ts));
+        List<KvEntry> kvEntries = List.of(new LongDataEntry("temp", 45L), new StringDataEntry("status", "ok"));
+        TbMsg msg = TbMsg.newKvMsg(null, TbMsgType.POST_TELEMETRY_REQUEST, DEVICE_ID, null, new TbMsgMetaData(metadata), kvEntries, null, null);
+
+        when(ctxMock.getTelemetryService()).thenReturn(telemetryServiceMock);
+        when(ctxMock.getTenantId()).thenReturn(TENANT_ID);
+
+        node.onMsg(ctxMock, msg);
+
+        ArgumentCaptor<List<TsKvEntry>> entryListCaptor = ArgumentCaptor.forClass(List.class);
+        verify(telemetryServiceMock).saveAndNotify(eq(TENANT_ID), isNull(), eq(DEVICE_ID), entryListCaptor.capture(),
+                eq(tenantProfileDefaultStorageTtl), any(TelemetryNodeCallback.class));
+        assertThat(entryListCaptor.getValue()).containsExactly(new BasicTsKvEntry(ts, kvEntries.get(0)), new BasicTsKvEntry(ts, kvEntries.get(1)));
+        assertThat(msg.getData()).isEqualTo("{\"temp\":45,\"status\":\"ok\"}");
+    }
+
     @ParameterizedTest
     @MethodSource
     public void givenTtlFromConfigAndTtlFromMd_whenOnMsg_thenVerifyTtl(String ttlFromMd, long ttlFromConfig, long expectedTtl) throws TbNodeException {